@@ -0,0 +1,74 @@
+import java.util.Properties
+
+// JMH-бенчмарки процессорной части парсера (разбор HTML и извлечение данных) на обычной JVM, без устройства.
+// Запуск: ./gradlew :benchmark:jmh
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+// Модели приложения реализуют Parcelable, поэтому для компиляции и запуска нужен android.jar из SDK
+val androidSdkDir: String = run {
+    val properties = Properties()
+    val localProperties = rootProject.file("local.properties")
+    if (localProperties.exists()) {
+        localProperties.inputStream().use { properties.load(it) }
+    }
+    properties.getProperty("sdk.dir")
+        ?: System.getenv("ANDROID_HOME")
+        ?: error("Android SDK не найден: укажите sdk.dir в local.properties или ANDROID_HOME")
+}
+val androidJar = files("$androidSdkDir/platforms/android-35/android.jar")
+
+sourceSets {
+    main {
+        // Из приложения берутся только классы без зависимостей от Android-фреймворка
+        java {
+            setSrcDirs(listOf(rootProject.file("src/main/java")))
+            include(
+                "com/mydishes/mydishes/models/Product.java",
+                "com/mydishes/mydishes/models/Nutrition.java",
+                "com/mydishes/mydishes/parser/PageStateReader.java",
+                "com/mydishes/mydishes/parser/SelectorExtractor.java",
+                "com/mydishes/mydishes/parser/SourceConfig.java",
+                "com/mydishes/mydishes/utils/NumberUtils.java"
+            )
+        }
+        // Описания источников (селекторы и подписи КБЖУ)
+        resources {
+            setSrcDirs(listOf(rootProject.file("src/main/resources")))
+            include("parsers/*.json")
+        }
+    }
+    named("jmh") {
+        // Сохранённые страницы сайта - те же, что используются в модульных тестах приложения
+        resources {
+            srcDir(rootProject.file("src/test/resources"))
+            include("fixtures/*.html")
+        }
+    }
+}
+
+dependencies {
+    implementation(libs.jsoup)
+    implementation(libs.gson)
+    compileOnly(libs.annotation)
+    compileOnly(libs.jetbrains.annotations)
+    compileOnly(androidJar)
+    jmhRuntimeOnly(androidJar)
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    // Профилировщик gc добавляет к результатам скорость выделения памяти (gc.alloc.rate.norm - байт на операцию)
+    profilers.add("gc")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+}
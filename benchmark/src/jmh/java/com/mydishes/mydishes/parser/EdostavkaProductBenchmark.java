@@ -0,0 +1,83 @@
+package com.mydishes.mydishes.parser;
+
+import com.mydishes.mydishes.models.Nutrition;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Процессорная часть загрузки деталей {@link EdostavkaParser}: разбор страницы продукта и извлечение
+ * строк КБЖУ. Одна операция - одна страница.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EdostavkaProductBenchmark {
+
+    private static final String URL = "https://edostavka.by/product/1001";
+
+    @Param("/fixtures/edostavka_product.html")
+    public String page;
+
+    @Param("/fixtures/edostavka_product_state.html")
+    public String statePage;
+
+    private SelectorExtractor extractor;
+    private PageStateReader stateReader;
+    private String html;
+    private String stateHtml;
+    private Document document;
+
+    @Setup
+    public void setUp() throws Exception {
+        SourceConfig config = SourceConfig.edostavka();
+        extractor = new SelectorExtractor(config);
+        stateReader = new PageStateReader(config);
+        html = Fixtures.read(page);
+        stateHtml = Fixtures.read(statePage);
+        document = Jsoup.parse(html, URL);
+        // Страница без КБЖУ сразу завершает прогон, а не измеряет разбор ошибки
+        extractor.parseNutrition(document, URL);
+    }
+
+    /**
+     * Полный путь после загрузки: построение DOM и извлечение КБЖУ.
+     */
+    @Benchmark
+    public Nutrition parseAndExtract() throws Exception {
+        return extractor.parseNutrition(Jsoup.parse(html, URL), URL);
+    }
+
+    /**
+     * Основной путь парсера: пропуск разметки и потоковое чтение КБЖУ из встроенного JSON состояния.
+     */
+    @Benchmark
+    public Nutrition readState() throws IOException {
+        Reader json = stateReader.skipToState(new StringReader(stateHtml), new StringBuilder());
+        if (json == null) {
+            throw new IllegalStateException("На странице " + statePage + " нет состояния");
+        }
+        return stateReader.readNutrition(json);
+    }
+
+    /**
+     * Извлечение КБЖУ из уже построенного DOM.
+     */
+    @Benchmark
+    public Nutrition extractNutrition() throws Exception {
+        return extractor.parseNutrition(document, URL);
+    }
+}
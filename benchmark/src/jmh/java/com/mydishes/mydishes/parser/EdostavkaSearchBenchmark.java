@@ -0,0 +1,149 @@
+package com.mydishes.mydishes.parser;
+
+import com.mydishes.mydishes.models.Product;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Процессорная часть поиска {@link EdostavkaParser}: разбор страницы результатов, выбор карточек продуктов
+ * и извлечение из них данных. Одна операция - одна страница (или один проход по её карточкам).
+ * <p>
+ * Для проверки новой разметки сайта страницу можно подменить: {@code -p page=/fixtures/<файл>.html}
+ * (и {@code -p statePage=...} для страницы со встроенным состоянием).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EdostavkaSearchBenchmark {
+
+    // Как Parser.MAX_RESULTS: сам Parser зависит от Android и в модуль не входит
+    private static final int MAX_RESULTS = 25;
+    private static final String BASE_URI = "https://edostavka.by/search?query=%D0%BC%D0%BE%D0%BB%D0%BE%D0%BA%D0%BE";
+
+    @Param("/fixtures/edostavka_search.html")
+    public String page;
+
+    @Param("/fixtures/edostavka_search_state.html")
+    public String statePage;
+
+    private SourceConfig config;
+    private SelectorExtractor extractor;
+    private PageStateReader stateReader;
+    private String html;
+    private String stateHtml;
+    private Document document;
+    private final List<String> alts = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        config = SourceConfig.edostavka();
+        extractor = new SelectorExtractor(config);
+        stateReader = new PageStateReader(config);
+        html = Fixtures.read(page);
+        stateHtml = Fixtures.read(statePage);
+        document = Jsoup.parse(html, BASE_URI);
+        for (Element card : document.select(config.card)) {
+            Element image = card.selectFirst("img[alt]");
+            if (image != null) {
+                alts.add(image.attr("alt"));
+            }
+        }
+        if (alts.isEmpty()) {
+            throw new IllegalStateException("На странице " + page + " не найдено карточек продуктов");
+        }
+    }
+
+    /**
+     * Полный путь поиска после загрузки: построение DOM и извлечение всех карточек.
+     */
+    @Benchmark
+    public List<Product> parseAndExtract() {
+        return extract(Jsoup.parse(html, BASE_URI));
+    }
+
+    /**
+     * Основной путь парсера: пропуск разметки и потоковое чтение продуктов из встроенного JSON состояния.
+     */
+    @Benchmark
+    public List<Product> readState() throws IOException {
+        Reader json = stateReader.skipToState(new StringReader(stateHtml), new StringBuilder());
+        if (json == null) {
+            throw new IllegalStateException("На странице " + statePage + " нет состояния");
+        }
+        return stateReader.readProducts(json, BASE_URI, MAX_RESULTS);
+    }
+
+    /**
+     * Выбор карточек скомпилированным селектором (как в парсере).
+     */
+    @Benchmark
+    public Elements selectCardsCompiled() {
+        return document.select(config.card);
+    }
+
+    /**
+     * Выбор карточек строковым селектором, который разбирается при каждом вызове.
+     */
+    @Benchmark
+    public Elements selectCardsQuery() {
+        return document.select(config.cardQuery);
+    }
+
+    /**
+     * Извлечение продуктов из уже построенного DOM.
+     */
+    @Benchmark
+    public List<Product> extractProducts() {
+        return extract(document);
+    }
+
+    /**
+     * Получение названий продуктов разбором атрибута {@code alt} как HTML (как в парсере).
+     */
+    @Benchmark
+    public void cleanNameReparse(Blackhole blackhole) {
+        for (String alt : alts) {
+            blackhole.consume(SelectorExtractor.cleanName(alt));
+        }
+    }
+
+    /**
+     * Альтернатива для сравнения: только раскрытие HTML-сущностей, без построения документа.
+     * Результат совпадает с {@link #cleanNameReparse}, пока атрибут не содержит тегов.
+     */
+    @Benchmark
+    public void cleanNameUnescape(Blackhole blackhole) {
+        for (String alt : alts) {
+            blackhole.consume(org.jsoup.parser.Parser.unescapeEntities(alt, true)
+                    .replace("\\u00AD", "").trim());
+        }
+    }
+
+    private List<Product> extract(Document doc) {
+        List<Product> products = new ArrayList<>();
+        for (Element card : extractor.selectCards(doc)) {
+            products.add(extractor.toProduct(card));
+        }
+        return products;
+    }
+}
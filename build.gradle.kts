@@ -52,6 +52,9 @@ dependencies {
     implementation(libs.navigation.fragment)
     implementation(libs.navigation.ui)
     implementation(libs.jsoup)
+    implementation(libs.okhttp)
+    implementation(libs.okhttp.brotli)
+    implementation(libs.gson)
     implementation(libs.glide)
     implementation(libs.room.common.jvm)
     implementation(libs.room.runtime)
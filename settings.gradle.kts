@@ -20,4 +20,4 @@ dependencyResolutionManagement {
 }
 
 rootProject.name = "My dishes"
- 
\ No newline at end of file
+include(":benchmark")
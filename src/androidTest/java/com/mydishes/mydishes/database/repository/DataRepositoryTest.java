@@ -0,0 +1,203 @@
+package com.mydishes.mydishes.database.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.mydishes.mydishes.database.AppDatabase;
+import com.mydishes.mydishes.models.Dish;
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class DataRepositoryTest {
+
+    private AppDatabase db;
+    private ExecutorService readExecutor;
+    private ExecutorService writeExecutor;
+    private DataRepository repository;
+    // Удерживает поток записи, имитируя долгое сохранение
+    private final CountDownLatch releaseWriter = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                AppDatabase.class).build();
+        readExecutor = Executors.newFixedThreadPool(2);
+        writeExecutor = Executors.newSingleThreadExecutor();
+        repository = new DataRepository(db, readExecutor, writeExecutor, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        releaseWriter.countDown();
+        readExecutor.shutdownNow();
+        writeExecutor.shutdownNow();
+        db.close();
+    }
+
+    @Test
+    public void readsAreNotQueuedBehindWrites() throws Exception {
+        long dishId = repository.insertDishWithDetails(dish("Суп")).get(5, TimeUnit.SECONDS);
+        blockWriter();
+        CompletableFuture<Long> save = repository.insertDishWithDetails(dish("Салат"));
+
+        List<Dish> dishes = repository.getAllDishesSimple().get(5, TimeUnit.SECONDS);
+
+        assertFalse(save.isDone());
+        assertEquals(1, dishes.size());
+        assertEquals(dishId, dishes.get(0).getId());
+        releaseWriter.countDown();
+        save.get(5, TimeUnit.SECONDS);
+        assertEquals(2, repository.getAllDishesSimple().get(5, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void cancelledOperationIsNotExecuted() throws Exception {
+        blockWriter();
+        CompletableFuture<Long> save = repository.insertDishWithDetails(dish("Суп"), new DataRepository.QueryCallBack<>() {
+            @Override
+            public void onSuccess(Long result) {
+                throw new AssertionError("Колбэк отмененной операции");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new AssertionError("Колбэк отмененной операции", e);
+            }
+        });
+
+        assertTrue(save.cancel(false));
+        releaseWriter.countDown();
+        // Следующая запись выполняется после отмененной
+        repository.insertDishWithDetails(dish("Салат")).get(5, TimeUnit.SECONDS);
+
+        List<Dish> dishes = repository.getAllDishesSimple().get(5, TimeUnit.SECONDS);
+        assertEquals(1, dishes.size());
+        assertEquals("Салат", dishes.get(0).getName());
+    }
+
+    @Test
+    public void dishIsReadWithProductsInOneQuery() throws Exception {
+        Dish twoProducts = dish("Суп");
+        twoProducts.getProducts().add(product("Морковь"));
+        Dish noProducts = new Dish("Чай", null, new Nutrition(1, 0, 0, 0), new ArrayList<>());
+        long twoProductsId = repository.insertDishWithDetails(twoProducts).get(5, TimeUnit.SECONDS);
+        long noProductsId = repository.insertDishWithDetails(noProducts).get(5, TimeUnit.SECONDS);
+
+        Dish soup = repository.getDishById(twoProductsId).get(5, TimeUnit.SECONDS);
+        Dish tea = repository.getDishById(noProductsId).get(5, TimeUnit.SECONDS);
+
+        assertEquals("Суп", soup.getName());
+        assertEquals(2, soup.getProducts().size());
+        assertEquals("Морковь", soup.getProducts().get(1).getName());
+        assertEquals(58, soup.getProducts().get(0).getNutrition().getCalories(), 0.001);
+        assertNull(tea.getProducts());
+        assertEquals(1, tea.getNutrition().getCalories(), 0.001);
+        assertNull(repository.getDishById(noProductsId + 1).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void summariesHaveNutritionButNoProducts() throws Exception {
+        long dishId = repository.insertDishWithDetails(dish("Суп")).get(5, TimeUnit.SECONDS);
+        repository.insertDishWithDetails(dish("Салат")).get(5, TimeUnit.SECONDS);
+
+        List<Dish> summaries = repository.getDishSummariesBefore(Long.MAX_VALUE, 10).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, summaries.size());
+        // Новые блюда первыми
+        assertEquals("Салат", summaries.get(0).getName());
+        Dish summary = summaries.get(1);
+        Dish full = repository.getDishById(dishId).get(5, TimeUnit.SECONDS);
+        assertEquals(full.getName(), summary.getName());
+        assertEquals(full.getNutrition(), summary.getNutrition());
+        assertNull(summary.getProducts());
+    }
+
+    @Test
+    public void updatingSummaryKeepsProducts() throws Exception {
+        long dishId = repository.insertDishWithDetails(dish("Суп")).get(5, TimeUnit.SECONDS);
+        Dish summary = repository.getDishSummariesBefore(Long.MAX_VALUE, 1).get(5, TimeUnit.SECONDS).get(0);
+
+        summary.setName("Борщ");
+        repository.updateDish(summary).get(5, TimeUnit.SECONDS);
+
+        Dish updated = repository.getDishById(dishId).get(5, TimeUnit.SECONDS);
+        assertEquals("Борщ", updated.getName());
+        assertEquals(1, updated.getProducts().size());
+    }
+
+    @Test
+    public void summaryPagesAreSelectedByKeyNewestFirst() throws Exception {
+        long[] ids = new long[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = repository.insertDishWithDetails(dish("Блюдо " + i)).get(5, TimeUnit.SECONDS);
+        }
+
+        List<Dish> first = repository.getDishSummariesBefore(Long.MAX_VALUE, 2).get(5, TimeUnit.SECONDS);
+        List<Dish> second = repository.getDishSummariesBefore(first.get(1).getId(), 2).get(5, TimeUnit.SECONDS);
+        List<Dish> newer = repository.getDishSummariesAfter(second.get(0).getId(), 2).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(ids[4], ids[3]), idsOf(first));
+        assertEquals(List.of(ids[2], ids[1]), idsOf(second));
+        assertNull(second.get(0).getProducts());
+        assertEquals(repository.getDishById(ids[2]).get(5, TimeUnit.SECONDS).getNutrition(), second.get(0).getNutrition());
+        // Ближайшие более новые блюда в порядке списка
+        assertEquals(List.of(ids[4], ids[3]), idsOf(newer));
+        assertEquals(List.of(ids[0]), idsOf(repository.getDishSummariesBefore(ids[1], 2).get(5, TimeUnit.SECONDS)));
+    }
+
+    private static List<Long> idsOf(List<Dish> dishes) {
+        List<Long> ids = new ArrayList<>();
+        for (Dish dish : dishes) {
+            ids.add(dish.getId());
+        }
+        return ids;
+    }
+
+    private void blockWriter() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        writeExecutor.execute(() -> {
+            started.countDown();
+            try {
+                releaseWriter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private static Dish dish(String name) {
+        List<Product> products = new ArrayList<>();
+        products.add(product("Продукт"));
+        return new Dish(name, null, Product.calculate(products), products);
+    }
+
+    private static Product product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setProductURL("https://edostavka.by/product/1");
+        product.setMass(100);
+        product.setNutrition(new Nutrition(58, 2.8, 3.2, 4.7));
+        return product;
+    }
+}
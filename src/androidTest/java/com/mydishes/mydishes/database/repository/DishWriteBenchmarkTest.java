@@ -0,0 +1,144 @@
+package com.mydishes.mydishes.database.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.mydishes.mydishes.database.AppDatabase;
+import com.mydishes.mydishes.database.model.DishProductCrossRef;
+import com.mydishes.mydishes.database.model.relations.DishWithProductsAndNutrition;
+import com.mydishes.mydishes.models.Dish;
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Время сохранения блюда с 1, 20 и 200 продуктами: по одной вставке на запись (как до перехода на транзакцию)
+ * и {@link DataRepository#saveDishWithDetails} - одна транзакция с пакетными вставками. База хранится в файле,
+ * чтобы учитывалась фиксация на диске. Печатает медиану в logcat (тег {@code DishWriteBenchmark}); проверяет
+ * только сохраненные данные, поэтому не зависит от скорости устройства.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DishWriteBenchmarkTest {
+
+    private static final String TAG = "DishWriteBenchmark";
+    private static final String DATABASE_NAME = "dish_write_benchmark";
+    private static final int[] INGREDIENTS = {1, 20, 200};
+    // Первые прогоны не учитываются: прогрев JIT и кэша страниц SQLite
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int ITERATIONS = 10;
+
+    private Context context;
+    private AppDatabase db;
+    private ExecutorService executor;
+    private DataRepository repository;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        db = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME).build();
+        executor = Executors.newSingleThreadExecutor();
+        repository = new DataRepository(db, executor, executor, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        db.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void saveDishWithDetails() {
+        for (int ingredients : INGREDIENTS) {
+            Dish dish = dish(ingredients);
+            long[] perRow = new long[ITERATIONS];
+            long[] transaction = new long[ITERATIONS];
+            for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                saveRowByRow(dish);
+                long perRowNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long dishId = repository.saveDishWithDetails(dish);
+                long transactionNanos = System.nanoTime() - start;
+
+                if (i >= 0) {
+                    perRow[i] = perRowNanos;
+                    transaction[i] = transactionNanos;
+                }
+                assertSaved(dishId, ingredients);
+            }
+            Log.i(TAG, String.format(Locale.ROOT, "ingredients=%d perRow=%.2f мс transaction=%.2f мс",
+                    ingredients, medianMillis(perRow), medianMillis(transaction)));
+        }
+    }
+
+    /**
+     * Сохранение с отдельной неявной транзакцией на каждую вставку - прежняя реализация
+     * {@link DataRepository#insertDishWithDetails}.
+     */
+    private void saveRowByRow(Dish dish) {
+        long dishNutritionId = db.nutritionDao().insertNutrition(nutritionEntity(dish.getNutrition()));
+        long dishId = db.dishDao().insertDish(
+                new com.mydishes.mydishes.database.model.Dish(dish.getName(), dish.getPhotoUri(), dishNutritionId));
+        List<DishProductCrossRef> crossRefs = new ArrayList<>();
+        for (Product product : dish.getProducts()) {
+            long nutritionId = db.nutritionDao().insertNutrition(nutritionEntity(product.getNutrition()));
+            long productId = db.productDao().insertProduct(new com.mydishes.mydishes.database.model.Product(
+                    product.getProductURL(), product.getImageURL(), product.getName(), nutritionId, product.getMass()));
+            crossRefs.add(new DishProductCrossRef(dishId, productId));
+        }
+        db.dishDao().insertDishProductCrossRefs(crossRefs);
+    }
+
+    private void assertSaved(long dishId, int ingredients) {
+        DishWithProductsAndNutrition saved = db.dishDao().getDishWithProductsAndNutrition(dishId);
+        assertNotNull(saved);
+        assertNotNull(saved.dishNutrition);
+        assertEquals(ingredients, saved.products.size());
+    }
+
+    private static Dish dish(int ingredients) {
+        List<Product> products = new ArrayList<>(ingredients);
+        for (int i = 0; i < ingredients; i++) {
+            Product product = new Product();
+            product.setName("Продукт " + i);
+            product.setProductURL("https://edostavka.by/product/" + i);
+            product.setImageURL("https://img.edostavka.by/products/" + i + ".jpg");
+            product.setMass(100);
+            product.setNutrition(new Nutrition(58, 2.8, 3.2, 4.7));
+            products.add(product);
+        }
+        return new Dish("Блюдо", null, Product.calculate(products), products);
+    }
+
+    private static com.mydishes.mydishes.database.model.Nutrition nutritionEntity(Nutrition nutrition) {
+        return new com.mydishes.mydishes.database.model.Nutrition(
+                nutrition.getCalories(), nutrition.getProtein(), nutrition.getFat(), nutrition.getCarb());
+    }
+
+    private static double medianMillis(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+}
@@ -3,10 +3,9 @@ package com.mydishes.mydishes;
 import static com.mydishes.mydishes.utils.ViewUtils.applyInsets;
 
 import android.content.Intent;
+import android.net.ConnectivityManager;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.ProgressBar;
@@ -15,6 +14,7 @@ import android.widget.TextView;
 import androidx.activity.EdgeToEdge;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -32,11 +32,15 @@ import com.mydishes.mydishes.models.Dish;
 import com.mydishes.mydishes.models.Nutrition;
 import com.mydishes.mydishes.models.Product;
 import com.mydishes.mydishes.models.ProductsSelectedManager;
-import com.mydishes.mydishes.parser.EdostavkaParser;
-import com.mydishes.mydishes.parser.Parser;
+import com.mydishes.mydishes.parser.CachingParser;
+import com.mydishes.mydishes.parser.DetailsPrefetcher;
+import com.mydishes.mydishes.parser.ParserProvider;
+import com.mydishes.mydishes.parser.ParserMetrics;
 import com.mydishes.mydishes.parser.ParsingStateListener;
-import com.mydishes.mydishes.parser.ProductParseCallback;
+import com.mydishes.mydishes.parser.SearchPager;
+import com.mydishes.mydishes.parser.SearchPipeline;
 import com.mydishes.mydishes.utils.DialogUtils;
+import com.mydishes.mydishes.utils.PagingScrollListener;
 import com.mydishes.mydishes.utils.TextWatcherUtils;
 import com.mydishes.mydishes.utils.ViewAddedBottomSheet;
 
@@ -45,22 +49,34 @@ import java.util.List;
 /**
  * Активность для добавления нового блюда.
  * Позволяет пользователю искать продукты, выбирать их, указывать название блюда и сохранять его в базу данных.
- * Использует {@link EdostavkaParser} для поиска продуктов и {@link DataRepository} для взаимодействия с БД.
+ * Использует общий парсер из {@link ParserProvider} для поиска продуктов и {@link DataRepository} для взаимодействия с БД.
  */
 public class AddActivity extends AppCompatActivity {
 
-    // Handler для отложенного выполнения поисковых запросов
-    private final Handler handler = new Handler(Looper.getMainLooper());
-    // Экземпляр парсера для получения данных о продуктах
-    private final Parser parser = new EdostavkaParser();
-    // Runnable для поискового запроса, позволяет отменять предыдущие запросы
-    private Runnable searchRunnable;
+    // Задержка после последнего ввода символа перед отправкой поискового запроса, в миллисекундах
+    private static final long SEARCH_DEBOUNCE_MS = 500;
+    // Минимальная длина поискового запроса
+    private static final int MIN_QUERY_LENGTH = 2;
+    // Количество первых результатов поиска, детали которых загружаются заранее (0 - предзагрузка отключена)
+    private static final int PREFETCH_DETAILS_COUNT = 5;
+    // Максимальное количество одновременных предзагрузок
+    private static final int PREFETCH_CONCURRENCY = 2;
+    // Общий парсер для получения данных о продуктах (с кэшем результатов поиска и деталей продуктов)
+    private CachingParser parser;
+    // Конвейер поисковых запросов: debounce, отбрасывание повторов и отмена устаревших запросов
+    private SearchPipeline searchPipeline;
+    // Предзагрузка деталей первых результатов поиска в кэш
+    private DetailsPrefetcher detailsPrefetcher;
+    // Догрузка следующих страниц результатов поиска при прокрутке списка
+    private SearchPager searchPager;
     // Индикатор загрузки, отображается во время поиска продуктов
     private ProgressBar progressBar;
     // Текстовое поле, отображается, если ничего не найдено по запросу
     private TextView textViewNothing;
     // RecyclerView для отображения списка найденных продуктов
     private RecyclerView addProductsRecycler;
+    // LayoutManager списка найденных продуктов (для определения последнего видимого элемента)
+    private LinearLayoutManager productsLayoutManager;
     // Адаптер для RecyclerView, управляющий отображением продуктов
     private ProductFindAdapter productFindAdapter;
     // Плавающая кнопка для отображения списка выбранных продуктов и начала процесса добавления блюда
@@ -89,6 +105,7 @@ public class AddActivity extends AppCompatActivity {
 
         // Получение экземпляра DataRepository для работы с базой данных
         dataRepository = DataRepository.getInstance(this.getApplication());
+        parser = ParserProvider.get(this);
 
         initRecyclerView();
         initSearchComponents();
@@ -106,7 +123,14 @@ public class AddActivity extends AppCompatActivity {
     private void initRecyclerView() {
         // Инициализация RecyclerView для отображения найденных продуктов
         addProductsRecycler = findViewById(R.id.add_products_recycler);
-        addProductsRecycler.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.VERTICAL, false));
+        productsLayoutManager = new LinearLayoutManager(this, LinearLayoutManager.VERTICAL, false);
+        addProductsRecycler.setLayoutManager(productsLayoutManager);
+        // При приближении к концу списка догружается следующая страница результатов
+        addProductsRecycler.addOnScrollListener(new PagingScrollListener(productsLayoutManager, position -> {
+            if (searchPager != null) {
+                searchPager.onScrolled(position);
+            }
+        }));
 
         // Инициализация адаптера для RecyclerView
         // Передаем слушателя состояния парсинга для управления доступностью кнопки productListButton
@@ -135,8 +159,8 @@ public class AddActivity extends AppCompatActivity {
      * Настраивает {@link SearchBar} и {@link SearchView}.
      * Применяет отступы к контейнеру поиска для корректного отображения под системными элементами.
      * Инициализирует {@link ProgressBar} для индикации загрузки и {@link TextView} для сообщения "ничего не найдено".
-     * Устанавливает слушатель {@link TextWatcherUtils#addSimpleTextWatcher} на поле ввода {@link SearchView}
-     * для запуска поиска с задержкой после ввода текста.
+     * Устанавливает слушатель {@link TextWatcherUtils#addSimpleTextWatcher} на поле ввода {@link SearchView},
+     * передающий текст в {@link SearchPipeline}.
      */
     private void initSearchComponents() {
         // Инициализация компонентов поиска: SearchBar, SearchView, ProgressBar, TextViewNothing
@@ -148,33 +172,69 @@ public class AddActivity extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         textViewNothing = findViewById(R.id.textViewNothing);
 
-        // Установка слушателя на изменение текста в поле поиска SearchView
-        TextWatcherUtils.addSimpleTextWatcher(searchView.getEditText(), s -> {
-            String query = s.trim(); // Получаем текст запроса, удаляя пробелы по краям
+        ConnectivityManager connectivityManager = getSystemService(ConnectivityManager.class);
+        detailsPrefetcher = new DetailsPrefetcher(parser, PREFETCH_DETAILS_COUNT, PREFETCH_CONCURRENCY,
+                () -> connectivityManager == null || connectivityManager.isActiveNetworkMetered());
 
-            // Отображаем ProgressBar и скрываем предыдущие результаты, если запрос достаточно длинный
-            if (query.length() > 1) {
+        searchPager = new SearchPager(parser, SearchPager.DEFAULT_PREFETCH_DISTANCE, new SearchPager.Listener() {
+            @Override
+            public void onPageLoaded(@NonNull String query, int page, @NonNull List<Product> products,
+                                     @NonNull List<Product> all) {
+                productFindAdapter.submitList(all);
+            }
+
+            @Override
+            public void onPageError(@NonNull String query, int page, @NonNull Exception e) {
+                // Уже показанные результаты остаются, следующие страницы не загружаются
+                Log.w(TAG, "Не удалось загрузить страницу " + page + " для \"" + query + "\"", e);
+            }
+        });
+
+        // Конвейер поиска: показывает результаты только для последнего введенного текста
+        searchPipeline = new SearchPipeline(parser, SEARCH_DEBOUNCE_MS, MIN_QUERY_LENGTH, new SearchPipeline.Listener() {
+            @Override
+            public void onSearchScheduled(@NonNull String query) {
+                // Предзагрузка деталей и следующих страниц предыдущих результатов больше не нужна
+                detailsPrefetcher.cancel();
+                searchPager.cancel();
+                // Отображаем ProgressBar и скрываем предыдущие результаты
                 progressBar.setVisibility(View.VISIBLE);
                 textViewNothing.setVisibility(View.INVISIBLE);
                 addProductsRecycler.setVisibility(View.INVISIBLE);
             }
 
-            // Отменяем предыдущий запланированный поиск, если он есть
-            if (searchRunnable != null) {
-                handler.removeCallbacks(searchRunnable);
+            @Override
+            public void onSearchStarted(@NonNull String query) {
+                // Запрос отправлен, ProgressBar уже отображается
             }
 
-            // Создаем новый Runnable для выполнения поиска
-            searchRunnable = () -> {
-                // Выполняем поиск только если длина запроса больше 1 символа (для оптимизации)
-                if (query.length() > 1) {
-                    runSearch(query);
-                }
-            };
+            @Override
+            public void onSearchCancelled() {
+                // Текст слишком короткий для поиска: скрываем ProgressBar
+                progressBar.setVisibility(View.INVISIBLE);
+                searchPager.cancel();
+            }
 
-            // Запускаем поиск с задержкой в 500 мс после последнего ввода символа
-            handler.postDelayed(searchRunnable, 500);
+            @Override
+            public void onResults(@NonNull String query, @NonNull List<Product> products, @NonNull SearchPipeline.StageTimings timings) {
+                showSearchResults(products);
+                detailsPrefetcher.prefetch(products);
+                searchPager.start(query, products);
+                // Если первая страница целиком помещается на экране, прокрутки не будет: проверяем после разметки
+                addProductsRecycler.post(() -> searchPager.onScrolled(productsLayoutManager.findLastVisibleItemPosition()));
+            }
+
+            @Override
+            public void onError(@NonNull String query, @NonNull Exception e) {
+                // Скрываем ProgressBar
+                progressBar.setVisibility(View.INVISIBLE);
+                // Показываем Snackbar с сообщением об ошибке
+                Snackbar.make(productListButton, getString(R.string.error_parser_text) + ": " + e.getMessage(), BaseTransientBottomBar.LENGTH_LONG).show();
+            }
         });
+
+        // Установка слушателя на изменение текста в поле поиска SearchView
+        TextWatcherUtils.addSimpleTextWatcher(searchView.getEditText(), s -> searchPipeline.submit(s));
     }
 
     /**
@@ -288,7 +348,7 @@ public class AddActivity extends AppCompatActivity {
         Dish dish = new Dish(dishName, photoUriString, nutrition, ProductsSelectedManager.getAll());
 
         // Сохраняем блюдо в базу данных через DataRepository
-        dataRepository.insertDishWithDetails(AddActivity.this, dish, new DataRepository.QueryCallBack<>() {
+        dataRepository.insertDishWithDetails(dish, new DataRepository.QueryCallBack<>() {
             @Override
             public void onSuccess(Long result) {
                 // При успешном сохранении, присваиваем блюду полученный ID
@@ -309,67 +369,48 @@ public class AddActivity extends AppCompatActivity {
 
 
     /**
-     * Выполняет асинхронный поиск продуктов по заданному запросу.
-     * Использует {@link Parser#findProductsAsync} для получения данных.
-     * Обновляет UI в зависимости от результата поиска (отображает список продуктов, сообщение "ничего не найдено" или ошибку).
+     * Отображает результаты поиска.
+     * Показывает список продуктов или сообщение "ничего не найдено", если список пуст.
      *
-     * @param query Строка поискового запроса.
+     * @param products Найденные продукты для актуального запроса.
      */
-    public void runSearch(String query) {
-        // Вызов асинхронного метода поиска у парсера
-        parser.findProductsAsync(query, new ProductParseCallback<>() {
-            @Override
-            public void onParsingStarted() {
-                // Метод обратного вызова при начале парсинга (можно добавить логику, если необходимо)
-                // Например, дополнительно управлять состоянием UI
-            }
-
-            @Override
-            public void onSuccess(List<Product> products) {
-                // Метод обратного вызова при успешном завершении парсинга
-                // Скрываем ProgressBar
-                progressBar.setVisibility(View.INVISIBLE);
-                // Если список продуктов пуст, показываем сообщение "ничего не найдено"
-                if (products.isEmpty()) {
-                    textViewNothing.setVisibility(View.VISIBLE);
-                    addProductsRecycler.setVisibility(View.INVISIBLE);
-                } else {
-                    // Иначе, обновляем адаптер RecyclerView новыми данными и показываем список
-                    productFindAdapter.submitList(products);
-                    addProductsRecycler.setVisibility(View.VISIBLE);
-                    textViewNothing.setVisibility(View.INVISIBLE);
-                }
-            }
-
-            @Override
-            public void onError(Exception e) {
-                // Метод обратного вызова при ошибке парсинга
-                // Скрываем ProgressBar
-                progressBar.setVisibility(View.INVISIBLE);
-                // Показываем Snackbar с сообщением об ошибке
-                Snackbar.make(productListButton, getString(R.string.error_parser_text) + ": " + e.getMessage(), BaseTransientBottomBar.LENGTH_LONG).show();
-            }
-
-            @Override
-            public void onParsingFinished() {
-                // Метод обратного вызова по завершению парсинга (успех или ошибка)
-                // Можно добавить логику, если необходимо, например, обновить доступность кнопок
-            }
-        });
+    private void showSearchResults(@NonNull List<Product> products) {
+        // Скрываем ProgressBar
+        progressBar.setVisibility(View.INVISIBLE);
+        // Если список продуктов пуст, показываем сообщение "ничего не найдено"
+        if (products.isEmpty()) {
+            textViewNothing.setVisibility(View.VISIBLE);
+            addProductsRecycler.setVisibility(View.INVISIBLE);
+        } else {
+            // Иначе, обновляем адаптер RecyclerView новыми данными и показываем список
+            productFindAdapter.submitList(products);
+            addProductsRecycler.setVisibility(View.VISIBLE);
+            textViewNothing.setVisibility(View.INVISIBLE);
+        }
     }
 
     /**
      * Вызывается при уничтожении активности.
-     * Очищает колбэки для Handler и проверяет, есть ли несохраненные выбранные продукты.
+     * Отменяет ожидающий и выполняющийся поисковые запросы и проверяет, есть ли несохраненные выбранные продукты.
      * Если есть, показывает диалог с предупреждением.
      */
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Удаляем все запланированные Runnable из Handler, чтобы избежать утечек или нежелательного выполнения
-        if (searchRunnable != null) {
-            handler.removeCallbacks(searchRunnable);
+        // Отменяем поиск, чтобы избежать утечек или нежелательного выполнения
+        if (searchPipeline != null) {
+            searchPipeline.cancel();
+        }
+        if (detailsPrefetcher != null) {
+            detailsPrefetcher.cancel();
+        }
+        if (searchPager != null) {
+            searchPager.cancel();
         }
+        Log.d(TAG, "Кэш поиска: " + parser.getSearchCacheStats());
+        Log.d(TAG, "Объединение запросов: поиск " + parser.getSearchCoalescingStats()
+                + ", детали " + parser.getDetailsCoalescingStats());
+        Log.d(TAG, "Этапы парсера:\n" + ParserMetrics.global().dump());
         // Проверяем, остались ли выбранные продукты, которые не были сохранены
         if (ProductsSelectedManager.size() > 0) {
             // Если да, показываем диалог с предупреждением
@@ -1,10 +1,11 @@
 package com.mydishes.mydishes.database.repository;
 
-import android.app.Activity;
 import android.content.Context;
+import android.database.Cursor;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
 
 import com.mydishes.mydishes.database.AppDatabase;
 import com.mydishes.mydishes.database.dao.DishDao;
@@ -14,48 +15,81 @@ import com.mydishes.mydishes.database.model.Dish;
 import com.mydishes.mydishes.database.model.DishProductCrossRef;
 import com.mydishes.mydishes.database.model.Nutrition;
 import com.mydishes.mydishes.database.model.Product;
+import com.mydishes.mydishes.database.model.relations.DishSummary;
 import com.mydishes.mydishes.database.model.relations.DishWithProductsAndNutrition;
-import com.mydishes.mydishes.database.model.relations.ProductWithNutrition;
+import com.mydishes.mydishes.utils.MainThreadExecutor;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Репозиторий для управления данными, связанными с блюдами, продуктами и их пищевой ценностью в базе данных.
  * Предоставляет методы для добавления, получения, обновления и удаления данных,
  * инкапсулируя логику взаимодействия с DAO (Data Access Objects).
- * Использует ExecutorService для выполнения операций с базой данных в фоновом потоке.
+ * <p>
+ * Все операции асинхронные и возвращают {@link CompletableFuture}. Чтение выполняется в небольшом пуле потоков,
+ * а запись - в отдельном единственном потоке: база работает в режиме WAL, поэтому чтение не ждет, пока
+ * завершится запись, и медленное сохранение блюда не задерживает загрузку списка блюд. Варианты методов
+ * с {@link QueryCallBack} доставляют результат в основной поток ({@link MainThreadExecutor}).
+ * </p>
+ * <p>
+ * Отмена future ({@link CompletableFuture#cancel}) снимает операцию, которая еще не начала выполняться;
+ * начатая операция завершается (запись - целой транзакцией), но колбэк отмененной операции не вызывается.
+ * </p>
  */
 public class DataRepository {
     private static final String TAG = "DataRepository";
+    // Количество потоков чтения: в режиме WAL читающие соединения работают параллельно с записью
+    private static final int READ_THREADS = 2;
     private static volatile DataRepository instance;
+    private final AppDatabase db;
     private final DishDao dishDao;
     private final ProductDao productDao;
     private final NutritionDao nutritionDao;
-    private final ExecutorService executorService;
+    private final ExecutorService readExecutor;
+    // SQLite допускает только одну пишущую транзакцию, поэтому запись выполняется в одном потоке
+    private final ExecutorService writeExecutor;
+    private final Executor mainExecutor;
 
     /**
      * Приватный конструктор для реализации паттерна Singleton.
-     * Инициализирует DAO и ExecutorService.
+     * Инициализирует DAO и исполнители для чтения и записи.
      *
      * @param context Контекст приложения, необходимый для получения экземпляра базы данных.
      */
     private DataRepository(Context context) {
-        // Получение экземпляра базы данных
-        AppDatabase db = AppDatabase.getDatabase(context);
+        this(AppDatabase.getDatabase(context),
+                Executors.newFixedThreadPool(READ_THREADS, threadFactory("db-read")),
+                Executors.newSingleThreadExecutor(threadFactory("db-write")),
+                MainThreadExecutor.getInstance());
+    }
+
+    /**
+     * Создает репозиторий для заданной базы данных (например, отдельной базы в тестах).
+     *
+     * @param db            База данных.
+     * @param readExecutor  Исполнитель для чтения.
+     * @param writeExecutor Исполнитель для записи.
+     * @param mainExecutor  Исполнитель, в котором вызываются колбэки {@link QueryCallBack}.
+     */
+    DataRepository(@NonNull AppDatabase db, @NonNull ExecutorService readExecutor,
+                   @NonNull ExecutorService writeExecutor, @NonNull Executor mainExecutor) {
+        this.db = db;
         // Инициализация DAO
         dishDao = db.dishDao();
         productDao = db.productDao();
         nutritionDao = db.nutritionDao();
-        // Создание однопоточного исполнителя для асинхронных операций
-        executorService = Executors.newSingleThreadExecutor();
+        this.readExecutor = readExecutor;
+        this.writeExecutor = writeExecutor;
+        this.mainExecutor = mainExecutor;
     }
 
     /**
@@ -78,35 +112,26 @@ public class DataRepository {
     }
 
     /**
-     * Конвертирует объект {@link ProductWithNutrition} (связь продукта и его пищевой ценности из БД)
-     * в объект модели {@link com.mydishes.mydishes.models.Product}, используемый в приложении.
+     * Конвертирует краткие данные блюда {@link DishSummary} в объект модели {@link com.mydishes.mydishes.models.Dish}
+     * без продуктов (список продуктов равен null).
      *
-     * @param pwn Объект {@link ProductWithNutrition}, содержащий данные продукта и его пищевой ценности из БД.
-     * @return Адаптированный объект {@link com.mydishes.mydishes.models.Product} для использования в UI или бизнес-логике.
+     * @param summary Краткие данные блюда из БД.
+     * @return Объект модели блюда с ID, названием, URI фото и КБЖУ.
      */
     @NonNull
-    private static com.mydishes.mydishes.models.Product getProduct(@NonNull ProductWithNutrition pwn) {
-        // Создание нового объекта модели Product
-        com.mydishes.mydishes.models.Product appProduct = new com.mydishes.mydishes.models.Product();
-        // Копирование основных данных продукта
-        appProduct.setId(pwn.product.id);
-        appProduct.setName(pwn.product.name);
-        appProduct.setProductURL(pwn.product.productURL);
-        appProduct.setImageURL(pwn.product.imageURL);
-        appProduct.setMass(pwn.product.mass);
-
-        // Проверка наличия данных о пищевой ценности
-        if (pwn.nutrition != null) {
-            // Создание и заполнение объекта модели Nutrition
-            com.mydishes.mydishes.models.Nutrition productNutrition = new com.mydishes.mydishes.models.Nutrition();
-            productNutrition.setCalories(pwn.nutrition.calories);
-            productNutrition.setProtein(pwn.nutrition.protein);
-            productNutrition.setFat(pwn.nutrition.fat);
-            productNutrition.setCarb(pwn.nutrition.carb);
-            // Установка пищевой ценности для продукта
-            appProduct.setNutrition(productNutrition);
+    private static com.mydishes.mydishes.models.Dish getDish(@NonNull DishSummary summary) {
+        com.mydishes.mydishes.models.Dish appDish = new com.mydishes.mydishes.models.Dish();
+        appDish.setId(summary.id);
+        appDish.setName(summary.name);
+        appDish.setPhotoUri(summary.photoUri);
+        if (summary.nutrition != null) {
+            com.mydishes.mydishes.models.Nutrition nutrition = new com.mydishes.mydishes.models.Nutrition(
+                    summary.nutrition.calories, summary.nutrition.protein,
+                    summary.nutrition.fat, summary.nutrition.carb);
+            nutrition.setId(summary.nutrition.id);
+            appDish.setNutrition(nutrition);
         }
-        return appProduct;
+        return appDish;
     }
 
     /**
@@ -151,144 +176,213 @@ public class DataRepository {
 
     /**
      * Вставляет новое блюдо со всей его детализацией (пищевая ценность блюда, продукты и их пищевая ценность) в базу данных.
-     * Операция выполняется асинхронно в фоновом потоке.
-     * Результат операции (ID вставленного блюда или ошибка) передается через {@link QueryCallBack}.
+     * Операция выполняется асинхронно в потоке записи, в одной транзакции ({@link #saveDishWithDetails}).
      *
-     * @param activity       Активность, из которой вызывается метод, для выполнения UI операций в основном потоке.
-     * @param originalDish   Объект {@link com.mydishes.mydishes.models.Dish}, содержащий данные нового блюда.
-     * @param queryCallBack  Колбэк для получения результата операции.
+     * @param originalDish Объект {@link com.mydishes.mydishes.models.Dish}, содержащий данные нового блюда.
+     * @return {@link CompletableFuture} с ID вставленного блюда.
      */
-    public void insertDishWithDetails(Activity activity, com.mydishes.mydishes.models.Dish originalDish, QueryCallBack<Long> queryCallBack) {
-        // Создание нового потока для выполнения операции
-        new Thread(() -> {
-            try {
-                // Выполнение вставки в фоновом потоке через ExecutorService и получение Future
-                long dishId = executorService.submit(() -> {
-                    // Шаг 1: Адаптация и сохранение пищевой ценности самого блюда
-                    Nutrition dishNutritionEntity = adaptNutrition(originalDish.getNutrition());
-                    long dishNutritionId = 0;
-                    if (dishNutritionEntity != null) {
-                        dishNutritionId = nutritionDao.insertNutrition(dishNutritionEntity);
-                    }
+    @NonNull
+    public CompletableFuture<Long> insertDishWithDetails(@NonNull com.mydishes.mydishes.models.Dish originalDish) {
+        return submit(writeExecutor, () -> saveDishWithDetails(originalDish));
+    }
 
-                    // Шаг 2: Адаптация и сохранение основной информации о блюде
-                    Dish dishEntity = new Dish(originalDish.getName(), originalDish.getPhotoUri(), dishNutritionId);
-                    long savedDishId = dishDao.insertDish(dishEntity);
-
-                    // Шаг 3: Обработка продуктов, если они есть
-                    if (originalDish.getProducts() != null) {
-                        List<DishProductCrossRef> crossRefs = new ArrayList<>();
-                        for (com.mydishes.mydishes.models.Product originalProduct : originalDish.getProducts()) {
-                            // Шаг 3.1: Адаптация и сохранение пищевой ценности текущего продукта
-                            Nutrition productNutritionEntity = adaptNutrition(originalProduct.getNutrition());
-                            long productNutritionId = 0;
-                            if (productNutritionEntity != null) {
-                                productNutritionId = nutritionDao.insertNutrition(productNutritionEntity);
-                            }
+    /**
+     * Вставляет новое блюдо со всей его детализацией (см. {@link #insertDishWithDetails(com.mydishes.mydishes.models.Dish)}).
+     * Результат операции (ID вставленного блюда или ошибка) передается через {@link QueryCallBack} в основном потоке.
+     *
+     * @param originalDish  Объект {@link com.mydishes.mydishes.models.Dish}, содержащий данные нового блюда.
+     * @param queryCallBack Колбэк для получения результата операции.
+     * @return {@link CompletableFuture} операции (для отмены).
+     */
+    @NonNull
+    public CompletableFuture<Long> insertDishWithDetails(@NonNull com.mydishes.mydishes.models.Dish originalDish,
+                                                         @NonNull QueryCallBack<Long> queryCallBack) {
+        return deliver(insertDishWithDetails(originalDish), queryCallBack, "Ошибка при вставке блюда: ");
+    }
 
-                            // Шаг 3.2: Адаптация и сохранение текущего продукта
-                            Product productEntity = adaptProduct(originalProduct, productNutritionId);
-                            long productId = productDao.insertProduct(productEntity);
+    /**
+     * Синхронно сохраняет блюдо со всей его детализацией в одной транзакции: при ошибке не остается
+     * частично сохраненного блюда, а все вставки фиксируются на диске один раз, а не по одному разу
+     * на каждую запись. Пищевая ценность продуктов, продукты и связи вставляются пакетами.
+     * Вызывается в потоке записи.
+     *
+     * @param originalDish Объект {@link com.mydishes.mydishes.models.Dish}, содержащий данные нового блюда.
+     * @return ID сохраненного блюда.
+     */
+    @WorkerThread
+    long saveDishWithDetails(@NonNull com.mydishes.mydishes.models.Dish originalDish) {
+        return db.runInTransaction(() -> {
+            // Шаг 1: Адаптация и сохранение пищевой ценности самого блюда
+            Nutrition dishNutritionEntity = adaptNutrition(originalDish.getNutrition());
+            long dishNutritionId = 0;
+            if (dishNutritionEntity != null) {
+                dishNutritionId = nutritionDao.insertNutrition(dishNutritionEntity);
+            }
 
-                            // Шаг 3.3: Создание записи для таблицы связей "многие-ко-многим"
-                            crossRefs.add(new DishProductCrossRef(savedDishId, productId));
-                        }
-                        // Шаг 3.4: Вставка всех связей в таблицу
-                        if (!crossRefs.isEmpty()) {
-                            dishDao.insertDishProductCrossRefs(crossRefs);
-                        }
+            // Шаг 2: Адаптация и сохранение основной информации о блюде
+            Dish dishEntity = new Dish(originalDish.getName(), originalDish.getPhotoUri(), dishNutritionId);
+            long savedDishId = dishDao.insertDish(dishEntity);
+
+            // Шаг 3: Обработка продуктов, если они есть
+            List<com.mydishes.mydishes.models.Product> originalProducts = originalDish.getProducts();
+            if (originalProducts != null && !originalProducts.isEmpty()) {
+                // Шаг 3.1: Сохранение пищевой ценности всех продуктов одной пакетной вставкой
+                List<Nutrition> productNutritionEntities = new ArrayList<>(originalProducts.size());
+                for (com.mydishes.mydishes.models.Product originalProduct : originalProducts) {
+                    Nutrition productNutritionEntity = adaptNutrition(originalProduct.getNutrition());
+                    if (productNutritionEntity != null) {
+                        productNutritionEntities.add(productNutritionEntity);
                     }
-                    return savedDishId; // Возвращение ID сохраненного блюда
-                }).get(); // Ожидание завершения операции
+                }
+                long[] productNutritionIds = nutritionDao.insertAll(productNutritionEntities);
+
+                // Шаг 3.2: Сохранение всех продуктов со ссылками на их пищевую ценность
+                List<Product> productEntities = new ArrayList<>(originalProducts.size());
+                int nextNutrition = 0;
+                for (com.mydishes.mydishes.models.Product originalProduct : originalProducts) {
+                    long productNutritionId = originalProduct.getNutrition() != null
+                            ? productNutritionIds[nextNutrition++] : 0;
+                    productEntities.add(adaptProduct(originalProduct, productNutritionId));
+                }
+                long[] productIds = productDao.insertAll(productEntities);
 
-                // Передача успешного результата в основной поток
-                activity.runOnUiThread(() -> queryCallBack.onSuccess(dishId));
-            } catch (Exception e) {
-                // Логгирование ошибки и передача ее в основной поток
-                Log.e(TAG, "Ошибка при вставке блюда: ", e);
-                activity.runOnUiThread(() -> queryCallBack.onError(e));
-                Thread.currentThread().interrupt();
+                // Шаг 3.3: Вставка всех записей таблицы связей "многие-ко-многим"
+                List<DishProductCrossRef> crossRefs = new ArrayList<>(productIds.length);
+                for (long productId : productIds) {
+                    crossRefs.add(new DishProductCrossRef(savedDishId, productId));
+                }
+                dishDao.insertDishProductCrossRefs(crossRefs);
             }
-        }).start();
+            return savedDishId; // Возвращение ID сохраненного блюда
+        });
     }
 
     /**
      * Получает блюдо по его идентификатору (ID) вместе со всей связанной информацией:
      * пищевая ценность самого блюда, список продуктов, входящих в блюдо, и пищевая ценность каждого продукта.
-     * Адаптирует результат из сущностей БД к модели {@link com.mydishes.mydishes.models.Dish}.
-     * Операция выполняется асинхронно.
+     * Все данные читаются одним запросом с JOIN ({@link DishDao#queryDishWithProducts(long)}) и собираются
+     * в модель {@link com.mydishes.mydishes.models.Dish} за один проход по курсору, без отдельного запроса
+     * продуктов по списку их ID. Операция выполняется асинхронно в пуле чтения.
      *
      * @param dishId ID запрашиваемого блюда.
-     * @return {@link Future}, который по завершении будет содержать объект {@link com.mydishes.mydishes.models.Dish}
+     * @return {@link CompletableFuture}, который по завершении будет содержать объект {@link com.mydishes.mydishes.models.Dish}
      *         или null, если блюдо с таким ID не найдено.
      */
-    public Future<com.mydishes.mydishes.models.Dish> getDishById(long dishId) {
-        // Выполнение запроса в фоновом потоке
-        return executorService.submit(() -> {
-            // Получение сырых данных из DAO
-            DishWithProductsAndNutrition dishDetails = dishDao.getDishWithProductsAndNutrition(dishId);
-            // Если блюдо не найдено, вернуть null
-            if (dishDetails == null) {
-                return null;
+    @NonNull
+    public CompletableFuture<com.mydishes.mydishes.models.Dish> getDishById(long dishId) {
+        // Выполнение запроса в пуле чтения
+        return submit(readExecutor, () -> {
+            try (Cursor cursor = dishDao.queryDishWithProducts(dishId)) {
+                List<com.mydishes.mydishes.models.Dish> dishes = readDishesWithDetails(cursor);
+                // Если блюдо не найдено, вернуть null
+                return dishes.isEmpty() ? null : dishes.get(0);
             }
+        });
+    }
 
-            // Создание объекта модели Dish для результата
-            com.mydishes.mydishes.models.Dish resultDish = new com.mydishes.mydishes.models.Dish();
-            // Копирование основных данных блюда
-            resultDish.setId(dishDetails.dish.id); // Установка ID блюда
-            resultDish.setName(dishDetails.dish.name);
-            resultDish.setPhotoUri(dishDetails.dish.photoUri);
-
-            // Обработка пищевой ценности блюда
-            if (dishDetails.dishNutrition != null) {
-                com.mydishes.mydishes.models.Nutrition mainNutrition = new com.mydishes.mydishes.models.Nutrition();
-                mainNutrition.setId(dishDetails.dishNutrition.id); // Установка ID пищевой ценности
-                mainNutrition.setCalories(dishDetails.dishNutrition.calories);
-                mainNutrition.setProtein(dishDetails.dishNutrition.protein);
-                mainNutrition.setFat(dishDetails.dishNutrition.fat);
-                mainNutrition.setCarb(dishDetails.dishNutrition.carb);
-                resultDish.setNutrition(mainNutrition);
+    /**
+     * Получает блюдо по его идентификатору со всей детализацией (см. {@link #getDishById(long)}).
+     * Используется для загрузки продуктов блюда, полученного из {@link #getDishSummariesBefore(long, int)}
+     * или {@link #getDishSummariesAfter(long, int)}, по требованию.
+     *
+     * @param dishId        ID запрашиваемого блюда.
+     * @param queryCallBack Колбэк для получения блюда (или null, если блюдо не найдено) в основном потоке.
+     * @return {@link CompletableFuture} операции (для отмены).
+     */
+    @NonNull
+    public CompletableFuture<com.mydishes.mydishes.models.Dish> getDishById(
+            long dishId, @NonNull QueryCallBack<com.mydishes.mydishes.models.Dish> queryCallBack) {
+        return deliver(getDishById(dishId), queryCallBack, "Ошибка при получении блюда с ID: " + dishId);
+    }
+
+    /**
+     * Получает страницу кратких данных блюд для списка блюд, новые блюда первыми: не больше {@code limit} блюд
+     * с ID меньше {@code beforeId}. Для каждого блюда загружаются только ID, название, URI фото и КБЖУ блюда;
+     * продукты не загружаются (список продуктов равен null) и загружаются по требованию через {@link #getDishById}.
+     * Страница выбирается по индексу первичного ключа, поэтому время ее загрузки не зависит от количества блюд
+     * в базе. Операция выполняется асинхронно в пуле чтения.
+     *
+     * @param beforeId ID последнего блюда предыдущей страницы или {@link Long#MAX_VALUE} для первой страницы.
+     * @param limit    Максимальное количество блюд на странице.
+     * @return {@link CompletableFuture} со списком блюд в порядке убывания ID.
+     */
+    @NonNull
+    public CompletableFuture<List<com.mydishes.mydishes.models.Dish>> getDishSummariesBefore(long beforeId, int limit) {
+        return submit(readExecutor, () -> {
+            List<DishSummary> summaries = dishDao.getDishSummariesBefore(beforeId, limit);
+            List<com.mydishes.mydishes.models.Dish> resultDishes = new ArrayList<>(summaries.size());
+            for (DishSummary summary : summaries) {
+                resultDishes.add(getDish(summary));
             }
+            return resultDishes;
+        });
+    }
 
-            // Обработка списка продуктов блюда
-            if (dishDetails.products != null && !dishDetails.products.isEmpty()) {
-                List<com.mydishes.mydishes.models.Product> resultProducts = new ArrayList<>();
-                // Сбор ID всех продуктов для эффективного запроса их пищевой ценности
-                List<Long> productIds = dishDetails.products.stream().map(p -> p.id).collect(Collectors.toList());
-
-                // Получение всех продуктов с их КБЖУ одним запросом
-                List<ProductWithNutrition> productsWithNutrition = productDao.getProductsWithNutritionByIds(productIds);
-
-                // Создание карты для быстрого доступа к ProductWithNutrition по ID продукта
-                Map<Long, ProductWithNutrition> productMap = productsWithNutrition.stream()
-                        .collect(Collectors.toMap(pwn -> pwn.product.id, pwn -> pwn));
-
-                // Адаптация каждого продукта из БД в модель приложения
-                for (Product dbProduct : dishDetails.products) {
-                    ProductWithNutrition pwn = productMap.get(dbProduct.id);
-                    if (pwn != null) {
-                        com.mydishes.mydishes.models.Product appProduct = getProduct(pwn); // Использование вспомогательного метода
-                        resultProducts.add(appProduct);
-                    }
-                }
-                resultDish.setProducts(resultProducts);
+    /**
+     * Получает страницу кратких данных блюд (см. {@link #getDishSummariesBefore(long, int)}).
+     * Результат передается через {@link QueryCallBack} в основном потоке.
+     *
+     * @param beforeId      ID последнего блюда предыдущей страницы или {@link Long#MAX_VALUE} для первой страницы.
+     * @param limit         Максимальное количество блюд на странице.
+     * @param queryCallBack Колбэк для получения результата операции (списка блюд или ошибки).
+     * @return {@link CompletableFuture} операции (для отмены).
+     */
+    @NonNull
+    public CompletableFuture<List<com.mydishes.mydishes.models.Dish>> getDishSummariesBefore(
+            long beforeId, int limit, @NonNull QueryCallBack<List<com.mydishes.mydishes.models.Dish>> queryCallBack) {
+        return deliver(getDishSummariesBefore(beforeId, limit), queryCallBack, "Ошибка при получении страницы блюд: ");
+    }
+
+    /**
+     * Получает страницу кратких данных блюд, более новых, чем {@code afterId}: не больше {@code limit} блюд
+     * с ID больше {@code afterId}, ближайших к нему. Используется при прокрутке списка вверх, когда начало
+     * списка было выгружено из памяти. Операция выполняется асинхронно в пуле чтения.
+     *
+     * @param afterId ID первого блюда следующей (более старой) страницы.
+     * @param limit   Максимальное количество блюд на странице.
+     * @return {@link CompletableFuture} со списком блюд в порядке убывания ID, как в списке блюд.
+     */
+    @NonNull
+    public CompletableFuture<List<com.mydishes.mydishes.models.Dish>> getDishSummariesAfter(long afterId, int limit) {
+        return submit(readExecutor, () -> {
+            List<DishSummary> summaries = dishDao.getDishSummariesAfter(afterId, limit);
+            List<com.mydishes.mydishes.models.Dish> resultDishes = new ArrayList<>(summaries.size());
+            // Запрос возвращает ближайшие к afterId блюда по возрастанию ID; в списке они идут в обратном порядке
+            for (int i = summaries.size() - 1; i >= 0; i--) {
+                resultDishes.add(getDish(summaries.get(i)));
             }
-            return resultDish; // Возврат полностью собранного объекта Dish
+            return resultDishes;
         });
     }
 
+    /**
+     * Получает страницу более новых блюд (см. {@link #getDishSummariesAfter(long, int)}).
+     * Результат передается через {@link QueryCallBack} в основном потоке.
+     *
+     * @param afterId       ID первого блюда следующей (более старой) страницы.
+     * @param limit         Максимальное количество блюд на странице.
+     * @param queryCallBack Колбэк для получения результата операции (списка блюд или ошибки).
+     * @return {@link CompletableFuture} операции (для отмены).
+     */
+    @NonNull
+    public CompletableFuture<List<com.mydishes.mydishes.models.Dish>> getDishSummariesAfter(
+            long afterId, int limit, @NonNull QueryCallBack<List<com.mydishes.mydishes.models.Dish>> queryCallBack) {
+        return deliver(getDishSummariesAfter(afterId, limit), queryCallBack, "Ошибка при получении страницы блюд: ");
+    }
+
     /**
      * Получает упрощенный список всех блюд (только ID, название, URI фото).
      * Этот метод не загружает продукты или детальную пищевую ценность для каждого блюда,
      * что делает его более эффективным для отображения в списках.
-     * Операция выполняется асинхронно.
+     * Операция выполняется асинхронно в пуле чтения.
      *
-     * @return {@link Future} со списком объектов {@link com.mydishes.mydishes.models.Dish},
+     * @return {@link CompletableFuture} со списком объектов {@link com.mydishes.mydishes.models.Dish},
      *         содержащих только основную информацию.
      */
-    public Future<List<com.mydishes.mydishes.models.Dish>> getAllDishesSimple() {
-        // Выполнение запроса в фоновом потоке
-        return executorService.submit(() -> {
+    @NonNull
+    public CompletableFuture<List<com.mydishes.mydishes.models.Dish>> getAllDishesSimple() {
+        // Выполнение запроса в пуле чтения
+        return submit(readExecutor, () -> {
             // Получение списка сущностей Dish из DAO
             List<Dish> dbDishes = dishDao.getAllDishesSimple();
             List<com.mydishes.mydishes.models.Dish> resultDishes = new ArrayList<>();
@@ -305,99 +399,81 @@ public class DataRepository {
     }
 
     /**
-     * Получает полный список всех блюд со всей их детализацией (пищевая ценность блюда,
-     * список продуктов и их пищевая ценность для каждого продукта).
-     * Операция может быть ресурсоемкой при большом количестве блюд.
-     * Выполняется асинхронно, результат передается через {@link QueryCallBack}.
+     * Собирает блюда из строк {@link DishDao#queryDishWithProducts(long)}: строки одного блюда идут подряд,
+     * поэтому новое блюдо начинается, когда меняется ID блюда.
      *
-     * @param activity      Активность для выполнения UI операций в основном потоке.
-     * @param queryCallBack Колбэк для получения результата операции (списка блюд или ошибки).
+     * @param cursor Курсор запроса.
+     * @return Список блюд в порядке ID со всеми деталями.
      */
-    public void getAllDishesWithDetails(Activity activity, QueryCallBack<List<com.mydishes.mydishes.models.Dish>> queryCallBack) {
-        // Создание нового потока для выполнения операции
-        new Thread(() -> {
-            try {
-                // Получение данных с помощью приватного синхронного метода
-                List<com.mydishes.mydishes.models.Dish> dishes = getAllDishesWithDetailsInternal();
-                // Передача успешного результата в основной поток
-                activity.runOnUiThread(() -> queryCallBack.onSuccess(dishes));
-            } catch (Exception e) {
-                // Логгирование ошибки и передача ее в основной поток
-                Log.e(TAG, "Ошибка при получении всех блюд с деталями: ", e);
-                activity.runOnUiThread(() -> queryCallBack.onError(e));
-                Thread.currentThread().interrupt();
-            }
-        }).start();
-    }
-
-    /**
-     * Внутренний метод для получения полного списка всех блюд с детализацией.
-     * Выполняется синхронно в вызывающем потоке (предположительно, фоновом).
-     *
-     * @return Список объектов {@link com.mydishes.mydishes.models.Dish} со всеми деталями.
-     * @throws ExecutionException   Если возникает ошибка во время выполнения задачи в ExecutorService.
-     * @throws InterruptedException Если поток был прерван во время ожидания результата.
-     */
-    private List<com.mydishes.mydishes.models.Dish> getAllDishesWithDetailsInternal() throws ExecutionException, InterruptedException {
-        // Выполнение запроса в фоновом потоке через ExecutorService
-        return executorService.submit(() -> {
-            // Получение всех блюд с продуктами и их пищевой ценностью из DAO
-            List<DishWithProductsAndNutrition> allDbDishDetails = dishDao.getAllDishesWithProductsAndNutrition();
-            List<com.mydishes.mydishes.models.Dish> resultAppDishes = new ArrayList<>();
-
-            // Получение ID всех продуктов из всех блюд для одного пакетного запроса
-            List<Long> allProductIds = allDbDishDetails.stream()
-                    .filter(details -> details.products != null)
-                    .flatMap(details -> details.products.stream().map(p -> p.id))
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            Map<Long, ProductWithNutrition> productNutritionMap = new HashMap<>();
-            if (!allProductIds.isEmpty()) {
-                // Получение информации о пищевой ценности для всех уникальных продуктов одним запросом
-                List<ProductWithNutrition> productsWithNutritionList = productDao.getProductsWithNutritionByIds(allProductIds);
-                // Создание карты для быстрого доступа к ProductWithNutrition по ID продукта
-                productNutritionMap = productsWithNutritionList.stream()
-                        .collect(Collectors.toMap(pwn -> pwn.product.id, pwn -> pwn));
-            }
-
-            // Итерация по каждому блюду из БД и его адаптация
-            for (DishWithProductsAndNutrition dishDetails : allDbDishDetails) {
-                com.mydishes.mydishes.models.Dish resultDish = new com.mydishes.mydishes.models.Dish();
-                resultDish.setId(dishDetails.dish.id);
-                resultDish.setName(dishDetails.dish.name);
-                resultDish.setPhotoUri(dishDetails.dish.photoUri);
+    @NonNull
+    private static List<com.mydishes.mydishes.models.Dish> readDishesWithDetails(@NonNull Cursor cursor) {
+        // Индексы столбцов определяются один раз на весь курсор
+        int dishId = cursor.getColumnIndexOrThrow("dishId");
+        int dishName = cursor.getColumnIndexOrThrow("dishName");
+        int dishPhotoUri = cursor.getColumnIndexOrThrow("dishPhotoUri");
+        int dishNutritionId = cursor.getColumnIndexOrThrow("dishNutritionId");
+        int dishCalories = cursor.getColumnIndexOrThrow("dishCalories");
+        int dishProtein = cursor.getColumnIndexOrThrow("dishProtein");
+        int dishFat = cursor.getColumnIndexOrThrow("dishFat");
+        int dishCarb = cursor.getColumnIndexOrThrow("dishCarb");
+        int productId = cursor.getColumnIndexOrThrow("productId");
+        int productName = cursor.getColumnIndexOrThrow("productName");
+        int productURL = cursor.getColumnIndexOrThrow("productURL");
+        int imageURL = cursor.getColumnIndexOrThrow("imageURL");
+        int productMass = cursor.getColumnIndexOrThrow("productMass");
+        int productNutritionId = cursor.getColumnIndexOrThrow("productNutritionId");
+        int productCalories = cursor.getColumnIndexOrThrow("productCalories");
+        int productProtein = cursor.getColumnIndexOrThrow("productProtein");
+        int productFat = cursor.getColumnIndexOrThrow("productFat");
+        int productCarb = cursor.getColumnIndexOrThrow("productCarb");
+
+        List<com.mydishes.mydishes.models.Dish> resultAppDishes = new ArrayList<>(cursor.getCount());
+        com.mydishes.mydishes.models.Dish resultDish = null;
+        List<com.mydishes.mydishes.models.Product> resultProducts = null;
+        while (cursor.moveToNext()) {
+            long id = cursor.getLong(dishId);
+            if (resultDish == null || resultDish.getId() != id) {
+                // Первая строка очередного блюда
+                resultDish = new com.mydishes.mydishes.models.Dish();
+                resultDish.setId(id);
+                resultDish.setName(cursor.getString(dishName));
+                resultDish.setPhotoUri(cursor.getString(dishPhotoUri));
 
                 // Адаптация пищевой ценности самого блюда
-                if (dishDetails.dishNutrition != null) {
-                    com.mydishes.mydishes.models.Nutrition mainNutrition = new com.mydishes.mydishes.models.Nutrition();
-                    mainNutrition.setId(dishDetails.dishNutrition.id);
-                    mainNutrition.setCalories(dishDetails.dishNutrition.calories);
-                    mainNutrition.setProtein(dishDetails.dishNutrition.protein);
-                    mainNutrition.setFat(dishDetails.dishNutrition.fat);
-                    mainNutrition.setCarb(dishDetails.dishNutrition.carb);
+                if (!cursor.isNull(dishNutritionId)) {
+                    com.mydishes.mydishes.models.Nutrition mainNutrition = new com.mydishes.mydishes.models.Nutrition(
+                            cursor.getDouble(dishCalories), cursor.getDouble(dishProtein),
+                            cursor.getDouble(dishFat), cursor.getDouble(dishCarb));
+                    mainNutrition.setId(cursor.getLong(dishNutritionId));
                     resultDish.setNutrition(mainNutrition);
                 }
-
-                // Адаптация продуктов блюда
-                if (dishDetails.products != null && !dishDetails.products.isEmpty()) {
-                    List<com.mydishes.mydishes.models.Product> resultProducts = new ArrayList<>();
-                    for (Product dbProduct : dishDetails.products) {
-                        ProductWithNutrition pwn = productNutritionMap.get(dbProduct.id);
-                        if (pwn != null) {
-                            // Использование вспомогательного метода getProduct для адаптации
-                            com.mydishes.mydishes.models.Product appProduct = getProduct(pwn);
-                            resultProducts.add(appProduct);
-                        }
-                    }
-                    resultDish.setProducts(resultProducts);
-                }
+                resultProducts = null;
                 resultAppDishes.add(resultDish);
             }
-            return resultAppDishes; // Возврат списка полностью адаптированных блюд
-        }).get(); // Ожидание завершения операции
-    }
 
+            // Блюдо без продуктов представлено одной строкой без продукта
+            if (cursor.isNull(productId)) {
+                continue;
+            }
+            com.mydishes.mydishes.models.Product appProduct = new com.mydishes.mydishes.models.Product();
+            appProduct.setId(cursor.getLong(productId));
+            appProduct.setName(cursor.getString(productName));
+            appProduct.setProductURL(cursor.getString(productURL));
+            appProduct.setImageURL(cursor.getString(imageURL));
+            appProduct.setMass(cursor.getFloat(productMass));
+            if (!cursor.isNull(productNutritionId)) {
+                appProduct.setNutrition(new com.mydishes.mydishes.models.Nutrition(
+                        cursor.getDouble(productCalories), cursor.getDouble(productProtein),
+                        cursor.getDouble(productFat), cursor.getDouble(productCarb)));
+            }
+            if (resultProducts == null) {
+                resultProducts = new ArrayList<>();
+                resultDish.setProducts(resultProducts);
+            }
+            resultProducts.add(appProduct);
+        }
+        return resultAppDishes; // Возврат списка полностью адаптированных блюд
+    }
 
     /**
      * Удаляет блюдо по его идентификатору (ID) из базы данных.
@@ -407,156 +483,227 @@ public class DataRepository {
      * - Всех записей DishProductCrossRef, связывающих это блюдо с продуктами.
      * Сами сущности Product НЕ будут удалены автоматически этим запросом (если они не связаны только с этим блюдом
      * и настроено каскадное удаление для них при удалении из DishProductCrossRef, что обычно не делается).
+     * Операция выполняется асинхронно в потоке записи.
+     *
+     * @param dishId ID блюда, которое необходимо удалить.
+     * @return {@link CompletableFuture}, завершающийся с null (Void) при успехе или с исключением,
+     *         если блюдо не найдено.
+     */
+    @NonNull
+    public CompletableFuture<Void> deleteDishById(long dishId) {
+        return submit(writeExecutor, () -> {
+            // Логгирование попытки удаления
+            Log.d(TAG, "Попытка удалить блюдо с ID: " + dishId);
+            // Выполнение удаления через DAO
+            int deletedRows = dishDao.deleteDishById(dishId);
+            // Логгирование количества удаленных строк (должно быть 1 при успехе)
+            Log.d(TAG, "Строк удалено DAO: " + deletedRows);
+
+            if (deletedRows == 0) {
+                // Если ничего не удалено, возможно, блюда с таким ID не существует
+                throw new Exception("Блюдо с ID " + dishId + " не найдено или уже удалено.");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Удаляет блюдо по его идентификатору (см. {@link #deleteDishById(long)}).
      *
-     * @param activity      Активность, из которой вызывается метод, для выполнения UI операций.
      * @param dishId        ID блюда, которое необходимо удалить.
-     * @param queryCallBack Колбэк для получения результата операции (успех или ошибка).
+     * @param queryCallBack Колбэк для получения результата операции (успех или ошибка) в основном потоке.
      *                      В случае успеха onSuccess будет вызван с null (Void).
      *                      В случае ошибки onError будет вызван с исключением.
+     * @return {@link CompletableFuture} операции (для отмены).
      */
-    public void deleteDishById(Activity activity, long dishId, QueryCallBack<Void> queryCallBack) {
-        // Запуск операции в новом потоке
-        new Thread(() -> {
-            try {
-                // Логгирование попытки удаления
-                Log.d(TAG, "Попытка удалить блюдо с ID: " + dishId);
-                // Выполнение удаления через DAO
-                int deletedRows = dishDao.deleteDishById(dishId);
-                // Логгирование количества удаленных строк (должно быть 1 при успехе)
-                Log.d(TAG, "Строк удалено DAO: " + deletedRows);
-
-                // Проверка результата и вызов соответствующего колбэка в UI потоке
-                if (deletedRows > 0) {
-                    activity.runOnUiThread(() -> queryCallBack.onSuccess(null));
-                } else {
-                    // Если ничего не удалено, возможно, блюда с таким ID не существует
-                    activity.runOnUiThread(() -> queryCallBack.onError(new Exception("Блюдо с ID " + dishId + " не найдено или уже удалено.")));
-                }
-            } catch (Exception e) {
-                // Логгирование ошибки и передача ее в UI поток
-                Log.e(TAG, "Ошибка при удалении блюда с ID: " + dishId, e);
-                activity.runOnUiThread(() -> queryCallBack.onError(e));
-            }
-        }).start();
+    @NonNull
+    public CompletableFuture<Void> deleteDishById(long dishId, @NonNull QueryCallBack<Void> queryCallBack) {
+        return deliver(deleteDishById(dishId), queryCallBack, "Ошибка при удалении блюда с ID: " + dishId);
     }
 
     /**
      * Обновляет существующее блюдо в базе данных, включая его пищевую ценность и список продуктов.
-     * Операция выполняется асинхронно.
+     * Операция выполняется асинхронно в потоке записи, в одной транзакции: параллельное чтение
+     * не видит блюдо с уже удаленными, но еще не вставленными связями с продуктами.
      *
-     * @param activity      Активность для выполнения UI операций (колбэков).
-     * @param dishToUpdate  Объект {@link com.mydishes.mydishes.models.Dish} с обновленной информацией.
-     *                      Убедитесь, что ID блюда установлен корректно.
-     * @param queryCallBack Колбэк для получения результата операции (успех или ошибка).
-     *                      В случае успеха onSuccess будет вызван с null (Void).
+     * @param dishToUpdate Объект {@link com.mydishes.mydishes.models.Dish} с обновленной информацией.
+     *                     Убедитесь, что ID блюда установлен корректно. Если список продуктов равен null
+     *                     (не загружен), продукты блюда не меняются.
+     * @return {@link CompletableFuture}, завершающийся с null (Void) при успехе.
      */
-    public void updateDish(Activity activity, com.mydishes.mydishes.models.Dish dishToUpdate, QueryCallBack<Void> queryCallBack) {
-        // Запуск операции в новом потоке
-        new Thread(() -> {
-            try {
-                // Выполнение в фоновом потоке через ExecutorService
-                executorService.submit(() -> {
-                    long dishId = dishToUpdate.getId();
-                    // Проверка валидности ID блюда
-                    if (dishId == 0) {
-                        throw new IllegalArgumentException("ID блюда недействителен, обновление невозможно.");
-                    }
+    @NonNull
+    public CompletableFuture<Void> updateDish(@NonNull com.mydishes.mydishes.models.Dish dishToUpdate) {
+        return submit(writeExecutor, () -> db.runInTransaction(() -> {
+            long dishId = dishToUpdate.getId();
+            // Проверка валидности ID блюда
+            if (dishId == 0) {
+                throw new IllegalArgumentException("ID блюда недействителен, обновление невозможно.");
+            }
 
-                    // Шаг 0: Получение текущего состояния блюда для определения ID существующих Nutrition
-                    DishWithProductsAndNutrition existingDishContainer = dishDao.getDishWithProductsAndNutrition(dishId);
-                    if (existingDishContainer == null || existingDishContainer.dish == null) {
-                        throw new IllegalArgumentException("Блюдо с ID " + dishId + " не найдено для обновления.");
-                    }
-                    long oldDishNutritionId = existingDishContainer.dish.nutritionId;
-
-                    // Шаг 1: Обновление или вставка пищевой ценности самого блюда
-                    long finalDishNutritionFk;
-                    com.mydishes.mydishes.models.Nutrition appDishNutrition = dishToUpdate.getNutrition();
-                    if (appDishNutrition != null) {
-                        Nutrition dbDishNutritionEntity = adaptNutrition(appDishNutrition);
-                        if (appDishNutrition.getId() != 0) { // Если у модели Nutrition есть ID, обновляем существующую
-                            dbDishNutritionEntity.id = appDishNutrition.getId();
-                            nutritionDao.updateNutrition(dbDishNutritionEntity);
-                            finalDishNutritionFk = appDishNutrition.getId();
-                        } else { // Иначе вставляем новую Nutrition
-                            finalDishNutritionFk = nutritionDao.insertNutrition(dbDishNutritionEntity);
-                            // Если старая Nutrition была, а новой присвоен другой ID, старую можно удалить
-                            if (oldDishNutritionId != 0 && oldDishNutritionId != finalDishNutritionFk) {
-                                // nutritionDao.deleteNutritionById(oldDishNutritionId); // Требует метода в DAO
-                            }
-                        }
-                    } else { // Если пищевая ценность блюда null, разрываем связь
-                        finalDishNutritionFk = 0; // Или другое значение, означающее отсутствие связи
-                        // Если раньше была пищевая ценность, ее можно удалить
-                        if (oldDishNutritionId != 0) {
-                            // nutritionDao.deleteNutritionById(oldDishNutritionId); // Требует метода в DAO
-                        }
+            // Шаг 0: Получение текущего состояния блюда для определения ID существующих Nutrition
+            DishWithProductsAndNutrition existingDishContainer = dishDao.getDishWithProductsAndNutrition(dishId);
+            if (existingDishContainer == null || existingDishContainer.dish == null) {
+                throw new IllegalArgumentException("Блюдо с ID " + dishId + " не найдено для обновления.");
+            }
+            long oldDishNutritionId = existingDishContainer.dish.nutritionId;
+
+            // Шаг 1: Обновление или вставка пищевой ценности самого блюда
+            long finalDishNutritionFk;
+            com.mydishes.mydishes.models.Nutrition appDishNutrition = dishToUpdate.getNutrition();
+            if (appDishNutrition != null) {
+                Nutrition dbDishNutritionEntity = adaptNutrition(appDishNutrition);
+                if (appDishNutrition.getId() != 0) { // Если у модели Nutrition есть ID, обновляем существующую
+                    dbDishNutritionEntity.id = appDishNutrition.getId();
+                    nutritionDao.updateNutrition(dbDishNutritionEntity);
+                    finalDishNutritionFk = appDishNutrition.getId();
+                } else { // Иначе вставляем новую Nutrition
+                    finalDishNutritionFk = nutritionDao.insertNutrition(dbDishNutritionEntity);
+                    // Если старая Nutrition была, а новой присвоен другой ID, старую можно удалить
+                    if (oldDishNutritionId != 0 && oldDishNutritionId != finalDishNutritionFk) {
+                        // nutritionDao.deleteNutritionById(oldDishNutritionId); // Требует метода в DAO
                     }
+                }
+            } else { // Если пищевая ценность блюда null, разрываем связь
+                finalDishNutritionFk = 0; // Или другое значение, означающее отсутствие связи
+                // Если раньше была пищевая ценность, ее можно удалить
+                if (oldDishNutritionId != 0) {
+                    // nutritionDao.deleteNutritionById(oldDishNutritionId); // Требует метода в DAO
+                }
+            }
 
-                    // Шаг 2: Обновление основной информации о блюде
-                    Dish dishEntityForUpdate = new Dish(dishToUpdate.getName(), dishToUpdate.getPhotoUri(), finalDishNutritionFk);
-                    dishEntityForUpdate.id = dishId; // Установка ID для обновления существующей записи
-                    dishDao.updateDish(dishEntityForUpdate);
-
-                    // Шаг 3: Обновление списка продуктов и их пищевой ценности
-                    // Сначала удаляем все существующие связи продуктов для этого блюда
-                    dishDao.deleteDishProductCrossRefsByDishId(dishId);
-                    // Также можно удалить "осиротевшие" продукты и их Nutrition, если они больше не используются.
-                    // Это требует более сложной логики (например, подсчет ссылок).
-
-                    if (dishToUpdate.getProducts() != null && !dishToUpdate.getProducts().isEmpty()) {
-                        List<DishProductCrossRef> newCrossRefs = new ArrayList<>();
-                        for (com.mydishes.mydishes.models.Product appProduct : dishToUpdate.getProducts()) {
-                            long productNutritionFk = 0;
-
-                            // Шаг 3а: Обновление/вставка пищевой ценности продукта
-                            com.mydishes.mydishes.models.Nutrition appProductNutrition = appProduct.getNutrition();
-                            if (appProductNutrition != null) {
-                                Nutrition dbProductNutritionEntity = adaptNutrition(appProductNutrition);
-                                if (appProductNutrition.getId() != 0) { // Обновляем существующую Nutrition продукта
-                                    dbProductNutritionEntity.id = appProductNutrition.getId();
-                                    nutritionDao.updateNutrition(dbProductNutritionEntity);
-                                    productNutritionFk = appProductNutrition.getId();
-                                } else { // Вставляем новую Nutrition продукта
-                                    productNutritionFk = nutritionDao.insertNutrition(dbProductNutritionEntity);
-                                }
-                            }
-
-                            // Шаг 3б: Обновление/вставка продукта
-                            Product dbProductEntity = adaptProduct(appProduct, productNutritionFk);
-                            long savedOrUpdatedProductId;
-                            if (appProduct.getId() != 0) { // Обновляем существующий продукт
-                                dbProductEntity.id = appProduct.getId();
-                                productDao.updateProduct(dbProductEntity);
-                                savedOrUpdatedProductId = appProduct.getId();
-                            } else { // Вставляем новый продукт
-                                savedOrUpdatedProductId = productDao.insertProduct(dbProductEntity);
+            // Шаг 2: Обновление основной информации о блюде
+            Dish dishEntityForUpdate = new Dish(dishToUpdate.getName(), dishToUpdate.getPhotoUri(), finalDishNutritionFk);
+            dishEntityForUpdate.id = dishId; // Установка ID для обновления существующей записи
+            dishDao.updateDish(dishEntityForUpdate);
+
+            // Шаг 3: Обновление списка продуктов и их пищевой ценности
+            // Если список продуктов не загружен (null, например у блюда из страницы getDishSummariesBefore), связи не меняются
+            if (dishToUpdate.getProducts() != null) {
+                // Сначала удаляем все существующие связи продуктов для этого блюда
+                dishDao.deleteDishProductCrossRefsByDishId(dishId);
+                // Также можно удалить "осиротевшие" продукты и их Nutrition, если они больше не используются.
+                // Это требует более сложной логики (например, подсчет ссылок).
+
+                if (!dishToUpdate.getProducts().isEmpty()) {
+                    List<DishProductCrossRef> newCrossRefs = new ArrayList<>();
+                    for (com.mydishes.mydishes.models.Product appProduct : dishToUpdate.getProducts()) {
+                        long productNutritionFk = 0;
+
+                        // Шаг 3а: Обновление/вставка пищевой ценности продукта
+                        com.mydishes.mydishes.models.Nutrition appProductNutrition = appProduct.getNutrition();
+                        if (appProductNutrition != null) {
+                            Nutrition dbProductNutritionEntity = adaptNutrition(appProductNutrition);
+                            if (appProductNutrition.getId() != 0) { // Обновляем существующую Nutrition продукта
+                                dbProductNutritionEntity.id = appProductNutrition.getId();
+                                nutritionDao.updateNutrition(dbProductNutritionEntity);
+                                productNutritionFk = appProductNutrition.getId();
+                            } else { // Вставляем новую Nutrition продукта
+                                productNutritionFk = nutritionDao.insertNutrition(dbProductNutritionEntity);
                             }
-
-                            // Шаг 3в: Создание новой связи блюдо-продукт
-                            newCrossRefs.add(new DishProductCrossRef(dishId, savedOrUpdatedProductId));
                         }
 
-                        // Шаг 3г: Вставка всех новых связей
-                        if (!newCrossRefs.isEmpty()) {
-                            dishDao.insertDishProductCrossRefs(newCrossRefs);
+                        // Шаг 3б: Обновление/вставка продукта
+                        Product dbProductEntity = adaptProduct(appProduct, productNutritionFk);
+                        long savedOrUpdatedProductId;
+                        if (appProduct.getId() != 0) { // Обновляем существующий продукт
+                            dbProductEntity.id = appProduct.getId();
+                            productDao.updateProduct(dbProductEntity);
+                            savedOrUpdatedProductId = appProduct.getId();
+                        } else { // Вставляем новый продукт
+                            savedOrUpdatedProductId = productDao.insertProduct(dbProductEntity);
                         }
+
+                        // Шаг 3в: Создание новой связи блюдо-продукт
+                        newCrossRefs.add(new DishProductCrossRef(dishId, savedOrUpdatedProductId));
+                    }
+
+                    // Шаг 3г: Вставка всех новых связей
+                    if (!newCrossRefs.isEmpty()) {
+                        dishDao.insertDishProductCrossRefs(newCrossRefs);
                     }
-                    // Если dishToUpdate.getProducts() был null или пуст, все старые связи удалены,
-                    // и новые не добавлены, что фактически очищает список продуктов для блюда.
+                }
+                // Если dishToUpdate.getProducts() пуст, все старые связи удалены,
+                // и новые не добавлены, что фактически очищает список продуктов для блюда.
+            }
 
-                    return null; // Для Callable<Void>
-                }).get(); // Ожидание завершения операции в ExecutorService
+            return null; // Для Callable<Void>
+        }));
+    }
+
+    /**
+     * Обновляет существующее блюдо (см. {@link #updateDish(com.mydishes.mydishes.models.Dish)}).
+     *
+     * @param dishToUpdate  Объект {@link com.mydishes.mydishes.models.Dish} с обновленной информацией.
+     * @param queryCallBack Колбэк для получения результата операции (успех или ошибка) в основном потоке.
+     *                      В случае успеха onSuccess будет вызван с null (Void).
+     * @return {@link CompletableFuture} операции (для отмены).
+     */
+    @NonNull
+    public CompletableFuture<Void> updateDish(@NonNull com.mydishes.mydishes.models.Dish dishToUpdate,
+                                              @NonNull QueryCallBack<Void> queryCallBack) {
+        return deliver(updateDish(dishToUpdate), queryCallBack, "Ошибка при обновлении блюда с ID: " + dishToUpdate.getId());
+    }
 
-                // Передача успешного результата в основной поток
-                activity.runOnUiThread(() -> queryCallBack.onSuccess(null));
+    /**
+     * Выполняет операцию в исполнителе. Если future отменен до начала выполнения, операция не выполняется.
+     *
+     * @param executor  Исполнитель чтения или записи.
+     * @param operation Операция с базой данных.
+     * @return {@link CompletableFuture} с результатом операции.
+     */
+    @NonNull
+    private static <T> CompletableFuture<T> submit(@NonNull Executor executor, @NonNull Callable<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (result.isDone()) {
+                return; // Операция отменена, пока ждала в очереди
+            }
+            try {
+                result.complete(operation.call());
             } catch (Exception e) {
-                // Логгирование ошибки и передача ее в основной поток
-                Log.e(TAG, "Ошибка при обновлении блюда с ID: " + (dishToUpdate != null ? dishToUpdate.getId() : "null"), e);
-                activity.runOnUiThread(() -> queryCallBack.onError(e));
-                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Передает результат операции в колбэк в основном потоке. Ошибка записывается в лог,
+     * отмененная операция колбэк не вызывает.
+     *
+     * @param future        Операция.
+     * @param queryCallBack Колбэк для получения результата.
+     * @param errorMessage  Сообщение для лога при ошибке.
+     * @return Та же операция {@code future}.
+     */
+    @NonNull
+    private <T> CompletableFuture<T> deliver(@NonNull CompletableFuture<T> future, @NonNull QueryCallBack<T> queryCallBack,
+                                             @NonNull String errorMessage) {
+        future.whenCompleteAsync((result, error) -> {
+            if (future.isCancelled()) {
+                return;
             }
-        }).start();
+            if (error == null) {
+                queryCallBack.onSuccess(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            Exception e = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+            // Логгирование ошибки и передача ее в основной поток
+            Log.e(TAG, errorMessage, e);
+            queryCallBack.onError(e);
+        }, mainExecutor);
+        return future;
+    }
+
+    @NonNull
+    private static ThreadFactory threadFactory(@NonNull String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
     /**
@@ -0,0 +1,292 @@
+package com.mydishes.mydishes.database.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.models.Dish;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Постраничная загрузка списка блюд по мере прокрутки, новые блюда первыми.
+ * <p>
+ * Страницы выбираются по ключу - ID соседнего блюда ({@link DataRepository#getDishSummariesBefore},
+ * {@link DataRepository#getDishSummariesAfter}), а не по смещению, поэтому загрузка страницы не читает
+ * предыдущие страницы и не зависит от количества блюд в базе, а удаление или добавление блюда не сдвигает
+ * следующие страницы. Следующая страница запрашивается заранее, когда до края загруженного списка остаётся
+ * не больше {@code prefetchDistance} элементов; одновременно загружается не больше одной страницы.
+ * </p>
+ * <p>
+ * В памяти хранится "окно" не больше {@code maxSize} блюд: при прокрутке вниз из начала окна выгружаются
+ * блюда, которые уже далеко за экраном, а при прокрутке обратно вверх они загружаются снова. Поэтому память
+ * списка ограничена при любом количестве блюд. Все методы должны вызываться в основном потоке.
+ * </p>
+ */
+public class DishPager {
+
+    /**
+     * Количество блюд на странице по умолчанию.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 30;
+    /**
+     * Максимальное количество блюд в памяти по умолчанию.
+     */
+    public static final int DEFAULT_MAX_SIZE = 4 * DEFAULT_PAGE_SIZE;
+    /**
+     * Количество оставшихся до края окна элементов, при котором запрашивается следующая страница, по умолчанию.
+     */
+    public static final int DEFAULT_PREFETCH_DISTANCE = 10;
+
+    private final PageLoader olderLoader;
+    private final PageLoader newerLoader;
+    private final int pageSize;
+    private final int maxSize;
+    private final int prefetchDistance;
+    private final Listener listener;
+
+    // Загруженные блюда в порядке отображения (по убыванию ID)
+    private final List<Dish> window = new ArrayList<>();
+    // Есть ли блюда новее первого (выгруженные из окна) и старше последнего блюда окна
+    private boolean hasNewer;
+    private boolean hasOlder;
+    // Видимые позиции списка: после загрузки страницы проверяется, не нужна ли следующая
+    private int firstVisiblePosition = -1;
+    private int lastVisiblePosition = -1;
+    @Nullable
+    private CompletableFuture<List<Dish>> inFlight;
+    // Номер текущей загрузки: завершение или отмена загрузки увеличивает номер, ответы устаревших загрузок
+    // игнорируются
+    private int generation;
+
+    /**
+     * Создает загрузчик списка блюд с размерами страницы и окна по умолчанию.
+     *
+     * @param repository Репозиторий, из которого загружаются блюда.
+     * @param listener   Получатель загруженного списка.
+     */
+    public DishPager(@NonNull DataRepository repository, @NonNull Listener listener) {
+        this(repository::getDishSummariesBefore, repository::getDishSummariesAfter,
+                DEFAULT_PAGE_SIZE, DEFAULT_MAX_SIZE, DEFAULT_PREFETCH_DISTANCE, listener);
+    }
+
+    DishPager(@NonNull PageLoader olderLoader, @NonNull PageLoader newerLoader, int pageSize, int maxSize,
+              int prefetchDistance, @NonNull Listener listener) {
+        this.olderLoader = olderLoader;
+        this.newerLoader = newerLoader;
+        this.pageSize = pageSize;
+        // Окно должно вмещать хотя бы две страницы, иначе новая страница вытеснит ту, что сейчас на экране
+        this.maxSize = Math.max(maxSize, 2 * pageSize);
+        this.prefetchDistance = prefetchDistance;
+        this.listener = listener;
+    }
+
+    /**
+     * Загружает окно заново, например после добавления, изменения или удаления блюда. Если начало списка
+     * не выгружено, загружаются самые новые блюда (в том числе только что добавленные); иначе окно загружается
+     * с того же первого блюда, чтобы список не перескакивал в начало.
+     */
+    public void refresh() {
+        cancel();
+        long beforeId = hasNewer && !window.isEmpty() ? window.get(0).getId() + 1 : Long.MAX_VALUE;
+        int limit = Math.min(Math.max(window.size(), pageSize), maxSize);
+        load(olderLoader, beforeId, limit, new DataRepository.QueryCallBack<>() {
+            @Override
+            public void onSuccess(List<Dish> result) {
+                onRefreshed(beforeId, limit, result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onLoadFailed(e, true);
+            }
+        });
+    }
+
+    /**
+     * Сообщает о прокрутке списка; при приближении к краю окна запрашивает следующую страницу.
+     *
+     * @param firstVisiblePosition Позиция первого видимого элемента списка.
+     * @param lastVisiblePosition  Позиция последнего видимого элемента списка.
+     */
+    public void onScrolled(int firstVisiblePosition, int lastVisiblePosition) {
+        this.firstVisiblePosition = firstVisiblePosition;
+        this.lastVisiblePosition = lastVisiblePosition;
+        if (inFlight != null || window.isEmpty()) {
+            return;
+        }
+        if (hasOlder && lastVisiblePosition >= window.size() - 1 - prefetchDistance) {
+            loadPage(true);
+        } else if (hasNewer && firstVisiblePosition >= 0 && firstVisiblePosition <= prefetchDistance) {
+            loadPage(false);
+        }
+    }
+
+    /**
+     * Отменяет загрузку страницы. Вызывается при уничтожении экрана; загруженное окно сохраняется.
+     */
+    public void cancel() {
+        generation++;
+        if (inFlight != null) {
+            inFlight.cancel(false);
+            inFlight = null;
+        }
+    }
+
+    /**
+     * @return true, если загружается страница.
+     */
+    public boolean isLoading() {
+        return inFlight != null;
+    }
+
+    /**
+     * @return Копия загруженного окна блюд в порядке отображения.
+     */
+    @NonNull
+    public List<Dish> getDishes() {
+        return new ArrayList<>(window);
+    }
+
+    private void loadPage(boolean older) {
+        long key = older ? window.get(window.size() - 1).getId() : window.get(0).getId();
+        load(older ? olderLoader : newerLoader, key, pageSize, new DataRepository.QueryCallBack<>() {
+            @Override
+            public void onSuccess(List<Dish> result) {
+                onPageLoaded(older, result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onLoadFailed(e, older);
+            }
+        });
+    }
+
+    /**
+     * Запускает загрузку страницы; {@code handler} получает только ответ текущей (не отмененной) загрузки.
+     */
+    private void load(@NonNull PageLoader loader, long key, int limit,
+                      @NonNull DataRepository.QueryCallBack<List<Dish>> handler) {
+        int loadGeneration = ++generation;
+        CompletableFuture<List<Dish>> load = loader.load(key, limit, new DataRepository.QueryCallBack<>() {
+            @Override
+            public void onSuccess(List<Dish> result) {
+                if (finish(loadGeneration)) {
+                    handler.onSuccess(result);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (finish(loadGeneration)) {
+                    handler.onError(e);
+                }
+            }
+        });
+        // Колбэк мог быть вызван еще до возврата из load()
+        if (loadGeneration == generation) {
+            inFlight = load;
+        }
+    }
+
+    private boolean finish(int loadGeneration) {
+        if (loadGeneration != generation) {
+            return false;
+        }
+        generation++;
+        inFlight = null;
+        return true;
+    }
+
+    private void onRefreshed(long beforeId, int limit, @NonNull List<Dish> dishes) {
+        if (dishes.isEmpty() && beforeId != Long.MAX_VALUE) {
+            // Все блюда окна и старше удалены: загружаем список с начала
+            hasNewer = false;
+            refresh();
+            return;
+        }
+        window.clear();
+        window.addAll(dishes);
+        hasOlder = dishes.size() == limit;
+        listener.onDishesLoaded(getDishes());
+        onScrolled(firstVisiblePosition, lastVisiblePosition);
+    }
+
+    private void onPageLoaded(boolean older, @NonNull List<Dish> page) {
+        boolean more = page.size() == pageSize;
+        if (older) {
+            hasOlder = more;
+            window.addAll(page);
+            int overflow = window.size() - maxSize;
+            if (overflow > 0) {
+                // Начало окна уже далеко над экраном
+                window.subList(0, overflow).clear();
+                hasNewer = true;
+                firstVisiblePosition -= overflow;
+                lastVisiblePosition -= overflow;
+            }
+        } else {
+            hasNewer = more;
+            window.addAll(0, page);
+            firstVisiblePosition += page.size();
+            lastVisiblePosition += page.size();
+            int overflow = window.size() - maxSize;
+            if (overflow > 0) {
+                // Конец окна уже далеко под экраном
+                window.subList(window.size() - overflow, window.size()).clear();
+                hasOlder = true;
+            }
+        }
+        if (!page.isEmpty()) {
+            listener.onDishesLoaded(getDishes());
+        }
+        // Пока страница загружалась, пользователь мог долистать до края окна
+        onScrolled(firstVisiblePosition, lastVisiblePosition);
+    }
+
+    private void onLoadFailed(@NonNull Exception e, boolean older) {
+        // Страница не запрашивается при каждой прокрутке заново; список загрузится снова при refresh()
+        if (older) {
+            hasOlder = false;
+        } else {
+            hasNewer = false;
+        }
+        listener.onError(e);
+    }
+
+    /**
+     * Загрузка страницы блюд по ключу (см. {@link DataRepository#getDishSummariesBefore(long, int, DataRepository.QueryCallBack)}).
+     */
+    @FunctionalInterface
+    interface PageLoader {
+        /**
+         * @param key           ID соседнего блюда, от которого загружается страница.
+         * @param limit         Максимальное количество блюд.
+         * @param queryCallBack Колбэк, получающий страницу в порядке отображения в основном потоке.
+         * @return {@link CompletableFuture} операции (для отмены).
+         */
+        @NonNull
+        CompletableFuture<List<Dish>> load(long key, int limit, @NonNull DataRepository.QueryCallBack<List<Dish>> queryCallBack);
+    }
+
+    /**
+     * Получатель списка блюд. Все методы вызываются в основном потоке.
+     */
+    public interface Listener {
+        /**
+         * Изменилось загруженное окно блюд.
+         *
+         * @param dishes Блюда окна в порядке отображения; пустой список означает, что блюд нет.
+         */
+        void onDishesLoaded(@NonNull List<Dish> dishes);
+
+        /**
+         * Не удалось загрузить страницу.
+         *
+         * @param e Исключение, описывающее ошибку.
+         */
+        void onError(@NonNull Exception e);
+    }
+}
@@ -0,0 +1,51 @@
+package com.mydishes.mydishes.database.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.database.dao.ProductDetailsCacheDao;
+import com.mydishes.mydishes.database.model.ProductDetailsCacheEntry;
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.parser.CacheValidators;
+import com.mydishes.mydishes.parser.DetailsCache;
+
+/**
+ * Реализация {@link DetailsCache} поверх таблицы Room {@code product_details_cache}.
+ * Поиск выполняется по первичному ключу (URL страницы продукта), поэтому занимает единицы миллисекунд
+ * и не требует доступа к сети.
+ */
+public class RoomDetailsCache implements DetailsCache {
+
+    private final ProductDetailsCacheDao dao;
+
+    /**
+     * @param dao DAO таблицы кэша деталей продуктов.
+     */
+    public RoomDetailsCache(@NonNull ProductDetailsCacheDao dao) {
+        this.dao = dao;
+    }
+
+    @Nullable
+    @Override
+    public Entry get(@NonNull String productUrl) {
+        ProductDetailsCacheEntry row = dao.getByUrl(productUrl);
+        if (row == null) {
+            return null;
+        }
+        return new Entry(new Nutrition(row.calories, row.protein, row.fat, row.carb),
+                new CacheValidators(row.etag, row.lastModified), row.fetchedAt);
+    }
+
+    @Override
+    public void put(@NonNull String productUrl, @NonNull Nutrition nutrition, @NonNull CacheValidators validators,
+                    long fetchedAtMillis) {
+        dao.upsert(new ProductDetailsCacheEntry(productUrl,
+                nutrition.getCalories(), nutrition.getProtein(), nutrition.getFat(), nutrition.getCarb(),
+                fetchedAtMillis, validators.etag, validators.lastModified));
+    }
+
+    @Override
+    public void markFresh(@NonNull String productUrl, long fetchedAtMillis) {
+        dao.updateFetchedAt(productUrl, fetchedAtMillis);
+    }
+}
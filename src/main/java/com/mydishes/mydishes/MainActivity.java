@@ -20,19 +20,19 @@ import com.google.android.material.snackbar.BaseTransientBottomBar;
 import com.google.android.material.snackbar.Snackbar;
 import com.mydishes.mydishes.adapters.DishesAdapter;
 import com.mydishes.mydishes.database.repository.DataRepository;
+import com.mydishes.mydishes.database.repository.DishPager;
 import com.mydishes.mydishes.models.Dish;
 import com.mydishes.mydishes.utils.DishDetailsBottomSheet;
 import com.mydishes.mydishes.utils.ViewUtils;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
  * Главная активность приложения.
  * Отображает список сохраненных блюд, позволяет добавлять новые блюда и удалять существующие.
  * Использует {@link DishesAdapter} для отображения списка в {@link RecyclerView},
- * {@link DataRepository} для взаимодействия с базой данных и {@link DishDetailsBottomSheet}
- * для отображения и редактирования деталей блюда.
+ * {@link DataRepository} для взаимодействия с базой данных, {@link DishPager} для постраничной загрузки списка
+ * и {@link DishDetailsBottomSheet} для отображения и редактирования деталей блюда.
  */
 public class MainActivity extends AppCompatActivity {
 
@@ -42,6 +42,8 @@ public class MainActivity extends AppCompatActivity {
     private DataRepository dataRepository;
     // TextView для отображения сообщения об отсутствии блюд
     private TextView noDishesTextView;
+    // Постраничная загрузка списка блюд (загрузка отменяется при уничтожении активности)
+    private DishPager dishPager;
 
     /**
      * Вызывается, когда активность становится видимой пользователю.
@@ -54,10 +56,21 @@ public class MainActivity extends AppCompatActivity {
         loadDishesFromDb();
     }
 
+    /**
+     * Вызывается при уничтожении активности. Отменяет загрузку списка блюд, если она еще не завершена.
+     */
+    @Override
+    protected void onDestroy() {
+        if (dishPager != null) {
+            dishPager.cancel();
+        }
+        super.onDestroy();
+    }
+
     /**
      * Вызывается при создании активности.
      * Инициализирует UI компоненты, настраивает RecyclerView, слушатели нажатий и свайпов,
-     * а также получает экземпляр DataRepository.
+     * а также получает экземпляр DataRepository и создает {@link DishPager}.
      *
      * @param savedInstanceState Если активность пересоздается после предыдущего уничтожения,
      *                           этот Bundle содержит данные, которые она в последний раз предоставила
@@ -81,7 +94,16 @@ public class MainActivity extends AppCompatActivity {
 
         // Инициализация RecyclerView
         RecyclerView recyclerView = findViewById(R.id.add_products_recycler);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.VERTICAL, false));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this, LinearLayoutManager.VERTICAL, false);
+        recyclerView.setLayoutManager(layoutManager);
+        // Следующая страница блюд загружается при приближении к краю загруженного списка (в обе стороны)
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                dishPager.onScrolled(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
+            }
+        });
 
         // Инициализация адаптера и установка слушателя нажатия на элемент списка
         adapter = new DishesAdapter(dish -> {
@@ -122,6 +144,22 @@ public class MainActivity extends AppCompatActivity {
 
         // Получение экземпляра DataRepository для работы с базой данных
         dataRepository = DataRepository.getInstance(getApplication());
+        dishPager = new DishPager(dataRepository, new DishPager.Listener() {
+            @Override
+            public void onDishesLoaded(@NonNull List<Dish> dishes) {
+                // Передаем загруженное окно блюд в адаптер
+                adapter.submitList(dishes);
+                // Управляем видимостью текстового поля "Нет блюд":
+                // показываем, если список пуст, иначе скрываем
+                noDishesTextView.setVisibility(dishes.isEmpty() ? View.VISIBLE : View.GONE);
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                // При ошибке загрузки показываем Snackbar с сообщением
+                Snackbar.make(findViewById(android.R.id.content), getString(R.string.error_loading_dishes) + " " + e.getMessage(), BaseTransientBottomBar.LENGTH_LONG).show();
+            }
+        });
     }
 
 
@@ -163,7 +201,7 @@ public class MainActivity extends AppCompatActivity {
                         })
                         .setPositiveButton(R.string.ok, (dialog, which) ->
                                 // При подтверждении удаляем блюдо из базы данных
-                                dataRepository.deleteDishById(MainActivity.this, dish.getId(), new DataRepository.QueryCallBack<>() {
+                                dataRepository.deleteDishById(dish.getId(), new DataRepository.QueryCallBack<>() {
                                     @Override
                                     public void onSuccess(Void result) {
                                         // При успешном удалении перезагружаем список блюд
@@ -188,35 +226,13 @@ public class MainActivity extends AppCompatActivity {
 
 
     /**
-     * Загружает список всех блюд с их полной детализацией из базы данных.
-     * Использует {@link DataRepository#getAllDishesWithDetails}.
-     * В случае успеха обновляет адаптер RecyclerView, отображая блюда (новые сверху).
-     * В случае ошибки отображает Snackbar с сообщением.
-     * Также управляет видимостью {@link #noDishesTextView} в зависимости от того, пуст ли список.
+     * Загружает (или перезагружает) список блюд из базы данных: только данные, которые показывает список
+     * (название, фото, КБЖУ), новые блюда сверху. Блюда загружаются страницами через {@link DishPager};
+     * остальные страницы догружаются при прокрутке, продукты блюда загружает {@link DishDetailsBottomSheet}.
+     * Результат передается в адаптер, ошибка отображается в Snackbar.
      */
     private void loadDishesFromDb() {
-        // Асинхронный запрос к репозиторию для получения всех блюд с деталями
-        dataRepository.getAllDishesWithDetails(this, new DataRepository.QueryCallBack<>() {
-            @Override
-            public void onSuccess(List<Dish> result) {
-                // Проверка, что адаптер еще существует (активность/фрагмент не уничтожены)
-                if (adapter != null) {
-                    // Разворачиваем список, чтобы новые блюда были сверху
-                    Collections.reverse(result);
-                    // Передаем обновленный список в адаптер
-                    adapter.submitList(result);
-                    // Управляем видимостью текстового поля "Нет блюд":
-                    // показываем, если список пуст, иначе скрываем
-                    noDishesTextView.setVisibility(result.isEmpty() ? View.VISIBLE : View.GONE);
-                }
-            }
-
-            @Override
-            public void onError(Exception e) {
-                // При ошибке загрузки показываем Snackbar с сообщением
-                Snackbar.make(findViewById(android.R.id.content), getString(R.string.error_loading_dishes) + " " + e.getMessage(), BaseTransientBottomBar.LENGTH_LONG).show();
-            }
-        });
+        dishPager.refresh();
     }
 
 
@@ -19,8 +19,8 @@ import com.google.android.material.snackbar.Snackbar;
 import com.mydishes.mydishes.R;
 import com.mydishes.mydishes.models.Product;
 import com.mydishes.mydishes.models.ProductsSelectedManager;
-import com.mydishes.mydishes.parser.EdostavkaParser;
 import com.mydishes.mydishes.parser.Parser;
+import com.mydishes.mydishes.parser.ParserProvider;
 import com.mydishes.mydishes.parser.ParsingStateListener;
 import com.mydishes.mydishes.parser.ProductParseCallback;
 import com.mydishes.mydishes.utils.DialogUtils;
@@ -35,7 +35,7 @@ public class ProductFindAdapter extends BaseAdapter<Product, ProductFindAdapter.
 
     private final Context context;
     private final ParsingStateListener parsingStateListener;
-    private final Parser parser = new EdostavkaParser(); // Используется для получения детальной информации о продукте
+    private final Parser parser; // Используется для получения детальной информации о продукте
 
     /**
      * Конструктор для ProductFindAdapter.
@@ -47,6 +47,7 @@ public class ProductFindAdapter extends BaseAdapter<Product, ProductFindAdapter.
         super(new ProductDiffCallback());
         this.context = activity;
         this.parsingStateListener = listener;
+        this.parser = ParserProvider.get(activity);
     }
 
     /**
@@ -98,6 +99,11 @@ public class ProductFindAdapter extends BaseAdapter<Product, ProductFindAdapter.
         // Установка слушателя кликов для открытия диалога ввода массы
         holder.itemView.setOnClickListener(v -> {
             DialogUtils.showInputMassDialog(context, product.getName(), massStr -> {
+                if (product.hasNutrition()) {
+                    // КБЖУ получены из карточки в результатах поиска, страницу продукта не загружаем
+                    addSelected(holder, Product.createProduct(product), massStr);
+                    return;
+                }
                 // Асинхронный парсинг деталей продукта (КБЖУ) после ввода массы
                 parser.parseProductDetailsAsync(product, new ProductParseCallback<>() {
                     @Override
@@ -110,12 +116,7 @@ public class ProductFindAdapter extends BaseAdapter<Product, ProductFindAdapter.
 
                     @Override
                     public void onSuccess(Product parsedProduct) {
-                        // Установка введенной массы для распарсенного продукта
-                        parsedProduct.setMass(parseFloatSafe(massStr));
-                        // Добавление продукта в менеджер выбранных продуктов
-                        ProductsSelectedManager.add(parsedProduct);
-                        // Отображение Snackbar с подтверждением добавления
-                        Snackbar.make(holder.itemView, "Записан " + parsedProduct.getName(), BaseTransientBottomBar.LENGTH_SHORT).show();
+                        addSelected(holder, parsedProduct, massStr);
                     }
 
                     @Override
@@ -139,6 +140,22 @@ public class ProductFindAdapter extends BaseAdapter<Product, ProductFindAdapter.
         });
     }
 
+    /**
+     * Добавляет продукт с КБЖУ в список выбранных с введенной массой.
+     *
+     * @param holder  ViewHolder элемента, для которого показывается подтверждение.
+     * @param product Продукт с КБЖУ.
+     * @param massStr Масса, введенная пользователем.
+     */
+    private void addSelected(@NonNull ProductFindViewHolder holder, @NonNull Product product, String massStr) {
+        // Установка введенной массы для продукта
+        product.setMass(parseFloatSafe(massStr));
+        // Добавление продукта в менеджер выбранных продуктов
+        ProductsSelectedManager.add(product);
+        // Отображение Snackbar с подтверждением добавления
+        Snackbar.make(holder.itemView, "Записан " + product.getName(), BaseTransientBottomBar.LENGTH_SHORT).show();
+    }
+
     /**
      * ViewHolder для отображения информации о найденном продукте.
      */
@@ -2,17 +2,22 @@ package com.mydishes.mydishes.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.mydishes.mydishes.database.dao.DishDao;
 import com.mydishes.mydishes.database.dao.NutritionDao;
 import com.mydishes.mydishes.database.dao.ProductDao;
+import com.mydishes.mydishes.database.dao.ProductDetailsCacheDao;
 import com.mydishes.mydishes.database.model.Dish;
 import com.mydishes.mydishes.database.model.DishProductCrossRef;
 import com.mydishes.mydishes.database.model.Nutrition;
 import com.mydishes.mydishes.database.model.Product;
+import com.mydishes.mydishes.database.model.ProductDetailsCacheEntry;
 
 /**
  * Основной класс базы данных приложения, использующий Room Persistence Library.
@@ -25,11 +30,12 @@ import com.mydishes.mydishes.database.model.Product;
  *     <li>{@link Nutrition} - представляет пищевую ценность (КБЖУ).</li>
  *     <li>{@link Product} - представляет продукт/ингредиент.</li>
  *     <li>{@link DishProductCrossRef} - представляет связующую таблицу для отношения "многие-ко-многим" между блюдами и продуктами.</li>
+ *     <li>{@link ProductDetailsCacheEntry} - представляет закэшированные детали продукта (КБЖУ) по URL страницы продукта.</li>
  * </ul>
- * Версия базы данных: 1. `exportSchema` установлено в `false` для отключения экспорта схемы в JSON файл,
+ * Версия базы данных: 2. `exportSchema` установлено в `false` для отключения экспорта схемы в JSON файл,
  * что обычно полезно для более сложных проектов с миграциями, но не обязательно для этого примера.
  */
-@Database(entities = {Dish.class, Nutrition.class, Product.class, DishProductCrossRef.class}, version = 1, exportSchema = false)
+@Database(entities = {Dish.class, Nutrition.class, Product.class, DishProductCrossRef.class, ProductDetailsCacheEntry.class}, version = 2, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     // Имя файла базы данных
@@ -37,6 +43,27 @@ public abstract class AppDatabase extends RoomDatabase {
     // Переменная для хранения единственного экземпляра AppDatabase (Singleton)
     private static volatile AppDatabase INSTANCE;
 
+    /**
+     * Миграция 1 -> 2: добавляет кэш деталей продуктов и заполняет его КБЖУ уже сохраненных продуктов.
+     * Время загрузки перенесенных записей неизвестно (0), поэтому они будут обновлены в фоне при первом обращении.
+     * Валидаторы страницы (ETag, Last-Modified) перенесенных записей неизвестны (NULL): первое обновление
+     * загружает страницу целиком.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `product_details_cache` ("
+                    + "`productURL` TEXT NOT NULL, `calories` REAL NOT NULL, `protein` REAL NOT NULL, "
+                    + "`fat` REAL NOT NULL, `carb` REAL NOT NULL, `fetchedAt` INTEGER NOT NULL, "
+                    + "`etag` TEXT, `lastModified` TEXT, PRIMARY KEY(`productURL`))");
+            db.execSQL("INSERT OR REPLACE INTO `product_details_cache` "
+                    + "(`productURL`, `calories`, `protein`, `fat`, `carb`, `fetchedAt`) "
+                    + "SELECT p.`productURL`, n.`calories`, n.`protein`, n.`fat`, n.`carb`, 0 "
+                    + "FROM `products` p INNER JOIN `nutrition` n ON n.`id` = p.`nutritionId` "
+                    + "WHERE p.`productURL` IS NOT NULL AND p.`productURL` != ''");
+        }
+    };
+
     /**
      * Возвращает единственный экземпляр {@link AppDatabase}.
      * Если экземпляр еще не создан, он будет инициализирован потокобезопасным образом.
@@ -57,6 +84,7 @@ public abstract class AppDatabase extends RoomDatabase {
                             // Важно: fallbackToDestructiveMigration() удалит и пересоздаст базу данных при изменении версии.
                             // Это простое решение для разработки, но для продакшена требуются стратегии миграции.
                             // .fallbackToDestructiveMigration()
+                            .addMigrations(MIGRATION_1_2)
                             .build();
                 }
             }
@@ -85,4 +113,11 @@ public abstract class AppDatabase extends RoomDatabase {
      * @return Экземпляр {@link ProductDao}.
      */
     public abstract ProductDao productDao();
+
+    /**
+     * Предоставляет доступ к Data Access Object (DAO) для операций с сущностью {@link ProductDetailsCacheEntry}.
+     *
+     * @return Экземпляр {@link ProductDetailsCacheDao}.
+     */
+    public abstract ProductDetailsCacheDao productDetailsCacheDao();
 }
@@ -1,5 +1,7 @@
 package com.mydishes.mydishes.database.dao;
 
+import android.database.Cursor;
+
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
@@ -9,6 +11,7 @@ import androidx.room.Update;
 
 import com.mydishes.mydishes.database.model.Dish;
 import com.mydishes.mydishes.database.model.DishProductCrossRef;
+import com.mydishes.mydishes.database.model.relations.DishSummary;
 import com.mydishes.mydishes.database.model.relations.DishWithProductsAndNutrition;
 
 import java.util.List;
@@ -32,6 +35,40 @@ public interface DishDao {
     @Query("SELECT * FROM dishes WHERE id = :dishId")
     DishWithProductsAndNutrition getDishWithProductsAndNutrition(long dishId);
 
+    // Блюдо с КБЖУ, продуктами и КБЖУ продуктов одним запросом: по строке на продукт блюда
+    // (блюдо без продуктов - одна строка с NULL в столбцах продукта, несуществующее блюдо - ни одной строки).
+    // Порядок совпадает с первичным ключом таблицы связей, поэтому сортировка не требует временной таблицы
+    @Query("SELECT d.id AS dishId, d.name AS dishName, d.photoUri AS dishPhotoUri, "
+            + "dn.id AS dishNutritionId, dn.calories AS dishCalories, dn.protein AS dishProtein, "
+            + "dn.fat AS dishFat, dn.carb AS dishCarb, "
+            + "p.id AS productId, p.name AS productName, p.productURL AS productURL, p.imageURL AS imageURL, "
+            + "p.mass AS productMass, pn.id AS productNutritionId, pn.calories AS productCalories, "
+            + "pn.protein AS productProtein, pn.fat AS productFat, pn.carb AS productCarb "
+            + "FROM dishes d "
+            + "LEFT JOIN nutrition dn ON dn.id = d.nutritionId "
+            + "LEFT JOIN dish_product_cross_ref r ON r.dishId = d.id "
+            + "LEFT JOIN products p ON p.id = r.productId "
+            + "LEFT JOIN nutrition pn ON pn.id = p.nutritionId "
+            + "WHERE d.id = :dishId "
+            + "ORDER BY r.productId")
+    Cursor queryDishWithProducts(long dishId);
+
+    // Страница кратких данных блюд с ID меньше :beforeId, новые блюда первыми. Условие и сортировка идут по
+    // первичному ключу (rowid): SQLite читает таблицу с конца прямо от :beforeId, без сортировки и без чтения
+    // предыдущих страниц, поэтому время загрузки страницы не зависит от количества блюд
+    @Query("SELECT d.id, d.name, d.photoUri, n.id AS nutrition_id, n.calories AS nutrition_calories, "
+            + "n.protein AS nutrition_protein, n.fat AS nutrition_fat, n.carb AS nutrition_carb "
+            + "FROM dishes d LEFT JOIN nutrition n ON n.id = d.nutritionId "
+            + "WHERE d.id < :beforeId ORDER BY d.id DESC LIMIT :limit")
+    List<DishSummary> getDishSummariesBefore(long beforeId, int limit);
+
+    // Страница кратких данных блюд с ID больше :afterId в порядке возрастания ID (ближайшие к :afterId первыми)
+    @Query("SELECT d.id, d.name, d.photoUri, n.id AS nutrition_id, n.calories AS nutrition_calories, "
+            + "n.protein AS nutrition_protein, n.fat AS nutrition_fat, n.carb AS nutrition_carb "
+            + "FROM dishes d LEFT JOIN nutrition n ON n.id = d.nutritionId "
+            + "WHERE d.id > :afterId ORDER BY d.id LIMIT :limit")
+    List<DishSummary> getDishSummariesAfter(long afterId, int limit);
+
     // Получить все Dish (без вложенных данных, если нужно только список названий, например)
     @Query("SELECT * FROM dishes")
     List<Dish> getAllDishesSimple();
@@ -15,6 +15,10 @@ public interface NutritionDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     long insertNutrition(Nutrition nutrition);
 
+    // Пакетная вставка: ID возвращаются в порядке элементов списка
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long[] insertAll(List<Nutrition> nutrition);
+
     @Query("SELECT * FROM nutrition")
     List<Nutrition> getAllNutrition();
 
@@ -20,6 +20,10 @@ public interface ProductDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertProducts(List<Product> products);
 
+    // Пакетная вставка: ID возвращаются в порядке элементов списка
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long[] insertAll(List<Product> products);
+
     @Query("SELECT * FROM products")
     List<Product> getAllProducts();
 
@@ -0,0 +1,20 @@
+package com.mydishes.mydishes.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.mydishes.mydishes.database.model.ProductDetailsCacheEntry;
+
+@Dao
+public interface ProductDetailsCacheDao {
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(ProductDetailsCacheEntry entry);
+
+    @Query("SELECT * FROM product_details_cache WHERE productURL = :productURL")
+    ProductDetailsCacheEntry getByUrl(String productURL);
+
+    @Query("UPDATE product_details_cache SET fetchedAt = :fetchedAt WHERE productURL = :productURL")
+    void updateFetchedAt(String productURL, long fetchedAt);
+}
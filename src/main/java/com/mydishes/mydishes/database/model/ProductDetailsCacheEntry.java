@@ -0,0 +1,59 @@
+package com.mydishes.mydishes.database.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Представляет закэшированные детали продукта (КБЖУ), полученные парсером со страницы продукта.
+ * Запись идентифицируется URL страницы продукта.
+ */
+@Entity(tableName = "product_details_cache")
+public class ProductDetailsCacheEntry {
+    @PrimaryKey
+    @NonNull
+    public String productURL = ""; // ссылка на страницу продукта сайта парсинга
+
+    public double calories; // ккалории
+    public double protein;  // белки
+    public double fat;      // жиры
+    public double carb;     // углеводы
+
+    public long fetchedAt;  // время загрузки страницы, мс с начала эпохи (0 - время неизвестно)
+
+    @Nullable
+    public String etag;         // заголовок ETag страницы продукта
+    @Nullable
+    public String lastModified; // заголовок Last-Modified страницы продукта
+
+    /**
+     * Пустой конструктор для Room.
+     */
+    public ProductDetailsCacheEntry() {
+    }
+
+    /**
+     * Конструктор для создания объекта ProductDetailsCacheEntry.
+     *
+     * @param productURL URL страницы продукта.
+     * @param calories   Калорийность.
+     * @param protein    Количество белков.
+     * @param fat        Количество жиров.
+     * @param carb       Количество углеводов.
+     * @param fetchedAt  Время загрузки страницы продукта.
+     * @param etag         Заголовок ETag страницы или null.
+     * @param lastModified Заголовок Last-Modified страницы или null.
+     */
+    public ProductDetailsCacheEntry(@NonNull String productURL, double calories, double protein, double fat, double carb, long fetchedAt,
+                                    @Nullable String etag, @Nullable String lastModified) {
+        this.productURL = productURL;
+        this.calories = calories;
+        this.protein = protein;
+        this.fat = fat;
+        this.carb = carb;
+        this.fetchedAt = fetchedAt;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+}
@@ -0,0 +1,22 @@
+package com.mydishes.mydishes.database.model.relations;
+
+import androidx.room.Embedded;
+
+import com.mydishes.mydishes.database.model.Nutrition;
+
+/**
+ * Краткие данные блюда для списка блюд: название, фото и КБЖУ блюда, без продуктов.
+ * Заполняется постраничными запросами {@link com.mydishes.mydishes.database.dao.DishDao#getDishSummariesBefore}
+ * и {@link com.mydishes.mydishes.database.dao.DishDao#getDishSummariesAfter}.
+ */
+public class DishSummary {
+    public long id;         // ID блюда
+    public String name;     // Наименование
+    public String photoUri; // Ссылка на фото
+
+    /**
+     * КБЖУ блюда (столбцы с префиксом {@code nutrition_}) или null, если у блюда нет КБЖУ.
+     */
+    @Embedded(prefix = "nutrition_")
+    public Nutrition nutrition;
+}
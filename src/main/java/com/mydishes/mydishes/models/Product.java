@@ -167,6 +167,12 @@ public class Product implements Parcelable { // Removed implements Cloneable
         this.nutrition = nutrition;
     }
 
+    // Продукт полный: КБЖУ уже известны (например, получены из карточки в результатах поиска),
+    // и загружать страницу продукта не нужно
+    public boolean hasNutrition() {
+        return nutrition != null;
+    }
+
     public float getMass() {
         return mass;
     }
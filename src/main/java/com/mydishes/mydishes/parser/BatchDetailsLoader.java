@@ -0,0 +1,174 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.models.Product;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Выполняет пакетную загрузку деталей продуктов для {@link Parser#parseProductDetailsBatchAsync}.
+ * <p>
+ * Каждый продукт загружается отдельной задачей пула. Одновременно выполняется не больше {@code parallelism}
+ * загрузок и не больше {@code perHostLimit} загрузок с одного сайта; продукты разных сайтов чередуются.
+ * Следующая загрузка ставится в пул только после завершения предыдущей, поэтому пакет не занимает
+ * очередь пула целиком и потоки не блокируются в ожидании.
+ * </p>
+ */
+final class BatchDetailsLoader {
+
+    private final Parser parser;
+    private final List<Product> products;
+    private final int parallelism;
+    private final int perHostLimit;
+    private final ExecutorService executor;
+    private final Executor mainExecutor;
+    private final ParseTask task;
+    private final BatchParseCallback callback;
+
+    // Индексы ещё не начатых продуктов по сайтам, в порядке входного списка
+    private final Map<String, Deque<Integer>> pendingByHost = new LinkedHashMap<>();
+    private final Map<String, Integer> runningByHost = new HashMap<>();
+    private int running;
+    private int completed;
+
+    BatchDetailsLoader(@NonNull Parser parser, @NonNull List<Product> products, int parallelism, int perHostLimit,
+                       @NonNull ExecutorService executor, @NonNull Executor mainExecutor,
+                       @NonNull ParseTask task, @NonNull BatchParseCallback callback) {
+        if (parallelism < 1 || perHostLimit < 1) {
+            throw new IllegalArgumentException("parallelism and perHostLimit must be positive");
+        }
+        this.parser = parser;
+        this.products = products;
+        this.parallelism = parallelism;
+        this.perHostLimit = perHostLimit;
+        this.executor = executor;
+        this.mainExecutor = mainExecutor;
+        this.task = task;
+        this.callback = callback;
+    }
+
+    /**
+     * Запускает загрузку. Вызывается один раз.
+     */
+    synchronized void start() {
+        if (products.isEmpty()) {
+            mainExecutor.execute(task::finish);
+            return;
+        }
+        for (int i = 0; i < products.size(); i++) {
+            pendingByHost.computeIfAbsent(hostOf(products.get(i)), host -> new ArrayDeque<>()).add(i);
+        }
+        schedule();
+    }
+
+    /**
+     * Ставит в пул следующие продукты, пока есть свободные места в общем и в сайтовых лимитах.
+     */
+    private synchronized void schedule() {
+        if (task.isCancelled()) {
+            return;
+        }
+        boolean scheduled = true;
+        while (running < parallelism && scheduled) {
+            scheduled = false;
+            Iterator<Map.Entry<String, Deque<Integer>>> hosts = pendingByHost.entrySet().iterator();
+            while (hosts.hasNext() && running < parallelism) {
+                Map.Entry<String, Deque<Integer>> entry = hosts.next();
+                String host = entry.getKey();
+                int hostRunning = runningByHost.getOrDefault(host, 0);
+                if (hostRunning >= perHostLimit) {
+                    continue;
+                }
+                int index = entry.getValue().poll();
+                if (entry.getValue().isEmpty()) {
+                    hosts.remove();
+                }
+                runningByHost.put(host, hostRunning + 1);
+                running++;
+                submit(index, host);
+                scheduled = true;
+            }
+        }
+    }
+
+    private void submit(int index, @NonNull String host) {
+        Product product = products.get(index);
+        FutureTask<Void> future = new FutureTask<>(() -> task.runAsCurrent(() -> load(index, product, host)), null);
+        try {
+            task.attach(future);
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            // Очередь пула переполнена: продукт завершается ошибкой, остальные продолжают загружаться
+            task.detach(future);
+            complete(index, product, host, null, e);
+        }
+    }
+
+    private void load(int index, @NonNull Product product, @NonNull String host) {
+        Product result = null;
+        Exception error = null;
+        try {
+            result = parser.parseProductDetails(product);
+        } catch (Exception e) {
+            error = e;
+        }
+        if (complete(index, product, host, result, error)) {
+            schedule();
+        }
+    }
+
+    /**
+     * Учитывает завершение загрузки продукта и доставляет результат в основной поток.
+     *
+     * @return true, если в пакете остались незавершённые продукты.
+     */
+    private synchronized boolean complete(int index, @NonNull Product product, @NonNull String host,
+                                          @Nullable Product result, @Nullable Exception error) {
+        running--;
+        runningByHost.put(host, runningByHost.get(host) - 1);
+        completed++;
+        boolean last = completed == products.size();
+        // Публикация под блокировкой сохраняет порядок: завершение пакета доставляется последним
+        mainExecutor.execute(() -> {
+            if (!task.isCancelled()) {
+                if (error == null && result != null) {
+                    callback.onItemSuccess(index, result);
+                } else {
+                    callback.onItemError(index, product,
+                            error != null ? error : new IllegalStateException("Пустой результат парсера"));
+                }
+            }
+            if (last) {
+                task.finish();
+            }
+        });
+        return !last;
+    }
+
+    @NonNull
+    private static String hostOf(@NonNull Product product) {
+        String url = product.getProductURL();
+        if (url == null) {
+            return "";
+        }
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import com.mydishes.mydishes.models.Product;
+
+/**
+ * Интерфейс обратного вызова для пакетной загрузки деталей продуктов
+ * ({@link Parser#parseProductDetailsBatchAsync}).
+ * <p>
+ * Результат каждого продукта доставляется в основной поток сразу по готовности, в порядке завершения загрузок.
+ * Ошибка одного продукта не прерывает загрузку остальных. {@link #onParsingFinished()} вызывается один раз
+ * после результатов всех продуктов или после отмены.
+ * </p>
+ */
+public interface BatchParseCallback extends ParsingStateListener {
+    /**
+     * Вызывается, когда детали продукта успешно загружены.
+     *
+     * @param index   Индекс продукта во входном списке.
+     * @param product Продукт с детальной информацией.
+     */
+    void onItemSuccess(int index, @NonNull Product product);
+
+    /**
+     * Вызывается, когда загрузить детали продукта не удалось.
+     *
+     * @param index   Индекс продукта во входном списке.
+     * @param product Продукт из входного списка.
+     * @param e       Исключение, содержащее информацию об ошибке.
+     */
+    void onItemError(int index, @NonNull Product product, @NonNull Exception e);
+}
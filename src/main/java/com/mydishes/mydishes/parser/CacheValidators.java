@@ -0,0 +1,36 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Валидаторы HTTP-кэша страницы (заголовки ETag и Last-Modified), по которым сервер может ответить
+ * 304 Not Modified вместо повторной отправки страницы.
+ */
+public final class CacheValidators {
+
+    /**
+     * Валидаторы отсутствуют: запрос выполняется безусловно.
+     */
+    public static final CacheValidators NONE = new CacheValidators(null, null);
+
+    @Nullable
+    public final String etag;
+    @Nullable
+    public final String lastModified;
+
+    /**
+     * @param etag         Значение заголовка ETag или null.
+     * @param lastModified Значение заголовка Last-Modified или null.
+     */
+    public CacheValidators(@Nullable String etag, @Nullable String lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return true, если валидаторов нет и запрос будет безусловным.
+     */
+    public boolean isEmpty() {
+        return etag == null && lastModified == null;
+    }
+}
@@ -0,0 +1,274 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.http.RequestPriority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Парсер-декоратор, кэширующий результаты поиска другого парсера.
+ * <p>
+ * Результаты {@link #findProducts(String)} хранятся в {@link ExpiringLruCache} по нормализованному запросу
+ * ({@link QueryNormalizer}), поэтому повторный поиск того же или почти того же текста в течение сессии
+ * не загружает страницу заново. Страницы выдачи после первой ({@link #findProductsPage(String, int)})
+ * кэшируются так же, отдельно для каждого номера страницы. Кэш хранит и возвращает копии продуктов: вызывающий код может изменять
+ * полученные объекты (например, устанавливать массу), не затрагивая закэшированные данные.
+ * </p>
+ * <p>
+ * Если задан {@link DetailsCache}, {@link #parseProductDetails(Product)} сначала ищет КБЖУ по URL продукта
+ * в постоянном кэше и обращается к сети только при промахе. Запись старше {@code detailsStaleAfterMillis}
+ * всё равно возвращается сразу (в том числе без сети), а её обновление выполняется в фоне условным
+ * запросом ({@link Parser#revalidateProductDetails}): если страница не изменилась, сервер отвечает
+ * 304 Not Modified, и запись лишь отмечается актуальной без загрузки и разбора страницы.
+ * </p>
+ * <p>
+ * Одновременные одинаковые запросы (тот же нормализованный поисковый запрос или URL продукта)
+ * объединяются через {@link SingleFlight}: к источнику уходит один запрос, результат получают все вызовы.
+ * </p>
+ */
+public class CachingParser extends Parser {
+
+    // Количество запросов, результаты которых хранятся в кэше
+    static final int SEARCH_CACHE_SIZE = 64;
+    // Время жизни результатов поиска
+    static final long SEARCH_CACHE_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    /**
+     * Возраст записи кэша деталей по умолчанию, после которого она обновляется в фоне.
+     */
+    public static final long DEFAULT_DETAILS_STALE_AFTER_MS = TimeUnit.DAYS.toMillis(7);
+
+    private final Parser delegate;
+    private final ExpiringLruCache<String, List<Product>> searchCache;
+    @Nullable
+    private final DetailsCache detailsCache;
+    private final long detailsStaleAfterMillis;
+    private final LongSupplier clock;
+    private final SingleFlight<String, List<Product>> searchFlights = new SingleFlight<>();
+    private final SingleFlight<String, Nutrition> detailsFlights = new SingleFlight<>();
+    // URL продуктов, для которых уже запланировано фоновое обновление
+    private final Set<String> refreshingUrls = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param delegate Парсер, выполняющий реальные запросы к источнику.
+     */
+    public CachingParser(@NonNull Parser delegate) {
+        this(delegate, null, DEFAULT_DETAILS_STALE_AFTER_MS);
+    }
+
+    /**
+     * @param delegate                Парсер, выполняющий реальные запросы к источнику.
+     * @param detailsCache            Постоянный кэш деталей продуктов или null, если детали не кэшируются.
+     * @param detailsStaleAfterMillis Возраст записи кэша деталей, после которого она обновляется в фоне.
+     */
+    public CachingParser(@NonNull Parser delegate, @Nullable DetailsCache detailsCache, long detailsStaleAfterMillis) {
+        this(delegate, new ExpiringLruCache<>(SEARCH_CACHE_SIZE, SEARCH_CACHE_TTL_MS),
+                detailsCache, detailsStaleAfterMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param delegate    Парсер, выполняющий реальные запросы к источнику.
+     * @param searchCache Кэш результатов поиска.
+     */
+    CachingParser(@NonNull Parser delegate, @NonNull ExpiringLruCache<String, List<Product>> searchCache) {
+        this(delegate, searchCache, null, DEFAULT_DETAILS_STALE_AFTER_MS, System::currentTimeMillis);
+    }
+
+    CachingParser(@NonNull Parser delegate, @NonNull ExpiringLruCache<String, List<Product>> searchCache,
+                  @Nullable DetailsCache detailsCache, long detailsStaleAfterMillis, @NonNull LongSupplier clock) {
+        // Страницы загружает исходный парсер: кэш использует его транспорт, а не создает общий
+        super(delegate.transport);
+        this.delegate = delegate;
+        this.searchCache = searchCache;
+        this.detailsCache = detailsCache;
+        this.detailsStaleAfterMillis = detailsStaleAfterMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Возвращает результаты поиска из кэша или, при промахе, загружает их через исходный парсер.
+     *
+     * @param query Поисковый запрос.
+     * @return Копия списка найденных продуктов.
+     * @throws Exception Если исходный парсер завершился с ошибкой.
+     */
+    @Override
+    public List<Product> findProducts(String query) throws Exception {
+        return cachedSearch(QueryNormalizer.normalize(query), () -> delegate.findProducts(query));
+    }
+
+    /**
+     * Возвращает страницу результатов поиска из кэша или, при промахе, загружает её через исходный парсер.
+     * Страница 0 - то же, что {@link #findProducts(String)}.
+     *
+     * @param query Поисковый запрос.
+     * @param page  Номер страницы, начиная с 0.
+     * @return Копия списка продуктов страницы.
+     * @throws Exception Если исходный парсер завершился с ошибкой.
+     */
+    @Override
+    public List<Product> findProductsPage(String query, int page) throws Exception {
+        if (page == 0) {
+            return findProducts(query);
+        }
+        // Нулевой символ не встречается в нормализованном запросе, поэтому ключи страниц не совпадут с запросами
+        String key = QueryNormalizer.normalize(query) + '\u0000' + page;
+        return cachedSearch(key, () -> delegate.findProductsPage(query, page));
+    }
+
+    /**
+     * Возвращает детали продукта из постоянного кэша или, при промахе, загружает их через исходный парсер
+     * и сохраняет в кэш. Устаревшая запись возвращается сразу, а её обновление планируется в фоне.
+     *
+     * @param product Продукт, для которого необходимо получить детали.
+     * @return Продукт с детальной информацией.
+     * @throws Exception Если записи в кэше нет, а исходный парсер завершился с ошибкой.
+     */
+    @Override
+    public Product parseProductDetails(Product product) throws Exception {
+        String url = product.getProductURL();
+        if (url == null || url.isEmpty()) {
+            return delegate.parseProductDetails(product);
+        }
+
+        if (detailsCache != null) {
+            DetailsCache.Entry entry = detailsCache.get(url);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.fetchedAtMillis >= detailsStaleAfterMillis) {
+                    scheduleRefresh(product, entry.validators);
+                }
+                product.setNutrition(Nutrition.createNutrition(entry.nutrition));
+                return product;
+            }
+        }
+
+        // Одновременные запросы деталей одного продукта (повторное нажатие, предзагрузка) объединяются
+        Product copy = Product.createProduct(product);
+        Nutrition nutrition = detailsFlights.execute(url, () -> loadDetails(url, copy));
+        product.setNutrition(nutrition != null ? Nutrition.createNutrition(nutrition) : null);
+        return product;
+    }
+
+    /**
+     * Передаёт условную загрузку деталей исходному парсеру, минуя кэш.
+     */
+    @NonNull
+    @Override
+    public Revalidation<Product> revalidateProductDetails(@NonNull Product product,
+                                                          @NonNull CacheValidators validators) throws Exception {
+        return delegate.revalidateProductDetails(product, validators);
+    }
+
+    /**
+     * @return Счётчики объединения одновременных одинаковых поисковых запросов.
+     */
+    @NonNull
+    public SingleFlight.Stats getSearchCoalescingStats() {
+        return searchFlights.stats();
+    }
+
+    /**
+     * @return Счётчики объединения одновременных запросов деталей одного продукта.
+     */
+    @NonNull
+    public SingleFlight.Stats getDetailsCoalescingStats() {
+        return detailsFlights.stats();
+    }
+
+    /**
+     * @return Счётчики кэша результатов поиска (попадания, промахи, вытеснения).
+     */
+    @NonNull
+    public ExpiringLruCache.Stats getSearchCacheStats() {
+        return searchCache.stats();
+    }
+
+    @NonNull
+    private List<Product> cachedSearch(@NonNull String key, @NonNull Callable<List<Product>> loader) throws Exception {
+        List<Product> cached = searchCache.get(key);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        // Одновременные поиски одного и того же запроса выполняются одним запросом к источнику
+        List<Product> products = searchFlights.execute(key, () -> {
+            List<Product> loaded = copyOf(loader.call());
+            searchCache.put(key, loaded);
+            return loaded;
+        });
+        return copyOf(products);
+    }
+
+    /**
+     * Загружает детали продукта через исходный парсер и сохраняет их в кэш.
+     */
+    @Nullable
+    private Nutrition loadDetails(@NonNull String url, @NonNull Product product) throws Exception {
+        if (detailsCache == null) {
+            return delegate.parseProductDetails(product).getNutrition();
+        }
+        Revalidation<Product> result = delegate.revalidateProductDetails(product, CacheValidators.NONE);
+        if (result.isNotModified()) {
+            // На безусловный запрос сервер не должен отвечать 304; загружаем страницу обычным способом
+            return delegate.parseProductDetails(product).getNutrition();
+        }
+        storeDetails(url, result.getValue(), result.getValidators());
+        return result.getValue().getNutrition();
+    }
+
+    /**
+     * Планирует фоновое обновление деталей продукта, если оно ещё не запланировано.
+     */
+    private void scheduleRefresh(@NonNull Product product, @NonNull CacheValidators validators) {
+        String url = product.getProductURL();
+        if (!refreshingUrls.add(url)) {
+            return;
+        }
+        // Исходный парсер изменяет переданный объект, поэтому обновляется копия
+        Product copy = Product.createProduct(product);
+        try {
+            // Запросы фонового обновления пропускают вперёд запросы пользователя и предзагрузку
+            ParserExecutors.background().execute(() -> {
+                try {
+                    Revalidation<Product> result = ParseTask.detached(RequestPriority.BACKGROUND)
+                            .callAsCurrent(() -> delegate.revalidateProductDetails(copy, validators));
+                    if (result.isNotModified()) {
+                        detailsCache.markFresh(url, clock.getAsLong());
+                    } else {
+                        storeDetails(url, result.getValue(), result.getValidators());
+                    }
+                } catch (Exception ignored) {
+                    // Устаревшая запись остаётся в кэше до следующей успешной загрузки
+                } finally {
+                    refreshingUrls.remove(url);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshingUrls.remove(url);
+        }
+    }
+
+    private void storeDetails(@NonNull String url, @Nullable Product product, @NonNull CacheValidators validators) {
+        if (detailsCache != null && product != null && product.getNutrition() != null) {
+            detailsCache.put(url, product.getNutrition(), validators, clock.getAsLong());
+        }
+    }
+
+    @NonNull
+    private static List<Product> copyOf(@NonNull List<Product> products) {
+        List<Product> copy = new ArrayList<>(products.size());
+        for (Product product : products) {
+            copy.add(Product.createProduct(product));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,57 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.models.Nutrition;
+
+/**
+ * Постоянное хранилище деталей продуктов (КБЖУ), полученных парсером, по URL страницы продукта.
+ * <p>
+ * Методы вызываются в фоновых потоках парсера и могут обращаться к диску.
+ * </p>
+ */
+public interface DetailsCache {
+    /**
+     * Возвращает сохраненные детали продукта.
+     *
+     * @param productUrl URL страницы продукта.
+     * @return Запись кэша или null, если продукт ещё не загружался.
+     */
+    @Nullable
+    Entry get(@NonNull String productUrl);
+
+    /**
+     * Сохраняет (или заменяет) детали продукта.
+     *
+     * @param productUrl      URL страницы продукта.
+     * @param nutrition       КБЖУ продукта.
+     * @param validators      Валидаторы страницы для условной повторной загрузки.
+     * @param fetchedAtMillis Время загрузки страницы, мс с начала эпохи.
+     */
+    void put(@NonNull String productUrl, @NonNull Nutrition nutrition, @NonNull CacheValidators validators,
+             long fetchedAtMillis);
+
+    /**
+     * Отмечает сохраненные детали как актуальные (сервер ответил 304 Not Modified), не изменяя их.
+     *
+     * @param productUrl      URL страницы продукта.
+     * @param fetchedAtMillis Время проверки, мс с начала эпохи.
+     */
+    void markFresh(@NonNull String productUrl, long fetchedAtMillis);
+
+    /**
+     * Запись кэша деталей продукта.
+     */
+    final class Entry {
+        public final Nutrition nutrition;
+        public final CacheValidators validators;
+        public final long fetchedAtMillis;
+
+        public Entry(@NonNull Nutrition nutrition, @NonNull CacheValidators validators, long fetchedAtMillis) {
+            this.nutrition = nutrition;
+            this.validators = validators;
+            this.fetchedAtMillis = fetchedAtMillis;
+        }
+    }
+}
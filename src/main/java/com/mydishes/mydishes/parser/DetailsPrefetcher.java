@@ -0,0 +1,134 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.http.RequestPriority;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Предварительно загружает детали (КБЖУ) первых продуктов из результатов поиска, пока пользователь
+ * просматривает список.
+ * <p>
+ * Загрузка выполняется через парсер с кэшем деталей ({@link CachingParser}), поэтому при нажатии на карточку
+ * детали берутся из кэша без второго сетевого запроса. Задачи выполняются в фоновом пуле с пониженным
+ * приоритетом, одновременно выполняется не больше {@code maxConcurrent} загрузок. Новый вызов
+ * {@link #prefetch(List)} или {@link #cancel()} отменяет ещё не начатые загрузки предыдущего списка.
+ * В лимитной (metered) сети предзагрузка не выполняется.
+ * </p>
+ */
+public class DetailsPrefetcher {
+
+    private static final String TAG = "DetailsPrefetcher";
+
+    private final Parser parser;
+    private final int maxProducts;
+    private final int maxConcurrent;
+    private final BooleanSupplier isMeteredNetwork;
+    private final Executor executor;
+
+    // Продукты, ожидающие загрузки
+    private final Deque<Product> pending = new ArrayDeque<>();
+    // Количество выполняющихся загрузок
+    private int running;
+    // Номер текущего списка; загрузки предыдущих списков не продолжаются
+    private int generation;
+
+    /**
+     * @param parser           Парсер, сохраняющий загруженные детали в кэш.
+     * @param maxProducts      Сколько первых продуктов списка загружать.
+     * @param maxConcurrent    Максимальное количество одновременных загрузок.
+     * @param isMeteredNetwork Возвращает true, если текущая сеть лимитная.
+     */
+    public DetailsPrefetcher(@NonNull Parser parser, int maxProducts, int maxConcurrent,
+                             @NonNull BooleanSupplier isMeteredNetwork) {
+        this(parser, maxProducts, maxConcurrent, isMeteredNetwork, ParserExecutors.background());
+    }
+
+    DetailsPrefetcher(@NonNull Parser parser, int maxProducts, int maxConcurrent,
+                      @NonNull BooleanSupplier isMeteredNetwork, @NonNull Executor executor) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive: " + maxConcurrent);
+        }
+        this.parser = parser;
+        this.maxProducts = maxProducts;
+        this.maxConcurrent = maxConcurrent;
+        this.isMeteredNetwork = isMeteredNetwork;
+        this.executor = executor;
+    }
+
+    /**
+     * Запускает предзагрузку деталей первых продуктов списка вместо предыдущей.
+     *
+     * @param products Результаты поиска в порядке отображения.
+     */
+    public synchronized void prefetch(@NonNull List<Product> products) {
+        pending.clear();
+        generation++;
+        if (isMeteredNetwork.getAsBoolean()) {
+            ParserLog.d(TAG, "Лимитная сеть, предзагрузка пропущена");
+            return;
+        }
+        for (Product product : products) {
+            if (pending.size() >= maxProducts) {
+                break;
+            }
+            String url = product.getProductURL();
+            if (url == null || url.isEmpty() || product.getNutrition() != null) {
+                continue;
+            }
+            // Парсер изменяет переданный объект, а список принадлежит адаптеру
+            pending.add(Product.createProduct(product));
+        }
+        drain();
+    }
+
+    /**
+     * Отменяет ещё не начатые загрузки. Уже выполняющиеся загрузки завершаются и сохраняются в кэш.
+     */
+    public synchronized void cancel() {
+        pending.clear();
+        generation++;
+    }
+
+    private synchronized void drain() {
+        while (running < maxConcurrent && !pending.isEmpty()) {
+            Product product = pending.poll();
+            int taskGeneration = generation;
+            running++;
+            try {
+                executor.execute(() -> load(product, taskGeneration));
+            } catch (RejectedExecutionException e) {
+                // Фоновая очередь переполнена: предзагрузка необязательна, остаток списка отбрасывается
+                running--;
+                pending.clear();
+            }
+        }
+    }
+
+    private void load(@NonNull Product product, int taskGeneration) {
+        try {
+            if (isCurrent(taskGeneration) && !isMeteredNetwork.getAsBoolean()) {
+                // Запросы предзагрузки пропускают вперёд запросы, которых ждёт пользователь
+                ParseTask.detached(RequestPriority.PREFETCH).callAsCurrent(() -> parser.parseProductDetails(product));
+            }
+        } catch (Exception e) {
+            ParserLog.d(TAG, "Не удалось предзагрузить " + product.getProductURL() + ": " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                running--;
+                drain();
+            }
+        }
+    }
+
+    private synchronized boolean isCurrent(int taskGeneration) {
+        return taskGeneration == generation;
+    }
+}
@@ -1,19 +1,26 @@
 package com.mydishes.mydishes.parser;
 
-import static com.mydishes.mydishes.utils.ViewUtils.parseFloatSafe;
-
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.google.gson.stream.MalformedJsonException;
 import com.mydishes.mydishes.models.Nutrition;
 import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.http.HttpTransport;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import org.jsoup.parser.StreamParser;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.net.URLEncoder;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,17 +30,84 @@ import java.util.List;
  * Реализует методы для поиска продуктов и извлечения информации о них (включая КБЖУ)
  * с указанного сайта.
  * </p>
+ * <p>
+ * Данные в первую очередь читаются из JSON состояния, встроенного в страницу ({@link PageStateReader}):
+ * это быстрее построения DOM и не зависит от сгенерированных имён CSS-классов. Разбор разметки
+ * по селекторам ({@link SelectorExtractor}) используется, если состояния нет или в нём нет нужных данных.
+ * </p>
+ * <p>
+ * Адреса, селекторы, подписи КБЖУ и поля состояния задаются описанием источника ({@link SourceConfig}),
+ * поэтому тот же парсер подходит и для других сайтов с похожим устройством страниц.
+ * </p>
  */
 public class EdostavkaParser extends Parser {
 
-    private static final String BASE_URL = "https://edostavka.by";
-    private static final String SEARCH_URL = BASE_URL + "/search?query=";
+    private static final String TAG = "EdostavkaParser";
+
+    // Описание сайта: адреса, селекторы, подписи КБЖУ
+    private final SourceConfig config;
+    private final SelectorExtractor extractor;
+    // Чтение встроенного состояния страницы или null, если источник его не описывает
+    @Nullable
+    private final PageStateReader stateReader;
+    // Разбирать разметку страницы поиска потоково (true) или строить полный DOM (false)
+    private final boolean streamingSearch;
+
+    /**
+     * Создает парсер с потоковым разбором страницы поиска.
+     */
+    public EdostavkaParser() {
+        this(true);
+    }
+
+    /**
+     * @param streamingSearch true - извлекать карточки из разметки потоковым парсером, false - строить
+     *                        полный DOM страницы (см. {@link #parseSearchPage}).
+     */
+    public EdostavkaParser(boolean streamingSearch) {
+        this.config = SourceConfig.edostavka();
+        this.extractor = new SelectorExtractor(config);
+        this.stateReader = config.pageState != null ? new PageStateReader(config) : null;
+        this.streamingSearch = streamingSearch;
+    }
+
+    /**
+     * @param transport       Транспорт, через который загружаются страницы.
+     * @param streamingSearch true - потоковый разбор страницы поиска, false - построение полного DOM.
+     */
+    public EdostavkaParser(@NonNull HttpTransport transport, boolean streamingSearch) {
+        this(transport, SourceConfig.edostavka(), streamingSearch);
+    }
+
+    /**
+     * @param transport       Транспорт, через который загружаются страницы.
+     * @param baseUrl         Адрес сайта без завершающего "/" (например, адрес локального сервера в тестах).
+     * @param streamingSearch true - потоковый разбор страницы поиска, false - построение полного DOM.
+     */
+    public EdostavkaParser(@NonNull HttpTransport transport, @NonNull String baseUrl, boolean streamingSearch) {
+        this(transport, SourceConfig.edostavka().withBaseUrl(baseUrl), streamingSearch);
+    }
+
+    /**
+     * @param transport       Транспорт, через который загружаются страницы.
+     * @param config          Описание сайта.
+     * @param streamingSearch true - потоковый разбор страницы поиска, false - построение полного DOM.
+     */
+    public EdostavkaParser(@NonNull HttpTransport transport, @NonNull SourceConfig config, boolean streamingSearch) {
+        super(transport);
+        this.config = config;
+        this.extractor = new SelectorExtractor(config);
+        this.stateReader = config.pageState != null ? new PageStateReader(config) : null;
+        this.streamingSearch = streamingSearch;
+    }
 
     /**
      * Осуществляет поиск списка продуктов на сайте <a href="https://edostavka.by">https://edostavka.by</a> по заданному запросу.
      * <p>
      * Извлекает название продукта, URL изображения и URL страницы продукта.
      * Ограничивает количество результатов до {@link Parser#MAX_RESULTS}.
+     * Продукты читаются из встроенного состояния страницы, а при его отсутствии - из разметки
+     * (см. {@link #parseSearchPage}).
      * </p>
      *
      * @param query Поисковый запрос.
@@ -42,49 +116,178 @@ public class EdostavkaParser extends Parser {
      */
     @Override
     public List<Product> findProducts(String query) throws IOException {
-        List<Product> products = new ArrayList<>(MAX_RESULTS);
+        return findProductsPage(query, 0);
+    }
 
-        String url = SEARCH_URL + URLEncoder.encode(query, "UTF-8");
+    /**
+     * Ищет одну страницу выдачи сайта. Номер страницы передаётся параметром из описания источника
+     * ({@link SourceConfig#pageParam}); если источник не делит выдачу на страницы, следующие страницы пусты.
+     *
+     * @param query Поисковый запрос.
+     * @param page  Номер страницы, начиная с 0.
+     * @return Продукты страницы.
+     * @throws IOException Если возникает ошибка при подключении к сайту или обработке данных.
+     */
+    @Override
+    public List<Product> findProductsPage(String query, int page) throws IOException {
+        String url = config.searchUrl(query, page);
+        if (url == null) {
+            return new ArrayList<>();
+        }
 
-        Document doc = Jsoup.connect(url)
-                .userAgent("Mozilla/5.0")
-                .timeout(20000)
-                .get();
+        SearchPage result = fetch(url, (body, charset) -> parseSearchPage(body, charset, url));
 
-        Elements productsSel = doc.select(".adult-wrapper_adult__eCCJW.vertical_product__Q8mUI");
+        ParserLog.d(TAG, "Поиск \"" + query + "\", страница " + page + ": " + result.stats);
+        return result.products;
+    }
 
-        int count = 0;
-        for (Element item : productsSel) {
-            if (count >= MAX_RESULTS) {
-                break;
-            }
+    /**
+     * Разбирает страницу поиска, извлекая карточки продуктов из встроенного состояния страницы
+     * ({@link PageStateReader}). Чтение JSON и ответа прекращается после {@link Parser#MAX_RESULTS} продуктов.
+     * <p>
+     * Скрипт состояния расположен в конце страницы, после карточек, поэтому разметка до состояния
+     * пропускается блоками и сохраняется без разбора. Карточки извлекаются из неё по селекторам, только если
+     * состояния нет или в нём нет продуктов; в этом случае страница прочитана до состояния (или до конца),
+     * и досрочной остановки чтения нет. При потоковом разборе из сохранённой разметки извлекаются первые
+     * {@link Parser#MAX_RESULTS} карточек без построения DOM, иначе строится DOM всей разметки.
+     * </p>
+     *
+     * @param body    Поток страницы поиска.
+     * @param charset Кодировка страницы или null (используется UTF-8).
+     * @param baseUri URL страницы.
+     * @return Найденные продукты и показатели разбора.
+     * @throws IOException Если произошла ошибка чтения.
+     */
+    @NonNull
+    SearchPage parseSearchPage(@NonNull InputStream body, @Nullable String charset,
+                               @NonNull String baseUri) throws IOException {
+        if (stateReader == null) {
+            // Источник не встраивает состояние в страницу - разбирается только разметка
+            return streamingSearch
+                    ? parseSearchStream(body, charset, baseUri)
+                    : parseSearchDocument(body, charset, baseUri);
+        }
+        CountingInputStream counting = new CountingInputStream(body);
+        long start = System.nanoTime();
 
-            String productUrl = "";
-            Element linkElement = item.selectFirst(".vertical_information__p_K39 a");
-            if (linkElement != null) {
-                productUrl = BASE_URL + linkElement.attr("href");
+        StringBuilder markup = new StringBuilder();
+        Reader json = stateReader.skipToState(new InputStreamReader(counting, charsetOrUtf8(charset)), markup);
+        if (json != null) {
+            try {
+                List<Product> products = stateReader.readProducts(json, baseUri, MAX_RESULTS);
+                if (!products.isEmpty()) {
+                    SearchParseStats stats = new SearchParseStats(SearchParseStats.Mode.JSON,
+                            counting.getCount(), System.nanoTime() - start, products.size(),
+                            products.size() >= MAX_RESULTS);
+                    return new SearchPage(products, stats);
+                }
+            } catch (MalformedJsonException e) {
+                ParserLog.w(TAG, "Некорректное состояние страницы поиска " + baseUri, e);
             }
+        }
 
-            String imageUrl = "";
-            String productName = "";
+        // Карточки в разметке расположены до скрипта состояния, поэтому сохранённой части достаточно
+        List<Product> products = streamingSearch
+                ? selectCards(new StringReader(markup.toString()), baseUri)
+                : selectCards(Jsoup.parse(markup.toString(), baseUri));
+        SearchParseStats stats = new SearchParseStats(
+                streamingSearch ? SearchParseStats.Mode.STREAM : SearchParseStats.Mode.DOM,
+                counting.getCount(), System.nanoTime() - start, products.size(), false);
+        return new SearchPage(products, stats);
+    }
 
-            Element imageContainer = item.selectFirst(".card-image_adult__gbuJW img");
-            if (imageContainer != null) {
-                imageUrl = imageContainer.attr("src");
-                productName = Jsoup.parse(imageContainer.attr("alt")).text().replace("\\u00AD", "").trim();
-            }
+    /**
+     * Потоково разбирает страницу поиска: карточки продуктов извлекаются по мере чтения ответа,
+     * а чтение прекращается после {@link Parser#MAX_RESULTS} карточек. Разобранные карточки удаляются
+     * из документа, поэтому память не растёт вместе с размером страницы.
+     *
+     * @param body    Поток страницы поиска.
+     * @param charset Кодировка страницы или null (используется UTF-8).
+     * @param baseUri URL страницы.
+     * @return Найденные продукты и показатели разбора.
+     * @throws IOException Если произошла ошибка чтения.
+     */
+    @NonNull
+    SearchPage parseSearchStream(@NonNull InputStream body, @Nullable String charset,
+                                 @NonNull String baseUri) throws IOException {
+        CountingInputStream counting = new CountingInputStream(body);
+        long start = System.nanoTime();
+
+        List<Product> products = selectCards(
+                new BufferedReader(new InputStreamReader(counting, charsetOrUtf8(charset))), baseUri);
+
+        SearchParseStats stats = new SearchParseStats(SearchParseStats.Mode.STREAM,
+                counting.getCount(), System.nanoTime() - start, products.size(),
+                products.size() >= MAX_RESULTS);
+        return new SearchPage(products, stats);
+    }
 
-            Product product = new Product();
-            product.setProductURL(productUrl);
-            product.setImageURL(imageUrl);
-            product.setName(productName);
+    /**
+     * Разбирает страницу поиска целиком, строя полный DOM (прежний способ).
+     *
+     * @param body    Поток страницы поиска.
+     * @param charset Кодировка страницы или null (определяется по странице).
+     * @param baseUri URL страницы.
+     * @return Найденные продукты и показатели разбора.
+     * @throws IOException Если произошла ошибка чтения.
+     */
+    @NonNull
+    SearchPage parseSearchDocument(@NonNull InputStream body, @Nullable String charset,
+                                   @NonNull String baseUri) throws IOException {
+        CountingInputStream counting = new CountingInputStream(body);
+        long start = System.nanoTime();
+
+        List<Product> products = selectCards(Jsoup.parse(counting, charset, baseUri));
 
-            products.add(product);
-            count++;
+        SearchParseStats stats = new SearchParseStats(SearchParseStats.Mode.DOM,
+                counting.getCount(), System.nanoTime() - start, products.size(), false);
+        return new SearchPage(products, stats);
+    }
+
+    /**
+     * Извлекает карточки продуктов потоково; после {@link Parser#MAX_RESULTS} карточек разбор прекращается,
+     * и остаток потока не читается.
+     */
+    @NonNull
+    private List<Product> selectCards(@NonNull Reader reader, @NonNull String baseUri) throws IOException {
+        List<Product> products = new ArrayList<>(MAX_RESULTS);
+        try (StreamParser streamParser = new StreamParser(org.jsoup.parser.Parser.htmlParser())) {
+            streamParser.parse(reader, baseUri);
+            Element card;
+            long extractNanos = 0;
+            while ((card = streamParser.selectNext(config.card)) != null) {
+                // Извлечение чередуется с разбором, поэтому время извлечения суммируется по карточкам
+                long start = System.nanoTime();
+                products.add(extractor.toProduct(card));
+                extractNanos += System.nanoTime() - start;
+                card.remove();
+                if (products.size() >= MAX_RESULTS) {
+                    // Закрытие парсера закрывает и поток ответа: остаток страницы не загружается
+                    break;
+                }
+            }
+            recordPhase(ParsePhase.EXTRACT, extractNanos);
         }
         return products;
     }
 
+    /**
+     * Извлекает не больше {@link Parser#MAX_RESULTS} карточек продуктов из построенного DOM.
+     */
+    @NonNull
+    private List<Product> selectCards(@NonNull Document doc) {
+        long start = System.nanoTime();
+        List<Product> products = new ArrayList<>(MAX_RESULTS);
+        for (Element item : extractor.selectCards(doc)) {
+            if (products.size() >= MAX_RESULTS) {
+                break;
+            }
+            products.add(extractor.toProduct(item));
+        }
+        recordPhase(ParsePhase.EXTRACT, System.nanoTime() - start);
+        return products;
+    }
+
     /**
      * Извлекает детальную информацию о продукте (КБЖУ) со страницы продукта на сайте <a href="https://edostavka.by">https://edostavka.by</a>.
      * <p>
@@ -101,49 +304,118 @@ public class EdostavkaParser extends Parser {
     public Product parseProductDetails(@NonNull Product product) throws Exception {
         String url = product.getProductURL();
 
-        Document doc = Jsoup.connect(url)
-                .userAgent("Mozilla/5.0")
-                .timeout(20000)
-                .get();
+        ProductPage page = fetch(url, (body, charset) -> parseProductPage(body, charset, url));
 
-        Elements containers = doc.select(".preview_short__item__yJ1oI");
+        product.setNutrition(page.toNutrition(url));
+        return product;
+    }
 
-        if (containers.isEmpty())
-            throw new Exception("КБЖУ продукта не найдены на странице: " + url);
+    /**
+     * Загружает КБЖУ продукта условным запросом: если страница не изменилась, сервер отвечает
+     * 304 Not Modified, и страница не загружается и не разбирается.
+     *
+     * @param product    Продукт с URL страницы.
+     * @param validators Валидаторы ранее загруженной страницы или {@link CacheValidators#NONE}.
+     * @return Результат проверки; при изменении - продукт с КБЖУ и валидаторы страницы.
+     * @throws Exception Если возникает ошибка при подключении к сайту или информация о КБЖУ не найдена.
+     */
+    @NonNull
+    @Override
+    public Revalidation<Product> revalidateProductDetails(@NonNull Product product,
+                                                          @NonNull CacheValidators validators) throws Exception {
+        String url = product.getProductURL();
 
-        Nutrition nutrition = new Nutrition();
+        Revalidation<ProductPage> page = fetchIfModified(url, validators,
+                (body, charset) -> parseProductPage(body, charset, url));
+        if (page.isNotModified()) {
+            return Revalidation.notModified();
+        }
 
-        for (Element item : containers) {
-            Element nameBlock = item.selectFirst(".preview_short__value__onntx");
-            Element valueBlock = item.selectFirst(".preview_short__key__A6ql0");
+        product.setNutrition(page.getValue().toNutrition(url));
+        return Revalidation.modified(product, page.getValidators());
+    }
 
-            if (nameBlock == null || valueBlock == null) {
-                // Можно добавить более специфичную обработку ошибки или логирование
-                continue; // Пропустить этот элемент, если структура неожиданная
+    /**
+     * Разбирает страницу продукта: КБЖУ читаются из встроенного состояния страницы ({@link PageStateReader}),
+     * а если их там нет - из разметки, прочитанной до состояния.
+     *
+     * @param body    Поток страницы продукта.
+     * @param charset Кодировка страницы или null (используется UTF-8).
+     * @param url     URL страницы.
+     * @return КБЖУ из состояния или DOM страницы для разбора разметки.
+     * @throws IOException Если произошла ошибка чтения.
+     */
+    @NonNull
+    ProductPage parseProductPage(@NonNull InputStream body, @Nullable String charset,
+                                 @NonNull String url) throws IOException {
+        if (stateReader == null) {
+            return new ProductPage(extractor, null, Jsoup.parse(body, charset, url));
+        }
+        StringBuilder markup = new StringBuilder();
+        Reader json = stateReader.skipToState(new InputStreamReader(body, charsetOrUtf8(charset)), markup);
+        if (json != null) {
+            try {
+                Nutrition nutrition = stateReader.readNutrition(json);
+                if (nutrition != null) {
+                    return new ProductPage(extractor, nutrition, null);
+                }
+            } catch (MalformedJsonException e) {
+                ParserLog.w(TAG, "Некорректное состояние страницы продукта " + url, e);
             }
+        }
+        return new ProductPage(extractor, null, Jsoup.parse(markup.toString(), url));
+    }
 
-            String nameElem = nameBlock.text();
-            String valueElem = valueBlock.text();
+    @NonNull
+    private static Charset charsetOrUtf8(@Nullable String charset) {
+        return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+    }
 
-            switch (nameElem) {
-                case "Энергетическая ценность":
-                    nutrition.setCalories(parseFloatSafe(valueElem.split(" ")[0]));
-                    break;
-                case "Белки":
-                    nutrition.setProtein(parseFloatSafe(valueElem));
-                    break;
-                case "Жиры":
-                    nutrition.setFat(parseFloatSafe(valueElem));
-                    break;
-                case "Углеводы":
-                    nutrition.setCarb(parseFloatSafe(valueElem));
-                    break;
-                default:
-                    break;
+    /**
+     * Результат разбора страницы продукта: КБЖУ из состояния страницы либо DOM для разбора разметки.
+     */
+    static final class ProductPage {
+        private final SelectorExtractor extractor;
+        @Nullable
+        final Nutrition nutrition;
+        @Nullable
+        final Document document;
+
+        ProductPage(@NonNull SelectorExtractor extractor, @Nullable Nutrition nutrition, @Nullable Document document) {
+            this.extractor = extractor;
+            this.nutrition = nutrition;
+            this.document = document;
+        }
+
+        /**
+         * @param url URL страницы (для сообщения об ошибке).
+         * @return КБЖУ продукта.
+         * @throws Exception Если КБЖУ нет ни в состоянии, ни в разметке страницы.
+         */
+        @NonNull
+        Nutrition toNutrition(@NonNull String url) throws Exception {
+            if (nutrition != null) {
+                return nutrition;
+            }
+            long start = System.nanoTime();
+            try {
+                return extractor.parseNutrition(document, url);
+            } finally {
+                recordPhase(ParsePhase.EXTRACT, System.nanoTime() - start);
             }
         }
+    }
 
-        product.setNutrition(nutrition);
-        return product;
+    /**
+     * Результат разбора страницы поиска.
+     */
+    static final class SearchPage {
+        final List<Product> products;
+        final SearchParseStats stats;
+
+        SearchPage(@NonNull List<Product> products, @NonNull SearchParseStats stats) {
+            this.products = products;
+            this.stats = stats;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,165 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Потокобезопасный кэш в памяти с ограничением размера (LRU) и временем жизни записей (TTL).
+ * <p>
+ * При превышении {@code maxEntries} вытесняется запись, к которой дольше всего не обращались.
+ * Запись старше {@code ttlMillis} считается устаревшей и при чтении не возвращается.
+ * Кэш ведёт счётчики попаданий, промахов и вытеснений ({@link Stats}).
+ * </p>
+ *
+ * @param <K> Тип ключа.
+ * @param <V> Тип значения.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param maxEntries Максимальное количество записей.
+     * @param ttlMillis  Время жизни записи, в миллисекундах.
+     */
+    public ExpiringLruCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param maxEntries Максимальное количество записей.
+     * @param ttlMillis  Время жизни записи, в миллисекундах.
+     * @param clock      Источник текущего времени в миллисекундах (подменяется в тестах).
+     */
+    public ExpiringLruCache(int maxEntries, long ttlMillis, @NonNull LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        // accessOrder = true: порядок итерации от давно использованных к недавно использованным
+        this.map = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Возвращает актуальное значение по ключу.
+     *
+     * @param key Ключ.
+     * @return Значение или null, если записи нет или она устарела.
+     */
+    @Nullable
+    public synchronized V get(@NonNull K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry)) {
+            map.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Сохраняет значение, вытесняя наиболее давно использованную запись при переполнении.
+     *
+     * @param key   Ключ.
+     * @param value Значение.
+     */
+    public synchronized void put(@NonNull K key, @NonNull V value) {
+        map.put(key, new Entry<>(value, clock.getAsLong()));
+        Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+        while (map.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Удаляет все записи. Счётчики сохраняются.
+     */
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    /**
+     * @return Текущее количество записей (включая ещё не удалённые устаревшие).
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * @return Снимок счётчиков кэша.
+     */
+    @NonNull
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, expirations);
+    }
+
+    private boolean isExpired(@NonNull Entry<V> entry) {
+        return clock.getAsLong() - entry.storedAtMillis >= ttlMillis;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long storedAtMillis;
+
+        Entry(V value, long storedAtMillis) {
+            this.value = value;
+            this.storedAtMillis = storedAtMillis;
+        }
+    }
+
+    /**
+     * Снимок счётчиков кэша.
+     */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long expirations;
+
+        Stats(long hits, long misses, long evictions, long expirations) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+
+        /**
+         * @return Доля попаданий среди всех обращений (0, если обращений не было).
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "hits=%d misses=%d hitRate=%.2f evictions=%d expirations=%d",
+                    hits, misses, hitRate(), evictions, expirations);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.models.Product;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Парсер, выполняющий поиск сразу в нескольких источниках (сайтах магазинов).
+ * <p>
+ * {@link #findProducts(String)} отправляет запрос всем источникам параллельно и ждёт их не дольше общего срока
+ * ({@code deadlineMillis}): возвращается то, что пришло вовремя, а запросы опоздавших источников прерываются.
+ * Продукты с одинаковым нормализованным названием объединяются, а общий список ранжируется по совпадению
+ * названия с запросом и позициям продукта в выдаче источников и ограничивается {@link Parser#MAX_RESULTS}.
+ * Страницы выдачи ({@link #findProductsPage(String, int)}) объединяются так же: страница {@code n} составляется
+ * из страниц {@code n} всех источников.
+ * </p>
+ * <p>
+ * Источник, который несколько раз подряд завершился ошибкой или не уложился в срок, временно пропускается
+ * ({@link SourceHealth}), поэтому один недоступный сайт не увеличивает время каждого поиска. Если пропускать
+ * пришлось бы все источники, запрос всё же отправляется всем.
+ * </p>
+ * <p>
+ * Детали продукта загружаются источником, которому принадлежит URL страницы продукта.
+ * </p>
+ */
+public class FederatedParser extends Parser {
+
+    /**
+     * Общий срок поиска по умолчанию.
+     */
+    public static final long DEFAULT_DEADLINE_MS = 8000;
+
+    // Количество неудач подряд, после которого источник временно пропускается
+    static final int FAILURE_THRESHOLD = 3;
+    // Время, в течение которого пропускается неисправный источник
+    static final long SOURCE_COOLDOWN_MS = TimeUnit.MINUTES.toMillis(1);
+    // Сглаживание при слиянии позиций из разных источников (reciprocal rank fusion)
+    private static final int RANK_FUSION_K = 60;
+
+    private final List<Source> sources;
+    private final Map<String, SourceHealth> health = new HashMap<>();
+    private final long deadlineMillis;
+    private final Executor executor;
+
+    /**
+     * @param sources        Источники в порядке предпочтения (при равном ранге раньше идут продукты первых).
+     * @param deadlineMillis Общий срок поиска, мс.
+     */
+    public FederatedParser(@NonNull List<Source> sources, long deadlineMillis) {
+        this(sources, deadlineMillis, ParserExecutors.fanOut(), System::currentTimeMillis);
+    }
+
+    FederatedParser(@NonNull List<Source> sources, long deadlineMillis, @NonNull Executor executor,
+                    @NonNull LongSupplier clock) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("Не задано ни одного источника");
+        }
+        this.sources = Collections.unmodifiableList(new ArrayList<>(sources));
+        this.deadlineMillis = deadlineMillis;
+        this.executor = executor;
+        for (Source source : this.sources) {
+            health.put(source.id, new SourceHealth(FAILURE_THRESHOLD, SOURCE_COOLDOWN_MS, clock));
+        }
+    }
+
+    /**
+     * Ищет продукты во всех доступных источниках.
+     *
+     * @param query Поисковый запрос.
+     * @return Объединённый и ранжированный список продуктов из источников, ответивших в срок.
+     * @throws Exception Ошибка первого из источников, если ни один не вернул продукты, или
+     *                   {@link SocketTimeoutException}, если ни один источник не ответил в срок.
+     */
+    @Override
+    public List<Product> findProducts(String query) throws Exception {
+        return findProductsPage(query, 0);
+    }
+
+    /**
+     * Ищет одну страницу продуктов во всех доступных источниках.
+     *
+     * @param query Поисковый запрос.
+     * @param page  Номер страницы, начиная с 0.
+     * @return Объединённый и ранжированный список продуктов страниц источников, ответивших в срок.
+     * @throws Exception Ошибка первого из источников, если ни один не вернул продукты, или
+     *                   {@link SocketTimeoutException}, если ни один источник не ответил в срок.
+     */
+    @Override
+    public List<Product> findProductsPage(String query, int page) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        ParseTask task = ParseTask.current();
+        CompletionService<List<Product>> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<List<Product>>, Source> pending = new HashMap<>();
+        Exception firstError = null;
+
+        for (Source source : selectSources()) {
+            try {
+                pending.put(completion.submit(() -> task != null
+                        ? task.callAsCurrent(() -> source.parser.findProductsPage(query, page))
+                        : source.parser.findProductsPage(query, page)), source);
+            } catch (RejectedExecutionException e) {
+                // Очередь пула переполнена: источник пропускается в этом поиске, но не считается неисправным
+                health.get(source.id).onIgnored();
+                if (firstError == null) {
+                    firstError = e;
+                }
+            }
+        }
+
+        Map<Source, List<Product>> results = new HashMap<>();
+        try {
+            while (!pending.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                Future<List<Product>> done = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    break;
+                }
+                Source source = pending.remove(done);
+                try {
+                    results.put(source, done.get());
+                    health.get(source.id).onSuccess();
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    if (task == null || !task.isCancelled()) {
+                        health.get(source.id).onFailure();
+                    } else {
+                        health.get(source.id).onIgnored();
+                    }
+                    if (firstError == null) {
+                        firstError = cause;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Поиск отменён: ответы источников больше не нужны
+            for (Source source : pending.values()) {
+                health.get(source.id).onIgnored();
+            }
+            cancelAll(pending.keySet());
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Поиск отменён: " + query);
+            interrupted.initCause(e);
+            throw interrupted;
+        }
+
+        // Источники, не ответившие в срок, считаются неисправными; их запросы прерываются
+        for (Source late : pending.values()) {
+            health.get(late.id).onFailure();
+        }
+        cancelAll(pending.keySet());
+
+        List<Product> merged = merge(query, results);
+        if (merged.isEmpty() && results.isEmpty()) {
+            if (firstError != null) {
+                throw firstError;
+            }
+            throw new SocketTimeoutException("Источники не ответили за " + deadlineMillis + " мс: " + query);
+        }
+        return merged;
+    }
+
+    /**
+     * Загружает детали продукта через источник, которому принадлежит его страница.
+     */
+    @Override
+    public Product parseProductDetails(Product product) throws Exception {
+        return sourceFor(product).parser.parseProductDetails(product);
+    }
+
+    /**
+     * Передаёт условную загрузку деталей источнику, которому принадлежит страница продукта.
+     */
+    @NonNull
+    @Override
+    public Revalidation<Product> revalidateProductDetails(@NonNull Product product,
+                                                          @NonNull CacheValidators validators) throws Exception {
+        return sourceFor(product).parser.revalidateProductDetails(product, validators);
+    }
+
+    /**
+     * @param id Идентификатор источника.
+     * @return true, если источник сейчас не пропускается из-за ошибок или таймаутов.
+     */
+    public boolean isSourceAvailable(@NonNull String id) {
+        SourceHealth sourceHealth = health.get(id);
+        return sourceHealth != null && sourceHealth.isAvailable();
+    }
+
+    /**
+     * Возвращает источники, которым отправляется запрос: все исправные (и источники, получившие пробный
+     * запрос после паузы) или, если таких нет, все.
+     */
+    @NonNull
+    private List<Source> selectSources() {
+        List<Source> available = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            if (health.get(source.id).tryAcquire()) {
+                available.add(source);
+            }
+        }
+        return available.isEmpty() ? sources : available;
+    }
+
+    @NonNull
+    private Source sourceFor(@NonNull Product product) throws Exception {
+        String url = product.getProductURL();
+        String host = hostOf(url);
+        for (Source source : sources) {
+            if (host != null && host.equalsIgnoreCase(source.host)) {
+                return source;
+            }
+        }
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        throw new Exception("Не найден источник продукта: " + url);
+    }
+
+    /**
+     * Объединяет результаты источников: продукты с одинаковым нормализованным названием сливаются в один
+     * (остаётся продукт из источника, стоящего раньше в списке), затем список сортируется по убыванию ранга.
+     * Ранг - доля слов запроса, с которых начинаются слова названия, плюс сумма {@code 1 / (K + позиция)}
+     * по всем источникам, где продукт найден: совпадение с запросом важнее всего, а при равном совпадении
+     * выше продукты, которые источники ставят выше и которые нашлись в нескольких источниках.
+     */
+    @NonNull
+    private List<Product> merge(@NonNull String query, @NonNull Map<Source, List<Product>> results) {
+        String[] queryWords = words(QueryNormalizer.normalize(query));
+        Map<String, Ranked> byName = new LinkedHashMap<>();
+        for (Source source : sources) {
+            List<Product> products = results.get(source);
+            if (products == null) {
+                continue;
+            }
+            for (int position = 0; position < products.size(); position++) {
+                Product product = products.get(position);
+                String name = QueryNormalizer.normalize(product.getName());
+                if (name.isEmpty()) {
+                    continue;
+                }
+                Ranked ranked = byName.get(name);
+                if (ranked == null) {
+                    ranked = new Ranked(product, relevance(queryWords, words(name)));
+                    byName.put(name, ranked);
+                }
+                ranked.score += 1.0 / (RANK_FUSION_K + position + 1);
+            }
+        }
+
+        List<Ranked> ranked = new ArrayList<>(byName.values());
+        // Сортировка устойчива: при равном ранге сохраняется порядок источников
+        ranked.sort((a, b) -> Double.compare(b.score, a.score));
+        List<Product> merged = new ArrayList<>(Math.min(ranked.size(), MAX_RESULTS));
+        for (Ranked item : ranked) {
+            if (merged.size() >= MAX_RESULTS) {
+                break;
+            }
+            merged.add(item.product);
+        }
+        return merged;
+    }
+
+    private static double relevance(@NonNull String[] queryWords, @NonNull String[] nameWords) {
+        if (queryWords.length == 0) {
+            return 0;
+        }
+        int matched = 0;
+        for (String queryWord : queryWords) {
+            for (String nameWord : nameWords) {
+                if (nameWord.startsWith(queryWord)) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return (double) matched / queryWords.length;
+    }
+
+    @NonNull
+    private static String[] words(@NonNull String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split("[^\\p{L}\\p{N}]+");
+    }
+
+    @Nullable
+    private static String hostOf(@Nullable String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        try {
+            return URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void cancelAll(@NonNull Iterable<Future<List<Product>>> futures) {
+        for (Future<List<Product>> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Источник объединённого поиска.
+     */
+    public static final class Source {
+        final String id;
+        // Хост страниц источника: по нему выбирается источник для загрузки деталей продукта
+        @Nullable
+        final String host;
+        final Parser parser;
+
+        /**
+         * @param id      Идентификатор источника (например, {@link SourceConfig#EDOSTAVKA}).
+         * @param baseUrl Адрес сайта источника.
+         * @param parser  Парсер источника.
+         */
+        public Source(@NonNull String id, @NonNull String baseUrl, @NonNull Parser parser) {
+            this.id = id;
+            this.host = hostOf(baseUrl);
+            this.parser = parser;
+        }
+    }
+
+    /**
+     * Продукт объединённого списка и его ранг.
+     */
+    private static final class Ranked {
+        final Product product;
+        double score;
+
+        Ranked(@NonNull Product product, double relevance) {
+            this.product = product;
+            this.score = relevance;
+        }
+    }
+}
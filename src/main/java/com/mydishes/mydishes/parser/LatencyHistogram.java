@@ -0,0 +1,141 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасная гистограмма длительностей с фиксированными границами корзин.
+ * <p>
+ * Запись - одно атомарное увеличение счётчика корзины, без блокировок и выделения памяти, поэтому
+ * гистограмму можно обновлять на каждом запросе. Перцентили оцениваются по верхней границе корзины:
+ * точность ограничена шагом границ (примерно 1-2-5 на порядок), чего достаточно, чтобы увидеть хвост задержек.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Верхние границы корзин, в микросекундах; последняя корзина не ограничена сверху.
+     */
+    private static final long[] BOUNDS_MICROS = {
+            500, 1_000, 2_000, 5_000, 10_000, 20_000, 50_000, 100_000, 200_000, 500_000,
+            1_000_000, 2_000_000, 5_000_000, 10_000_000, 20_000_000
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MICROS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Добавляет измерение. Отрицательные значения игнорируются.
+     *
+     * @param nanos Длительность, в наносекундах.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        buckets.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(nanos)));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return Снимок гистограммы.
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.get(), totalNanos.get(), maxNanos.get());
+    }
+
+    /**
+     * Сбрасывает все измерения.
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    private static int bucketOf(long micros) {
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            if (micros <= BOUNDS_MICROS[i]) {
+                return i;
+            }
+        }
+        return BOUNDS_MICROS.length;
+    }
+
+    /**
+     * Снимок {@link LatencyHistogram}. Счётчики корзин читаются по одному, поэтому при параллельной записи
+     * снимок может немного расходиться с {@link #count}.
+     */
+    public static final class Snapshot {
+        // Количество измерений
+        public final long count;
+        // Суммарная и максимальная длительность, нс
+        public final long totalNanos;
+        public final long maxNanos;
+        private final long[] buckets;
+
+        Snapshot(@NonNull long[] buckets, long count, long totalNanos, long maxNanos) {
+            this.buckets = buckets;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * @return Средняя длительность, мс (0, если измерений не было).
+         */
+        public double averageMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        /**
+         * Оценивает перцентиль верхней границей корзины, в которую он попадает (но не больше максимума).
+         *
+         * @param percentile Перцентиль от 0 до 100.
+         * @return Оценка, мс (0, если измерений не было).
+         */
+        public double percentileMillis(double percentile) {
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            double maxMillis = maxNanos / 1e6;
+            for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(BOUNDS_MICROS[i] / 1e3, maxMillis);
+                }
+            }
+            return maxMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "n=%d avg=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f мс",
+                    count, averageMillis(), percentileMillis(50), percentileMillis(90), percentileMillis(99),
+                    maxNanos / 1e6);
+        }
+    }
+}
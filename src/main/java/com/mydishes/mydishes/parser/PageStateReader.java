@@ -0,0 +1,322 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Извлечение данных из состояния страницы, которое сайт (например, приложение Next.js) встраивает в разметку:
+ * {@code <script id="__NEXT_DATA__" type="application/json">}. Имена полей берутся из описания источника
+ * ({@link SourceConfig.PageState}).
+ * <p>
+ * Разметка до скрипта пропускается без построения DOM, а JSON читается потоково ({@link JsonReader}):
+ * объекты не материализуются, запоминаются только нужные поля. Структура состояния не описывается
+ * жёстко - ищутся объекты с нужными полями на любой глубине, поэтому перестановки внутри состояния и смена
+ * CSS-классов на страницах не ломают извлечение. Если данных в состоянии нет, парсер возвращается
+ * к разбору разметки ({@link SelectorExtractor}).
+ * </p>
+ */
+final class PageStateReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final SourceConfig config;
+    private final SourceConfig.PageState state;
+    // Атрибут открывающего тега скрипта с состоянием страницы
+    private final String marker;
+    // Префикс-функция маркера: длина совпадения, с которой продолжается поиск после несовпавшего символа
+    private final int[] markerFallback;
+    // Поля состояния, которые читаются со страницы поиска (карточки и их строки КБЖУ) и со страницы продукта
+    private final Set<String> productKeys;
+    private final Set<String> nutritionKeys;
+
+    /**
+     * @param config Описание источника; должно содержать описание состояния страницы.
+     */
+    PageStateReader(@NonNull SourceConfig config) {
+        if (config.pageState == null) {
+            throw new IllegalArgumentException("Источник " + config.id + " не описывает состояние страницы");
+        }
+        this.config = config;
+        this.state = config.pageState;
+        this.marker = "id=\"" + state.scriptId + "\"";
+        this.markerFallback = new int[marker.length()];
+        for (int i = 1, k = 0; i < marker.length(); i++) {
+            while (k > 0 && marker.charAt(i) != marker.charAt(k)) {
+                k = markerFallback[k - 1];
+            }
+            if (marker.charAt(i) == marker.charAt(k)) {
+                k++;
+            }
+            markerFallback[i] = k;
+        }
+
+        nutritionKeys = new HashSet<>(state.labelKeys);
+        nutritionKeys.add(state.valueKey);
+        productKeys = new HashSet<>(state.imageKeys);
+        productKeys.add(state.productId);
+        productKeys.add(state.productName);
+        productKeys.addAll(nutritionKeys);
+    }
+
+    /**
+     * Читает разметку страницы до начала JSON состояния. Разметка читается блоками, а не по символу,
+     * и сохраняется в {@code markup}, чтобы при отсутствии данных в состоянии её можно было разобрать как HTML.
+     *
+     * @param in     Страница.
+     * @param markup Буфер для прочитанной разметки (включая открывающий тег скрипта с состоянием).
+     * @return Поток, установленный на начало JSON, или null, если страница прочитана целиком, а состояния
+     * в ней нет.
+     * @throws IOException Если произошла ошибка чтения.
+     */
+    @Nullable
+    Reader skipToState(@NonNull Reader in, @NonNull StringBuilder markup) throws IOException {
+        PushbackReader reader = new PushbackReader(in, BUFFER_SIZE);
+        char[] buffer = new char[BUFFER_SIZE];
+        // Количество совпавших символов маркера; после всего маркера ищется конец открывающего тега
+        int matched = 0;
+        int n;
+        while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                if (matched == marker.length()) {
+                    if (c == '>') {
+                        // Дальше идёт JSON: непросмотренная часть блока возвращается в поток
+                        markup.append(buffer, 0, i + 1);
+                        reader.unread(buffer, i + 1, n - i - 1);
+                        return reader;
+                    }
+                    continue;
+                }
+                while (matched > 0 && c != marker.charAt(matched)) {
+                    matched = markerFallback[matched - 1];
+                }
+                if (c == marker.charAt(matched)) {
+                    matched++;
+                }
+            }
+            markup.append(buffer, 0, n);
+        }
+        return null;
+    }
+
+    /**
+     * Читает карточки продуктов из JSON состояния страницы поиска. Чтение прекращается, как только найдено
+     * {@code limit} продуктов. Повторы одного продукта (например, в рекомендациях) пропускаются.
+     * Если карточка содержит строки КБЖУ в том же виде, что и состояние страницы продукта, и в них есть
+     * все показатели, продукт возвращается с КБЖУ ({@link Product#hasNutrition()}).
+     *
+     * @param in      Поток, установленный на начало JSON ({@link #skipToState}).
+     * @param baseUri URL страницы поиска, от которого строятся URL страниц продуктов.
+     * @param limit   Максимальное количество продуктов.
+     * @return Найденные продукты; пустой список, если в состоянии их нет.
+     * @throws IOException Если произошла ошибка чтения или JSON некорректен.
+     */
+    @NonNull
+    List<Product> readProducts(@NonNull Reader in, @NonNull String baseUri, int limit) throws IOException {
+        ProductCollector collector = new ProductCollector(URI.create(baseUri), limit);
+        readValue(new JsonReader(in), collector);
+        return collector.products;
+    }
+
+    /**
+     * Читает КБЖУ из JSON состояния страницы продукта: строки с теми же подписями, что и на странице
+     * (подписи задаются описанием источника).
+     *
+     * @param in Поток, установленный на начало JSON ({@link #skipToState}).
+     * @return КБЖУ или null, если в состоянии нет ни одной строки КБЖУ.
+     * @throws IOException Если произошла ошибка чтения или JSON некорректен.
+     */
+    @Nullable
+    Nutrition readNutrition(@NonNull Reader in) throws IOException {
+        NutritionCollector collector = new NutritionCollector();
+        readValue(new JsonReader(in), collector);
+        return collector.found.isEmpty() ? null : collector.nutrition;
+    }
+
+    /**
+     * Обходит значение JSON. Объекты передаются сборщику после чтения; обход прекращается,
+     * как только сборщик получил всё необходимое (остаток потока не читается).
+     */
+    private static void readValue(@NonNull JsonReader in, @NonNull Collector collector) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            readObject(in, collector);
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            in.beginArray();
+            while (in.hasNext()) {
+                readValue(in, collector);
+                if (collector.isDone()) {
+                    return;
+                }
+            }
+            in.endArray();
+        } else {
+            in.skipValue();
+        }
+    }
+
+    private static void readObject(@NonNull JsonReader in, @NonNull Collector collector) throws IOException {
+        Map<String, String> fields = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            JsonToken token = in.peek();
+            boolean wanted = collector.keys.contains(name);
+            if (wanted && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                if (fields == null) {
+                    fields = new HashMap<>();
+                }
+                fields.put(name, in.nextString());
+            } else if (wanted && token == JsonToken.BEGIN_ARRAY) {
+                // Из массива значений (например, URL изображений) нужен только первый элемент-строка
+                in.beginArray();
+                if (in.hasNext() && in.peek() == JsonToken.STRING) {
+                    if (fields == null) {
+                        fields = new HashMap<>();
+                    }
+                    fields.put(name, in.nextString());
+                }
+                while (in.hasNext()) {
+                    in.skipValue();
+                }
+                in.endArray();
+            } else if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+                readValue(in, collector);
+                if (collector.isDone()) {
+                    return;
+                }
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (fields != null) {
+            collector.onObject(fields);
+        }
+    }
+
+    @Nullable
+    private static String firstOf(@NonNull Map<String, String> fields, @NonNull List<String> keys) {
+        for (String key : keys) {
+            String value = fields.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Сборщик данных из объектов состояния.
+     */
+    private abstract static class Collector {
+        // Поля, значения которых нужно запоминать (для массивов - первый элемент)
+        final Set<String> keys;
+
+        Collector(@NonNull Set<String> keys) {
+            this.keys = keys;
+        }
+
+        /**
+         * Вызывается для каждого прочитанного объекта, в котором есть хотя бы одно из полей {@link #keys}.
+         */
+        abstract void onObject(@NonNull Map<String, String> fields);
+
+        abstract boolean isDone();
+    }
+
+    private final class ProductCollector extends Collector {
+        final List<Product> products = new ArrayList<>();
+        private final Set<String> seenIds = new HashSet<>();
+        private final URI base;
+        private final int limit;
+        // Строки КБЖУ, прочитанные после предыдущей карточки: вложенные объекты передаются сборщику
+        // раньше объекта, который их содержит, поэтому строки относятся к следующей карточке
+        private final NutritionCollector rows = new NutritionCollector();
+
+        ProductCollector(@NonNull URI base, int limit) {
+            super(productKeys);
+            this.base = base;
+            this.limit = limit;
+        }
+
+        @Override
+        void onObject(@NonNull Map<String, String> fields) {
+            String id = fields.get(state.productId);
+            if (id == null) {
+                rows.onObject(fields);
+                return;
+            }
+            Nutrition nutrition = rows.isDone() ? rows.nutrition : null;
+            rows.reset();
+            String name = fields.get(state.productName);
+            if (name == null || !seenIds.add(id)) {
+                return;
+            }
+            String image = firstOf(fields, state.imageKeys);
+
+            Product product = new Product();
+            product.setProductURL(base.resolve(state.productPath + id).toString());
+            product.setImageURL(image != null ? base.resolve(image).toString() : "");
+            // Мягкие переносы в названиях нужны только для вёрстки
+            product.setName(name.replace("\u00AD", "").trim());
+            product.setNutrition(nutrition);
+            products.add(product);
+        }
+
+        @Override
+        boolean isDone() {
+            return products.size() >= limit;
+        }
+    }
+
+    private final class NutritionCollector extends Collector {
+        Nutrition nutrition = new Nutrition();
+        final Set<SourceConfig.NutritionField> found = EnumSet.noneOf(SourceConfig.NutritionField.class);
+
+        NutritionCollector() {
+            super(nutritionKeys);
+        }
+
+        @Override
+        void onObject(@NonNull Map<String, String> fields) {
+            String label = firstOf(fields, state.labelKeys);
+            String value = fields.get(state.valueKey);
+            if (label == null || value == null) {
+                return;
+            }
+            SourceConfig.NutritionField field = config.nutritionField(label);
+            if (field != null) {
+                field.apply(nutrition, value);
+                found.add(field);
+            }
+        }
+
+        @Override
+        boolean isDone() {
+            return found.size() == SourceConfig.NutritionField.values().length;
+        }
+
+        void reset() {
+            nutrition = new Nutrition();
+            found.clear();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.mydishes.mydishes.parser;
+
+/**
+ * Этап операции парсера, длительность которого измеряется ({@link ParseTrace}, {@link ParserMetrics}).
+ */
+public enum ParsePhase {
+    // Разрешение имени хоста (только для новых соединений)
+    DNS,
+    // Установка TCP-соединения (только для новых соединений)
+    CONNECT,
+    // TLS-рукопожатие (только для новых соединений)
+    TLS,
+    // От отправки запроса до получения заголовков ответа: время сервера и сети
+    FIRST_BYTE,
+    // Ожидание данных тела ответа из сети
+    DOWNLOAD,
+    // Разбор ответа: построение DOM или чтение встроенного состояния, без ожидания сети и извлечения
+    PARSE,
+    // Извлечение продуктов или КБЖУ из построенного DOM
+    EXTRACT
+}
@@ -0,0 +1,252 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.parser.http.RequestPriority;
+import com.mydishes.mydishes.utils.MainThreadExecutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Дескриптор асинхронной операции парсинга, позволяющий её отменить.
+ * <p>
+ * Возвращается методами {@link Parser#findProductsAsync}, {@link Parser#parseProductDetailsAsync}
+ * и {@link Parser#parseProductDetailsBatchAsync}.
+ * После вызова {@link #cancel()}:
+ * <ul>
+ *     <li>задача удаляется из очереди пула, если ещё не начала выполняться;</li>
+ *     <li>поток, выполняющий задачу, прерывается, а открытое соединение с сайтом закрывается;</li>
+ *     <li>{@link ProductParseCallback#onSuccess(Object)}, {@link ProductParseCallback#onSuccess(Object, ParseTrace)}
+ *         и {@link ProductParseCallback#onError(Exception)} больше не вызываются,
+ *         но {@link ProductParseCallback#onParsingFinished()} вызывается ровно один раз,
+ *         чтобы слушатели состояния парсинга оставались согласованными.</li>
+ * </ul>
+ * </p>
+ */
+public final class ParseTask {
+
+    // Задача, выполняемая сейчас в текущем потоке пула (для регистрации открытых соединений)
+    private static final ThreadLocal<ParseTask> CURRENT = new ThreadLocal<>();
+    // Действие завершения внутренних задач ({@link #detached}), которым не нужен основной поток
+    private static final Runnable NO_FINISH = () -> {
+    };
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    // Открытые ресурсы (потоки ответа), которые нужно закрыть при отмене
+    private final Set<Closeable> resources = ConcurrentHashMap.newKeySet();
+    private final Runnable onFinished;
+    // Приоритет сетевых запросов операции в ограничителе частоты
+    private final RequestPriority priority;
+    // Длительности этапов запросов и разбора страниц операции
+    private final ParseTrace trace = new ParseTrace();
+    // Задачи пула, выполняющие операцию (у пакетной загрузки их несколько)
+    private final Set<Future<?>> futures = ConcurrentHashMap.newKeySet();
+    // Отметки времени этапов выполнения (System.nanoTime), 0 - этап ещё не наступил
+    private volatile long submittedAtNanos;
+    private volatile long startedAtNanos;
+    private volatile long completedAtNanos;
+
+    /**
+     * @param onFinished Действие, выполняемое в основном потоке один раз по завершении или отмене задачи.
+     */
+    ParseTask(@NonNull Runnable onFinished) {
+        this(onFinished, RequestPriority.USER);
+    }
+
+    /**
+     * @param onFinished Действие, выполняемое в основном потоке один раз по завершении или отмене задачи.
+     * @param priority   Приоритет сетевых запросов операции.
+     */
+    ParseTask(@NonNull Runnable onFinished, @NonNull RequestPriority priority) {
+        this.onFinished = onFinished;
+        this.priority = priority;
+    }
+
+    /**
+     * Создает задачу для внутренней работы парсеров, которую пользователь не ждёт (предзагрузка, фоновое
+     * обновление кэша): задача только задаёт приоритет запросов и не имеет действия завершения.
+     *
+     * @param priority Приоритет сетевых запросов.
+     * @return Новая задача.
+     */
+    @NonNull
+    static ParseTask detached(@NonNull RequestPriority priority) {
+        return new ParseTask(NO_FINISH, priority);
+    }
+
+    /**
+     * Возвращает задачу, выполняемую в текущем потоке, или null, если парсер вызван синхронно.
+     */
+    @Nullable
+    static ParseTask current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Отменяет операцию. Повторные вызовы ничего не делают.
+     */
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        for (Future<?> f : futures) {
+            f.cancel(true);
+            // Убираем отменённую задачу из очереди, чтобы она не занимала место
+            if (f instanceof Runnable) {
+                ParserExecutors.worker().remove((Runnable) f);
+            }
+        }
+        futures.clear();
+        // Закрытие потока ответа прерывает чтение из сокета
+        for (Closeable resource : resources) {
+            closeQuietly(resource);
+        }
+        resources.clear();
+        if (onFinished == NO_FINISH) {
+            finish();
+        } else {
+            MainThreadExecutor.getInstance().execute(this::finish);
+        }
+    }
+
+    /**
+     * @return true, если операция была отменена.
+     */
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * @return Приоритет сетевых запросов операции.
+     */
+    @NonNull
+    RequestPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return Трассировка операции: идентификатор и длительности этапов.
+     */
+    @NonNull
+    public ParseTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * @return Время ожидания задачи в очереди пула, в наносекундах (0, если задача ещё не начата).
+     */
+    long getQueueNanos() {
+        return startedAtNanos == 0 ? 0 : startedAtNanos - submittedAtNanos;
+    }
+
+    /**
+     * @return Время выполнения запроса и разбора страницы, в наносекундах (0, если задача ещё не завершена).
+     */
+    long getRunNanos() {
+        return completedAtNanos == 0 ? 0 : completedAtNanos - startedAtNanos;
+    }
+
+    /**
+     * @return Момент завершения фоновой работы (System.nanoTime) или 0.
+     */
+    long getCompletedAtNanos() {
+        return completedAtNanos;
+    }
+
+    void markSubmitted() {
+        submittedAtNanos = System.nanoTime();
+    }
+
+    void markStarted() {
+        startedAtNanos = System.nanoTime();
+    }
+
+    void markCompleted() {
+        completedAtNanos = System.nanoTime();
+    }
+
+    void attach(@NonNull Future<?> future) {
+        futures.add(future);
+        if (cancelled.get()) {
+            future.cancel(true);
+        }
+    }
+
+    void detach(@NonNull Future<?> future) {
+        futures.remove(future);
+    }
+
+    /**
+     * Выполняет действие от имени этой задачи: на время выполнения задача доступна через {@link #current()}.
+     */
+    void runAsCurrent(@NonNull Runnable action) {
+        CURRENT.set(this);
+        try {
+            action.run();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Выполняет операцию от имени этой задачи в другом потоке (например, запрос к одному из источников
+     * {@link FederatedParser}): соединения операции регистрируются в задаче и закрываются при её отмене.
+     *
+     * @param work Операция.
+     * @param <T>  Тип результата.
+     * @return Результат операции.
+     * @throws Exception Ошибка операции.
+     */
+    <T> T callAsCurrent(@NonNull Callable<T> work) throws Exception {
+        ParseTask previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.call();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Регистрирует ресурс, который будет закрыт при отмене. Если задача уже отменена, ресурс закрывается сразу.
+     */
+    void register(@NonNull Closeable resource) {
+        resources.add(resource);
+        if (cancelled.get() && resources.remove(resource)) {
+            closeQuietly(resource);
+        }
+    }
+
+    void unregister(@NonNull Closeable resource) {
+        resources.remove(resource);
+    }
+
+    /**
+     * Вызывает действие завершения не более одного раза. Должен вызываться в основном потоке.
+     */
+    void finish() {
+        if (finished.compareAndSet(false, true)) {
+            onFinished.run();
+        }
+    }
+
+    private static void closeQuietly(@NonNull Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Соединение уже закрыто или разорвано, дополнительная обработка не требуется
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Трассировка одной асинхронной операции парсера: идентификатор и суммарное время каждого этапа.
+ * <p>
+ * Если операция выполняет несколько запросов (например, {@link FederatedParser} опрашивает несколько
+ * источников параллельно), время этапа суммируется по всем запросам. Идентификатор позволяет связать
+ * результат в колбэке с записями в logcat.
+ * </p>
+ */
+public final class ParseTrace {
+
+    private final String id;
+    private final AtomicLongArray nanos = new AtomicLongArray(ParsePhase.values().length);
+
+    ParseTrace() {
+        this(String.format(Locale.ROOT, "%016x", ThreadLocalRandom.current().nextLong()));
+    }
+
+    ParseTrace(@NonNull String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return Идентификатор операции.
+     */
+    @NonNull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @param phase Этап.
+     * @return Суммарное время этапа, в наносекундах (0, если этап не выполнялся).
+     */
+    public long getNanos(@NonNull ParsePhase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    void add(@NonNull ParsePhase phase, long phaseNanos) {
+        if (phaseNanos > 0) {
+            nanos.addAndGet(phase.ordinal(), phaseNanos);
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("trace=").append(id);
+        for (ParsePhase phase : ParsePhase.values()) {
+            long value = getNanos(phase);
+            if (value > 0) {
+                sb.append(' ').append(phase.name().toLowerCase(Locale.ROOT))
+                        .append(String.format(Locale.ROOT, "=%.1fms", value / 1e6));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,13 +1,30 @@
 package com.mydishes.mydishes.parser;
 
-import android.os.Handler;
-import android.os.Looper;
-
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.http.CallTimings;
+import com.mydishes.mydishes.parser.http.HttpRequest;
+import com.mydishes.mydishes.parser.http.HttpResponse;
+import com.mydishes.mydishes.parser.http.HttpTransport;
+import com.mydishes.mydishes.parser.http.OkHttpTransport;
+import com.mydishes.mydishes.parser.http.RequestPriority;
+import com.mydishes.mydishes.utils.MainThreadExecutor;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Абстрактный класс для парсинга данных о продуктах.
@@ -17,6 +34,18 @@ import java.util.List;
  * Наследники должны реализовать методы {@link #findProducts(String)} и
  * {@link #parseProductDetails(Product)} для конкретного источника данных (например, веб-сайта).
  * </p>
+ * <p>
+ * Асинхронные методы выполняются в общем ограниченном пуле потоков и возвращают {@link ParseTask},
+ * через который операцию можно отменить. Результаты доставляются в основной поток через {@link MainThreadExecutor}.
+ * </p>
+ * <p>
+ * Страницы загружаются через {@link HttpTransport}; по умолчанию используется общий
+ * {@link OkHttpTransport} с пулом соединений, поэтому запросы разных парсеров переиспользуют соединения.
+ * </p>
+ * <p>
+ * Длительности этапов каждого запроса ({@link ParsePhase}) записываются в {@link ParserMetrics#global()}
+ * и в трассировку текущей задачи ({@link ParseTask#getTrace()}), которая передаётся в колбэк вместе с результатом.
+ * </p>
  */
 public abstract class Parser {
     /**
@@ -24,6 +53,45 @@ public abstract class Parser {
      */
     protected static final int MAX_RESULTS = 25;
 
+    /**
+     * Заголовок User-Agent, с которым выполняются запросы к сайтам.
+     */
+    protected static final String USER_AGENT = "Mozilla/5.0";
+
+    /**
+     * Количество одновременных загрузок при пакетном получении деталей по умолчанию.
+     */
+    public static final int DEFAULT_BATCH_PARALLELISM = ParserExecutors.WORKER_THREADS;
+
+    /**
+     * Максимальное количество одновременных запросов к одному сайту при пакетной загрузке.
+     */
+    protected static final int MAX_REQUESTS_PER_HOST = 3;
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    // Время извлечения, записанное в текущем потоке (вычитается из времени разбора страницы)
+    private static final ThreadLocal<long[]> EXTRACT_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Транспорт, через который загружаются страницы.
+     */
+    protected final HttpTransport transport;
+
+    /**
+     * Создает парсер, использующий общий транспорт приложения ({@link OkHttpTransport#shared()}).
+     */
+    protected Parser() {
+        this(OkHttpTransport.shared());
+    }
+
+    /**
+     * @param transport Транспорт, через который загружаются страницы.
+     */
+    protected Parser(@NonNull HttpTransport transport) {
+        this.transport = transport;
+    }
+
     /**
      * Абстрактный метод для поиска списка продуктов по заданному запросу.
      * <p>
@@ -37,6 +105,24 @@ public abstract class Parser {
      */
     public abstract List<Product> findProducts(String query) throws Exception;
 
+    /**
+     * Ищет одну страницу результатов поиска.
+     * <p>
+     * Страница 0 содержит те же продукты, что и {@link #findProducts(String)}. Следующие страницы загружаются
+     * по мере прокрутки списка ({@link SearchPager}); пустая страница означает, что результатов больше нет.
+     * Реализация по умолчанию предназначена для источников без постраничной выдачи: вся выдача -
+     * страница 0, следующие страницы пусты.
+     * </p>
+     *
+     * @param query Поисковый запрос.
+     * @param page  Номер страницы, начиная с 0.
+     * @return Продукты страницы (не больше {@link #MAX_RESULTS}).
+     * @throws Exception Если во время парсинга произошла ошибка.
+     */
+    public List<Product> findProductsPage(String query, int page) throws Exception {
+        return page == 0 ? findProducts(query) : new ArrayList<>();
+    }
+
     /**
      * Асинхронно ищет список продуктов по заданному запросу.
      * <p>
@@ -48,27 +134,16 @@ public abstract class Parser {
      *         либо {@link ProductParseCallback#onError(Exception)} при ошибке.</li>
      *     <li>{@link ProductParseCallback#onParsingFinished()} вызывается в основном потоке после {@code onSuccess} или {@code onError}.</li>
      * </ol>
+     * После {@link ParseTask#cancel()} вызывается только {@link ProductParseCallback#onParsingFinished()}.
      * </p>
      *
      * @param query    Поисковый запрос.
      * @param callback Колбэк для уведомления о результате парсинга.
+     * @return {@link ParseTask} для отмены операции.
      */
-    public void findProductsAsync(String query, @NonNull ProductParseCallback<List<Product>> callback) {
-        callback.onParsingStarted();
-        new Thread(() -> {
-            try {
-                List<Product> products = findProducts(query);
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    callback.onSuccess(products);
-                    callback.onParsingFinished();
-                });
-            } catch (Exception e) {
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    callback.onError(e);
-                    callback.onParsingFinished();
-                });
-            }
-        }).start();
+    @NonNull
+    public ParseTask findProductsAsync(String query, @NonNull ProductParseCallback<List<Product>> callback) {
+        return runAsync(() -> findProducts(query), callback);
     }
 
     /**
@@ -95,26 +170,294 @@ public abstract class Parser {
      *         либо {@link ProductParseCallback#onError(Exception)} при ошибке.</li>
      *     <li>{@link ProductParseCallback#onParsingFinished()} вызывается в основном потоке после {@code onSuccess} или {@code onError}.</li>
      * </ol>
+     * После {@link ParseTask#cancel()} вызывается только {@link ProductParseCallback#onParsingFinished()}.
      * </p>
      *
      * @param product  Продукт ({@link Product}), для которого необходимо получить детали.
      * @param callback Колбэк для уведомления о результате парсинга.
+     * @return {@link ParseTask} для отмены операции.
+     */
+    @NonNull
+    public ParseTask parseProductDetailsAsync(Product product, @NonNull ProductParseCallback<Product> callback) {
+        return runAsync(() -> parseProductDetails(product), callback);
+    }
+
+    /**
+     * Загружает детали продукта, только если его страница изменилась с момента получения {@code validators}.
+     * <p>
+     * Реализация по умолчанию не поддерживает условные запросы и всегда загружает детали через
+     * {@link #parseProductDetails(Product)}. Наследники, загружающие страницу через
+     * {@link #fetchIfModified(String, CacheValidators, BodyReader)}, возвращают {@link Revalidation#notModified()}
+     * без загрузки и разбора страницы, если она не изменилась.
+     * </p>
+     *
+     * @param product    Продукт, для которого необходимо получить детали.
+     * @param validators Валидаторы ранее загруженной страницы или {@link CacheValidators#NONE}.
+     * @return Результат проверки; при изменении - обновленный продукт и валидаторы его страницы.
+     * @throws Exception Если во время парсинга произошла ошибка.
+     */
+    @NonNull
+    public Revalidation<Product> revalidateProductDetails(@NonNull Product product,
+                                                          @NonNull CacheValidators validators) throws Exception {
+        return Revalidation.modified(parseProductDetails(product), CacheValidators.NONE);
+    }
+
+    /**
+     * Асинхронно загружает детали нескольких продуктов параллельно.
+     * <p>
+     * Одновременно выполняется не больше {@code parallelism} загрузок и не больше {@link #MAX_REQUESTS_PER_HOST}
+     * загрузок с одного сайта, поэтому пакет загружается примерно за время самых медленных страниц,
+     * а не за сумму времени всех страниц. Контракт вызова колбэка:
+     * <ol>
+     *     <li>{@link BatchParseCallback#onParsingStarted()} вызывается немедленно.</li>
+     *     <li>Для каждого продукта в основном потоке, по мере готовности, вызывается
+     *         {@link BatchParseCallback#onItemSuccess} или {@link BatchParseCallback#onItemError}.</li>
+     *     <li>{@link BatchParseCallback#onParsingFinished()} вызывается в основном потоке после всех продуктов.</li>
+     * </ol>
+     * После {@link ParseTask#cancel()} выполняющиеся загрузки прерываются, не начатые не запускаются,
+     * и вызывается только {@link BatchParseCallback#onParsingFinished()}.
+     * </p>
+     *
+     * @param products    Продукты, для которых необходимо получить детали (изменяются так же, как в
+     *                    {@link #parseProductDetails(Product)}).
+     * @param parallelism Максимальное количество одновременных загрузок.
+     * @param callback    Колбэк для уведомления о результатах.
+     * @return {@link ParseTask} для отмены всего пакета.
      */
-    public void parseProductDetailsAsync(Product product, @NonNull ProductParseCallback<Product> callback) {
+    @NonNull
+    public ParseTask parseProductDetailsBatchAsync(@NonNull List<Product> products, int parallelism,
+                                                   @NonNull BatchParseCallback callback) {
         callback.onParsingStarted();
-        new Thread(() -> {
-            try {
-                Product result = parseProductDetails(product);
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    callback.onSuccess(result);
-                    callback.onParsingFinished();
-                });
-            } catch (Exception e) {
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    callback.onError(e);
-                    callback.onParsingFinished();
-                });
+        ParseTask task = new ParseTask(callback::onParsingFinished);
+        new BatchDetailsLoader(this, new ArrayList<>(products), parallelism, MAX_REQUESTS_PER_HOST,
+                ParserExecutors.worker(), MainThreadExecutor.getInstance(), task, callback).start();
+        return task;
+    }
+
+    /**
+     * Загружает страницу по URL и строит её DOM.
+     * <p>
+     * Страница загружается через {@link #transport}, Jsoup только разбирает полученные байты.
+     * Если вызов выполняется внутри асинхронной задачи, HTTP-вызов регистрируется в {@link ParseTask},
+     * поэтому {@link ParseTask#cancel()} отменяет запрос и прерывает загрузку страницы.
+     * </p>
+     *
+     * @param url URL загружаемой страницы.
+     * @return Разобранный документ.
+     * @throws IOException Если произошла ошибка сети или задача была отменена ({@link InterruptedIOException}).
+     */
+    @NonNull
+    protected Document fetchDocument(@NonNull String url) throws IOException {
+        return fetch(url, (body, charset) -> Jsoup.parse(body, charset, url));
+    }
+
+    /**
+     * Загружает страницу по URL и передаёт поток ответа обработчику, не строя DOM заранее.
+     * <p>
+     * Обработчик может прочитать ответ не до конца: поток закрывается после его завершения,
+     * и оставшаяся часть страницы не загружается. Отмена работает так же, как в {@link #fetchDocument(String)}.
+     * </p>
+     *
+     * @param url    URL загружаемой страницы.
+     * @param reader Обработчик тела ответа.
+     * @param <T>    Тип результата обработчика.
+     * @return Результат обработчика.
+     * @throws IOException Если произошла ошибка сети или задача была отменена ({@link InterruptedIOException}).
+     */
+    protected <T> T fetch(@NonNull String url, @NonNull BodyReader<T> reader) throws IOException {
+        return execute(new HttpRequest(url), (response, body) -> {
+            requireSuccessful(response, url);
+            return reader.read(body, response.charset());
+        });
+    }
+
+    /**
+     * Загружает страницу условным запросом (If-None-Match / If-Modified-Since по сохраненным валидаторам).
+     * <p>
+     * Если сервер ответил 304 Not Modified, тело не загружается и обработчик не вызывается.
+     * Отмена работает так же, как в {@link #fetchDocument(String)}.
+     * </p>
+     *
+     * @param url        URL загружаемой страницы.
+     * @param validators Валидаторы ранее загруженной страницы ({@link CacheValidators#NONE} - безусловный запрос).
+     * @param reader     Обработчик тела ответа.
+     * @param <T>        Тип результата обработчика.
+     * @return {@link Revalidation#notModified()} или результат обработчика с валидаторами новой страницы.
+     * @throws IOException Если произошла ошибка сети или задача была отменена ({@link InterruptedIOException}).
+     */
+    @NonNull
+    protected <T> Revalidation<T> fetchIfModified(@NonNull String url, @NonNull CacheValidators validators,
+                                                  @NonNull BodyReader<T> reader) throws IOException {
+        HttpRequest request = new HttpRequest(url);
+        if (validators.etag != null) {
+            request.header("If-None-Match", validators.etag);
+        }
+        if (validators.lastModified != null) {
+            request.header("If-Modified-Since", validators.lastModified);
+        }
+        return execute(request, (response, body) -> {
+            if (response.code() == HTTP_NOT_MODIFIED) {
+                return Revalidation.notModified();
+            }
+            requireSuccessful(response, url);
+            CacheValidators fresh = new CacheValidators(response.header("ETag"), response.header("Last-Modified"));
+            return Revalidation.modified(reader.read(body, response.charset()), fresh);
+        });
+    }
+
+    private <T> T execute(@NonNull HttpRequest request, @NonNull ResponseHandler<T> handler) throws IOException {
+        String url = request.getUrl();
+        ParseTask task = ParseTask.current();
+        // Синхронный вызов без задачи считается запросом пользователя
+        request.header("User-Agent", USER_AGENT)
+                .priority(task != null ? task.getPriority() : RequestPriority.USER);
+        HttpTransport.Call call = transport.newCall(request);
+
+        // Отмена задачи отменяет вызов на любом этапе, в том числе при установке соединения и ожидании очереди
+        if (task != null) {
+            task.register(call);
+        }
+        try (HttpResponse response = call.execute()) {
+            recordNetworkPhases(response.timings());
+            // Время ожидания данных в чтениях тела - загрузка, остальное время обработчика - разбор и извлечение
+            TimedInputStream body = new TimedInputStream(response.body());
+            long extractBefore = EXTRACT_NANOS.get()[0];
+            long start = System.nanoTime();
+            T result = handler.handle(response, body);
+            long handledNanos = System.nanoTime() - start;
+            if (body.getReadNanos() > 0) {
+                recordPhase(ParsePhase.DOWNLOAD, body.getReadNanos());
+                recordPhase(ParsePhase.PARSE,
+                        handledNanos - body.getReadNanos() - (EXTRACT_NANOS.get()[0] - extractBefore));
+            }
+            if (task != null && task.isCancelled()) {
+                throw new InterruptedIOException("Загрузка страницы отменена: " + url);
+            }
+            return result;
+        } catch (IOException e) {
+            if (task != null && task.isCancelled() && !(e instanceof InterruptedIOException)) {
+                InterruptedIOException cancelled = new InterruptedIOException("Загрузка страницы отменена: " + url);
+                cancelled.initCause(e);
+                throw cancelled;
             }
-        }).start();
+            throw e;
+        } finally {
+            if (task != null) {
+                task.unregister(call);
+            }
+        }
+    }
+
+    /**
+     * Записывает длительность этапа в общие метрики и в трассировку текущей задачи.
+     *
+     * @param phase Этап.
+     * @param nanos Длительность, в наносекундах.
+     */
+    protected static void recordPhase(@NonNull ParsePhase phase, long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        ParserMetrics.global().record(phase, nanos);
+        ParseTask task = ParseTask.current();
+        if (task != null) {
+            task.getTrace().add(phase, nanos);
+        }
+        if (phase == ParsePhase.EXTRACT) {
+            EXTRACT_NANOS.get()[0] += nanos;
+        }
+    }
+
+    private static void recordNetworkPhases(@NonNull CallTimings timings) {
+        // Для соединения из пула этапы DNS, соединения и TLS пропущены
+        if (timings.dnsNanos != CallTimings.SKIPPED) {
+            recordPhase(ParsePhase.DNS, timings.dnsNanos);
+        }
+        if (timings.connectNanos != CallTimings.SKIPPED) {
+            recordPhase(ParsePhase.CONNECT, timings.connectNanos);
+        }
+        if (timings.tlsNanos != CallTimings.SKIPPED) {
+            recordPhase(ParsePhase.TLS, timings.tlsNanos);
+        }
+        if (timings.firstByteNanos != CallTimings.SKIPPED) {
+            recordPhase(ParsePhase.FIRST_BYTE, timings.firstByteNanos);
+        }
+    }
+
+    private static void requireSuccessful(@NonNull HttpResponse response, @NonNull String url)
+            throws HttpStatusException {
+        if (!response.isSuccessful()) {
+            throw new HttpStatusException("HTTP error fetching URL", response.code(), url);
+        }
+    }
+
+    private interface ResponseHandler<T> {
+        T handle(@NonNull HttpResponse response, @NonNull InputStream body) throws IOException;
+    }
+
+    /**
+     * Обработчик тела HTTP-ответа для {@link #fetch(String, BodyReader)}.
+     *
+     * @param <T> Тип результата.
+     */
+    @FunctionalInterface
+    protected interface BodyReader<T> {
+        /**
+         * @param body    Поток тела ответа.
+         * @param charset Кодировка из заголовка Content-Type или null, если она не указана.
+         * @return Результат обработки.
+         * @throws IOException Если произошла ошибка чтения.
+         */
+        T read(@NonNull InputStream body, @Nullable String charset) throws IOException;
+    }
+
+    /**
+     * Выполняет операцию в общем пуле потоков парсеров и доставляет результат в основной поток.
+     *
+     * @param work     Синхронная операция парсинга.
+     * @param callback Колбэк для уведомления о результате.
+     * @param <T>      Тип результата.
+     * @return Дескриптор запущенной операции.
+     */
+    @NonNull
+    private static <T> ParseTask runAsync(@NonNull Callable<T> work, @NonNull ProductParseCallback<T> callback) {
+        callback.onParsingStarted();
+        Executor mainExecutor = MainThreadExecutor.getInstance();
+        ParseTask task = new ParseTask(callback::onParsingFinished);
+        task.markSubmitted();
+        try {
+            task.attach(ParserExecutors.worker().submit(() -> task.runAsCurrent(() -> {
+                task.markStarted();
+                try {
+                    T result = work.call();
+                    task.markCompleted();
+                    mainExecutor.execute(() -> {
+                        // Результат отменённой задачи не доставляется
+                        if (!task.isCancelled()) {
+                            callback.onSuccess(result, task.getTrace());
+                        }
+                        task.finish();
+                    });
+                } catch (Throwable t) {
+                    // Error (например, StackOverflowError на странице необычной структуры) тоже сообщается
+                    // через onError: иначе onParsingFinished не будет вызван и загрузка не завершится
+                    Exception e = t instanceof Exception ? (Exception) t : new ExecutionException(t);
+                    task.markCompleted();
+                    mainExecutor.execute(() -> {
+                        if (!task.isCancelled()) {
+                            callback.onError(e, task.getTrace());
+                        }
+                        task.finish();
+                    });
+                }
+            })));
+        } catch (RejectedExecutionException e) {
+            // Очередь пула переполнена: сообщаем об ошибке, не создавая новых потоков
+            mainExecutor.execute(() -> {
+                callback.onError(e, task.getTrace());
+                task.finish();
+            });
+        }
+        return task;
     }
 }
@@ -0,0 +1,135 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Общие исполнители для фоновой работы парсеров.
+ * <p>
+ * Все асинхронные операции {@link Parser} выполняются в одном ограниченном пуле потоков,
+ * поэтому быстрый ввод текста или частые нажатия не приводят к неограниченному росту числа потоков.
+ * Когда очередь пула заполнена, новая задача отклоняется, и вызывающий код получает ошибку.
+ * </p>
+ */
+final class ParserExecutors {
+
+    // Максимальное количество одновременно работающих потоков парсинга
+    static final int WORKER_THREADS = 4;
+    // Максимальное количество задач, ожидающих свободного потока
+    static final int WORKER_QUEUE_CAPACITY = 32;
+    // Количество потоков с пониженным приоритетом (обновление кэша, предзагрузка)
+    static final int BACKGROUND_THREADS = 2;
+    // Максимальное количество фоновых задач (обновление кэша и т.п.), ожидающих выполнения
+    static final int BACKGROUND_QUEUE_CAPACITY = 64;
+    // Количество потоков для одновременных запросов к источникам при объединённом поиске
+    static final int FAN_OUT_THREADS = 6;
+    // Максимальное количество запросов к источникам, ожидающих свободного потока
+    static final int FAN_OUT_QUEUE_CAPACITY = 16;
+    // Время жизни простаивающего потока, после которого он завершается
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor WORKER = createWorker();
+    private static final ThreadPoolExecutor BACKGROUND = createBackground();
+    private static final ThreadPoolExecutor FAN_OUT = createFanOut();
+
+    private ParserExecutors() {
+    }
+
+    /**
+     * Возвращает общий ограниченный пул потоков для сетевых запросов и разбора страниц.
+     *
+     * @return Общий {@link ThreadPoolExecutor} парсеров.
+     */
+    @NonNull
+    static ThreadPoolExecutor worker() {
+        return WORKER;
+    }
+
+    /**
+     * Возвращает небольшой пул потоков с пониженным приоритетом для работы, которую пользователь не ждёт
+     * (фоновое обновление устаревших записей кэша, предзагрузка деталей). Задачи сверх ёмкости очереди отклоняются
+     * ({@link java.util.concurrent.RejectedExecutionException}), и вызывающий код сам решает, что с ними делать.
+     *
+     * @return Общий фоновый {@link ThreadPoolExecutor} парсеров.
+     */
+    @NonNull
+    static ThreadPoolExecutor background() {
+        return BACKGROUND;
+    }
+
+    /**
+     * Возвращает пул потоков для параллельных запросов к источникам {@link FederatedParser}.
+     * <p>
+     * Объединённый поиск сам выполняется в потоке {@link #worker()} и ждёт ответов источников, поэтому
+     * запросы к источникам выполняются в отдельном пуле: иначе ожидающие поиски могли бы занять все потоки
+     * общего пула и не оставить их самим запросам.
+     * </p>
+     *
+     * @return Общий {@link ThreadPoolExecutor} запросов к источникам.
+     */
+    @NonNull
+    static ThreadPoolExecutor fanOut() {
+        return FAN_OUT;
+    }
+
+    @NonNull
+    private static ThreadPoolExecutor createWorker() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                WORKER_THREADS, WORKER_THREADS,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(WORKER_QUEUE_CAPACITY),
+                new NamedThreadFactory("parser-worker", Thread.NORM_PRIORITY));
+        // Простаивающие потоки не удерживаются, пока пользователь не ищет продукты
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @NonNull
+    private static ThreadPoolExecutor createBackground() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                BACKGROUND_THREADS, BACKGROUND_THREADS,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(BACKGROUND_QUEUE_CAPACITY),
+                new NamedThreadFactory("parser-background", Thread.MIN_PRIORITY));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @NonNull
+    private static ThreadPoolExecutor createFanOut() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                FAN_OUT_THREADS, FAN_OUT_THREADS,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(FAN_OUT_QUEUE_CAPACITY),
+                new NamedThreadFactory("parser-source", Thread.NORM_PRIORITY));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Фабрика фоновых потоков с понятными именами (удобно при профилировании и в логах).
+     */
+    static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final int priority;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(@NonNull String prefix, int priority) {
+            this.prefix = prefix;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Журнал классов парсера.
+ * <p>
+ * Ядро парсера работает и на обычной JVM (модульные тесты, модуль benchmark), где {@code android.util.Log}
+ * не реализован, поэтому оно пишет сообщения сюда, а не в logcat напрямую. Приложение подключает logcat
+ * через {@link #setLogger(Logger)} ({@link ParserProvider}); по умолчанию сообщения отбрасываются.
+ * </p>
+ */
+public final class ParserLog {
+
+    private static final Logger NONE = new Logger() {
+        @Override
+        public void debug(@NonNull String tag, @NonNull String message) {
+        }
+
+        @Override
+        public void warn(@NonNull String tag, @NonNull String message, @Nullable Throwable e) {
+        }
+    };
+
+    private static volatile Logger logger = NONE;
+
+    private ParserLog() {
+    }
+
+    /**
+     * @param logger Получатель сообщений парсера или null, чтобы отбрасывать сообщения.
+     */
+    public static void setLogger(@Nullable Logger logger) {
+        ParserLog.logger = logger != null ? logger : NONE;
+    }
+
+    static void d(@NonNull String tag, @NonNull String message) {
+        logger.debug(tag, message);
+    }
+
+    static void w(@NonNull String tag, @NonNull String message, @Nullable Throwable e) {
+        logger.warn(tag, message, e);
+    }
+
+    /**
+     * Получатель сообщений парсера. Вызывается из любого потока.
+     */
+    public interface Logger {
+        /**
+         * @param tag     Тег источника сообщения.
+         * @param message Отладочное сообщение.
+         */
+        void debug(@NonNull String tag, @NonNull String message);
+
+        /**
+         * @param tag     Тег источника сообщения.
+         * @param message Предупреждение.
+         * @param e       Причина или null.
+         */
+        void warn(@NonNull String tag, @NonNull String message, @Nullable Throwable e);
+    }
+}
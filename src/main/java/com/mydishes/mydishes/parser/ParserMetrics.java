@@ -0,0 +1,85 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Гистограммы длительностей этапов ({@link ParsePhase}) всех операций парсеров.
+ * <p>
+ * Сетевые этапы записываются на каждый HTTP-запрос, этапы разбора и извлечения - на каждую разобранную страницу.
+ * Текстовый отчёт {@link #dump()} предназначен для отладочного экрана или logcat.
+ * </p>
+ */
+public final class ParserMetrics {
+
+    private static volatile ParserMetrics global;
+
+    private final Map<ParsePhase, LatencyHistogram> histograms = new EnumMap<>(ParsePhase.class);
+
+    ParserMetrics() {
+        for (ParsePhase phase : ParsePhase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * @return Общие метрики приложения.
+     */
+    @NonNull
+    public static ParserMetrics global() {
+        // Двойная проверка для потокобезопасной инициализации
+        if (global == null) {
+            synchronized (ParserMetrics.class) {
+                if (global == null) {
+                    global = new ParserMetrics();
+                }
+            }
+        }
+        return global;
+    }
+
+    /**
+     * @param phase Этап.
+     * @return Гистограмма длительностей этапа.
+     */
+    @NonNull
+    public LatencyHistogram histogram(@NonNull ParsePhase phase) {
+        return histograms.get(phase);
+    }
+
+    /**
+     * Добавляет измерение этапа.
+     *
+     * @param phase Этап.
+     * @param nanos Длительность, в наносекундах.
+     */
+    public void record(@NonNull ParsePhase phase, long nanos) {
+        histograms.get(phase).record(nanos);
+    }
+
+    /**
+     * @return Отчёт по всем этапам, по строке на этап.
+     */
+    @NonNull
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<ParsePhase, LatencyHistogram> entry : histograms.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(entry.getKey()).append(": ").append(entry.getValue().snapshot());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Сбрасывает все гистограммы.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
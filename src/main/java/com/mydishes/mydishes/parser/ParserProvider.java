@@ -0,0 +1,86 @@
+package com.mydishes.mydishes.parser;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.database.AppDatabase;
+import com.mydishes.mydishes.database.repository.RoomDetailsCache;
+import com.mydishes.mydishes.parser.http.ResilientTransport;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Точка получения общего экземпляра парсера приложения.
+ * <p>
+ * Экраны используют один и тот же экземпляр, поэтому кэши парсера живут в течение всей сессии приложения,
+ * а не одного экрана.
+ * </p>
+ */
+public final class ParserProvider {
+
+    // Возраст записи кэша деталей продукта, после которого она обновляется в фоне
+    private static final long DETAILS_STALE_AFTER_MS = CachingParser.DEFAULT_DETAILS_STALE_AFTER_MS;
+
+    private static volatile CachingParser instance;
+
+    private ParserProvider() {
+    }
+
+    /**
+     * Возвращает общий парсер: объединённый поиск по источникам ({@link FederatedParser}), обёрнутый
+     * в {@link CachingParser} с постоянным кэшем деталей продуктов в базе данных приложения.
+     *
+     * @param context Любой контекст; используется контекст приложения.
+     * @return Общий экземпляр парсера.
+     */
+    @NonNull
+    public static CachingParser get(@NonNull Context context) {
+        // Двойная проверка для потокобезопасной инициализации
+        if (instance == null) {
+            synchronized (ParserProvider.class) {
+                if (instance == null) {
+                    // Сообщения ядра парсера пишутся в logcat
+                    ParserLog.setLogger(new LogcatLogger());
+                    RoomDetailsCache detailsCache = new RoomDetailsCache(
+                            AppDatabase.getDatabase(context.getApplicationContext()).productDetailsCacheDao());
+                    instance = new CachingParser(createSourceParser(), detailsCache, DETAILS_STALE_AFTER_MS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Создает парсер источников приложения. Новый магазин добавляется сюда описанием источника
+     * ({@link SourceConfig}) и его парсером. Страницы загружаются через {@link ResilientTransport}:
+     * сбои сети повторяются, запросы к недоступному сайту сразу отклоняются, а частота запросов к сайту
+     * ограничена.
+     */
+    @NonNull
+    private static Parser createSourceParser() {
+        SourceConfig edostavka = SourceConfig.edostavka();
+        List<FederatedParser.Source> sources = Collections.singletonList(
+                new FederatedParser.Source(edostavka.id, edostavka.baseUrl,
+                        new EdostavkaParser(ResilientTransport.shared(), edostavka, true)));
+        return new FederatedParser(sources, FederatedParser.DEFAULT_DEADLINE_MS);
+    }
+
+    /**
+     * Передает сообщения парсера в logcat.
+     */
+    private static final class LogcatLogger implements ParserLog.Logger {
+        @Override
+        public void debug(@NonNull String tag, @NonNull String message) {
+            Log.d(tag, message);
+        }
+
+        @Override
+        public void warn(@NonNull String tag, @NonNull String message, @Nullable Throwable e) {
+            Log.w(tag, message, e);
+        }
+    }
+}
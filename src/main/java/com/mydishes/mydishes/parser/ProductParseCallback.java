@@ -1,5 +1,7 @@
 package com.mydishes.mydishes.parser;
 
+import androidx.annotation.NonNull;
+
 /**
  * Интерфейс обратного вызова для обработки результатов асинхронных операций парсинга.
  * <p>
@@ -27,6 +29,17 @@ public interface ProductParseCallback<T> {
      */
     void onSuccess(T result);
 
+    /**
+     * Вызывается при успешном завершении операции парсинга вместо {@link #onSuccess(Object)}, если
+     * реализация переопределяет этот метод. По умолчанию вызывает {@link #onSuccess(Object)}.
+     *
+     * @param result Результат операции парсинга.
+     * @param trace  Трассировка операции: идентификатор и длительности этапов.
+     */
+    default void onSuccess(T result, @NonNull ParseTrace trace) {
+        onSuccess(result);
+    }
+
     /**
      * Вызывается в случае возникновения ошибки во время операции парсинга.
      *
@@ -34,6 +47,17 @@ public interface ProductParseCallback<T> {
      */
     void onError(Exception e);
 
+    /**
+     * Вызывается при ошибке вместо {@link #onError(Exception)}, если реализация переопределяет этот метод.
+     * По умолчанию вызывает {@link #onError(Exception)}.
+     *
+     * @param e     Исключение, содержащее информацию об ошибке.
+     * @param trace Трассировка операции: идентификатор и длительности выполненных этапов.
+     */
+    default void onError(Exception e, @NonNull ParseTrace trace) {
+        onError(e);
+    }
+
     /**
      * Вызывается после завершения асинхронной операции парсинга, независимо от того,
      * была ли операция успешной ({@link #onSuccess(Object)}) или произошла ошибка ({@link #onError(Exception)}).
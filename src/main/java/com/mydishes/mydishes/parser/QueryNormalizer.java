@@ -0,0 +1,52 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Приведение поисковых запросов к каноническому виду.
+ * <p>
+ * Запросы, которые сайт обрабатывает одинаково ("Молоко", " молоко ", "МОЛОКО"), получают один ключ:
+ * регистр понижается, буква "ё" заменяется на "е", пробельные символы по краям удаляются,
+ * а последовательности пробелов внутри сворачиваются в один пробел.
+ * </p>
+ */
+public final class QueryNormalizer {
+
+    private QueryNormalizer() {
+    }
+
+    /**
+     * Возвращает нормализованную форму запроса.
+     *
+     * @param query Исходный запрос (может быть null).
+     * @return Нормализованный запрос; для null возвращается пустая строка.
+     */
+    @NonNull
+    public static String normalize(@Nullable String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(query.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                // Пробел добавляется только между словами
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            if (c == 'ё' || c == 'Ё') {
+                c = 'е';
+            }
+            sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Результат условной загрузки: либо страница не изменилась (304 Not Modified), либо получено новое
+ * значение вместе с новыми валидаторами.
+ *
+ * @param <T> Тип загруженного значения.
+ */
+public final class Revalidation<T> {
+
+    private static final Revalidation<?> NOT_MODIFIED = new Revalidation<>(null, CacheValidators.NONE);
+
+    @Nullable
+    private final T value;
+    private final CacheValidators validators;
+
+    private Revalidation(@Nullable T value, @NonNull CacheValidators validators) {
+        this.value = value;
+        this.validators = validators;
+    }
+
+    /**
+     * @return Результат "страница не изменилась".
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    public static <T> Revalidation<T> notModified() {
+        return (Revalidation<T>) NOT_MODIFIED;
+    }
+
+    /**
+     * @param value      Новое значение.
+     * @param validators Валидаторы полученной страницы.
+     * @return Результат "страница изменилась".
+     */
+    @NonNull
+    public static <T> Revalidation<T> modified(@NonNull T value, @NonNull CacheValidators validators) {
+        return new Revalidation<>(value, validators);
+    }
+
+    /**
+     * @return true, если сервер ответил 304 Not Modified и сохраненное значение актуально.
+     */
+    public boolean isNotModified() {
+        return value == null;
+    }
+
+    /**
+     * @return Новое значение или null, если страница не изменилась.
+     */
+    @Nullable
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * @return Валидаторы новой страницы ({@link CacheValidators#NONE}, если страница не изменилась).
+     */
+    @NonNull
+    public CacheValidators getValidators() {
+        return validators;
+    }
+}
@@ -0,0 +1,246 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.http.RequestPriority;
+import com.mydishes.mydishes.utils.MainThreadExecutor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Постраничная загрузка результатов поиска по мере прокрутки списка.
+ * <p>
+ * Первая страница приходит из {@link SearchPipeline} и передаётся в {@link #start(String, List)}. Следующая
+ * страница ({@link Parser#findProductsPage(String, int)}) запрашивается заранее, когда до конца загруженного
+ * списка остаётся не больше {@code prefetchDistance} элементов, поэтому при обычной прокрутке пользователь
+ * не доходит до конца списка раньше, чем придёт следующая страница. Одновременно загружается не больше одной
+ * страницы, с приоритетом {@link RequestPriority#PREFETCH}: если пользователь ввёл новый запрос, его поиск
+ * не ждёт в очереди за догрузкой старого.
+ * </p>
+ * <p>
+ * Загруженные страницы хранятся в памяти до следующего запроса. Продукты, уже показанные на предыдущих
+ * страницах, отбрасываются; страница без новых продуктов, ошибка или {@link #MAX_PAGES} страниц завершают
+ * загрузку для текущего запроса. Все методы должны вызываться в основном потоке.
+ * </p>
+ */
+public class SearchPager {
+
+    /**
+     * Количество оставшихся до конца списка элементов, при котором запрашивается следующая страница,
+     * по умолчанию.
+     */
+    public static final int DEFAULT_PREFETCH_DISTANCE = 8;
+
+    // Максимальное количество страниц одного запроса (ограничивает память и число запросов к сайту)
+    static final int MAX_PAGES = 10;
+
+    private final Parser parser;
+    private final int prefetchDistance;
+    private final Listener listener;
+    private final ExecutorService executor;
+    private final Executor mainExecutor;
+
+    // Текущий запрос и загруженные для него продукты
+    @Nullable
+    private String query;
+    private final List<Product> loaded = new ArrayList<>();
+    // Ключи загруженных продуктов (URL страницы или название) для отбрасывания повторов
+    private final Set<String> seen = new HashSet<>();
+    private int nextPage;
+    private boolean exhausted = true;
+    // Последняя видимая позиция списка: после загрузки страницы проверяется, не нужна ли следующая
+    private int lastVisiblePosition = -1;
+    @Nullable
+    private ParseTask inFlightTask;
+    // Номер поколения запроса: страницы с устаревшим номером игнорируются
+    private int generation;
+
+    /**
+     * @param parser           Парсер, выполняющий поиск.
+     * @param prefetchDistance Количество оставшихся до конца списка элементов, при котором загружается
+     *                         следующая страница.
+     * @param listener         Получатель загруженных страниц.
+     */
+    public SearchPager(@NonNull Parser parser, int prefetchDistance, @NonNull Listener listener) {
+        this(parser, prefetchDistance, listener, ParserExecutors.worker(), MainThreadExecutor.getInstance());
+    }
+
+    SearchPager(@NonNull Parser parser, int prefetchDistance, @NonNull Listener listener,
+                @NonNull ExecutorService executor, @NonNull Executor mainExecutor) {
+        this.parser = parser;
+        this.prefetchDistance = prefetchDistance;
+        this.listener = listener;
+        this.executor = executor;
+        this.mainExecutor = mainExecutor;
+    }
+
+    /**
+     * Начинает постраничную загрузку для нового запроса вместо предыдущего.
+     *
+     * @param query     Текст запроса.
+     * @param firstPage Первая страница результатов (как показана в списке).
+     */
+    public void start(@NonNull String query, @NonNull List<Product> firstPage) {
+        cancel();
+        this.query = query;
+        nextPage = 1;
+        exhausted = firstPage.isEmpty();
+        for (Product product : firstPage) {
+            if (seen.add(keyOf(product))) {
+                loaded.add(product);
+            }
+        }
+    }
+
+    /**
+     * Сообщает о прокрутке списка; при приближении к концу загруженных продуктов запрашивает следующую страницу.
+     *
+     * @param lastVisiblePosition Позиция последнего видимого элемента списка.
+     */
+    public void onScrolled(int lastVisiblePosition) {
+        this.lastVisiblePosition = lastVisiblePosition;
+        if (query == null || exhausted || inFlightTask != null) {
+            return;
+        }
+        if (lastVisiblePosition >= loaded.size() - 1 - prefetchDistance) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Отменяет загрузку страницы и забывает загруженные страницы. Вызывается при новом запросе
+     * и при уничтожении экрана.
+     */
+    public void cancel() {
+        generation++;
+        if (inFlightTask != null) {
+            inFlightTask.cancel();
+            inFlightTask = null;
+        }
+        query = null;
+        loaded.clear();
+        seen.clear();
+        exhausted = true;
+        lastVisiblePosition = -1;
+    }
+
+    /**
+     * @return true, если для текущего запроса могут быть ещё страницы.
+     */
+    public boolean hasMore() {
+        return !exhausted;
+    }
+
+    /**
+     * @return true, если загружается следующая страница.
+     */
+    public boolean isLoading() {
+        return inFlightTask != null;
+    }
+
+    /**
+     * @return Копия всех загруженных продуктов текущего запроса.
+     */
+    @NonNull
+    public List<Product> getLoaded() {
+        return new ArrayList<>(loaded);
+    }
+
+    private void loadNextPage() {
+        String pageQuery = query;
+        int page = nextPage;
+        int pageGeneration = generation;
+        // Догрузка не должна задерживать поиск, которого ждёт пользователь
+        ParseTask task = ParseTask.detached(RequestPriority.PREFETCH);
+        inFlightTask = task;
+        try {
+            task.attach(executor.submit(() -> {
+                try {
+                    List<Product> products = task.callAsCurrent(() -> parser.findProductsPage(pageQuery, page));
+                    mainExecutor.execute(() -> onPageLoaded(pageGeneration, page, products));
+                } catch (Exception e) {
+                    mainExecutor.execute(() -> onPageFailed(pageGeneration, page, e));
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            // Пул занят: страница будет запрошена при следующей прокрутке
+            inFlightTask = null;
+        }
+    }
+
+    private void onPageLoaded(int pageGeneration, int page, @NonNull List<Product> products) {
+        if (pageGeneration != generation) {
+            return;
+        }
+        inFlightTask = null;
+        nextPage = page + 1;
+        List<Product> fresh = new ArrayList<>(products.size());
+        for (Product product : products) {
+            if (seen.add(keyOf(product))) {
+                fresh.add(product);
+            }
+        }
+        // Сайт может отдавать последнюю страницу для любого большего номера
+        if (fresh.isEmpty() || nextPage >= MAX_PAGES) {
+            exhausted = true;
+        }
+        if (!fresh.isEmpty()) {
+            loaded.addAll(fresh);
+            listener.onPageLoaded(query, page, fresh, getLoaded());
+        }
+        // Пока страница загружалась, пользователь мог долистать до её конца
+        onScrolled(lastVisiblePosition);
+    }
+
+    private void onPageFailed(int pageGeneration, int page, @NonNull Exception e) {
+        if (pageGeneration != generation) {
+            return;
+        }
+        inFlightTask = null;
+        // Повторы выполняет транспорт; повторять страницу при каждой прокрутке не нужно
+        exhausted = true;
+        listener.onPageError(query, page, e);
+    }
+
+    @NonNull
+    private static String keyOf(@NonNull Product product) {
+        String url = product.getProductURL();
+        if (url != null && !url.isEmpty()) {
+            return url;
+        }
+        return QueryNormalizer.normalize(product.getName());
+    }
+
+    /**
+     * Получатель страниц результатов. Все методы вызываются в основном потоке.
+     */
+    public interface Listener {
+        /**
+         * Загружена следующая страница.
+         *
+         * @param query    Текст запроса.
+         * @param page     Номер страницы, начиная с 0.
+         * @param products Новые продукты страницы.
+         * @param all      Все загруженные продукты запроса в порядке отображения.
+         */
+        void onPageLoaded(@NonNull String query, int page, @NonNull List<Product> products,
+                          @NonNull List<Product> all);
+
+        /**
+         * Не удалось загрузить страницу; следующие страницы для этого запроса не загружаются.
+         *
+         * @param query Текст запроса.
+         * @param page  Номер страницы.
+         * @param e     Исключение, описывающее ошибку.
+         */
+        void onPageError(@NonNull String query, int page, @NonNull Exception e);
+    }
+}
@@ -0,0 +1,59 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Показатели разбора страницы поиска: сколько байт ответа было прочитано, сколько времени занял разбор
+ * и сколько карточек продуктов найдено. Используется для сравнения способов разбора страницы.
+ */
+public final class SearchParseStats {
+
+    /**
+     * Способ разбора страницы.
+     */
+    public enum Mode {
+        /**
+         * Потоковый разбор разметки: разбор прекращается после {@link Parser#MAX_RESULTS} карточек.
+         */
+        STREAM,
+        /**
+         * Построение полного DOM страницы.
+         */
+        DOM,
+        /**
+         * Потоковое чтение встроенного JSON состояния страницы.
+         */
+        JSON
+    }
+
+    public final Mode mode;
+    public final long bytesRead;
+    public final long parseNanos;
+    public final int cards;
+    // true, если чтение ответа было прекращено до конца страницы
+    public final boolean stoppedEarly;
+
+    SearchParseStats(@NonNull Mode mode, long bytesRead, long parseNanos, int cards, boolean stoppedEarly) {
+        this.mode = mode;
+        this.bytesRead = bytesRead;
+        this.parseNanos = parseNanos;
+        this.cards = cards;
+        this.stoppedEarly = stoppedEarly;
+    }
+
+    /**
+     * @return Время разбора в миллисекундах.
+     */
+    public double parseMillis() {
+        return parseNanos / 1_000_000.0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s: карточек=%d, байт=%d, разбор=%.1f мс%s",
+                mode, cards, bytesRead, parseMillis(), stoppedEarly ? ", остановлен досрочно" : "");
+    }
+}
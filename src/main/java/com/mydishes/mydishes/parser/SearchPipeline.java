@@ -0,0 +1,321 @@
+package com.mydishes.mydishes.parser;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.models.Product;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер поисковых запросов с семантикой "актуален только последний запрос".
+ * <p>
+ * Каждое изменение текста проходит этапы:
+ * <ol>
+ *     <li>отбрасывание слишком коротких запросов;</li>
+ *     <li>отбрасывание повторов: запрос, совпадающий с последним отправленным после нормализации
+ *         ({@link QueryNormalizer}), не отправляется повторно;</li>
+ *     <li>debounce: запрос отправляется, только если текст не менялся в течение заданной задержки;</li>
+ *     <li>отправка: предыдущий незавершённый запрос отменяется через {@link ParseTask#cancel()}, поэтому
+ *         устаревший результат никогда не перезапишет результаты для актуального текста.</li>
+ * </ol>
+ * Для каждого доставленного результата измеряется длительность этапов ({@link StageTimings}).
+ * Все методы должны вызываться в основном потоке.
+ * </p>
+ */
+public class SearchPipeline {
+
+    private static final String TAG = "SearchPipeline";
+
+    private final Parser parser;
+    private final Listener listener;
+    private final long debounceMillis;
+    private final int minQueryLength;
+    private final Scheduler scheduler;
+
+    // Запланированная (ещё не отправленная) задача debounce
+    private Runnable pendingDispatch;
+    // Последний отправленный запрос и выполняющаяся для него задача
+    private String lastDispatchedQuery;
+    private ParseTask inFlightTask;
+    // Результаты последнего отправленного запроса, если он уже завершился успешно
+    private List<Product> lastResults;
+    // Номер поколения запроса: результаты с устаревшим номером игнорируются
+    private int generation;
+
+    /**
+     * @param parser         Парсер, выполняющий поиск.
+     * @param debounceMillis Задержка после последнего изменения текста перед отправкой запроса, в миллисекундах.
+     * @param minQueryLength Минимальная длина запроса; более короткие запросы не отправляются.
+     * @param listener       Получатель событий конвейера.
+     */
+    public SearchPipeline(@NonNull Parser parser, long debounceMillis, int minQueryLength, @NonNull Listener listener) {
+        this(parser, debounceMillis, minQueryLength, listener, new HandlerScheduler());
+    }
+
+    SearchPipeline(@NonNull Parser parser, long debounceMillis, int minQueryLength, @NonNull Listener listener,
+                   @NonNull Scheduler scheduler) {
+        this.parser = parser;
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+        this.minQueryLength = minQueryLength;
+        this.listener = listener;
+    }
+
+    /**
+     * Передаёт в конвейер новый текст поискового запроса.
+     *
+     * @param rawQuery Текст из поля ввода.
+     */
+    public void submit(@Nullable String rawQuery) {
+        long submittedAtNanos = System.nanoTime();
+        String query = rawQuery == null ? "" : rawQuery.trim();
+
+        // Новый текст всегда отменяет ожидающий debounce
+        boolean hadPending = cancelPending();
+
+        if (query.length() < minQueryLength) {
+            // Короткий запрос: результаты для прежнего текста больше не нужны
+            boolean hadInFlight = inFlightTask != null;
+            cancelInFlight();
+            lastDispatchedQuery = null;
+            lastResults = null;
+            if (hadPending || hadInFlight) {
+                listener.onSearchCancelled();
+            }
+            return;
+        }
+
+        if (lastDispatchedQuery != null
+                && QueryNormalizer.normalize(query).equals(QueryNormalizer.normalize(lastDispatchedQuery))) {
+            // Текст вернулся к уже отправленному запросу: повторный запрос не нужен
+            if (inFlightTask == null && lastResults != null) {
+                listener.onResults(query, lastResults, StageTimings.REUSED);
+            }
+            return;
+        }
+
+        listener.onSearchScheduled(query);
+        pendingDispatch = () -> {
+            pendingDispatch = null;
+            dispatch(query, System.nanoTime() - submittedAtNanos);
+        };
+        scheduler.postDelayed(pendingDispatch, debounceMillis);
+    }
+
+    /**
+     * Отменяет ожидающий и выполняющийся запросы. Вызывается при уничтожении экрана.
+     */
+    public void cancel() {
+        cancelPending();
+        cancelInFlight();
+        lastDispatchedQuery = null;
+        lastResults = null;
+    }
+
+    private void dispatch(@NonNull String query, long debounceNanos) {
+        // Switch-latest: предыдущий запрос больше не актуален
+        cancelInFlight();
+        lastDispatchedQuery = query;
+        lastResults = null;
+        final int requestGeneration = ++generation;
+        final ParseTask[] taskRef = new ParseTask[1];
+
+        listener.onSearchStarted(query);
+        taskRef[0] = parser.findProductsAsync(query, new ProductParseCallback<>() {
+            @Override
+            public void onParsingStarted() {
+                // Состояние UI управляется через Listener
+            }
+
+            @Override
+            public void onSuccess(List<Product> products, @NonNull ParseTrace trace) {
+                ParserLog.d(TAG, "\"" + query + "\": " + trace);
+                onSuccess(products);
+            }
+
+            @Override
+            public void onSuccess(List<Product> products) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                StageTimings timings = StageTimings.of(debounceNanos, taskRef[0]);
+                ParserLog.d(TAG, "\"" + query + "\": " + timings);
+                inFlightTask = null;
+                lastResults = products;
+                listener.onResults(query, products, timings);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                inFlightTask = null;
+                // После ошибки тот же запрос можно отправить повторно
+                lastDispatchedQuery = null;
+                listener.onError(query, e);
+            }
+
+            @Override
+            public void onParsingFinished() {
+                // Завершение обрабатывается в onSuccess/onError
+            }
+        });
+        inFlightTask = taskRef[0];
+    }
+
+    private boolean cancelPending() {
+        if (pendingDispatch == null) {
+            return false;
+        }
+        scheduler.removeCallbacks(pendingDispatch);
+        pendingDispatch = null;
+        return true;
+    }
+
+    private void cancelInFlight() {
+        if (inFlightTask != null) {
+            inFlightTask.cancel();
+            inFlightTask = null;
+        }
+        // Результаты уже отправленных, но не доставленных запросов будут проигнорированы
+        generation++;
+    }
+
+    /**
+     * Отложенное выполнение задач в основном потоке (debounce).
+     */
+    interface Scheduler {
+        /**
+         * @param action      Задача.
+         * @param delayMillis Задержка перед выполнением, в миллисекундах.
+         */
+        void postDelayed(@NonNull Runnable action, long delayMillis);
+
+        /**
+         * Отменяет запланированную и ещё не выполненную задачу.
+         *
+         * @param action Задача, переданная в {@link #postDelayed(Runnable, long)}.
+         */
+        void removeCallbacks(@NonNull Runnable action);
+    }
+
+    /**
+     * {@link Scheduler} на {@link Handler} главного потока.
+     */
+    private static final class HandlerScheduler implements Scheduler {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void postDelayed(@NonNull Runnable action, long delayMillis) {
+            handler.postDelayed(action, delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(@NonNull Runnable action) {
+            handler.removeCallbacks(action);
+        }
+    }
+
+    /**
+     * Получатель событий конвейера поиска. Все методы вызываются в основном потоке.
+     */
+    public interface Listener {
+        /**
+         * Запрос принят и ожидает окончания debounce.
+         *
+         * @param query Текст запроса.
+         */
+        void onSearchScheduled(@NonNull String query);
+
+        /**
+         * Запрос отправлен парсеру.
+         *
+         * @param query Текст запроса.
+         */
+        void onSearchStarted(@NonNull String query);
+
+        /**
+         * Ожидающий или выполняющийся запрос отменён, потому что текст стал слишком коротким.
+         */
+        void onSearchCancelled();
+
+        /**
+         * Получены результаты для актуального запроса.
+         *
+         * @param query    Текст запроса.
+         * @param products Найденные продукты.
+         * @param timings  Длительность этапов конвейера.
+         */
+        void onResults(@NonNull String query, @NonNull List<Product> products, @NonNull StageTimings timings);
+
+        /**
+         * Ошибка при выполнении актуального запроса.
+         *
+         * @param query Текст запроса.
+         * @param e     Исключение, описывающее ошибку.
+         */
+        void onError(@NonNull String query, @NonNull Exception e);
+    }
+
+    /**
+     * Длительность этапов обработки одного запроса, в миллисекундах.
+     */
+    public static final class StageTimings {
+        /**
+         * Результат взят из уже выполненного запроса, этапы не выполнялись.
+         */
+        public static final StageTimings REUSED = new StageTimings(0, 0, 0, 0);
+
+        // Ожидание в debounce: от ввода текста до отправки запроса
+        public final long debounceMillis;
+        // Ожидание свободного потока в пуле парсеров
+        public final long queueMillis;
+        // Загрузка и разбор страницы
+        public final long fetchMillis;
+        // Передача результата в основной поток
+        public final long deliveryMillis;
+
+        StageTimings(long debounceMillis, long queueMillis, long fetchMillis, long deliveryMillis) {
+            this.debounceMillis = debounceMillis;
+            this.queueMillis = queueMillis;
+            this.fetchMillis = fetchMillis;
+            this.deliveryMillis = deliveryMillis;
+        }
+
+        @NonNull
+        static StageTimings of(long debounceNanos, @Nullable ParseTask task) {
+            if (task == null) {
+                return new StageTimings(toMillis(debounceNanos), 0, 0, 0);
+            }
+            long completedAt = task.getCompletedAtNanos();
+            long delivery = completedAt == 0 ? 0 : System.nanoTime() - completedAt;
+            return new StageTimings(toMillis(debounceNanos), toMillis(task.getQueueNanos()),
+                    toMillis(task.getRunNanos()), toMillis(delivery));
+        }
+
+        /**
+         * @return Суммарная длительность всех этапов, в миллисекундах.
+         */
+        public long totalMillis() {
+            return debounceMillis + queueMillis + fetchMillis + deliveryMillis;
+        }
+
+        private static long toMillis(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "debounce=%dms queue=%dms fetch=%dms delivery=%dms total=%dms",
+                    debounceMillis, queueMillis, fetchMillis, deliveryMillis, totalMillis());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Извлечение данных из разметки страниц источника по селекторам его описания ({@link SourceConfig}):
+ * карточек продуктов из результатов поиска и КБЖУ со страницы продукта.
+ * <p>
+ * Не выполняет сетевых запросов и не зависит от Android, поэтому используется как в {@link EdostavkaParser},
+ * так и в JMH-бенчмарках модуля {@code benchmark}, измеряющих процессорную часть парсинга.
+ * </p>
+ */
+final class SelectorExtractor {
+
+    private final SourceConfig config;
+
+    /**
+     * @param config Описание источника со скомпилированными селекторами.
+     */
+    SelectorExtractor(@NonNull SourceConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Выбирает карточки продуктов из построенного DOM страницы поиска.
+     */
+    @NonNull
+    Elements selectCards(@NonNull Document doc) {
+        return doc.select(config.card);
+    }
+
+    /**
+     * Создает продукт по карточке из результатов поиска.
+     *
+     * @param item Карточка продукта.
+     * @return Продукт с названием, URL изображения и URL страницы, а если карточка показывает все КБЖУ -
+     * и с КБЖУ ({@link Product#hasNutrition()}).
+     */
+    @NonNull
+    Product toProduct(@NonNull Element item) {
+        String productUrl = "";
+        Element linkElement = item.selectFirst(config.link);
+        if (linkElement != null) {
+            // Ссылка на странице относительная, URL продукта строится от адреса страницы поиска
+            productUrl = linkElement.absUrl("href");
+        }
+
+        String imageUrl = "";
+        String productName = "";
+
+        Element imageContainer = item.selectFirst(config.image);
+        if (imageContainer != null) {
+            imageUrl = imageContainer.attr("src");
+            productName = cleanName(imageContainer.attr("alt"));
+        }
+
+        Product product = new Product();
+        product.setProductURL(productUrl);
+        product.setImageURL(imageUrl);
+        product.setName(productName);
+        product.setNutrition(readCardNutrition(item));
+        return product;
+    }
+
+    /**
+     * Читает КБЖУ из карточки результатов поиска, если карточка показывает те же строки КБЖУ, что и страница
+     * продукта. Неполные КБЖУ (например, только калорийность) не используются: детали такого продукта
+     * загружаются со страницы продукта.
+     *
+     * @param item Карточка продукта.
+     * @return КБЖУ или null, если в карточке есть не все показатели.
+     */
+    @Nullable
+    Nutrition readCardNutrition(@NonNull Element item) {
+        Elements rows = item.select(config.nutritionRow);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Nutrition nutrition = new Nutrition();
+        return readRows(rows, nutrition).size() == SourceConfig.NutritionField.values().length ? nutrition : null;
+    }
+
+    /**
+     * Получает название продукта из атрибута {@code alt} изображения: атрибут может содержать разметку
+     * и HTML-сущности, поэтому он разбирается как HTML и берётся его текст.
+     */
+    @NonNull
+    static String cleanName(@NonNull String alt) {
+        return Jsoup.parse(alt).text().replace("\u00AD", "").trim();
+    }
+
+    /**
+     * Извлекает КБЖУ со страницы продукта.
+     *
+     * @param doc Страница продукта.
+     * @param url URL страницы (для сообщения об ошибке).
+     * @return КБЖУ продукта; значения, которых нет на странице, равны 0.
+     * @throws Exception Если на странице нет блока КБЖУ.
+     */
+    @NonNull
+    Nutrition parseNutrition(@NonNull Document doc, @NonNull String url) throws Exception {
+        Elements containers = doc.select(config.nutritionRow);
+
+        if (containers.isEmpty())
+            throw new Exception("КБЖУ продукта не найдены на странице: " + url);
+
+        Nutrition nutrition = new Nutrition();
+        readRows(containers, nutrition);
+        return nutrition;
+    }
+
+    /**
+     * Записывает значения строк КБЖУ в {@code nutrition}.
+     *
+     * @return Показатели, найденные в строках.
+     */
+    @NonNull
+    private Set<SourceConfig.NutritionField> readRows(@NonNull Elements rows, @NonNull Nutrition nutrition) {
+        Set<SourceConfig.NutritionField> found = EnumSet.noneOf(SourceConfig.NutritionField.class);
+        for (Element item : rows) {
+            Element nameBlock = item.selectFirst(config.nutritionLabel);
+            Element valueBlock = item.selectFirst(config.nutritionValue);
+
+            if (nameBlock == null || valueBlock == null) {
+                // Можно добавить более специфичную обработку ошибки или логирование
+                continue; // Пропустить этот элемент, если структура неожиданная
+            }
+
+            SourceConfig.NutritionField field = config.nutritionField(nameBlock.text());
+            if (field != null) {
+                field.apply(nutrition, valueBlock.text());
+                found.add(field);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,151 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import com.mydishes.mydishes.parser.http.RequestPriority;
+
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Объединяет одновременные одинаковые запросы ("single flight").
+ * <p>
+ * Пока запрос с некоторым ключом выполняется, остальные вызовы с тем же ключом не запускают свой запрос,
+ * а ждут и получают результат (или ошибку) первого. После завершения запроса ключ освобождается,
+ * поэтому результаты не кэшируются. Если первый вызов был отменён через {@link ParseTask#cancel()},
+ * ожидающие вызовы не получают его отмену, а повторяют запрос сами.
+ * </p>
+ * <p>
+ * Вызов присоединяется только к запросу с тем же или более высоким приоритетом ({@link ParseTask#getPriority()}):
+ * иначе запрос пользователя ждал бы в очереди ограничителя частоты вместе с предзагрузкой. Такой вызов
+ * выполняет свой запрос, и следующие вызовы с тем же ключом присоединяются уже к нему.
+ * </p>
+ *
+ * @param <K> Тип ключа (URL или нормализованный запрос).
+ * @param <V> Тип результата.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+
+    /**
+     * Выполняет запрос или присоединяется к уже выполняющемуся запросу с тем же ключом.
+     *
+     * @param key    Ключ запроса.
+     * @param loader Запрос.
+     * @return Результат запроса (общий для всех объединённых вызовов).
+     * @throws Exception Ошибка запроса; {@link InterruptedIOException}, если ожидание было прервано.
+     */
+    public V execute(@NonNull K key, @NonNull Callable<V> loader) throws Exception {
+        ParseTask task = ParseTask.current();
+        RequestPriority priority = task != null ? task.getPriority() : RequestPriority.USER;
+        while (true) {
+            Flight<V> own = new Flight<>(priority);
+            Flight<V> existing = inFlight.putIfAbsent(key, own);
+            if (existing == null) {
+                executed.incrementAndGet();
+                return lead(key, own, loader);
+            }
+            if (existing.priority.compareTo(priority) > 0) {
+                // Запрос с более низким приоритетом не ждём: новые вызовы будут присоединяться к нашему
+                if (!inFlight.replace(key, existing, own)) {
+                    continue;
+                }
+                executed.incrementAndGet();
+                return lead(key, own, loader);
+            }
+            merged.incrementAndGet();
+            try {
+                return existing.result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException("Ожидание запроса прервано: " + key);
+                interrupted.initCause(e);
+                throw interrupted;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof LeaderCancelledException) {
+                    // Первый вызов отменён своим владельцем: повторяем запрос
+                    continue;
+                }
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+    }
+
+    private V lead(@NonNull K key, @NonNull Flight<V> own, @NonNull Callable<V> loader) throws Exception {
+        ParseTask task = ParseTask.current();
+        try {
+            V value = loader.call();
+            own.result.complete(value);
+            return value;
+        } catch (Exception e) {
+            own.result.completeExceptionally(task != null && task.isCancelled() ? new LeaderCancelledException() : e);
+            throw e;
+        } catch (Error e) {
+            own.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * @return Счётчики выполненных и объединённых запросов.
+     */
+    @NonNull
+    public Stats stats() {
+        return new Stats(executed.get(), merged.get());
+    }
+
+    /**
+     * Снимок счётчиков {@link SingleFlight}.
+     */
+    public static final class Stats {
+        // Количество запросов, выполненных на самом деле
+        public final long executed;
+        // Количество вызовов, получивших результат уже выполнявшегося запроса
+        public final long merged;
+
+        Stats(long executed, long merged) {
+            this.executed = executed;
+            this.merged = merged;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "executed=%d merged=%d", executed, merged);
+        }
+    }
+
+    /**
+     * Выполняющийся запрос и приоритет вызова, который его выполняет.
+     */
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final RequestPriority priority;
+
+        Flight(@NonNull RequestPriority priority) {
+            this.priority = priority;
+        }
+    }
+
+    private static final class LeaderCancelledException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        LeaderCancelledException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.mydishes.mydishes.parser;
+
+import static com.mydishes.mydishes.utils.NumberUtils.parseFloatSafe;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.mydishes.mydishes.models.Nutrition;
+
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Описание источника (сайта магазина) для парсера: адреса, CSS-селекторы разметки, подписи строк КБЖУ
+ * и поля встроенного состояния страницы.
+ * <p>
+ * Описания хранятся в JSON-файлах {@code parsers/<id>.json} среди ресурсов приложения, поэтому исправление
+ * селекторов или подписей не требует изменения кода. Селекторы компилируются в {@link Evaluator} один раз
+ * при загрузке описания, а загруженные описания кэшируются ({@link #forSource(String)}): при разборе
+ * страниц строки запросов больше не разбираются.
+ * </p>
+ * <p>
+ * Ресурсы (а не assets) выбраны, чтобы описание читалось без {@code Context}: тем же способом
+ * в приложении, в модульных тестах на JVM и в модуле бенчмарков.
+ * </p>
+ */
+public final class SourceConfig {
+
+    /**
+     * Идентификатор описания сайта <a href="https://edostavka.by">https://edostavka.by</a>.
+     */
+    public static final String EDOSTAVKA = "edostavka";
+
+    // Каталог описаний источников среди ресурсов
+    private static final String RESOURCE_DIR = "/parsers/";
+
+    // Загруженные описания по идентификатору источника
+    private static final Map<String, SourceConfig> LOADED = new ConcurrentHashMap<>();
+
+    public final String id;
+    public final String baseUrl;
+    public final String searchPath;
+    // Параметр номера страницы выдачи, дописываемый к адресу поиска (например "&page="), или null,
+    // если источник отдаёт результаты одной страницей. Страницы на сайте нумеруются с 1.
+    @Nullable
+    public final String pageParam;
+
+    // Строка селектора карточки (для сравнения со скомпилированным селектором в бенчмарках)
+    final String cardQuery;
+    final Evaluator card;
+    final Evaluator link;
+    final Evaluator image;
+    final Evaluator nutritionRow;
+    final Evaluator nutritionLabel;
+    final Evaluator nutritionValue;
+    // Подпись строки КБЖУ на странице -> показатель
+    private final Map<String, NutritionField> nutritionLabels;
+    @Nullable
+    final PageState pageState;
+
+    private SourceConfig(@NonNull String id, @NonNull String baseUrl, @NonNull String searchPath,
+                         @Nullable String pageParam, @NonNull String cardQuery, @NonNull Evaluator card, @NonNull Evaluator link,
+                         @NonNull Evaluator image, @NonNull Evaluator nutritionRow,
+                         @NonNull Evaluator nutritionLabel, @NonNull Evaluator nutritionValue,
+                         @NonNull Map<String, NutritionField> nutritionLabels, @Nullable PageState pageState) {
+        this.id = id;
+        this.baseUrl = baseUrl;
+        this.searchPath = searchPath;
+        this.pageParam = pageParam;
+        this.cardQuery = cardQuery;
+        this.card = card;
+        this.link = link;
+        this.image = image;
+        this.nutritionRow = nutritionRow;
+        this.nutritionLabel = nutritionLabel;
+        this.nutritionValue = nutritionValue;
+        this.nutritionLabels = nutritionLabels;
+        this.pageState = pageState;
+    }
+
+    /**
+     * Возвращает описание сайта <a href="https://edostavka.by">https://edostavka.by</a>, входящее в приложение.
+     *
+     * @return Описание источника.
+     * @throws IllegalStateException Если описание отсутствует или некорректно (ошибка сборки приложения).
+     */
+    @NonNull
+    public static SourceConfig edostavka() {
+        try {
+            return forSource(EDOSTAVKA);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось загрузить описание источника " + EDOSTAVKA, e);
+        }
+    }
+
+    /**
+     * Возвращает описание источника из ресурсов приложения ({@code parsers/<id>.json}).
+     * Описание загружается и компилируется при первом обращении, затем берётся из кэша.
+     *
+     * @param id Идентификатор источника.
+     * @return Описание источника.
+     * @throws IOException Если описания нет или оно некорректно.
+     */
+    @NonNull
+    public static SourceConfig forSource(@NonNull String id) throws IOException {
+        SourceConfig config = LOADED.get(id);
+        if (config != null) {
+            return config;
+        }
+        String resource = RESOURCE_DIR + id + ".json";
+        try (InputStream in = SourceConfig.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new FileNotFoundException("Нет описания источника " + resource);
+            }
+            config = parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        SourceConfig previous = LOADED.putIfAbsent(id, config);
+        return previous != null ? previous : config;
+    }
+
+    /**
+     * Разбирает описание источника из JSON и компилирует его селекторы.
+     *
+     * @param json JSON описания.
+     * @return Описание источника.
+     * @throws IOException Если JSON некорректен, нет обязательного поля или селектор не компилируется.
+     */
+    @NonNull
+    public static SourceConfig parse(@NonNull Reader json) throws IOException {
+        try {
+            JsonObject root = JsonParser.parseReader(json).getAsJsonObject();
+            String id = requireString(root, "id");
+            JsonObject selectors = requireObject(root, "selectors");
+            String cardQuery = requireString(selectors, "card");
+
+            Map<String, NutritionField> labels = new HashMap<>();
+            JsonObject labelsJson = requireObject(root, "nutritionLabels");
+            for (NutritionField field : NutritionField.values()) {
+                for (String label : requireStrings(labelsJson, field.key)) {
+                    labels.put(label, field);
+                }
+            }
+
+            JsonObject stateJson = root.has("pageState") ? requireObject(root, "pageState") : null;
+            PageState pageState = stateJson == null ? null : new PageState(
+                    requireString(stateJson, "scriptId"),
+                    requireString(stateJson, "productId"),
+                    requireString(stateJson, "productName"),
+                    requireStrings(stateJson, "imageKeys"),
+                    requireString(stateJson, "productPath"),
+                    requireStrings(stateJson, "labelKeys"),
+                    requireString(stateJson, "valueKey"));
+
+            String pageParam = root.has("pageParam") ? requireString(root, "pageParam") : null;
+
+            return new SourceConfig(id, requireString(root, "baseUrl"), requireString(root, "searchPath"),
+                    pageParam, cardQuery, compile(cardQuery),
+                    compile(requireString(selectors, "link")),
+                    compile(requireString(selectors, "image")),
+                    compile(requireString(selectors, "nutritionRow")),
+                    compile(requireString(selectors, "nutritionLabel")),
+                    compile(requireString(selectors, "nutritionValue")),
+                    Collections.unmodifiableMap(labels), pageState);
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            // Сюда же попадает Selector.SelectorParseException (некомпилируемый селектор)
+            throw new IOException("Некорректное описание источника: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает копию описания с другим адресом сайта (например, адресом локального сервера в тестах).
+     *
+     * @param baseUrl Адрес сайта без завершающего "/".
+     * @return Описание с заменённым адресом; скомпилированные селекторы общие с исходным.
+     */
+    @NonNull
+    public SourceConfig withBaseUrl(@NonNull String baseUrl) {
+        return new SourceConfig(id, baseUrl, searchPath, pageParam, cardQuery, card, link, image,
+                nutritionRow, nutritionLabel, nutritionValue, nutritionLabels, pageState);
+    }
+
+    /**
+     * Возвращает адрес страницы выдачи поиска.
+     *
+     * @param query Поисковый запрос.
+     * @param page  Номер страницы, начиная с 0.
+     * @return Адрес страницы или null, если источник не делит выдачу на страницы, а {@code page > 0}.
+     * @throws UnsupportedEncodingException Не возникает: UTF-8 поддерживается всегда.
+     */
+    @Nullable
+    String searchUrl(@NonNull String query, int page) throws UnsupportedEncodingException {
+        String url = baseUrl + searchPath + URLEncoder.encode(query, "UTF-8");
+        if (page == 0) {
+            return url;
+        }
+        return pageParam != null ? url + pageParam + (page + 1) : null;
+    }
+
+    /**
+     * @param label Подпись строки КБЖУ на странице.
+     * @return Показатель КБЖУ или null, если подпись не относится к КБЖУ.
+     */
+    @Nullable
+    NutritionField nutritionField(@NonNull String label) {
+        return nutritionLabels.get(label.trim());
+    }
+
+    @NonNull
+    private static Evaluator compile(@NonNull String query) {
+        return QueryParser.parse(query);
+    }
+
+    @NonNull
+    private static JsonObject requireObject(@NonNull JsonObject parent, @NonNull String name) {
+        JsonElement element = parent.get(name);
+        if (element == null || !element.isJsonObject()) {
+            throw new IllegalStateException("нет объекта \"" + name + "\"");
+        }
+        return element.getAsJsonObject();
+    }
+
+    @NonNull
+    private static String requireString(@NonNull JsonObject parent, @NonNull String name) {
+        JsonElement element = parent.get(name);
+        if (element == null || !element.isJsonPrimitive() || element.getAsString().isEmpty()) {
+            throw new IllegalStateException("нет строки \"" + name + "\"");
+        }
+        return element.getAsString();
+    }
+
+    @NonNull
+    private static List<String> requireStrings(@NonNull JsonObject parent, @NonNull String name) {
+        JsonElement element = parent.get(name);
+        if (element == null || !element.isJsonArray() || element.getAsJsonArray().isEmpty()) {
+            throw new IllegalStateException("нет массива строк \"" + name + "\"");
+        }
+        JsonArray array = element.getAsJsonArray();
+        List<String> values = new ArrayList<>(array.size());
+        for (JsonElement item : array) {
+            values.add(item.getAsString());
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Показатель КБЖУ и способ чтения его значения со страницы.
+     */
+    enum NutritionField {
+        // Энергетическая ценность может быть указана в двух единицах ("58 ккал / 243 кДж"): берётся первое число
+        CALORIES("calories", true),
+        PROTEIN("protein", false),
+        FAT("fat", false),
+        CARB("carb", false);
+
+        // Ключ в описании источника
+        final String key;
+        private final boolean firstTokenOnly;
+
+        NutritionField(@NonNull String key, boolean firstTokenOnly) {
+            this.key = key;
+            this.firstTokenOnly = firstTokenOnly;
+        }
+
+        /**
+         * Записывает значение показателя, прочитанное со страницы, в КБЖУ.
+         */
+        void apply(@NonNull Nutrition nutrition, @NonNull String text) {
+            float value = parseFloatSafe(firstTokenOnly ? text.trim().split(" ")[0] : text);
+            switch (this) {
+                case CALORIES:
+                    nutrition.setCalories(value);
+                    break;
+                case PROTEIN:
+                    nutrition.setProtein(value);
+                    break;
+                case FAT:
+                    nutrition.setFat(value);
+                    break;
+                case CARB:
+                    nutrition.setCarb(value);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Поля встроенного JSON состояния страницы ({@code <script id="..." type="application/json">}).
+     */
+    static final class PageState {
+        // id скрипта с состоянием
+        final String scriptId;
+        // Поля карточки продукта
+        final String productId;
+        final String productName;
+        // Поля изображения: массив URL (берётся первый) или один URL
+        final List<String> imageKeys;
+        // Путь страницы продукта, к которому добавляется идентификатор
+        final String productPath;
+        // Поля строки КБЖУ: подпись (как на странице) и значение
+        final List<String> labelKeys;
+        final String valueKey;
+
+        PageState(@NonNull String scriptId, @NonNull String productId, @NonNull String productName,
+                  @NonNull List<String> imageKeys, @NonNull String productPath,
+                  @NonNull List<String> labelKeys, @NonNull String valueKey) {
+            this.scriptId = scriptId;
+            this.productId = productId;
+            this.productName = productName;
+            this.imageKeys = imageKeys;
+            this.productPath = productPath;
+            this.labelKeys = labelKeys;
+            this.valueKey = valueKey;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.mydishes.mydishes.parser;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Состояние источника в {@link FederatedParser}: подряд идущие ошибки и таймауты.
+ * <p>
+ * После {@code failureThreshold} неудач подряд источник пропускается в течение {@code cooldownMillis}.
+ * По истечении паузы источник снова получает один пробный запрос ({@link #tryAcquire()}), остальные поиски
+ * пропускают его, пока проба не завершится: при успехе счётчик неудач сбрасывается, при неудаче источник сразу
+ * снова пропускается на ту же паузу.
+ * </p>
+ */
+final class SourceHealth {
+
+    private final int failureThreshold;
+    private final long cooldownMillis;
+    private final LongSupplier clock;
+
+    private int consecutiveFailures;
+    // Момент (мс), до которого источник пропускается
+    private long skippedUntilMillis;
+    // Пробный запрос после паузы отправлен и ещё не завершился
+    private boolean probeInFlight;
+
+    /**
+     * @param failureThreshold Количество неудач подряд, после которого источник пропускается.
+     * @param cooldownMillis   Время, в течение которого источник пропускается.
+     * @param clock            Источник текущего времени, мс.
+     */
+    SourceHealth(int failureThreshold, long cooldownMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.cooldownMillis = cooldownMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return true, если источник не пропускается: пауза истекла и пробный запрос не выполняется.
+     */
+    synchronized boolean isAvailable() {
+        return clock.getAsLong() >= skippedUntilMillis && !probeInFlight;
+    }
+
+    /**
+     * Проверяет, можно ли отправить источнику запрос. Если разрешён пробный запрос после паузы, о его
+     * результате нужно сообщить через {@link #onSuccess()}, {@link #onFailure()} или {@link #onIgnored()}.
+     *
+     * @return true, если источнику можно отправить запрос.
+     */
+    synchronized boolean tryAcquire() {
+        if (skippedUntilMillis == 0) {
+            return true;
+        }
+        if (clock.getAsLong() < skippedUntilMillis || probeInFlight) {
+            return false;
+        }
+        probeInFlight = true;
+        return true;
+    }
+
+    /**
+     * Отмечает успешный ответ источника в пределах срока.
+     */
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        skippedUntilMillis = 0;
+        probeInFlight = false;
+    }
+
+    /**
+     * Отмечает ошибку источника или ответ, не уложившийся в срок.
+     */
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            skippedUntilMillis = clock.getAsLong() + cooldownMillis;
+        }
+        probeInFlight = false;
+    }
+
+    /**
+     * Отмечает запрос, завершившийся без результата (отменённый или не отправленный): пробный запрос
+     * освобождается, счётчик неудач не меняется.
+     */
+    synchronized void onIgnored() {
+        probeInFlight = false;
+    }
+
+    /**
+     * @return Количество неудач подряд.
+     */
+    synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
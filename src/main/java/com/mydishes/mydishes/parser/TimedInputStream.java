@@ -0,0 +1,57 @@
+package com.mydishes.mydishes.parser;
+
+import androidx.annotation.NonNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Поток-обёртка, измеряющий суммарное время ожидания в чтениях из исходного потока (для тела HTTP-ответа -
+ * время загрузки данных из сети).
+ */
+final class TimedInputStream extends FilterInputStream {
+
+    private long readNanos;
+
+    TimedInputStream(@NonNull InputStream in) {
+        super(in);
+    }
+
+    /**
+     * @return Суммарное время чтений, в наносекундах.
+     */
+    long getReadNanos() {
+        return readNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.read();
+        } finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.read(buffer, offset, length);
+        } finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.skip(n);
+        } finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Длительность сетевых этапов одного HTTP-вызова, в наносекундах. Этап, который не выполнялся
+ * (например, DNS и соединение при повторном использовании соединения из пула), равен {@link #SKIPPED}.
+ */
+public final class CallTimings {
+
+    /**
+     * Значение этапа, который не выполнялся.
+     */
+    public static final long SKIPPED = -1;
+
+    /**
+     * Длительности неизвестны (транспорт их не измеряет).
+     */
+    public static final CallTimings NONE = new CallTimings(SKIPPED, SKIPPED, SKIPPED, SKIPPED);
+
+    // Разрешение имени хоста
+    public final long dnsNanos;
+    // Установка TCP-соединения (без TLS)
+    public final long connectNanos;
+    // TLS-рукопожатие
+    public final long tlsNanos;
+    // От начала отправки запроса до получения заголовков ответа (время сервера и сети)
+    public final long firstByteNanos;
+
+    public CallTimings(long dnsNanos, long connectNanos, long tlsNanos, long firstByteNanos) {
+        this.dnsNanos = dnsNanos;
+        this.connectNanos = connectNanos;
+        this.tlsNanos = tlsNanos;
+        this.firstByteNanos = firstByteNanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "dns=%s connect=%s tls=%s ttfb=%s",
+                format(dnsNanos), format(connectNanos), format(tlsNanos), format(firstByteNanos));
+    }
+
+    @NonNull
+    private static String format(long nanos) {
+        return nanos == SKIPPED ? "-" : String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,162 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Автоматический выключатель запросов к одному сайту.
+ * <p>
+ * В состоянии {@link State#CLOSED} запросы выполняются как обычно. После {@code failureThreshold} неудач подряд
+ * выключатель переходит в {@link State#OPEN}: в течение {@code openMillis} запросы сразу отклоняются,
+ * не дожидаясь таймаутов сети. Затем выключатель переходит в {@link State#HALF_OPEN} и пропускает один
+ * пробный запрос: при его успехе выключатель замыкается, при неудаче снова размыкается.
+ * </p>
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Состояние выключателя.
+     */
+    public enum State {
+        // Запросы выполняются
+        CLOSED,
+        // Запросы отклоняются
+        OPEN,
+        // Выполняется один пробный запрос, остальные отклоняются
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private boolean trialInFlight;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong halfOpened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param failureThreshold Количество неудач подряд, после которого выключатель размыкается.
+     * @param openMillis       Время, в течение которого запросы отклоняются.
+     * @param clock            Источник текущего времени, мс.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, @NonNull LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Проверяет, можно ли выполнить запрос. Если разрешён пробный запрос, о его результате нужно
+     * сообщить через {@link #onSuccess()} или {@link #onFailure()}.
+     *
+     * @return true, если запрос можно выполнить; false, если его нужно сразу отклонить.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && clock.getAsLong() - openedAtMillis >= openMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            halfOpened.incrementAndGet();
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Отмечает успешный запрос: сбрасывает счётчик неудач и замыкает выключатель.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            trialInFlight = false;
+            closed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Отмечает неудачный запрос (ошибка сети или ответ 5xx).
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAtMillis = clock.getAsLong();
+            trialInFlight = false;
+            opened.incrementAndGet();
+        }
+    }
+
+    /**
+     * Отмечает запрос, завершившийся без результата (например, отменённый): пробный запрос освобождается,
+     * счётчики неудач не меняются.
+     */
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    /**
+     * @return Текущее состояние выключателя (без учёта истечения паузы, которое проверяется при запросе).
+     */
+    @NonNull
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return Счётчики переходов между состояниями и отклонённых запросов.
+     */
+    @NonNull
+    public Stats stats() {
+        return new Stats(opened.get(), halfOpened.get(), closed.get(), rejected.get());
+    }
+
+    /**
+     * Снимок счётчиков {@link CircuitBreaker} (или суммы счётчиков нескольких выключателей).
+     */
+    public static final class Stats {
+        // Количество размыканий
+        public final long opened;
+        // Количество переходов к пробному запросу
+        public final long halfOpened;
+        // Количество замыканий после восстановления
+        public final long closed;
+        // Количество запросов, отклонённых без обращения к сети
+        public final long rejected;
+
+        public Stats(long opened, long halfOpened, long closed, long rejected) {
+            this.opened = opened;
+            this.halfOpened = halfOpened;
+            this.closed = closed;
+            this.rejected = rejected;
+        }
+
+        @NonNull
+        Stats plus(@NonNull Stats other) {
+            return new Stats(opened + other.opened, halfOpened + other.halfOpened,
+                    closed + other.closed, rejected + other.rejected);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "opened=%d halfOpened=%d closed=%d rejected=%d",
+                    opened, halfOpened, closed, rejected);
+        }
+    }
+}
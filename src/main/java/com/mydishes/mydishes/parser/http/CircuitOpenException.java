@@ -0,0 +1,21 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Запрос отклонён без обращения к сети: выключатель сайта разомкнут ({@link CircuitBreaker}),
+ * потому что сайт недавно несколько раз подряд не отвечал.
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param url URL отклонённого запроса.
+     */
+    public CircuitOpenException(@NonNull String url) {
+        super("Сайт временно недоступен, запрос не выполнялся: " + url);
+    }
+}
@@ -0,0 +1,61 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GET-запрос к транспорту: URL, дополнительные заголовки и приоритет.
+ */
+public final class HttpRequest {
+
+    private final String url;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private RequestPriority priority = RequestPriority.USER;
+
+    /**
+     * @param url URL запрашиваемой страницы.
+     */
+    public HttpRequest(@NonNull String url) {
+        this.url = url;
+    }
+
+    /**
+     * Добавляет (или заменяет) заголовок запроса.
+     *
+     * @return Этот же запрос.
+     */
+    @NonNull
+    public HttpRequest header(@NonNull String name, @NonNull String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Устанавливает приоритет запроса (по умолчанию {@link RequestPriority#USER}).
+     *
+     * @return Этот же запрос.
+     */
+    @NonNull
+    public HttpRequest priority(@NonNull RequestPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    @NonNull
+    public String getUrl() {
+        return url;
+    }
+
+    @NonNull
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    @NonNull
+    public RequestPriority getPriority() {
+        return priority;
+    }
+}
@@ -0,0 +1,60 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * Ответ транспорта. Тело читается потоком и не буферизуется целиком; {@link #close()} освобождает
+ * соединение для повторного использования.
+ */
+public interface HttpResponse extends Closeable {
+
+    /**
+     * @return HTTP-код ответа.
+     */
+    int code();
+
+    /**
+     * @return URL ответа (после перенаправлений).
+     */
+    @NonNull
+    String url();
+
+    /**
+     * @param name Имя заголовка (без учёта регистра).
+     * @return Значение заголовка или null.
+     */
+    @Nullable
+    String header(@NonNull String name);
+
+    /**
+     * @return Кодировка из заголовка Content-Type или null, если она не указана.
+     */
+    @Nullable
+    String charset();
+
+    /**
+     * @return Поток тела ответа (уже распакованный из gzip/brotli).
+     */
+    @NonNull
+    InputStream body();
+
+    /**
+     * @return Длительность сетевых этапов вызова до получения заголовков ответа
+     * ({@link CallTimings#NONE}, если транспорт их не измеряет).
+     */
+    @NonNull
+    default CallTimings timings() {
+        return CallTimings.NONE;
+    }
+
+    /**
+     * @return true, если код ответа 2xx.
+     */
+    default boolean isSuccessful() {
+        return code() >= 200 && code() < 300;
+    }
+}
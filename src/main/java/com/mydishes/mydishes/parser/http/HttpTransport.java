@@ -0,0 +1,46 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Транспорт HTTP-запросов парсеров.
+ * <p>
+ * Отделяет загрузку страниц от их разбора: парсер получает от транспорта только тело ответа и передаёт
+ * его Jsoup. Реализация по умолчанию - {@link OkHttpTransport} с общим пулом соединений.
+ * </p>
+ */
+public interface HttpTransport {
+
+    /**
+     * Подготавливает запрос к выполнению.
+     *
+     * @param request Запрос.
+     * @return Вызов, который можно выполнить один раз.
+     */
+    @NonNull
+    Call newCall(@NonNull HttpRequest request);
+
+    /**
+     * Один HTTP-вызов. {@link #close()} отменяет вызов на любом этапе: при установке соединения,
+     * ожидании ответа или чтении тела.
+     */
+    interface Call extends Closeable {
+        /**
+         * Выполняет запрос и возвращает ответ, тело которого ещё не прочитано.
+         *
+         * @return Ответ; должен быть закрыт вызывающим кодом.
+         * @throws IOException Если произошла ошибка сети или вызов был отменён.
+         */
+        @NonNull
+        HttpResponse execute() throws IOException;
+
+        /**
+         * Отменяет вызов. Повторные вызовы ничего не делают.
+         */
+        @Override
+        void close();
+    }
+}
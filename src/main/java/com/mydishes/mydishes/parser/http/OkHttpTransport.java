@@ -0,0 +1,251 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.brotli.BrotliInterceptor;
+
+/**
+ * {@link HttpTransport} на основе OkHttp.
+ * <p>
+ * Все запросы выполняются одним клиентом с общим пулом соединений: повторные запросы к тому же сайту
+ * используют уже установленное соединение (keep-alive) без нового TLS-рукопожатия, а по HTTP/2 несколько
+ * запросов мультиплексируются в одном соединении. Ответы в gzip и brotli распаковываются прозрачно.
+ * </p>
+ * <p>
+ * Клиенты, созданные через {@link #newClientBuilder(long, long)}, измеряют сетевые этапы каждого вызова
+ * (DNS, соединение, TLS, ожидание первого байта) - см. {@link HttpResponse#timings()}.
+ * </p>
+ */
+public class OkHttpTransport implements HttpTransport {
+
+    /**
+     * Таймаут установки соединения по умолчанию, в миллисекундах.
+     */
+    public static final long DEFAULT_CONNECT_TIMEOUT_MS = 10_000;
+    /**
+     * Таймаут чтения ответа по умолчанию, в миллисекундах.
+     */
+    public static final long DEFAULT_READ_TIMEOUT_MS = 20_000;
+
+    // Количество простаивающих соединений в пуле и время их жизни
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static volatile OkHttpTransport shared;
+
+    private final OkHttpClient client;
+
+    /**
+     * @param client Настроенный клиент OkHttp (см. {@link #newClientBuilder(long, long)}).
+     */
+    public OkHttpTransport(@NonNull OkHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Возвращает общий транспорт приложения с таймаутами по умолчанию.
+     *
+     * @return Общий экземпляр транспорта.
+     */
+    @NonNull
+    public static OkHttpTransport shared() {
+        // Двойная проверка для потокобезопасной инициализации
+        if (shared == null) {
+            synchronized (OkHttpTransport.class) {
+                if (shared == null) {
+                    shared = new OkHttpTransport(
+                            newClientBuilder(DEFAULT_CONNECT_TIMEOUT_MS, DEFAULT_READ_TIMEOUT_MS).build());
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Создает построитель клиента с пулом соединений, HTTP/2 и поддержкой gzip/brotli.
+     *
+     * @param connectTimeoutMs Таймаут установки соединения, в миллисекундах.
+     * @param readTimeoutMs    Таймаут чтения ответа, в миллисекундах.
+     * @return Построитель клиента, который можно дополнительно настроить.
+     */
+    @NonNull
+    public static OkHttpClient.Builder newClientBuilder(long connectTimeoutMs, long readTimeoutMs) {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                // Добавляет "Accept-Encoding: br,gzip" и распаковывает ответ
+                .addInterceptor(BrotliInterceptor.INSTANCE)
+                // Измерение этапов вызова: слушатель передаётся с запросом (см. newCall)
+                .eventListenerFactory(call -> {
+                    CallTimer timer = call.request().tag(CallTimer.class);
+                    return timer != null ? timer : EventListener.NONE;
+                });
+    }
+
+    @NonNull
+    @Override
+    public Call newCall(@NonNull HttpRequest request) {
+        CallTimer timer = new CallTimer();
+        Request.Builder builder = new Request.Builder().url(request.getUrl()).tag(CallTimer.class, timer);
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        okhttp3.Call call = client.newCall(builder.build());
+        return new Call() {
+            @NonNull
+            @Override
+            public HttpResponse execute() throws IOException {
+                return new OkHttpResponse(call.execute(), timer.snapshot());
+            }
+
+            @Override
+            public void close() {
+                call.cancel();
+            }
+        };
+    }
+
+    /**
+     * Слушатель событий одного вызова OkHttp, измеряющий его сетевые этапы. При повторных попытках
+     * соединения внутри вызова учитывается последняя.
+     */
+    private static final class CallTimer extends EventListener {
+        private long dnsStartNanos;
+        private long dnsNanos = CallTimings.SKIPPED;
+        private long connectStartNanos;
+        private long secureConnectStartNanos;
+        private long connectNanos = CallTimings.SKIPPED;
+        private long tlsNanos = CallTimings.SKIPPED;
+        private long requestStartNanos;
+        private long firstByteNanos = CallTimings.SKIPPED;
+
+        @Override
+        public synchronized void dnsStart(@NonNull okhttp3.Call call, @NonNull String domainName) {
+            dnsStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public synchronized void dnsEnd(@NonNull okhttp3.Call call, @NonNull String domainName,
+                                        @NonNull List<InetAddress> inetAddressList) {
+            dnsNanos = System.nanoTime() - dnsStartNanos;
+        }
+
+        @Override
+        public synchronized void connectStart(@NonNull okhttp3.Call call, @NonNull InetSocketAddress inetSocketAddress,
+                                              @NonNull Proxy proxy) {
+            connectStartNanos = System.nanoTime();
+            tlsNanos = CallTimings.SKIPPED;
+        }
+
+        @Override
+        public synchronized void secureConnectStart(@NonNull okhttp3.Call call) {
+            secureConnectStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public synchronized void secureConnectEnd(@NonNull okhttp3.Call call, @Nullable Handshake handshake) {
+            tlsNanos = System.nanoTime() - secureConnectStartNanos;
+        }
+
+        @Override
+        public synchronized void connectEnd(@NonNull okhttp3.Call call, @NonNull InetSocketAddress inetSocketAddress,
+                                            @NonNull Proxy proxy, @Nullable Protocol protocol) {
+            long total = System.nanoTime() - connectStartNanos;
+            // Время TLS учитывается отдельно
+            connectNanos = tlsNanos == CallTimings.SKIPPED ? total : total - tlsNanos;
+        }
+
+        @Override
+        public synchronized void requestHeadersStart(@NonNull okhttp3.Call call) {
+            requestStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public synchronized void responseHeadersStart(@NonNull okhttp3.Call call) {
+            firstByteNanos = System.nanoTime() - requestStartNanos;
+        }
+
+        @NonNull
+        synchronized CallTimings snapshot() {
+            return new CallTimings(dnsNanos, connectNanos, tlsNanos, firstByteNanos);
+        }
+    }
+
+    private static final class OkHttpResponse implements HttpResponse {
+        private final Response response;
+        private final ResponseBody body;
+        private final CallTimings timings;
+
+        OkHttpResponse(@NonNull Response response, @NonNull CallTimings timings) {
+            this.response = response;
+            // У ответов OkHttp, полученных через execute(), тело всегда есть
+            this.body = response.body();
+            this.timings = timings;
+        }
+
+        @NonNull
+        @Override
+        public CallTimings timings() {
+            return timings;
+        }
+
+        @Override
+        public int code() {
+            return response.code();
+        }
+
+        @NonNull
+        @Override
+        public String url() {
+            return response.request().url().toString();
+        }
+
+        @Nullable
+        @Override
+        public String header(@NonNull String name) {
+            return response.header(name);
+        }
+
+        @Nullable
+        @Override
+        public String charset() {
+            MediaType contentType = body.contentType();
+            Charset charset = contentType != null ? contentType.charset() : null;
+            return charset != null ? charset.name() : null;
+        }
+
+        @NonNull
+        @Override
+        public InputStream body() {
+            return body.byteStream();
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link HttpTransport}, ограничивающий частоту запросов к каждому сайту.
+ * <p>
+ * Для каждого хоста ведётся "ведро токенов": токены пополняются со скоростью {@code permitsPerSecond}
+ * и накапливаются не больше чем до {@code burst}, каждый запрос забирает один токен. Если токенов нет,
+ * запрос ждёт в очереди хоста. Очередь упорядочена по {@link RequestPriority} (внутри приоритета - по времени
+ * постановки), поэтому поиск пользователя не ждёт, пока выполнится предзагрузка или фоновое обновление кэша.
+ * Небольшая задержка на клиенте обходится дешевле, чем ограничение или блокировка со стороны сайта.
+ * </p>
+ * <p>
+ * Время ожидания в очереди учитывается отдельно для каждого приоритета ({@link #stats(RequestPriority)}).
+ * {@link Call#close()} снимает ожидающий запрос с очереди.
+ * </p>
+ */
+public class RateLimitedTransport implements HttpTransport {
+
+    /**
+     * Количество запросов в секунду к одному сайту по умолчанию.
+     */
+    public static final double DEFAULT_PERMITS_PER_SECOND = 4;
+    /**
+     * Количество запросов к одному сайту, которые можно выполнить подряд без ожидания, по умолчанию.
+     */
+    public static final int DEFAULT_BURST = 6;
+
+    private static volatile RateLimitedTransport shared;
+
+    private final HttpTransport delegate;
+    private final double permitsPerSecond;
+    private final int burst;
+    // Ограничители по хосту сайта
+    private final ConcurrentHashMap<String, HostLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<RequestPriority, WaitCounter> waits = new EnumMap<>(RequestPriority.class);
+
+    /**
+     * @param delegate Транспорт, выполняющий запросы.
+     */
+    public RateLimitedTransport(@NonNull HttpTransport delegate) {
+        this(delegate, DEFAULT_PERMITS_PER_SECOND, DEFAULT_BURST);
+    }
+
+    /**
+     * @param delegate         Транспорт, выполняющий запросы.
+     * @param permitsPerSecond Количество запросов в секунду к одному сайту.
+     * @param burst            Количество запросов, которые можно выполнить подряд без ожидания.
+     */
+    public RateLimitedTransport(@NonNull HttpTransport delegate, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Некорректные параметры ограничителя: "
+                    + permitsPerSecond + "/с, " + burst);
+        }
+        this.delegate = delegate;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        for (RequestPriority priority : RequestPriority.values()) {
+            waits.put(priority, new WaitCounter());
+        }
+    }
+
+    /**
+     * Возвращает общий транспорт приложения: {@link OkHttpTransport#shared()} с ограничением частоты
+     * по умолчанию.
+     *
+     * @return Общий экземпляр транспорта.
+     */
+    @NonNull
+    public static RateLimitedTransport shared() {
+        // Двойная проверка для потокобезопасной инициализации
+        if (shared == null) {
+            synchronized (RateLimitedTransport.class) {
+                if (shared == null) {
+                    shared = new RateLimitedTransport(OkHttpTransport.shared());
+                }
+            }
+        }
+        return shared;
+    }
+
+    @NonNull
+    @Override
+    public Call newCall(@NonNull HttpRequest request) {
+        HostLimiter limiter = limiters.computeIfAbsent(hostOf(request.getUrl()), key -> new HostLimiter());
+        return new LimitedCall(request, limiter);
+    }
+
+    /**
+     * @param priority Приоритет запросов.
+     * @return Время ожидания в очереди запросов этого приоритета.
+     */
+    @NonNull
+    public WaitStats stats(@NonNull RequestPriority priority) {
+        return waits.get(priority).snapshot();
+    }
+
+    /**
+     * @return Количество запросов, ожидающих разрешения для хоста.
+     */
+    int queued(@NonNull String host) {
+        HostLimiter limiter = limiters.get(host);
+        return limiter != null ? limiter.queued() : 0;
+    }
+
+    @NonNull
+    private static String hostOf(@NonNull String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private final class LimitedCall implements Call {
+        private final HttpRequest request;
+        private final HostLimiter limiter;
+        private final Waiter waiter;
+        @Nullable
+        private volatile Call current;
+        private volatile boolean closed;
+
+        LimitedCall(@NonNull HttpRequest request, @NonNull HostLimiter limiter) {
+            this.request = request;
+            this.limiter = limiter;
+            this.waiter = new Waiter(request.getPriority());
+        }
+
+        @NonNull
+        @Override
+        public HttpResponse execute() throws IOException {
+            long start = System.nanoTime();
+            limiter.acquire(waiter, request.getUrl());
+            waits.get(waiter.priority).record(System.nanoTime() - start);
+
+            Call call = delegate.newCall(request);
+            current = call;
+            if (closed) {
+                call.close();
+            }
+            return call.execute();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            limiter.cancel(waiter);
+            Call call = current;
+            if (call != null) {
+                call.close();
+            }
+        }
+    }
+
+    /**
+     * Запрос, ожидающий разрешения.
+     */
+    private static final class Waiter {
+        final RequestPriority priority;
+        long sequence;
+        boolean cancelled;
+
+        Waiter(@NonNull RequestPriority priority) {
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Ведро токенов и очередь ожидающих запросов одного хоста.
+     */
+    private final class HostLimiter {
+        private final PriorityQueue<Waiter> queue = new PriorityQueue<>((a, b) -> {
+            int byPriority = a.priority.compareTo(b.priority);
+            return byPriority != 0 ? byPriority : Long.compare(a.sequence, b.sequence);
+        });
+        private long nextSequence;
+        private double tokens = burst;
+        private long refilledAtNanos = System.nanoTime();
+
+        /**
+         * Ждёт, пока запрос окажется первым в очереди и для него появится токен.
+         */
+        synchronized void acquire(@NonNull Waiter waiter, @NonNull String url) throws InterruptedIOException {
+            if (waiter.cancelled) {
+                throw new InterruptedIOException("Запрос отменён: " + url);
+            }
+            waiter.sequence = nextSequence++;
+            queue.add(waiter);
+            try {
+                while (true) {
+                    if (waiter.cancelled) {
+                        throw new InterruptedIOException("Запрос отменён: " + url);
+                    }
+                    refill();
+                    if (queue.peek() == waiter) {
+                        if (tokens >= 1) {
+                            tokens -= 1;
+                            queue.poll();
+                            // Следующий в очереди может получить оставшиеся токены
+                            notifyAll();
+                            return;
+                        }
+                        long nanos = (long) Math.ceil((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+                        TimeUnit.NANOSECONDS.timedWait(this, Math.max(nanos, 1));
+                    } else {
+                        // Ждём, пока очередь продвинется (или придёт запрос с более высоким приоритетом)
+                        wait();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException("Запрос отменён: " + url);
+                interrupted.initCause(e);
+                throw interrupted;
+            } finally {
+                if (queue.remove(waiter)) {
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void cancel(@NonNull Waiter waiter) {
+            waiter.cancelled = true;
+            notifyAll();
+        }
+
+        synchronized int queued() {
+            return queue.size();
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAtNanos) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            refilledAtNanos = now;
+        }
+    }
+
+    private static final class WaitCounter {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            requests.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        @NonNull
+        WaitStats snapshot() {
+            return new WaitStats(requests.get(), totalNanos.get(), maxNanos.get());
+        }
+    }
+
+    /**
+     * Снимок времени ожидания в очереди ограничителя для одного приоритета.
+     */
+    public static final class WaitStats {
+        // Количество запросов, получивших разрешение
+        public final long requests;
+        // Суммарное и максимальное время ожидания, нс
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+
+        WaitStats(long requests, long totalWaitNanos, long maxWaitNanos) {
+            this.requests = requests;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        /**
+         * @return Среднее время ожидания, мс (0, если запросов не было).
+         */
+        public double averageWaitMillis() {
+            return requests == 0 ? 0 : totalWaitNanos / 1e6 / requests;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "requests=%d avgWait=%.1f мс maxWait=%.1f мс",
+                    requests, averageWaitMillis(), maxWaitNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.mydishes.mydishes.parser.http;
+
+/**
+ * Приоритет запроса при ожидании разрешения ограничителя частоты ({@link RateLimitedTransport}).
+ * Порядок констант - порядок обслуживания: запросы пользователя выполняются раньше предзагрузки,
+ * а предзагрузка - раньше фонового обновления.
+ */
+public enum RequestPriority {
+    // Пользователь ждёт результата (поиск, открытие продукта)
+    USER,
+    // Предзагрузка данных, которые скорее всего понадобятся
+    PREFETCH,
+    // Фоновое обновление кэша
+    BACKGROUND
+}
@@ -0,0 +1,276 @@
+package com.mydishes.mydishes.parser.http;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link HttpTransport}, повторяющий неудачные запросы и отклоняющий запросы к недоступному сайту.
+ * <p>
+ * Все запросы транспорта - идемпотентные GET, поэтому ошибка сети или ответ 408/429/5xx повторяется
+ * до {@code maxAttempts} раз с экспоненциальной паузой со случайным разбросом ("full jitter"): пауза перед
+ * повтором {@code n} выбирается случайно от 0 до {@code min(maxDelayMs, baseDelayMs * 2^(n-1))}, чтобы клиенты
+ * не повторяли запросы одновременно.
+ * </p>
+ * <p>
+ * Для каждого сайта (хоста) ведётся {@link CircuitBreaker}: после нескольких неудач подряд запросы к сайту
+ * сразу завершаются {@link CircuitOpenException}, а не ждут таймаута сети, пока выключатель не пропустит
+ * пробный запрос. Отменённые вызовы ({@link Call#close()}) не повторяются и не считаются неудачами.
+ * </p>
+ */
+public class ResilientTransport implements HttpTransport {
+
+    /**
+     * Максимальное количество попыток одного запроса по умолчанию (включая первую).
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /**
+     * Базовая пауза перед повтором по умолчанию, в миллисекундах.
+     */
+    public static final long DEFAULT_BASE_DELAY_MS = 250;
+    /**
+     * Максимальная пауза перед повтором по умолчанию, в миллисекундах.
+     */
+    public static final long DEFAULT_MAX_DELAY_MS = 2_000;
+    /**
+     * Количество неудачных попыток подряд, после которого запросы к сайту отклоняются, по умолчанию.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /**
+     * Время, в течение которого запросы к недоступному сайту отклоняются, по умолчанию, в миллисекундах.
+     */
+    public static final long DEFAULT_OPEN_MS = 30_000;
+
+    private static volatile ResilientTransport shared;
+
+    private final HttpTransport delegate;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+    private final Random random;
+    // Выключатели по хосту сайта
+    private final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * Создает транспорт с параметрами повторов и выключателя по умолчанию.
+     *
+     * @param delegate Транспорт, выполняющий запросы.
+     */
+    public ResilientTransport(@NonNull HttpTransport delegate) {
+        this(delegate, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS,
+                DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MS, System::currentTimeMillis, new Random());
+    }
+
+    ResilientTransport(@NonNull HttpTransport delegate, int maxAttempts, long baseDelayMs, long maxDelayMs,
+                       int failureThreshold, long openMillis, @NonNull LongSupplier clock, @NonNull Random random) {
+        this.delegate = delegate;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * Возвращает общий транспорт приложения: {@link OkHttpTransport#shared()} с ограничением частоты
+     * ({@link RateLimitedTransport#shared()}), повторами и выключателями. Каждая попытка ждёт разрешения
+     * ограничителя, а разомкнутый выключатель отклоняет запрос, не занимая место в очереди.
+     *
+     * @return Общий экземпляр транспорта.
+     */
+    @NonNull
+    public static ResilientTransport shared() {
+        // Двойная проверка для потокобезопасной инициализации
+        if (shared == null) {
+            synchronized (ResilientTransport.class) {
+                if (shared == null) {
+                    shared = new ResilientTransport(RateLimitedTransport.shared());
+                }
+            }
+        }
+        return shared;
+    }
+
+    @NonNull
+    @Override
+    public Call newCall(@NonNull HttpRequest request) {
+        return new ResilientCall(request, breakerFor(request.getUrl()));
+    }
+
+    /**
+     * @param host Хост сайта.
+     * @return Состояние выключателя сайта или null, если к сайту ещё не было запросов.
+     */
+    @Nullable
+    public CircuitBreaker.State getBreakerState(@NonNull String host) {
+        CircuitBreaker breaker = breakers.get(host);
+        return breaker != null ? breaker.getState() : null;
+    }
+
+    /**
+     * @return Количество повторов и сумма счётчиков выключателей всех сайтов.
+     */
+    @NonNull
+    public Stats stats() {
+        CircuitBreaker.Stats total = new CircuitBreaker.Stats(0, 0, 0, 0);
+        for (CircuitBreaker breaker : breakers.values()) {
+            total = total.plus(breaker.stats());
+        }
+        return new Stats(retries.get(), total);
+    }
+
+    @NonNull
+    private CircuitBreaker breakerFor(@NonNull String url) {
+        String host;
+        try {
+            host = URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            host = null;
+        }
+        return breakers.computeIfAbsent(host != null ? host : "",
+                key -> new CircuitBreaker(failureThreshold, openMillis, clock));
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == 408 || code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * Вызов с повторами. {@link #close()} отменяет текущую попытку и паузу перед следующей.
+     */
+    private final class ResilientCall implements Call {
+        private final HttpRequest request;
+        private final CircuitBreaker breaker;
+        private final CountDownLatch closed = new CountDownLatch(1);
+        @Nullable
+        private volatile Call current;
+
+        ResilientCall(@NonNull HttpRequest request, @NonNull CircuitBreaker breaker) {
+            this.request = request;
+            this.breaker = breaker;
+        }
+
+        @NonNull
+        @Override
+        public HttpResponse execute() throws IOException {
+            String url = request.getUrl();
+            for (int attempt = 1; ; attempt++) {
+                if (isClosed()) {
+                    throw new InterruptedIOException("Запрос отменён: " + url);
+                }
+                if (!breaker.tryAcquire()) {
+                    throw new CircuitOpenException(url);
+                }
+                Call call = delegate.newCall(request);
+                current = call;
+                if (isClosed()) {
+                    // close() мог быть вызван до того, как попытка стала текущей
+                    call.close();
+                }
+
+                HttpResponse response;
+                try {
+                    response = call.execute();
+                } catch (IOException e) {
+                    if (isCancellation(e)) {
+                        breaker.onIgnored();
+                        throw e;
+                    }
+                    breaker.onFailure();
+                    if (attempt >= maxAttempts) {
+                        throw e;
+                    }
+                    pause(attempt, url);
+                    continue;
+                }
+
+                if (response.code() >= 500) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+                if (attempt < maxAttempts && isRetryable(response.code())) {
+                    response.close();
+                    pause(attempt, url);
+                    continue;
+                }
+                return response;
+            }
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+            Call call = current;
+            if (call != null) {
+                call.close();
+            }
+        }
+
+        private boolean isClosed() {
+            return closed.getCount() == 0;
+        }
+
+        /**
+         * Ошибка вызвана отменой (закрытием вызова или прерыванием потока), а не сайтом. Таймаут
+         * сокета тоже является {@link InterruptedIOException}, но это неудача сайта.
+         */
+        private boolean isCancellation(@NonNull IOException e) {
+            return isClosed() || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException));
+        }
+
+        private void pause(int attempt, @NonNull String url) throws InterruptedIOException {
+            retries.incrementAndGet();
+            long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 30));
+            long delay = (long) (random.nextDouble() * cap);
+            try {
+                if (closed.await(delay, TimeUnit.MILLISECONDS)) {
+                    throw new InterruptedIOException("Запрос отменён: " + url);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException("Запрос отменён: " + url);
+                interrupted.initCause(e);
+                throw interrupted;
+            }
+        }
+    }
+
+    /**
+     * Снимок счётчиков {@link ResilientTransport}.
+     */
+    public static final class Stats {
+        // Количество повторных попыток
+        public final long retries;
+        // Переходы выключателей между состояниями и отклонённые запросы
+        public final CircuitBreaker.Stats breakers;
+
+        Stats(long retries, @NonNull CircuitBreaker.Stats breakers) {
+            this.retries = retries;
+            this.breakers = breakers;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "retries=%d %s", retries, breakers);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.mydishes.mydishes.models.Product;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Нижний лист (BottomSheet) для отображения и редактирования деталей блюда.
@@ -40,11 +41,13 @@ public class DishDetailsBottomSheet extends BottomSheetDialogFragment {
     private BottomSheetDishDetailsBinding binding; // ViewBinding для макета
     private IngredientsAdapter adapter; // Адаптер для списка ингредиентов
     private DataRepository dataRepository; // Репозиторий для взаимодействия с базой данных
+    private CompletableFuture<Dish> ingredientsLoad; // Загрузка продуктов блюда, если они еще не загружены
 
     /**
      * Конструктор для создания экземпляра DishDetailsBottomSheet.
      *
-     * @param dish Блюдо, детали которого будут отображаться.
+     * @param dish Блюдо, детали которого будут отображаться. Если список продуктов равен null
+     *             (блюдо из страницы {@link DataRepository#getDishSummariesBefore}), продукты загружаются при открытии.
      */
     public DishDetailsBottomSheet(Dish dish) {
         this.dish = dish;
@@ -100,20 +103,12 @@ public class DishDetailsBottomSheet extends BottomSheetDialogFragment {
                 .into(binding.bottomSheetDishImage);
 
         // Отображение списка ингредиентов
-        List<Product> ingredients = dish.getProducts();
-        if (ingredients != null && !ingredients.isEmpty()) {
-            // Показ заголовка и RecyclerView для ингредиентов
-            binding.bottomSheetDishDetailsIngredientsTitle.setVisibility(View.VISIBLE);
-            binding.bottomSheetDishDetailsIngredientsRecycler.setVisibility(View.VISIBLE);
-            // Настройка RecyclerView
-            binding.bottomSheetDishDetailsIngredientsRecycler.setLayoutManager(new LinearLayoutManager(requireContext()));
-            adapter = new IngredientsAdapter(getParentFragmentManager());
-            binding.bottomSheetDishDetailsIngredientsRecycler.setAdapter(adapter);
-            adapter.submitList(new ArrayList<>(ingredients)); // Передача копии списка в адаптер
+        if (dish.getProducts() != null) {
+            showIngredients(dish.getProducts());
         } else {
-            // Скрытие заголовка и RecyclerView, если ингредиентов нет
-            binding.bottomSheetDishDetailsIngredientsTitle.setVisibility(View.GONE);
-            binding.bottomSheetDishDetailsIngredientsRecycler.setVisibility(View.GONE);
+            // Список блюд содержит только краткие данные: продукты загружаются по требованию
+            showIngredients(null);
+            loadIngredients();
         }
 
         // Установка слушателя для редактирования имени блюда
@@ -122,7 +117,7 @@ public class DishDetailsBottomSheet extends BottomSheetDialogFragment {
             dish.setName(newName);
 
             // Обновление блюда в базе данных
-            dataRepository.updateDish(requireActivity(), dish, new DataRepository.QueryCallBack<>() {
+            dataRepository.updateDish(dish, new DataRepository.QueryCallBack<>() {
                 @Override
                 public void onSuccess(Void result) {
                     // Обновление отображаемого имени
@@ -162,7 +157,7 @@ public class DishDetailsBottomSheet extends BottomSheetDialogFragment {
                     dish.setNutrition(newOverallNutrition);
 
                     // Обновление блюда в базе данных
-                    dataRepository.updateDish(requireActivity(), dish, new DataRepository.QueryCallBack<>() {
+                    dataRepository.updateDish(dish, new DataRepository.QueryCallBack<>() {
                         @Override
                         public void onSuccess(Void result) {
                             // Обновление списка в адаптере
@@ -197,6 +192,70 @@ public class DishDetailsBottomSheet extends BottomSheetDialogFragment {
         return binding.getRoot();
     }
 
+    /**
+     * Вызывается при уничтожении представления фрагмента. Отменяет загрузку продуктов, если она еще не завершена,
+     * и освобождает ViewBinding.
+     */
+    @Override
+    public void onDestroyView() {
+        if (ingredientsLoad != null) {
+            ingredientsLoad.cancel(false);
+            ingredientsLoad = null;
+        }
+        binding = null;
+        super.onDestroyView();
+    }
+
+    /**
+     * Отображает список ингредиентов блюда или скрывает его, если ингредиентов нет.
+     *
+     * @param ingredients Продукты блюда (null - еще не загружены).
+     */
+    private void showIngredients(@Nullable List<Product> ingredients) {
+        if (ingredients != null && !ingredients.isEmpty()) {
+            // Показ заголовка и RecyclerView для ингредиентов
+            binding.bottomSheetDishDetailsIngredientsTitle.setVisibility(View.VISIBLE);
+            binding.bottomSheetDishDetailsIngredientsRecycler.setVisibility(View.VISIBLE);
+            // Настройка RecyclerView
+            binding.bottomSheetDishDetailsIngredientsRecycler.setLayoutManager(new LinearLayoutManager(requireContext()));
+            adapter = new IngredientsAdapter(getParentFragmentManager());
+            binding.bottomSheetDishDetailsIngredientsRecycler.setAdapter(adapter);
+            adapter.submitList(new ArrayList<>(ingredients)); // Передача копии списка в адаптер
+        } else {
+            // Скрытие заголовка и RecyclerView, если ингредиентов нет
+            binding.bottomSheetDishDetailsIngredientsTitle.setVisibility(View.GONE);
+            binding.bottomSheetDishDetailsIngredientsRecycler.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * Загружает продукты блюда из базы данных и отображает их.
+     */
+    private void loadIngredients() {
+        ingredientsLoad = dataRepository.getDishById(dish.getId(), new DataRepository.QueryCallBack<>() {
+            @Override
+            public void onSuccess(Dish loadedDish) {
+                // Представление уже уничтожено: результат не нужен
+                if (!isAdded() || binding == null) {
+                    return;
+                }
+                // Блюдо без продуктов (или удаленное) получает пустой список: продукты загружены
+                List<Product> products = loadedDish != null && loadedDish.getProducts() != null
+                        ? loadedDish.getProducts() : new ArrayList<>();
+                dish.setProducts(products);
+                showIngredients(products);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!isAdded() || binding == null) {
+                    return;
+                }
+                Snackbar.make(binding.getRoot(), getString(R.string.error_loading_ingredients) + " " + e.getMessage(), BaseTransientBottomBar.LENGTH_LONG).show();
+            }
+        });
+    }
+
     /**
      * Создает и настраивает ItemTouchHelper для обработки свайпов влево и вправо по элементам RecyclerView.
      * При свайпе отображается диалог подтверждения удаления продукта. Если это последний продукт в блюде, удаление не производится.
@@ -235,7 +294,7 @@ public class DishDetailsBottomSheet extends BottomSheetDialogFragment {
                             if (adapterSize > 1) {
                                 dish.getProducts().remove(position); // Удаление продукта из списка в объекте Dish
                                 // Обновление блюда в базе данных
-                                dataRepository.updateDish(requireActivity(), dish, new DataRepository.QueryCallBack<>() {
+                                dataRepository.updateDish(dish, new DataRepository.QueryCallBack<>() {
                                     @Override
                                     public void onSuccess(Void result) {
                                         // Обновление списка в адаптере
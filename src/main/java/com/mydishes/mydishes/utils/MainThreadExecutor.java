@@ -0,0 +1,46 @@
+package com.mydishes.mydishes.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Executor}, выполняющий задачи в основном (UI) потоке приложения.
+ * <p>
+ * Используется единственный экземпляр с единственным {@link Handler}, привязанным к главному {@link Looper},
+ * поэтому доставка результатов в UI-поток не требует создания нового {@link Handler} на каждый вызов.
+ * </p>
+ */
+public final class MainThreadExecutor implements Executor {
+
+    private static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+
+    // Handler главного потока, переиспользуемый для всех задач
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private MainThreadExecutor() {
+    }
+
+    /**
+     * Возвращает единственный экземпляр исполнителя основного потока.
+     *
+     * @return Экземпляр {@link MainThreadExecutor}.
+     */
+    @NonNull
+    public static MainThreadExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ставит задачу в очередь основного потока.
+     *
+     * @param command Задача для выполнения в UI-потоке.
+     */
+    @Override
+    public void execute(@NonNull Runnable command) {
+        handler.post(command);
+    }
+}
@@ -0,0 +1,20 @@
+package com.mydishes.mydishes.utils;
+
+import androidx.annotation.NonNull;
+
+// Утилитарный класс для разбора чисел из текста. Не зависит от Android, поэтому используется и вне приложения
+// (например, в бенчмарках парсера)
+public final class NumberUtils {
+
+    private NumberUtils() {
+    }
+
+    // Преобразует строку в float, безопасно
+    public static float parseFloatSafe(@NonNull String text) {
+        try {
+            return (float) Double.parseDouble(text.replace(",", ".").replaceAll("[^\\d.]", ""));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.mydishes.mydishes.utils;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Слушатель прокрутки RecyclerView, сообщающий позицию последнего видимого элемента при прокрутке вниз.
+ * Используется для постраничной загрузки списка (см. {@link com.mydishes.mydishes.parser.SearchPager}).
+ */
+public class PagingScrollListener extends RecyclerView.OnScrollListener {
+
+    private final LinearLayoutManager layoutManager;
+    private final OnLastVisibleChanged onLastVisibleChanged;
+
+    /**
+     * @param layoutManager        LayoutManager списка.
+     * @param onLastVisibleChanged Получатель позиции последнего видимого элемента.
+     */
+    public PagingScrollListener(@NonNull LinearLayoutManager layoutManager,
+                                @NonNull OnLastVisibleChanged onLastVisibleChanged) {
+        this.layoutManager = layoutManager;
+        this.onLastVisibleChanged = onLastVisibleChanged;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        // Прокрутка вверх не приближает конец списка
+        if (dy <= 0) {
+            return;
+        }
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible != RecyclerView.NO_POSITION) {
+            onLastVisibleChanged.onLastVisibleChanged(lastVisible);
+        }
+    }
+
+    /**
+     * Функциональный интерфейс для получения позиции последнего видимого элемента.
+     */
+    @FunctionalInterface
+    public interface OnLastVisibleChanged {
+        /**
+         * @param position Позиция последнего видимого элемента списка.
+         */
+        void onLastVisibleChanged(int position);
+    }
+}
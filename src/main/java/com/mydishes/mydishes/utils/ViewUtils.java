@@ -45,10 +45,6 @@ public class ViewUtils {
 
     // Преобразует строку в float, безопасно
     public static float parseFloatSafe(@NonNull String text) {
-        try {
-            return (float) Double.parseDouble(text.replace(",", ".").replaceAll("[^\\d.]", ""));
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+        return NumberUtils.parseFloatSafe(text);
     }
 }
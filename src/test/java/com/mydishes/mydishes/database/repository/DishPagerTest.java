@@ -0,0 +1,211 @@
+package com.mydishes.mydishes.database.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.mydishes.mydishes.models.Dish;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class DishPagerTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 2;
+
+    // ID блюд в "базе"
+    private final List<Long> ids = new ArrayList<>();
+    // Загрузки, ожидающие ответа, если ответы задерживаются
+    private final List<Runnable> pending = new ArrayList<>();
+    private boolean deferred;
+    private int loads;
+    private List<Dish> shown = new ArrayList<>();
+
+    private final DishPager pager = new DishPager(this::loadOlder, this::loadNewer,
+            PAGE_SIZE, MAX_SIZE, PREFETCH_DISTANCE, new DishPager.Listener() {
+        @Override
+        public void onDishesLoaded(@NonNull List<Dish> dishes) {
+            shown = dishes;
+        }
+
+        @Override
+        public void onError(@NonNull Exception e) {
+            throw new AssertionError(e);
+        }
+    });
+
+    @Test
+    public void firstPageHasNewestDishes() {
+        addDishes(100);
+
+        pager.refresh();
+
+        assertEquals(1, loads);
+        assertEquals(PAGE_SIZE, shown.size());
+        assertEquals(100, shown.get(0).getId());
+        assertEquals(91, shown.get(PAGE_SIZE - 1).getId());
+    }
+
+    @Test
+    public void scrollingDownKeepsWindowBounded() {
+        addDishes(200);
+        pager.refresh();
+
+        scrollToEnd();
+
+        assertEquals(MAX_SIZE, shown.size());
+        assertEquals(1, shown.get(shown.size() - 1).getId());
+        assertConsecutive();
+        // Дальше страниц нет
+        int before = loads;
+        scrollToEnd();
+        assertEquals(before, loads);
+    }
+
+    @Test
+    public void scrollingBackUpReloadsUnloadedDishes() {
+        addDishes(200);
+        pager.refresh();
+        scrollToEnd();
+
+        for (int i = 0; i < 100 && shown.get(0).getId() != 200; i++) {
+            pager.onScrolled(0, 5);
+        }
+
+        assertEquals(200, shown.get(0).getId());
+        assertTrue(shown.size() <= MAX_SIZE);
+        assertConsecutive();
+    }
+
+    @Test
+    public void onlyOnePageIsLoadedAtATime() {
+        addDishes(100);
+        pager.refresh();
+        deferred = true;
+
+        pager.onScrolled(0, PAGE_SIZE - 1);
+        pager.onScrolled(0, PAGE_SIZE - 1);
+
+        assertEquals(1, pending.size());
+        assertTrue(pager.isLoading());
+        pending.remove(0).run();
+        assertFalse(pager.isLoading());
+        assertEquals(2 * PAGE_SIZE, shown.size());
+    }
+
+    @Test
+    public void pageLoadedBeforeRefreshIsIgnored() {
+        addDishes(100);
+        pager.refresh();
+        deferred = true;
+        pager.onScrolled(0, PAGE_SIZE - 1);
+        Runnable stalePage = pending.remove(0);
+
+        addDishes(1);
+        pager.refresh();
+        pending.remove(0).run();
+        stalePage.run();
+
+        assertEquals(PAGE_SIZE, shown.size());
+        assertEquals(101, shown.get(0).getId());
+    }
+
+    @Test
+    public void refreshKeepsPositionWhenNewestDishesAreUnloaded() {
+        addDishes(200);
+        pager.refresh();
+        scrollToEnd();
+        long firstId = shown.get(0).getId();
+        ids.remove(Long.valueOf(firstId - 1));
+
+        pager.refresh();
+
+        assertEquals(MAX_SIZE - 1, shown.size());
+        assertEquals(firstId, shown.get(0).getId());
+        assertConsecutive();
+    }
+
+    @Test
+    public void emptyListIsReported() {
+        shown = null;
+
+        pager.refresh();
+
+        assertTrue(shown.isEmpty());
+    }
+
+    private void scrollToEnd() {
+        for (int i = 0; i < 100; i++) {
+            pager.onScrolled(shown.size() - 5, shown.size() - 1);
+        }
+    }
+
+    private void addDishes(int count) {
+        long next = ids.isEmpty() ? 1 : ids.get(ids.size() - 1) + 1;
+        for (int i = 0; i < count; i++) {
+            ids.add(next + i);
+        }
+    }
+
+    /**
+     * Проверяет, что окно идет по убыванию ID без пропусков (с учетом удаленных блюд).
+     */
+    private void assertConsecutive() {
+        int start = ids.indexOf(shown.get(0).getId());
+        for (int i = 0; i < shown.size(); i++) {
+            assertEquals(ids.get(start - i).longValue(), shown.get(i).getId());
+        }
+    }
+
+    @NonNull
+    private CompletableFuture<List<Dish>> loadOlder(long beforeId, int limit,
+                                                    @NonNull DataRepository.QueryCallBack<List<Dish>> callBack) {
+        List<Dish> page = new ArrayList<>();
+        for (int i = ids.size() - 1; i >= 0 && page.size() < limit; i--) {
+            if (ids.get(i) < beforeId) {
+                page.add(dish(ids.get(i)));
+            }
+        }
+        return respond(page, callBack);
+    }
+
+    @NonNull
+    private CompletableFuture<List<Dish>> loadNewer(long afterId, int limit,
+                                                    @NonNull DataRepository.QueryCallBack<List<Dish>> callBack) {
+        List<Dish> page = new ArrayList<>();
+        for (int i = 0; i < ids.size() && page.size() < limit; i++) {
+            if (ids.get(i) > afterId) {
+                page.add(0, dish(ids.get(i)));
+            }
+        }
+        return respond(page, callBack);
+    }
+
+    @NonNull
+    private CompletableFuture<List<Dish>> respond(@NonNull List<Dish> page,
+                                                  @NonNull DataRepository.QueryCallBack<List<Dish>> callBack) {
+        loads++;
+        CompletableFuture<List<Dish>> future = CompletableFuture.completedFuture(page);
+        if (deferred) {
+            pending.add(() -> callBack.onSuccess(page));
+        } else {
+            callBack.onSuccess(page);
+        }
+        return future;
+    }
+
+    @NonNull
+    private static Dish dish(long id) {
+        Dish dish = new Dish();
+        dish.setId(id);
+        dish.setName("Блюдо " + id);
+        return dish;
+    }
+}
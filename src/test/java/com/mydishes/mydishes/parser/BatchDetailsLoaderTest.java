@@ -0,0 +1,172 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchDetailsLoaderTest {
+
+    private static final long PAGE_MILLIS = 200;
+
+    private ExecutorService executor;
+    private SlowParser parser;
+    private RecordingCallback callback;
+    private CountDownLatch finished;
+    private ParseTask task;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+        parser = new SlowParser();
+        callback = new RecordingCallback();
+        finished = new CountDownLatch(1);
+        task = new ParseTask(() -> {
+            callback.onParsingFinished();
+            finished.countDown();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void batchTakesAboutTheTimeOfTheSlowestPages() throws Exception {
+        List<Product> products = products("a.example.com", 8);
+
+        long start = System.nanoTime();
+        loader(products, 8, 8).start();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(8, callback.successes.size());
+        assertTrue("Пакет загружался " + elapsedMillis + " мс", elapsedMillis < PAGE_MILLIS * 4);
+    }
+
+    @Test
+    public void perHostLimitIsRespected() throws Exception {
+        List<Product> products = new ArrayList<>(products("a.example.com", 6));
+        products.addAll(products("b.example.com", 6));
+
+        loader(products, 4, 2).start();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals(12, callback.successes.size());
+        assertEquals(2, parser.maxRunningByHost.get("a.example.com").get());
+        assertEquals(2, parser.maxRunningByHost.get("b.example.com").get());
+        assertEquals(4, parser.maxRunning.get());
+    }
+
+    @Test
+    public void itemErrorsDoNotStopTheBatch() throws Exception {
+        List<Product> products = products("a.example.com", 5);
+        products.get(2).setProductURL("https://a.example.com/broken");
+
+        loader(products, 2, 2).start();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals(4, callback.successes.size());
+        assertEquals(Collections.singletonList(2), callback.errors);
+        // Завершение пакета доставляется после результатов всех продуктов
+        assertEquals(5, callback.deliveredBeforeFinish.get());
+    }
+
+    @Test
+    public void emptyBatchFinishesImmediately() throws Exception {
+        loader(new ArrayList<>(), 4, 2).start();
+
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+    }
+
+    private BatchDetailsLoader loader(List<Product> products, int parallelism, int perHostLimit) {
+        return new BatchDetailsLoader(parser, products, parallelism, perHostLimit, executor, Runnable::run,
+                task, callback);
+    }
+
+    private static List<Product> products(String host, int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setProductURL("https://" + host + "/product/" + i);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private class RecordingCallback implements BatchParseCallback {
+        final List<Integer> successes = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> errors = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger deliveredBeforeFinish = new AtomicInteger(-1);
+
+        @Override
+        public void onParsingStarted() {
+        }
+
+        @Override
+        public void onItemSuccess(int index, @NonNull Product product) {
+            successes.add(index);
+        }
+
+        @Override
+        public void onItemError(int index, @NonNull Product product, @NonNull Exception e) {
+            errors.add(index);
+        }
+
+        @Override
+        public void onParsingFinished() {
+            deliveredBeforeFinish.set(successes.size() + errors.size());
+        }
+    }
+
+    private static class SlowParser extends Parser {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Map<String, AtomicInteger> runningByHost = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> maxRunningByHost = new ConcurrentHashMap<>();
+
+        @Override
+        public List<Product> findProducts(String query) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Product parseProductDetails(Product product) throws Exception {
+            String host = product.getProductURL().split("/")[2];
+            AtomicInteger hostRunning = runningByHost.computeIfAbsent(host, h -> new AtomicInteger());
+            AtomicInteger hostMax = maxRunningByHost.computeIfAbsent(host, h -> new AtomicInteger());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            hostMax.accumulateAndGet(hostRunning.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(PAGE_MILLIS);
+                if (product.getProductURL().endsWith("broken")) {
+                    throw new Exception("КБЖУ продукта не найдены");
+                }
+                product.setNutrition(new Nutrition(1, 1, 1, 1));
+                return product;
+            } finally {
+                hostRunning.decrementAndGet();
+                running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class CachingParserTest {
+
+    private CountingParser source;
+    private long now;
+    private CachingParser parser;
+
+    @Before
+    public void setUp() {
+        source = new CountingParser();
+        now = 0;
+        parser = new CachingParser(source, new ExpiringLruCache<>(2, 1000, () -> now));
+    }
+
+    @Test
+    public void findProducts_normalizedQueriesShareOneRequest() throws Exception {
+        parser.findProducts("Молоко  ёжик");
+        parser.findProducts("  молоко ежик ");
+        parser.findProducts("МОЛОКО ЁЖИК");
+
+        assertEquals(1, source.searchCalls);
+        assertEquals(2, parser.getSearchCacheStats().hits);
+        assertEquals(1, parser.getSearchCacheStats().misses);
+    }
+
+    @Test
+    public void findProductsPage_pagesAreCachedSeparately() throws Exception {
+        parser.findProductsPage("сыр", 0);
+        List<Product> second = parser.findProductsPage("Сыр ", 1);
+        parser.findProductsPage("сыр", 1);
+        parser.findProducts("сыр");
+
+        assertEquals("сыр 1", second.get(0).getName());
+        assertEquals(2, source.searchCalls);
+        assertEquals(2, parser.getSearchCacheStats().hits);
+    }
+
+    @Test
+    public void findProducts_expiredEntryIsLoadedAgain() throws Exception {
+        parser.findProducts("сыр");
+        now = 1000;
+        parser.findProducts("сыр");
+
+        assertEquals(2, source.searchCalls);
+        assertEquals(1, parser.getSearchCacheStats().expirations);
+    }
+
+    @Test
+    public void findProducts_leastRecentlyUsedEntryIsEvicted() throws Exception {
+        parser.findProducts("сыр");
+        parser.findProducts("хлеб");
+        parser.findProducts("сыр"); // "хлеб" становится самым давно использованным
+        parser.findProducts("кефир");
+        parser.findProducts("сыр");
+        parser.findProducts("хлеб");
+
+        assertEquals(4, source.searchCalls);
+        assertEquals(2, parser.getSearchCacheStats().evictions);
+    }
+
+    @Test
+    public void findProducts_returnsIndependentCopies() throws Exception {
+        Product first = parser.findProducts("сыр").get(0);
+        first.setMass(150);
+
+        Product second = parser.findProducts("сыр").get(0);
+
+        assertNotSame(first, second);
+        assertEquals(0, second.getMass(), 0);
+    }
+
+    @Test
+    public void parseProductDetails_missIsLoadedAndStored() throws Exception {
+        MapDetailsCache detailsCache = new MapDetailsCache();
+        CachingParser detailsParser = detailsParser(detailsCache, 1000);
+
+        Product product = detailsParser.parseProductDetails(product("https://example.com/product/1"));
+
+        assertEquals(1, source.detailsCalls);
+        assertEquals(100, product.getNutrition().getCalories(), 0);
+        assertEquals(0, detailsCache.entries.get("https://example.com/product/1").fetchedAtMillis);
+    }
+
+    @Test
+    public void parseProductDetails_freshEntrySkipsSource() throws Exception {
+        MapDetailsCache detailsCache = new MapDetailsCache();
+        detailsCache.put("https://example.com/product/1", new Nutrition(42, 1, 2, 3), CacheValidators.NONE, 0);
+        CachingParser detailsParser = detailsParser(detailsCache, 1000);
+        now = 999;
+
+        Product product = detailsParser.parseProductDetails(product("https://example.com/product/1"));
+
+        assertEquals(0, source.detailsCalls);
+        assertEquals(42, product.getNutrition().getCalories(), 0);
+    }
+
+    @Test
+    public void parseProductDetails_staleEntryIsReturnedAndRefreshedInBackground() throws Exception {
+        MapDetailsCache detailsCache = new MapDetailsCache();
+        detailsCache.put("https://example.com/product/1", new Nutrition(42, 1, 2, 3), CacheValidators.NONE, 0);
+        detailsCache.expectedPuts = new CountDownLatch(1);
+        CachingParser detailsParser = detailsParser(detailsCache, 1000);
+        now = 5000;
+
+        Product product = detailsParser.parseProductDetails(product("https://example.com/product/1"));
+
+        assertEquals(42, product.getNutrition().getCalories(), 0);
+        assertTrue(detailsCache.expectedPuts.await(5, TimeUnit.SECONDS));
+        DetailsCache.Entry refreshed = detailsCache.entries.get("https://example.com/product/1");
+        assertEquals(100, refreshed.nutrition.getCalories(), 0);
+        assertEquals(5000, refreshed.fetchedAtMillis);
+        assertEquals(1, source.detailsCalls);
+    }
+
+    @Test
+    public void parseProductDetails_notModifiedRefreshKeepsNutrition() throws Exception {
+        MapDetailsCache detailsCache = new MapDetailsCache();
+        detailsCache.put("https://example.com/product/1", new Nutrition(42, 1, 2, 3),
+                new CacheValidators("\"v1\"", null), 0);
+        detailsCache.expectedPuts = new CountDownLatch(1);
+        CachingParser detailsParser = detailsParser(detailsCache, 1000);
+        now = 5000;
+
+        detailsParser.parseProductDetails(product("https://example.com/product/1"));
+
+        assertTrue(detailsCache.expectedPuts.await(5, TimeUnit.SECONDS));
+        DetailsCache.Entry refreshed = detailsCache.entries.get("https://example.com/product/1");
+        assertEquals(42, refreshed.nutrition.getCalories(), 0);
+        assertEquals("\"v1\"", refreshed.validators.etag);
+        assertEquals(5000, refreshed.fetchedAtMillis);
+        assertEquals(0, source.detailsCalls);
+        assertEquals(1, source.notModifiedCalls);
+    }
+
+    @Test
+    public void parseProductDetails_missStoresValidators() throws Exception {
+        MapDetailsCache detailsCache = new MapDetailsCache();
+        CachingParser detailsParser = detailsParser(detailsCache, 1000);
+
+        detailsParser.parseProductDetails(product("https://example.com/product/1"));
+
+        assertEquals("\"v1\"", detailsCache.entries.get("https://example.com/product/1").validators.etag);
+    }
+
+    @Test
+    public void parseProductDetails_concurrentRequestsForSameUrlAreMerged() throws Exception {
+        MapDetailsCache detailsCache = new MapDetailsCache();
+        CachingParser detailsParser = detailsParser(detailsCache, 1000);
+        source.detailsGate = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Product> tap = executor.submit(() -> detailsParser.parseProductDetails(product("https://example.com/product/1")));
+            Future<Product> prefetch = executor.submit(() -> detailsParser.parseProductDetails(product("https://example.com/product/1")));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (detailsParser.getDetailsCoalescingStats().merged < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            source.detailsGate.countDown();
+
+            Product first = tap.get(5, TimeUnit.SECONDS);
+            Product second = prefetch.get(5, TimeUnit.SECONDS);
+            assertEquals(100, first.getNutrition().getCalories(), 0);
+            assertEquals(100, second.getNutrition().getCalories(), 0);
+            assertNotSame(first.getNutrition(), second.getNutrition());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, source.detailsCalls);
+        assertEquals(1, detailsParser.getDetailsCoalescingStats().merged);
+    }
+
+    @Test
+    public void parseProductDetails_withoutUrlGoesToSource() throws Exception {
+        CachingParser detailsParser = detailsParser(new MapDetailsCache(), 1000);
+
+        detailsParser.parseProductDetails(new Product());
+
+        assertEquals(1, source.detailsCalls);
+    }
+
+    private CachingParser detailsParser(DetailsCache detailsCache, long staleAfterMillis) {
+        return new CachingParser(source, new ExpiringLruCache<>(2, 1000, () -> now),
+                detailsCache, staleAfterMillis, () -> now);
+    }
+
+    private static Product product(String url) {
+        Product product = new Product();
+        product.setProductURL(url);
+        return product;
+    }
+
+    private static class MapDetailsCache implements DetailsCache {
+        final Map<String, Entry> entries = new HashMap<>();
+        volatile CountDownLatch expectedPuts = new CountDownLatch(0);
+
+        @Override
+        public synchronized Entry get(String productUrl) {
+            return entries.get(productUrl);
+        }
+
+        @Override
+        public synchronized void put(String productUrl, Nutrition nutrition, CacheValidators validators,
+                                     long fetchedAtMillis) {
+            entries.put(productUrl, new Entry(nutrition, validators, fetchedAtMillis));
+            expectedPuts.countDown();
+        }
+
+        @Override
+        public synchronized void markFresh(String productUrl, long fetchedAtMillis) {
+            Entry entry = entries.get(productUrl);
+            entries.put(productUrl, new Entry(entry.nutrition, entry.validators, fetchedAtMillis));
+            expectedPuts.countDown();
+        }
+    }
+
+    private static class CountingParser extends Parser {
+        int searchCalls;
+        volatile int detailsCalls;
+        volatile int notModifiedCalls;
+        volatile CountDownLatch detailsGate = new CountDownLatch(0);
+
+        @Override
+        public List<Product> findProducts(String query) {
+            searchCalls++;
+            Product product = new Product();
+            product.setName(query);
+            product.setProductURL("https://example.com/product/" + searchCalls);
+            List<Product> products = new ArrayList<>();
+            products.add(product);
+            return products;
+        }
+
+        @Override
+        public List<Product> findProductsPage(String query, int page) {
+            if (page == 0) {
+                return findProducts(query);
+            }
+            List<Product> products = findProducts(query);
+            products.get(0).setName(QueryNormalizer.normalize(query) + " " + page);
+            return products;
+        }
+
+        @Override
+        public Product parseProductDetails(Product product) {
+            detailsCalls++;
+            try {
+                detailsGate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            product.setNutrition(new Nutrition(100, 10, 5, 20));
+            return product;
+        }
+
+        @Override
+        public Revalidation<Product> revalidateProductDetails(Product product, CacheValidators validators) {
+            // Страница "не меняется": при наличии ETag источник отвечает 304
+            if ("\"v1\"".equals(validators.etag)) {
+                notModifiedCalls++;
+                return Revalidation.notModified();
+            }
+            return Revalidation.modified(parseProductDetails(product), new CacheValidators("\"v1\"", null));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DetailsPrefetcherTest {
+
+    private ExecutorService executor;
+    private BlockingParser parser;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        parser = new BlockingParser();
+    }
+
+    @After
+    public void tearDown() {
+        parser.release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void prefetch_loadsOnlyFirstProductsWithinConcurrencyLimit() throws Exception {
+        DetailsPrefetcher prefetcher = new DetailsPrefetcher(parser, 3, 2, () -> false, executor);
+
+        parser.finished = new CountDownLatch(3);
+        prefetcher.prefetch(products(10));
+        parser.release.countDown();
+        assertTrue(parser.finished.await(5, TimeUnit.SECONDS));
+
+        List<String> urls = new ArrayList<>(parser.urls);
+        Collections.sort(urls);
+        assertEquals(Arrays.asList("https://example.com/product/0", "https://example.com/product/1",
+                "https://example.com/product/2"), urls);
+        assertEquals(2, parser.maxRunning.get());
+    }
+
+    @Test
+    public void prefetch_skipsProductsWithNutritionAndWithoutUrl() throws Exception {
+        DetailsPrefetcher prefetcher = new DetailsPrefetcher(parser, 5, 1, () -> false, executor);
+        List<Product> products = products(3);
+        products.get(0).setNutrition(new Nutrition(1, 1, 1, 1));
+        products.get(1).setProductURL("");
+
+        parser.finished = new CountDownLatch(1);
+        prefetcher.prefetch(products);
+        parser.release.countDown();
+        assertTrue(parser.finished.await(5, TimeUnit.SECONDS));
+
+        assertEquals(Collections.singletonList("https://example.com/product/2"), parser.urls);
+    }
+
+    @Test
+    public void prefetch_doesNothingOnMeteredNetwork() throws Exception {
+        DetailsPrefetcher prefetcher = new DetailsPrefetcher(parser, 5, 2, () -> true, executor);
+
+        prefetcher.prefetch(products(5));
+
+        assertTrue(parser.urls.isEmpty());
+    }
+
+    @Test
+    public void cancel_dropsPendingProducts() throws Exception {
+        DetailsPrefetcher prefetcher = new DetailsPrefetcher(parser, 5, 1, () -> false, executor);
+
+        parser.finished = new CountDownLatch(1);
+        prefetcher.prefetch(products(5));
+        assertTrue(parser.started.await(5, TimeUnit.SECONDS));
+        prefetcher.cancel();
+        parser.release.countDown();
+        assertTrue(parser.finished.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1, parser.urls.size());
+    }
+
+    private static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setProductURL("https://example.com/product/" + i);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private static class BlockingParser extends Parser {
+        final List<String> urls = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile CountDownLatch finished = new CountDownLatch(0);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        public List<Product> findProducts(String query) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Product parseProductDetails(Product product) throws Exception {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            urls.add(product.getProductURL());
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+                // Даём остальным загрузкам шанс превысить лимит, если он не соблюдается
+                Thread.sleep(20);
+            } finally {
+                running.decrementAndGet();
+                finished.countDown();
+            }
+            product.setNutrition(new Nutrition(1, 1, 1, 1));
+            return product;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+public class EdostavkaPageStateTest {
+
+    private static final String PAGE_URL = "https://edostavka.by/search?query=%D0%BC%D0%BE%D0%BB%D0%BE%D0%BA%D0%BE";
+    private static final String PRODUCT_URL = "https://edostavka.by/product/1001";
+    private static final String CARD = "<div class=\"adult-wrapper_adult__eCCJW vertical_product__Q8mUI\">"
+            + "<div class=\"card-image_adult__gbuJW\"><img src=\"a.jpg\" alt=\"Сыр\"></div>"
+            + "<div class=\"vertical_information__p_K39\"><a href=\"/product/1\">Сыр</a></div>"
+            + "</div>";
+
+    private final EdostavkaParser streaming = new EdostavkaParser(true);
+    private final EdostavkaParser dom = new EdostavkaParser(false);
+
+    @Test
+    public void searchProductsAreReadFromPageState() throws Exception {
+        byte[] page = readFixture("/fixtures/edostavka_search_state.html");
+
+        EdostavkaParser.SearchPage state = streaming.parseSearchPage(
+                new ByteArrayInputStream(page), "UTF-8", PAGE_URL);
+        EdostavkaParser.SearchPage document = dom.parseSearchDocument(
+                new ByteArrayInputStream(page), "UTF-8", PAGE_URL);
+
+        assertEquals(SearchParseStats.Mode.JSON, state.stats.mode);
+        assertTrue(state.stats.stoppedEarly);
+        assertEquals(Parser.MAX_RESULTS, state.stats.cards);
+        assertEquals(Parser.MAX_RESULTS, state.products.size());
+        for (int i = 0; i < state.products.size(); i++) {
+            Product expected = document.products.get(i);
+            Product actual = state.products.get(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getProductURL(), actual.getProductURL());
+            assertEquals(expected.getImageURL(), actual.getImageURL());
+        }
+        // Мягкий перенос из состояния страницы не попадает в название
+        assertEquals("Молоко пастеризованное 2, 1 л", state.products.get(1).getName());
+    }
+
+    @Test
+    public void searchStateReadingStopsAfterMaxResults() throws Exception {
+        StringBuilder html = new StringBuilder("<html><body><script id=\"__NEXT_DATA__\" type=\"application/json\">"
+                + "{\"props\":{\"pageProps\":{\"listing\":{\"products\":[");
+        for (int i = 0; i < 20 * Parser.MAX_RESULTS; i++) {
+            html.append(i == 0 ? "" : ",").append("{\"productId\":").append(1000 + i)
+                    .append(",\"productName\":\"Молоко ").append(i).append("\"}");
+        }
+        html.append("]}}},\"page\":\"/search\"}</script></body></html>");
+        byte[] page = html.toString().getBytes(StandardCharsets.UTF_8);
+
+        EdostavkaParser.SearchPage result = streaming.parseSearchPage(new ByteArrayInputStream(page), null, PAGE_URL);
+
+        assertEquals(SearchParseStats.Mode.JSON, result.stats.mode);
+        assertEquals(Parser.MAX_RESULTS, result.products.size());
+        assertTrue(result.stats.stoppedEarly);
+        // Остаток состояния после MAX_RESULTS продуктов не загружается
+        assertTrue(result.stats.bytesRead < page.length);
+    }
+
+    @Test
+    public void searchWithoutStateFallsBackToMarkup() throws Exception {
+        byte[] page = readFixture("/fixtures/edostavka_search.html");
+
+        EdostavkaParser.SearchPage stream = streaming.parseSearchPage(
+                new ByteArrayInputStream(page), "UTF-8", PAGE_URL);
+        EdostavkaParser.SearchPage document = dom.parseSearchPage(
+                new ByteArrayInputStream(page), "UTF-8", PAGE_URL);
+
+        assertEquals(SearchParseStats.Mode.STREAM, stream.stats.mode);
+        assertEquals(SearchParseStats.Mode.DOM, document.stats.mode);
+        assertEquals(Parser.MAX_RESULTS, stream.products.size());
+        assertEquals(Parser.MAX_RESULTS, document.products.size());
+        // Состояние ищется до конца страницы, поэтому досрочной остановки чтения нет
+        assertFalse(stream.stats.stoppedEarly);
+        assertEquals(page.length, stream.stats.bytesRead);
+        assertEquals("https://edostavka.by/product/1001", stream.products.get(0).getProductURL());
+        assertEquals("Молоко пастеризованное 1, 1 л", document.products.get(0).getName());
+    }
+
+    @Test
+    public void searchStateWithoutProductsFallsBackToMarkup() throws Exception {
+        String html = "<html><body>" + CARD
+                + "<script id=\"__NEXT_DATA__\" type=\"application/json\">"
+                + "{\"props\":{\"pageProps\":{\"listing\":{\"products\":[]}}},\"page\":\"/search\"}"
+                + "</script></body></html>";
+
+        EdostavkaParser.SearchPage page = streaming.parseSearchPage(
+                new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), null, PAGE_URL);
+
+        assertEquals(SearchParseStats.Mode.STREAM, page.stats.mode);
+        assertEquals(1, page.products.size());
+        assertEquals("Сыр", page.products.get(0).getName());
+        assertEquals("https://edostavka.by/product/1", page.products.get(0).getProductURL());
+    }
+
+    @Test
+    public void streamingFallbackKeepsOnlyFirstCardsBeforeState() throws Exception {
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int i = 0; i < Parser.MAX_RESULTS + 5; i++) {
+            html.append(CARD.replace("/product/1", "/product/" + (i + 1)));
+        }
+        html.append("<script id=\"__NEXT_DATA__\" type=\"application/json\">")
+                .append("{\"props\":{\"pageProps\":{\"listing\":{\"products\":[]}}},\"page\":\"/search\"}")
+                .append("</script></body></html>");
+        byte[] page = html.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (EdostavkaParser parser : new EdostavkaParser[]{streaming, dom}) {
+            EdostavkaParser.SearchPage result = parser.parseSearchPage(new ByteArrayInputStream(page), null, PAGE_URL);
+
+            assertEquals(Parser.MAX_RESULTS, result.products.size());
+            assertEquals("https://edostavka.by/product/" + Parser.MAX_RESULTS,
+                    result.products.get(Parser.MAX_RESULTS - 1).getProductURL());
+            assertFalse(result.stats.stoppedEarly);
+        }
+    }
+
+    @Test
+    public void softHyphenIsRemovedFromMarkupNames() throws Exception {
+        String html = "<html><body>" + CARD.replace("alt=\"Сыр\"", "alt=\"Мо\u00ADлоко\"") + "</body></html>";
+
+        for (EdostavkaParser parser : new EdostavkaParser[]{streaming, dom}) {
+            EdostavkaParser.SearchPage page = parser.parseSearchPage(
+                    new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), null, PAGE_URL);
+
+            // Название совпадает с названием из состояния страницы
+            assertEquals("Молоко", page.products.get(0).getName());
+        }
+    }
+
+    @Test
+    public void skipToStateKeepsMarkupAndStopsAtStateJson() throws Exception {
+        PageStateReader reader = new PageStateReader(SourceConfig.edostavka());
+        String script = "<script id=\"__NEXT_DATA__\" type=\"application/json\">";
+        StringBuilder before = new StringBuilder("<html><body><div id=\"__NEXT_ROOT__\">").append(CARD);
+        // Маркер состояния попадает на границу блоков чтения
+        while (before.length() < 8192 - "<script id".length()) {
+            before.append(' ');
+        }
+        StringBuilder markup = new StringBuilder();
+
+        Reader json = reader.skipToState(new StringReader(before + script + "{\"page\":\"/search\"}</script>"), markup);
+
+        assertNotNull(json);
+        assertEquals('{', json.read());
+        assertEquals(before + script, markup.toString());
+    }
+
+    @Test
+    public void skipToStateReadsWholePageWithoutState() throws Exception {
+        PageStateReader reader = new PageStateReader(SourceConfig.edostavka());
+        String html = "<html><body>" + CARD + "<script id=\"__NEXT\">{}</script></body></html>";
+        StringBuilder markup = new StringBuilder();
+
+        assertNull(reader.skipToState(new StringReader(html), markup));
+        assertEquals(html, markup.toString());
+    }
+
+    @Test
+    public void searchCardNutritionIsUsedOnlyWhenComplete() throws Exception {
+        String rows = "<div class=\"preview_short__item__yJ1oI\">"
+                + "<span class=\"preview_short__value__onntx\">Энергетическая ценность</span>"
+                + "<span class=\"preview_short__key__A6ql0\">58 ккал</span></div>"
+                + "<div class=\"preview_short__item__yJ1oI\">"
+                + "<span class=\"preview_short__value__onntx\">Белки</span>"
+                + "<span class=\"preview_short__key__A6ql0\">2,8 г</span></div>";
+        String complete = "<div class=\"adult-wrapper_adult__eCCJW vertical_product__Q8mUI\">"
+                + "<div class=\"card-image_adult__gbuJW\"><img src=\"a.jpg\" alt=\"Молоко\"></div>"
+                + "<div class=\"vertical_information__p_K39\"><a href=\"/product/1001\">Молоко</a></div>"
+                + rows
+                + "<div class=\"preview_short__item__yJ1oI\">"
+                + "<span class=\"preview_short__value__onntx\">Жиры</span>"
+                + "<span class=\"preview_short__key__A6ql0\">3,2 г</span></div>"
+                + "<div class=\"preview_short__item__yJ1oI\">"
+                + "<span class=\"preview_short__value__onntx\">Углеводы</span>"
+                + "<span class=\"preview_short__key__A6ql0\">4,7 г</span></div>"
+                + "</div>";
+        String partial = "<div class=\"adult-wrapper_adult__eCCJW vertical_product__Q8mUI\">"
+                + "<div class=\"card-image_adult__gbuJW\"><img src=\"b.jpg\" alt=\"Кефир\"></div>"
+                + "<div class=\"vertical_information__p_K39\"><a href=\"/product/1002\">Кефир</a></div>"
+                + rows
+                + "</div>";
+        byte[] page = ("<html><body>" + complete + partial + CARD + "</body></html>").getBytes(StandardCharsets.UTF_8);
+
+        for (EdostavkaParser parser : new EdostavkaParser[]{streaming, dom}) {
+            EdostavkaParser.SearchPage result = parser.parseSearchPage(new ByteArrayInputStream(page), null, PAGE_URL);
+
+            assertEquals(3, result.products.size());
+            assertTrue(result.products.get(0).hasNutrition());
+            assertNutrition(result.products.get(0).getNutrition());
+            // Неполные КБЖУ и карточка без КБЖУ: детали загружаются со страницы продукта
+            assertFalse(result.products.get(1).hasNutrition());
+            assertFalse(result.products.get(2).hasNutrition());
+        }
+    }
+
+    @Test
+    public void searchStateNutritionIsAttachedToItsProduct() throws Exception {
+        String html = "<html><body><script id=\"__NEXT_DATA__\" type=\"application/json\">"
+                + "{\"props\":{\"pageProps\":{\"listing\":{\"products\":["
+                + "{\"productId\":1001,\"productName\":\"Молоко\",\"images\":[\"https://img.edostavka.by/1.jpg\"],"
+                + "\"nutrition\":["
+                + "{\"name\":\"Энергетическая ценность\",\"value\":\"58 ккал\"},"
+                + "{\"name\":\"Белки\",\"value\":\"2,8 г\"},"
+                + "{\"name\":\"Жиры\",\"value\":\"3,2 г\"},"
+                + "{\"name\":\"Углеводы\",\"value\":\"4,7 г\"}]},"
+                + "{\"productId\":1002,\"productName\":\"Кефир\",\"images\":[\"https://img.edostavka.by/2.jpg\"],"
+                + "\"nutrition\":[{\"name\":\"Белки\",\"value\":\"3 г\"}]},"
+                + "{\"productId\":1003,\"productName\":\"Сыр\",\"images\":[\"https://img.edostavka.by/3.jpg\"]}"
+                + "]}}},\"page\":\"/search\"}"
+                + "</script></body></html>";
+
+        EdostavkaParser.SearchPage page = streaming.parseSearchPage(
+                new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), null, PAGE_URL);
+
+        assertEquals(SearchParseStats.Mode.JSON, page.stats.mode);
+        assertEquals(3, page.products.size());
+        assertTrue(page.products.get(0).hasNutrition());
+        assertNutrition(page.products.get(0).getNutrition());
+        assertFalse(page.products.get(1).hasNutrition());
+        assertFalse(page.products.get(2).hasNutrition());
+    }
+
+    @Test
+    public void productNutritionIsReadFromPageState() throws Exception {
+        byte[] page = readFixture("/fixtures/edostavka_product_state.html");
+
+        EdostavkaParser.ProductPage product = streaming.parseProductPage(
+                new ByteArrayInputStream(page), "UTF-8", PRODUCT_URL);
+
+        assertNotNull(product.nutrition);
+        assertNull(product.document);
+        assertNutrition(product.toNutrition(PRODUCT_URL));
+    }
+
+    @Test
+    public void productWithoutStateFallsBackToMarkup() throws Exception {
+        byte[] page = readFixture("/fixtures/edostavka_product.html");
+
+        EdostavkaParser.ProductPage product = streaming.parseProductPage(
+                new ByteArrayInputStream(page), "UTF-8", PRODUCT_URL);
+
+        assertNull(product.nutrition);
+        assertNotNull(product.document);
+        assertNutrition(product.toNutrition(PRODUCT_URL));
+    }
+
+    private static void assertNutrition(Nutrition nutrition) {
+        assertEquals(58, nutrition.getCalories(), 0.001);
+        assertEquals(2.8, nutrition.getProtein(), 0.001);
+        assertEquals(3.2, nutrition.getFat(), 0.001);
+        assertEquals(4.7, nutrition.getCarb(), 0.001);
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream in = EdostavkaPageStateTest.class.getResourceAsStream(name)) {
+            assertNotNull("Нет файла " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.http.OkHttpTransport;
+import com.mydishes.mydishes.parser.replay.FixtureServer;
+import com.mydishes.mydishes.parser.replay.LatencyStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сквозной прогон {@link EdostavkaParser} против записанных страниц ({@link FixtureServer}) с задержкой
+ * и ограничением скорости сети. Проверяет корректность результатов и то, что каждая серия дала измерения
+ * (пропускная способность, перцентили задержки), но не их величину, поэтому не зависит от скорости машины.
+ * Сравнение производительности выполняется в модуле benchmark.
+ * <p>
+ * Параметры задаются системными свойствами: {@code replay.iterations}, {@code replay.latencyMs},
+ * {@code replay.bandwidthBps} (байт в секунду, 0 - без ограничения).
+ * </p>
+ */
+public class EdostavkaReplayBenchmarkTest {
+
+    private static final int ITERATIONS = Integer.getInteger("replay.iterations", 10);
+    private static final long LATENCY_MS = Long.getLong("replay.latencyMs", 20);
+    private static final long BANDWIDTH_BPS = Long.getLong("replay.bandwidthBps", 4_000_000);
+    // Первые прогоны не учитываются: прогрев JIT и пула соединений
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int BATCH_PARALLELISM = 4;
+
+    private FixtureServer server;
+    private OkHttpTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        server = FixtureServer.fromIndex("/fixtures/replay/index.txt");
+        server.setLatencyMillis(LATENCY_MS);
+        server.setBandwidth(BANDWIDTH_BPS);
+        transport = new OkHttpTransport(OkHttpTransport.newClientBuilder(5_000, 5_000).build());
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void search() throws Exception {
+        for (boolean streaming : new boolean[]{true, false}) {
+            EdostavkaParser parser = new EdostavkaParser(transport, server.baseUrl(), streaming);
+            LatencyStats stats = new LatencyStats(streaming ? "search/stream" : "search/dom");
+            for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                List<Product> products = parser.findProducts("молоко");
+                if (i >= 0) {
+                    stats.record(System.nanoTime() - start);
+                }
+
+                assertEquals(Parser.MAX_RESULTS, products.size());
+                assertTrue(products.get(0).getProductURL().startsWith(server.baseUrl() + "/product/"));
+            }
+            assertMeasured(stats);
+        }
+    }
+
+    @Test
+    public void productDetails() throws Exception {
+        EdostavkaParser parser = new EdostavkaParser(transport, server.baseUrl(), true);
+        List<Product> products = parser.findProducts("молоко");
+        LatencyStats stats = new LatencyStats("details");
+        for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+            Product product = products.get((i + WARMUP_ITERATIONS) % products.size());
+            long start = System.nanoTime();
+            parser.parseProductDetails(product);
+            if (i >= 0) {
+                stats.record(System.nanoTime() - start);
+            }
+
+            assertNotNull(product.getNutrition());
+            assertEquals(58f, product.getNutrition().getCalories(), 0.001f);
+        }
+        assertMeasured(stats);
+    }
+
+    @Test
+    public void batchDetails() throws Exception {
+        EdostavkaParser parser = new EdostavkaParser(transport, server.baseUrl(), true);
+        List<Product> products = parser.findProducts("молоко");
+        ExecutorService executor = Executors.newFixedThreadPool(BATCH_PARALLELISM);
+        try {
+            LatencyStats stats = new LatencyStats("details/batch x" + BATCH_PARALLELISM);
+            CountDownLatch finished = new CountDownLatch(1);
+            AtomicInteger failures = new AtomicInteger();
+            long start = System.nanoTime();
+            ParseTask task = new ParseTask(finished::countDown);
+            new BatchDetailsLoader(parser, products, BATCH_PARALLELISM, Parser.MAX_REQUESTS_PER_HOST,
+                    executor, Runnable::run, task, new BatchParseCallback() {
+                @Override
+                public void onParsingStarted() {
+                }
+
+                @Override
+                public void onParsingFinished() {
+                }
+
+                @Override
+                public void onItemSuccess(int index, @NonNull Product product) {
+                    stats.record(System.nanoTime() - start);
+                }
+
+                @Override
+                public void onItemError(int index, @NonNull Product product, @NonNull Exception e) {
+                    failures.incrementAndGet();
+                }
+            }).start();
+
+            assertTrue(finished.await(30, TimeUnit.SECONDS));
+            stats.setWallNanos(System.nanoTime() - start);
+            assertEquals(0, failures.get());
+            assertEquals(products.size(), stats.count());
+            assertMeasured(stats);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Проверяет, что в отчёте серии есть измерения: пустой отчёт означает, что серия не выполнилась.
+     */
+    private static void assertMeasured(LatencyStats stats) {
+        assertTrue(stats.toString(), stats.count() > 0);
+        assertTrue(stats.toString(), stats.throughputPerSecond() > 0);
+        assertTrue(stats.toString(), stats.percentileMillis(50) > 0
+                && stats.percentileMillis(50) <= stats.percentileMillis(99));
+    }
+}
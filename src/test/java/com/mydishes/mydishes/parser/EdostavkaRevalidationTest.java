@@ -0,0 +1,149 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.http.OkHttpTransport;
+import com.mydishes.mydishes.parser.http.RequestPriority;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EdostavkaRevalidationTest {
+
+    private static final String ETAG = "\"product-11086-v1\"";
+    private static final String LAST_MODIFIED = "Wed, 01 Oct 2025 10:00:00 GMT";
+
+    private HttpServer server;
+    private String productUrl;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+    private EdostavkaParser parser;
+
+    @Before
+    public void setUp() throws IOException {
+        byte[] page = readFixture("/fixtures/edostavka_product.html");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/product/11086", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+            if (ETAG.equals(ifNoneMatch)) {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            fullResponses.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, page.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(page);
+            }
+        });
+        server.start();
+        productUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/product/11086";
+
+        parser = new EdostavkaParser(new OkHttpTransport(OkHttpTransport.newClientBuilder(1000, 1000).build()), true);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void unconditionalRequestReturnsNutritionAndValidators() throws Exception {
+        Revalidation<Product> result = parser.revalidateProductDetails(product(), CacheValidators.NONE);
+
+        assertFalse(result.isNotModified());
+        assertNotNull(result.getValue());
+        assertEquals(58, result.getValue().getNutrition().getCalories(), 0.001);
+        assertEquals(2.8, result.getValue().getNutrition().getProtein(), 0.001);
+        assertEquals(ETAG, result.getValidators().etag);
+        assertEquals(LAST_MODIFIED, result.getValidators().lastModified);
+    }
+
+    @Test
+    public void matchingEtagIsTreatedAsFresh() throws Exception {
+        CacheValidators validators = parser.revalidateProductDetails(product(), CacheValidators.NONE).getValidators();
+
+        Product product = product();
+        Revalidation<Product> result = parser.revalidateProductDetails(product, validators);
+
+        assertTrue(result.isNotModified());
+        assertNull(product.getNutrition());
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, notModifiedResponses.get());
+    }
+
+    @Test
+    public void staleEtagDownloadsPageAgain() throws Exception {
+        Revalidation<Product> result = parser.revalidateProductDetails(product(),
+                new CacheValidators("\"product-11086-v0\"", null));
+
+        assertFalse(result.isNotModified());
+        assertEquals(1, fullResponses.get());
+    }
+
+    @Test
+    public void phasesAreRecordedInTaskTrace() throws Exception {
+        ParseTask task = ParseTask.detached(RequestPriority.USER);
+        long parsedBefore = ParserMetrics.global().histogram(ParsePhase.PARSE).snapshot().count;
+
+        CacheValidators validators = task.callAsCurrent(
+                () -> parser.revalidateProductDetails(product(), CacheValidators.NONE)).getValidators();
+
+        ParseTrace trace = task.getTrace();
+        assertEquals(16, trace.getId().length());
+        assertTrue(trace.getNanos(ParsePhase.CONNECT) > 0);
+        assertTrue(trace.getNanos(ParsePhase.FIRST_BYTE) > 0);
+        assertTrue(trace.getNanos(ParsePhase.DOWNLOAD) > 0);
+        assertTrue(trace.getNanos(ParsePhase.PARSE) > 0);
+        // Соединение с сервером без TLS
+        assertEquals(0, trace.getNanos(ParsePhase.TLS));
+        assertTrue(ParserMetrics.global().histogram(ParsePhase.PARSE).snapshot().count > parsedBefore);
+
+        // Ответ 304 без тела: соединение из пула, загрузки и разбора нет
+        ParseTask revalidation = ParseTask.detached(RequestPriority.USER);
+        revalidation.callAsCurrent(() -> parser.revalidateProductDetails(product(), validators));
+        ParseTrace notModified = revalidation.getTrace();
+        assertTrue(notModified.getNanos(ParsePhase.FIRST_BYTE) > 0);
+        assertEquals(0, notModified.getNanos(ParsePhase.CONNECT));
+        assertEquals(0, notModified.getNanos(ParsePhase.DOWNLOAD));
+        assertEquals(0, notModified.getNanos(ParsePhase.PARSE));
+    }
+
+    private Product product() {
+        Product product = new Product();
+        product.setProductURL(productUrl);
+        return product;
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream in = EdostavkaRevalidationTest.class.getResourceAsStream(name)) {
+            assertNotNull("Нет файла " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+public class EdostavkaSearchParsingTest {
+
+    private static final String PAGE_URL = "https://edostavka.by/search?query=%D0%BC%D0%BE%D0%BB%D0%BE%D0%BA%D0%BE";
+
+    private final EdostavkaParser parser = new EdostavkaParser();
+
+    @Test
+    public void streamAndDocumentModesExtractSameProducts() throws Exception {
+        byte[] page = readFixture("/fixtures/edostavka_search.html");
+
+        EdostavkaParser.SearchPage stream = parser.parseSearchStream(
+                new ByteArrayInputStream(page), "UTF-8", PAGE_URL);
+        EdostavkaParser.SearchPage document = parser.parseSearchDocument(
+                new ByteArrayInputStream(page), "UTF-8", PAGE_URL);
+
+        assertEquals(Parser.MAX_RESULTS, stream.products.size());
+        assertTrue(stream.stats.bytesRead < document.stats.bytesRead);
+        assertEquals(document.products.size(), stream.products.size());
+        for (int i = 0; i < stream.products.size(); i++) {
+            Product expected = document.products.get(i);
+            Product actual = stream.products.get(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getProductURL(), actual.getProductURL());
+            assertEquals(expected.getImageURL(), actual.getImageURL());
+        }
+
+        Product first = stream.products.get(0);
+        assertEquals("Молоко пастеризованное 1, 1 л", first.getName());
+        assertEquals("https://edostavka.by/product/1001", first.getProductURL());
+        assertEquals("https://img.edostavka.by/products/1.jpg", first.getImageURL());
+    }
+
+    @Test
+    public void streamModeStopsReadingAfterMaxResults() throws Exception {
+        byte[] page = readFixture("/fixtures/edostavka_search.html");
+
+        EdostavkaParser.SearchPage stream = parser.parseSearchStream(
+                new ByteArrayInputStream(page), "UTF-8", PAGE_URL);
+        EdostavkaParser.SearchPage document = parser.parseSearchDocument(
+                new ByteArrayInputStream(page), "UTF-8", PAGE_URL);
+
+        assertTrue(stream.stats.stoppedEarly);
+        assertTrue(stream.stats.bytesRead < page.length);
+        assertEquals(page.length, document.stats.bytesRead);
+    }
+
+    @Test
+    public void streamModeReadsWholePageWithFewCards() throws Exception {
+        String html = "<html><body>"
+                + "<div class=\"adult-wrapper_adult__eCCJW vertical_product__Q8mUI\">"
+                + "<div class=\"card-image_adult__gbuJW\"><img src=\"a.jpg\" alt=\"Сыр\"></div>"
+                + "<div class=\"vertical_information__p_K39\"><a href=\"/product/1\">Сыр</a></div>"
+                + "</div></body></html>";
+        byte[] page = html.getBytes(StandardCharsets.UTF_8);
+
+        EdostavkaParser.SearchPage stream = parser.parseSearchStream(
+                new ByteArrayInputStream(page), null, PAGE_URL);
+
+        assertEquals(1, stream.products.size());
+        assertEquals("Сыр", stream.products.get(0).getName());
+        assertFalse(stream.stats.stoppedEarly);
+        assertEquals(page.length, stream.stats.bytesRead);
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream in = EdostavkaSearchParsingTest.class.getResourceAsStream(name)) {
+            assertNotNull("Нет файла " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class FederatedParserTest {
+
+    private static final long DEADLINE_MS = 300;
+
+    private ExecutorService executor;
+    private long now;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        now = 0;
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void findProducts_mergesDuplicatesAndRanksByQueryMatch() throws Exception {
+        FakeSource first = new FakeSource("https://a.example", "Молоко шоколадное", "Сырок глазированный",
+                "Молоко 3,2%");
+        FakeSource second = new FakeSource("https://b.example", "МОЛОКО  3,2%", "Молочный коктейль");
+        FederatedParser parser = federated(first, second);
+
+        List<Product> products = parser.findProducts("молоко");
+
+        assertEquals(Arrays.asList("Молоко 3,2%", "Молоко шоколадное", "Сырок глазированный", "Молочный коктейль"),
+                names(products));
+        // Из дубликатов остаётся продукт источника, стоящего раньше в списке
+        assertTrue(products.get(0).getProductURL().startsWith("https://a.example"));
+    }
+
+    @Test
+    public void findProducts_resultIsCappedAtMaxResults() throws Exception {
+        String[] many = new String[Parser.MAX_RESULTS];
+        String[] others = new String[Parser.MAX_RESULTS];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = "Сыр " + i;
+            others[i] = "Сыр другой " + i;
+        }
+        FederatedParser parser = federated(new FakeSource("https://a.example", many),
+                new FakeSource("https://b.example", others));
+
+        assertEquals(Parser.MAX_RESULTS, parser.findProducts("сыр").size());
+    }
+
+    @Test
+    public void findProducts_returnsWhatArrivedBeforeDeadline() throws Exception {
+        FakeSource fast = new FakeSource("https://a.example", "Кефир");
+        FakeSource slow = new FakeSource("https://b.example", "Кефир 1%");
+        slow.gate = new CountDownLatch(1);
+        FederatedParser parser = federated(fast, slow);
+
+        long start = System.nanoTime();
+        List<Product> products = parser.findProducts("кефир");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(Arrays.asList("Кефир"), names(products));
+        assertTrue("Поиск длился " + elapsedMs + " мс", elapsedMs < DEADLINE_MS + 200);
+        // Запрос опоздавшего источника прерывается
+        assertTrue(slow.interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void findProducts_failingSourceIsSkippedUntilCooldownPasses() throws Exception {
+        FakeSource healthy = new FakeSource("https://a.example", "Хлеб");
+        FakeSource broken = new FakeSource("https://b.example", "Хлеб ржаной");
+        broken.error = new IOException("HTTP 503");
+        FederatedParser parser = federated(healthy, broken);
+
+        for (int i = 0; i < FederatedParser.FAILURE_THRESHOLD; i++) {
+            assertEquals(Arrays.asList("Хлеб"), names(parser.findProducts("хлеб")));
+        }
+        assertFalse(parser.isSourceAvailable("https://b.example"));
+
+        parser.findProducts("хлеб");
+        assertEquals(FederatedParser.FAILURE_THRESHOLD, broken.searchCalls);
+
+        // После паузы источник снова получает запрос и, ответив успешно, считается исправным
+        now += FederatedParser.SOURCE_COOLDOWN_MS;
+        broken.error = null;
+        assertEquals(Arrays.asList("Хлеб", "Хлеб ржаной"), names(parser.findProducts("хлеб")));
+        assertTrue(parser.isSourceAvailable("https://b.example"));
+    }
+
+    @Test
+    public void findProducts_onlyOneProbeIsSentAfterCooldown() throws Exception {
+        FakeSource healthy = new FakeSource("https://a.example", "Хлеб");
+        FakeSource broken = new FakeSource("https://b.example", "Хлеб ржаной");
+        broken.error = new IOException("HTTP 503");
+        FederatedParser parser = federated(healthy, broken);
+        for (int i = 0; i < FederatedParser.FAILURE_THRESHOLD; i++) {
+            parser.findProducts("хлеб");
+        }
+
+        now += FederatedParser.SOURCE_COOLDOWN_MS;
+        broken.error = null;
+        broken.gate = new CountDownLatch(1);
+        Future<List<Product>> probe = executor.submit(() -> parser.findProducts("хлеб"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (broken.searchCalls <= FederatedParser.FAILURE_THRESHOLD && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // Пока пробный запрос выполняется, другие поиски источник пропускают
+        assertEquals(Arrays.asList("Хлеб"), names(parser.findProducts("хлеб")));
+        assertEquals(FederatedParser.FAILURE_THRESHOLD + 1, broken.searchCalls);
+
+        broken.gate.countDown();
+        assertEquals(Arrays.asList("Хлеб", "Хлеб ржаной"), names(probe.get(5, TimeUnit.SECONDS)));
+        assertTrue(parser.isSourceAvailable("https://b.example"));
+    }
+
+    @Test
+    public void findProducts_allSourcesFailing_throwsSourceError() throws Exception {
+        FakeSource broken = new FakeSource("https://a.example");
+        broken.error = new IOException("HTTP 500");
+        FederatedParser parser = federated(broken);
+
+        try {
+            parser.findProducts("сыр");
+            fail();
+        } catch (IOException e) {
+            assertSame(broken.error, e);
+        }
+    }
+
+    @Test
+    public void findProducts_noSourceInTime_throwsTimeout() throws Exception {
+        FakeSource slow = new FakeSource("https://a.example", "Сыр");
+        slow.gate = new CountDownLatch(1);
+        FederatedParser parser = federated(slow);
+
+        try {
+            parser.findProducts("сыр");
+            fail();
+        } catch (SocketTimeoutException expected) {
+            // ожидаемо
+        }
+    }
+
+    @Test
+    public void parseProductDetails_routedBySourceHost() throws Exception {
+        FakeSource first = new FakeSource("https://a.example", "Сыр");
+        FakeSource second = new FakeSource("https://b.example", "Сыр");
+        FederatedParser parser = federated(first, second);
+
+        Product product = new Product();
+        product.setProductURL("https://b.example/product/1");
+        parser.parseProductDetails(product);
+
+        assertEquals(0, first.detailsCalls);
+        assertEquals(1, second.detailsCalls);
+    }
+
+    private FederatedParser federated(FakeSource... fakes) {
+        List<FederatedParser.Source> sources = new ArrayList<>();
+        for (FakeSource fake : fakes) {
+            sources.add(new FederatedParser.Source(fake.baseUrl, fake.baseUrl, fake));
+        }
+        return new FederatedParser(sources, DEADLINE_MS, executor, () -> now);
+    }
+
+    private static List<String> names(List<Product> products) {
+        List<String> names = new ArrayList<>();
+        for (Product product : products) {
+            names.add(product.getName());
+        }
+        return names;
+    }
+
+    private static class FakeSource extends Parser {
+        final String baseUrl;
+        final String[] names;
+        volatile int searchCalls;
+        volatile int detailsCalls;
+        volatile Exception error;
+        volatile CountDownLatch gate = new CountDownLatch(0);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        FakeSource(String baseUrl, String... names) {
+            this.baseUrl = baseUrl;
+            this.names = names;
+        }
+
+        @Override
+        public List<Product> findProducts(String query) throws Exception {
+            searchCalls++;
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            if (error != null) {
+                throw error;
+            }
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < names.length; i++) {
+                Product product = new Product();
+                product.setName(names[i]);
+                product.setProductURL(baseUrl + "/product/" + i);
+                products.add(product);
+            }
+            return products;
+        }
+
+        @Override
+        public Product parseProductDetails(Product product) {
+            detailsCalls++;
+            product.setNutrition(new Nutrition(100, 10, 5, 20));
+            return product;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesAreEstimatedByBucketBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(150));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count);
+        // 3 мс попадают в корзину (2; 5], 150 мс - в (100; 200], но оценка не больше максимума
+        assertEquals(5, snapshot.percentileMillis(50), 0.001);
+        assertEquals(5, snapshot.percentileMillis(90), 0.001);
+        assertEquals(150, snapshot.percentileMillis(99), 0.001);
+        assertEquals(17.7, snapshot.averageMillis(), 0.001);
+    }
+
+    @Test
+    public void slowValuesGoToLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(60));
+        histogram.record(-1);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.count);
+        assertEquals(60_000, snapshot.percentileMillis(50), 0.001);
+    }
+
+    @Test
+    public void dumpListsEveryPhaseAndResetClears() {
+        ParserMetrics metrics = new ParserMetrics();
+        metrics.record(ParsePhase.FIRST_BYTE, TimeUnit.MILLISECONDS.toNanos(40));
+
+        String dump = metrics.dump();
+        assertEquals(ParsePhase.values().length, dump.split("\n").length);
+        assertTrue(dump, dump.contains("FIRST_BYTE: n=1 avg=40.0 p50=40.0"));
+
+        metrics.reset();
+        assertEquals(0, metrics.histogram(ParsePhase.FIRST_BYTE).snapshot().count);
+    }
+}
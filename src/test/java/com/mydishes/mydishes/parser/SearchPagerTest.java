@@ -0,0 +1,185 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.mydishes.mydishes.models.Product;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class SearchPagerTest {
+
+    private static final int PAGE_SIZE = 10;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Очередь "основного потока": задачи выполняет тест
+    private final BlockingQueue<Runnable> mainQueue = new LinkedBlockingQueue<>();
+    private final PagedParser parser = new PagedParser();
+    private final List<Integer> loadedPages = new ArrayList<>();
+    private final List<Integer> failedPages = new ArrayList<>();
+    private List<Product> shown = Collections.emptyList();
+
+    private final SearchPager pager = new SearchPager(parser, 3, new SearchPager.Listener() {
+        @Override
+        public void onPageLoaded(@NonNull String query, int page, @NonNull List<Product> products,
+                                 @NonNull List<Product> all) {
+            loadedPages.add(page);
+            shown = all;
+        }
+
+        @Override
+        public void onPageError(@NonNull String query, int page, @NonNull Exception e) {
+            failedPages.add(page);
+        }
+    }, executor, mainQueue::add);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void nextPageIsRequestedOnlyNearTheEnd() throws Exception {
+        pager.start("milk", parser.page("milk", 0));
+
+        pager.onScrolled(5);
+        assertFalse(pager.isLoading());
+
+        // До конца первой страницы осталось 3 элемента
+        pager.onScrolled(6);
+        assertTrue(pager.isLoading());
+        runMain();
+
+        assertEquals(List.of(1), loadedPages);
+        assertEquals(2 * PAGE_SIZE, shown.size());
+        assertEquals("milk 1-0", shown.get(PAGE_SIZE).getName());
+        assertEquals(List.of(1), parser.requestedPages);
+    }
+
+    @Test
+    public void onlyOnePageIsLoadedAtATime() throws Exception {
+        pager.start("milk", parser.page("milk", 0));
+
+        pager.onScrolled(9);
+        pager.onScrolled(9);
+        runMain();
+
+        assertEquals(List.of(1), parser.requestedPages);
+    }
+
+    @Test
+    public void pageWithoutNewProductsEndsPaging() throws Exception {
+        parser.lastPage = 1;
+        pager.start("milk", parser.page("milk", 0));
+
+        pager.onScrolled(9);
+        runMain();
+        // Страница 2 повторяет страницу 1
+        pager.onScrolled(19);
+        runMain();
+
+        assertEquals(List.of(1), loadedPages);
+        assertFalse(pager.hasMore());
+        pager.onScrolled(19);
+        assertFalse(pager.isLoading());
+        assertEquals(List.of(1, 2), parser.requestedPages);
+    }
+
+    @Test
+    public void errorStopsPagingUntilNextQuery() throws Exception {
+        parser.failing = true;
+        pager.start("milk", parser.page("milk", 0));
+
+        pager.onScrolled(9);
+        runMain();
+
+        assertEquals(List.of(1), failedPages);
+        assertFalse(pager.hasMore());
+
+        parser.failing = false;
+        pager.start("kefir", parser.page("kefir", 0));
+        assertTrue(pager.hasMore());
+    }
+
+    @Test
+    public void pageOfPreviousQueryIsIgnored() throws Exception {
+        pager.start("milk", parser.page("milk", 0));
+        pager.onScrolled(9);
+        pager.start("kefir", parser.page("kefir", 0));
+
+        // Результат страницы "milk" (если он успел прийти) не попадает в новый список
+        drainMain();
+        assertTrue(loadedPages.isEmpty());
+        assertEquals(PAGE_SIZE, pager.getLoaded().size());
+        assertEquals("kefir 0-0", pager.getLoaded().get(0).getName());
+    }
+
+    private void runMain() throws InterruptedException {
+        Runnable task = mainQueue.poll(5, TimeUnit.SECONDS);
+        assertTrue("Страница не загружена", task != null);
+        task.run();
+    }
+
+    private void drainMain() throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Runnable task;
+        while ((task = mainQueue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Парсер с постраничной выдачей по {@link #PAGE_SIZE} продуктов. После {@code lastPage} сайт
+     * отдаёт последнюю страницу для любого большего номера.
+     */
+    private static final class PagedParser extends Parser {
+        final List<Integer> requestedPages = Collections.synchronizedList(new ArrayList<>());
+        volatile int lastPage = Integer.MAX_VALUE;
+        volatile boolean failing;
+
+        @Override
+        public List<Product> findProducts(String query) {
+            return page(query, 0);
+        }
+
+        @Override
+        public List<Product> findProductsPage(String query, int page) throws Exception {
+            requestedPages.add(page);
+            if (failing) {
+                throw new IOException("HTTP 500");
+            }
+            return page(query, Math.min(page, lastPage));
+        }
+
+        @Override
+        public Product parseProductDetails(Product product) {
+            return product;
+        }
+
+        List<Product> page(String query, int page) {
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                Product product = new Product();
+                product.setName(query + " " + page + "-" + i);
+                product.setProductURL("https://shop.example/" + query + "/" + page + "/" + i);
+                products.add(product);
+            }
+            return products;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.http.RequestPriority;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchPipelineTest {
+
+    private static final long DEBOUNCE_MS = 300;
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final ManualParser parser = new ManualParser();
+    // События конвейера в порядке получения
+    private final List<String> events = new ArrayList<>();
+    private final List<SearchPipeline.StageTimings> timings = new ArrayList<>();
+
+    private final SearchPipeline pipeline = new SearchPipeline(parser, DEBOUNCE_MS, 2, new SearchPipeline.Listener() {
+        @Override
+        public void onSearchScheduled(@NonNull String query) {
+            events.add("scheduled " + query);
+        }
+
+        @Override
+        public void onSearchStarted(@NonNull String query) {
+            events.add("started " + query);
+        }
+
+        @Override
+        public void onSearchCancelled() {
+            events.add("cancelled");
+        }
+
+        @Override
+        public void onResults(@NonNull String query, @NonNull List<Product> products,
+                              @NonNull SearchPipeline.StageTimings stageTimings) {
+            events.add("results " + query + " " + products.size());
+            timings.add(stageTimings);
+        }
+
+        @Override
+        public void onError(@NonNull String query, @NonNull Exception e) {
+            events.add("error " + query);
+        }
+    }, scheduler);
+
+    @Test
+    public void onlyLastTextIsSentAfterDebounce() {
+        pipeline.submit("мо");
+        pipeline.submit("мол");
+        pipeline.submit("молоко");
+
+        assertEquals(1, scheduler.pending.size());
+        assertEquals(DEBOUNCE_MS, scheduler.lastDelayMillis);
+        assertTrue(parser.calls.isEmpty());
+
+        scheduler.runPending();
+
+        assertEquals(1, parser.calls.size());
+        assertEquals("молоко", parser.calls.get(0).query);
+        assertEquals(List.of("scheduled мо", "scheduled мол", "scheduled молоко", "started молоко"), events);
+    }
+
+    @Test
+    public void shortTextCancelsPendingSearch() {
+        pipeline.submit("молоко");
+        pipeline.submit("м");
+
+        assertTrue(scheduler.pending.isEmpty());
+        assertTrue(parser.calls.isEmpty());
+        assertEquals("cancelled", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void repeatedQueryIsNotSentAgain() {
+        pipeline.submit("молоко");
+        scheduler.runPending();
+
+        // Тот же запрос после нормализации, пока первый ещё выполняется
+        pipeline.submit("  МОЛОКО ");
+
+        assertTrue(scheduler.pending.isEmpty());
+        assertEquals(1, parser.calls.size());
+    }
+
+    @Test
+    public void newQueryCancelsPreviousOne() {
+        pipeline.submit("молоко");
+        scheduler.runPending();
+        pipeline.submit("кефир");
+        scheduler.runPending();
+
+        Call milk = parser.calls.get(0);
+        Call kefir = parser.calls.get(1);
+        assertTrue(milk.task.isCancelled());
+        assertFalse(kefir.task.isCancelled());
+
+        kefir.succeed(3);
+        assertEquals("results кефир 3", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void resultOfStaleQueryIsIgnored() {
+        pipeline.submit("молоко");
+        scheduler.runPending();
+        pipeline.submit("кефир");
+        scheduler.runPending();
+
+        // Результат отменённого запроса уже был в очереди основного потока
+        parser.calls.get(0).succeed(5);
+        parser.calls.get(0).fail();
+
+        assertEquals("started кефир", events.get(events.size() - 1));
+        assertTrue(timings.isEmpty());
+    }
+
+    @Test
+    public void returningToLastQueryReusesResults() {
+        pipeline.submit("молоко");
+        scheduler.runPending();
+        parser.calls.get(0).succeed(4);
+
+        pipeline.submit("молок");
+        pipeline.submit("молоко");
+
+        // Debounce для "молок" отменён, новый запрос не отправлен
+        assertTrue(scheduler.pending.isEmpty());
+        assertEquals(1, parser.calls.size());
+        assertEquals("results молоко 4", events.get(events.size() - 1));
+        assertSame(SearchPipeline.StageTimings.REUSED, timings.get(timings.size() - 1));
+    }
+
+    @Test
+    public void sameQueryCanBeSentAgainAfterError() {
+        pipeline.submit("молоко");
+        scheduler.runPending();
+        parser.calls.get(0).fail();
+
+        pipeline.submit("молоко");
+        scheduler.runPending();
+
+        assertEquals(List.of("scheduled молоко", "started молоко", "error молоко",
+                "scheduled молоко", "started молоко"), events);
+        assertEquals(2, parser.calls.size());
+    }
+
+    /**
+     * {@link SearchPipeline.Scheduler}, задачи которого выполняет тест.
+     */
+    private static final class ManualScheduler implements SearchPipeline.Scheduler {
+        final List<Runnable> pending = new ArrayList<>();
+        long lastDelayMillis;
+
+        @Override
+        public void postDelayed(@NonNull Runnable action, long delayMillis) {
+            pending.add(action);
+            lastDelayMillis = delayMillis;
+        }
+
+        @Override
+        public void removeCallbacks(@NonNull Runnable action) {
+            pending.remove(action);
+        }
+
+        void runPending() {
+            List<Runnable> actions = new ArrayList<>(pending);
+            pending.clear();
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Отправленный поиск; результат доставляется тестом, как если бы он пришёл в основной поток.
+     */
+    private static final class Call {
+        final String query;
+        final ProductParseCallback<List<Product>> callback;
+        final ParseTask task = ParseTask.detached(RequestPriority.USER);
+
+        Call(String query, ProductParseCallback<List<Product>> callback) {
+            this.query = query;
+            this.callback = callback;
+        }
+
+        void succeed(int count) {
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Product product = new Product();
+                product.setName(query + " " + i);
+                products.add(product);
+            }
+            callback.onSuccess(products, task.getTrace());
+        }
+
+        void fail() {
+            callback.onError(new IOException("HTTP 500"));
+        }
+    }
+
+    private static final class ManualParser extends Parser {
+        final List<Call> calls = new ArrayList<>();
+
+        @NonNull
+        @Override
+        public ParseTask findProductsAsync(String query, @NonNull ProductParseCallback<List<Product>> callback) {
+            Call call = new Call(query, callback);
+            calls.add(call);
+            return call.task;
+        }
+
+        @Override
+        public List<Product> findProducts(String query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Product parseProductDetails(Product product) {
+            return product;
+        }
+    }
+}
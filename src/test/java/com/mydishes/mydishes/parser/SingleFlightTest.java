@@ -0,0 +1,186 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.mydishes.mydishes.parser.http.RequestPriority;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> flight.execute("https://example.com/product/1", () -> {
+                loads.incrementAndGet();
+                release.await(5, TimeUnit.SECONDS);
+                return "КБЖУ";
+            })));
+        }
+        waitForMerged(3);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("КБЖУ", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.stats().executed);
+        assertEquals(3, flight.stats().merged);
+    }
+
+    @Test
+    public void errorIsDeliveredToAllMergedCalls() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IOException failure = new IOException("Сайт недоступен");
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            results.add(executor.submit(() -> flight.execute("молоко", () -> {
+                release.await(5, TimeUnit.SECONDS);
+                throw failure;
+            })));
+        }
+        waitForMerged(1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Ошибка не доставлена");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    public void keyIsReleasedAfterCompletion() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+
+        flight.execute("сыр", () -> "1:" + loads.incrementAndGet());
+        String second = flight.execute("сыр", () -> "2:" + loads.incrementAndGet());
+
+        assertEquals("2:2", second);
+        assertEquals(2, flight.stats().executed);
+        assertEquals(0, flight.stats().merged);
+    }
+
+    @Test
+    public void differentKeysAreNotMerged() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        Future<String> first = executor.submit(() -> flight.execute("сыр", () -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            return "сыр";
+        }));
+        Future<String> second = executor.submit(() -> flight.execute("хлеб", () -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            return "хлеб";
+        }));
+
+        assertEquals("сыр", first.get(5, TimeUnit.SECONDS));
+        assertEquals("хлеб", second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, flight.stats().merged);
+    }
+
+    @Test
+    public void userCallDoesNotWaitForPrefetch() throws Exception {
+        CountDownLatch prefetchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<String> prefetch = executor.submit(() -> ParseTask.detached(RequestPriority.PREFETCH).callAsCurrent(
+                () -> flight.execute("https://example.com/product/1", () -> {
+                    loads.incrementAndGet();
+                    prefetchStarted.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "предзагрузка";
+                })));
+        assertTrue(prefetchStarted.await(5, TimeUnit.SECONDS));
+
+        // Пользователь не ждёт предзагрузку, а последующая предзагрузка присоединяется к его запросу
+        CountDownLatch userRelease = new CountDownLatch(1);
+        Future<String> user = executor.submit(() -> ParseTask.detached(RequestPriority.USER).callAsCurrent(
+                () -> flight.execute("https://example.com/product/1", () -> {
+                    loads.incrementAndGet();
+                    userRelease.await(5, TimeUnit.SECONDS);
+                    return "пользователь";
+                })));
+        waitForExecuted(2);
+        Future<String> laterPrefetch = executor.submit(() -> ParseTask.detached(RequestPriority.BACKGROUND).callAsCurrent(
+                () -> flight.execute("https://example.com/product/1", () -> "лишний запрос")));
+        waitForMerged(1);
+        userRelease.countDown();
+
+        assertEquals("пользователь", user.get(5, TimeUnit.SECONDS));
+        assertEquals("пользователь", laterPrefetch.get(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals("предзагрузка", prefetch.get(5, TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void samePriorityCallsAreMerged() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ParseTask prefetchTask = ParseTask.detached(RequestPriority.PREFETCH);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            results.add(executor.submit(() -> prefetchTask.callAsCurrent(() -> flight.execute("сыр", () -> {
+                release.await(5, TimeUnit.SECONDS);
+                return "сыр";
+            }))));
+        }
+        waitForMerged(1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("сыр", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, flight.stats().executed);
+    }
+
+    private void waitForExecuted(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flight.stats().executed < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, flight.stats().executed);
+    }
+
+    private void waitForMerged(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flight.stats().merged < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, flight.stats().merged);
+    }
+}
@@ -0,0 +1,137 @@
+package com.mydishes.mydishes.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.mydishes.mydishes.models.Nutrition;
+import com.mydishes.mydishes.parser.http.OkHttpTransport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+public class SourceConfigTest {
+
+    // Описание другого магазина: свои классы разметки и подписи КБЖУ, без встроенного состояния
+    private static final String OTHER_SHOP = "{"
+            + "\"id\": \"other\","
+            + "\"baseUrl\": \"https://shop.example\","
+            + "\"searchPath\": \"/find?q=\","
+            + "\"selectors\": {"
+            + "  \"card\": \"li.item\", \"link\": \"a.title\", \"image\": \"img.photo\","
+            + "  \"nutritionRow\": \"tr.kbju\", \"nutritionLabel\": \"th\", \"nutritionValue\": \"td\""
+            + "},"
+            + "\"nutritionLabels\": {"
+            + "  \"calories\": [\"Калорийность\", \"Энергетическая ценность\"],"
+            + "  \"protein\": [\"Белок\"], \"fat\": [\"Жир\"], \"carb\": [\"Углеводы\"]"
+            + "}"
+            + "}";
+
+    @Test
+    public void builtInConfigIsLoadedOnce() throws Exception {
+        SourceConfig config = SourceConfig.forSource(SourceConfig.EDOSTAVKA);
+
+        assertSame(config, SourceConfig.edostavka());
+        assertEquals("https://edostavka.by", config.baseUrl);
+        assertEquals("/search?query=", config.searchPath);
+        assertEquals(SourceConfig.NutritionField.PROTEIN, config.nutritionField("Белки"));
+        assertTrue(config.pageState != null);
+    }
+
+    @Test
+    public void searchUrlAddsPageParameterOnlyForNextPages() throws Exception {
+        SourceConfig config = SourceConfig.edostavka();
+        assertEquals("https://edostavka.by/search?query=%D0%BC%D0%BE%D0%BB%D0%BE%D0%BA%D0%BE",
+                config.searchUrl("молоко", 0));
+        assertEquals("https://edostavka.by/search?query=milk&page=3", config.searchUrl("milk", 2));
+
+        // Источник без постраничной выдачи: следующих страниц нет
+        SourceConfig other = SourceConfig.parse(new StringReader(OTHER_SHOP));
+        assertNull(other.pageParam);
+        assertEquals("https://shop.example/find?q=milk", other.searchUrl("milk", 0));
+        assertNull(other.searchUrl("milk", 1));
+    }
+
+    @Test
+    public void otherShopIsParsedWithoutCodeChanges() throws Exception {
+        SourceConfig config = SourceConfig.parse(new StringReader(OTHER_SHOP));
+        EdostavkaParser parser = new EdostavkaParser(OkHttpTransport.shared(), config, false);
+
+        String search = "<html><body><ul>"
+                + "<li class=\"item\"><img class=\"photo\" src=\"/i/1.jpg\" alt=\"Кефир &amp; йогурт\">"
+                + "<a class=\"title\" href=\"/p/1\">Кефир</a></li>"
+                + "<li class=\"item\"><img class=\"photo\" src=\"/i/2.jpg\" alt=\"Ряженка\">"
+                + "<a class=\"title\" href=\"/p/2\">Ряженка</a></li>"
+                + "</ul></body></html>";
+        EdostavkaParser.SearchPage page = parser.parseSearchPage(
+                new ByteArrayInputStream(search.getBytes(StandardCharsets.UTF_8)), null,
+                "https://shop.example/find?q=milk");
+
+        assertEquals(SearchParseStats.Mode.DOM, page.stats.mode);
+        assertEquals(2, page.products.size());
+        assertEquals("Кефир & йогурт", page.products.get(0).getName());
+        assertEquals("https://shop.example/p/1", page.products.get(0).getProductURL());
+
+        String product = "<html><body><table>"
+                + "<tr class=\"kbju\"><th>Калорийность</th><td>40 ккал / 167 кДж</td></tr>"
+                + "<tr class=\"kbju\"><th>Белок</th><td>3,0 г</td></tr>"
+                + "<tr class=\"kbju\"><th>Жир</th><td>1,5 г</td></tr>"
+                + "<tr class=\"kbju\"><th>Углеводы</th><td>4,1 г</td></tr>"
+                + "</table></body></html>";
+        EdostavkaParser.ProductPage productPage = parser.parseProductPage(
+                new ByteArrayInputStream(product.getBytes(StandardCharsets.UTF_8)), null, "https://shop.example/p/1");
+        Nutrition nutrition = productPage.toNutrition("https://shop.example/p/1");
+
+        assertEquals(40, nutrition.getCalories(), 0.001);
+        assertEquals(3.0, nutrition.getProtein(), 0.001);
+        assertEquals(1.5, nutrition.getFat(), 0.001);
+        assertEquals(4.1, nutrition.getCarb(), 0.001);
+    }
+
+    @Test
+    public void withBaseUrlKeepsCompiledSelectors() throws Exception {
+        SourceConfig config = SourceConfig.edostavka();
+        SourceConfig local = config.withBaseUrl("http://127.0.0.1:8080");
+
+        assertEquals("http://127.0.0.1:8080", local.baseUrl);
+        assertSame(config.card, local.card);
+        assertSame(config.pageState, local.pageState);
+    }
+
+    @Test
+    public void invalidSelectorIsRejected() {
+        assertInvalid(OTHER_SHOP.replace("li.item", "li[["));
+    }
+
+    @Test
+    public void missingFieldIsRejected() {
+        assertInvalid(OTHER_SHOP.replace("\"nutritionValue\": \"td\"", "\"nutritionValue\": \"\""));
+        assertInvalid(OTHER_SHOP.replace("\"protein\": [\"Белок\"], ", ""));
+        assertInvalid("[]");
+    }
+
+    @Test
+    public void unknownSourceIsReported() {
+        try {
+            SourceConfig.forSource("missing");
+            fail();
+        } catch (IOException expected) {
+            assertNull(expected.getCause());
+        }
+    }
+
+    private static void assertInvalid(String json) {
+        try {
+            SourceConfig.parse(new StringReader(json));
+            fail("Описание принято: " + json);
+        } catch (IOException expected) {
+            // ожидаемо
+        }
+    }
+}
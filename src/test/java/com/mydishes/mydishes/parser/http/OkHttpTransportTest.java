@@ -0,0 +1,155 @@
+package com.mydishes.mydishes.parser.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+
+public class OkHttpTransportTest {
+
+    private static final String PAGE = "<html><body><p>Молоко</p></body></html>";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger connects = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private OkHttpTransport transport;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/page", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = PAGE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/gzip", exchange -> {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(PAGE.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, compressed.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                compressed.writeTo(out);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        transport = new OkHttpTransport(OkHttpTransport.newClientBuilder(1000, 1000)
+                .eventListener(new EventListener() {
+                    @Override
+                    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress address,
+                                             @NonNull java.net.Proxy proxy) {
+                        connects.incrementAndGet();
+                    }
+                })
+                .build());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void repeatedCallsReuseOneConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(PAGE, get(baseUrl + "/page"));
+        }
+
+        assertEquals(5, requests.get());
+        // Соединение устанавливается один раз, остальные запросы идут по нему же
+        assertEquals(1, connects.get());
+    }
+
+    @Test
+    public void gzipBodyIsDecoded() throws Exception {
+        assertEquals(PAGE, get(baseUrl + "/gzip"));
+    }
+
+    @Test
+    public void responseReportsCodeAndCharset() throws Exception {
+        try (HttpResponse response = transport.newCall(new HttpRequest(baseUrl + "/page")).execute()) {
+            assertTrue(response.isSuccessful());
+            assertEquals("UTF-8", response.charset());
+            assertEquals("text/html; charset=utf-8", response.header("content-type"));
+        }
+        try (HttpResponse response = transport.newCall(new HttpRequest(baseUrl + "/missing")).execute()) {
+            assertEquals(404, response.code());
+        }
+    }
+
+    @Test
+    public void closedCallIsNotExecuted() {
+        HttpTransport.Call call = transport.newCall(new HttpRequest(baseUrl + "/page"));
+        call.close();
+        try {
+            call.execute().close();
+            fail("Отменённый вызов выполнился");
+        } catch (IOException expected) {
+            assertEquals(0, requests.get());
+        }
+    }
+
+    @Test
+    public void timingsSkipConnectionSetupForPooledConnection() throws Exception {
+        OkHttpTransport timed = new OkHttpTransport(OkHttpTransport.newClientBuilder(1000, 1000).build());
+
+        CallTimings first;
+        try (HttpResponse response = timed.newCall(new HttpRequest(baseUrl + "/page")).execute()) {
+            first = response.timings();
+            response.body().close();
+        }
+        CallTimings second;
+        try (HttpResponse response = timed.newCall(new HttpRequest(baseUrl + "/page")).execute()) {
+            second = response.timings();
+        }
+
+        assertTrue(first.connectNanos > 0);
+        assertTrue(first.firstByteNanos > 0);
+        // Без TLS этап рукопожатия не выполняется
+        assertEquals(CallTimings.SKIPPED, first.tlsNanos);
+        assertEquals(CallTimings.SKIPPED, second.connectNanos);
+        assertTrue(second.firstByteNanos > 0);
+    }
+
+    private String get(String url) throws IOException {
+        try (HttpResponse response = transport.newCall(new HttpRequest(url)).execute();
+             InputStream body = response.body()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toString("UTF-8");
+        }
+    }
+}
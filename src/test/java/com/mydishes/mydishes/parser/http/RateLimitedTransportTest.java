@@ -0,0 +1,182 @@
+package com.mydishes.mydishes.parser.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimitedTransportTest {
+
+    private static final String HOST = "shop.example";
+
+    private final List<String> served = Collections.synchronizedList(new ArrayList<>());
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void burstPassesWithoutWaitingThenRateIsLimited() throws Exception {
+        RateLimitedTransport transport = new RateLimitedTransport(new RecordingTransport(), 20, 3);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            execute(transport, "https://" + HOST + "/" + i, RequestPriority.USER);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Три запроса проходят сразу, ещё два ждут по 50 мс
+        assertTrue("Прошло " + elapsedMs + " мс", elapsedMs >= 80);
+        RateLimitedTransport.WaitStats stats = transport.stats(RequestPriority.USER);
+        assertEquals(5, stats.requests);
+        assertTrue(stats.maxWaitNanos >= TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void otherHostsAreNotDelayed() throws Exception {
+        RateLimitedTransport transport = new RateLimitedTransport(new RecordingTransport(), 1, 1);
+        execute(transport, "https://" + HOST + "/1", RequestPriority.USER);
+
+        long start = System.nanoTime();
+        execute(transport, "https://other.example/1", RequestPriority.USER);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+    }
+
+    @Test
+    public void queuedRequestsAreServedByPriority() throws Exception {
+        RateLimitedTransport transport = new RateLimitedTransport(new RecordingTransport(), 5, 1);
+        // Единственный токен забирает первый запрос, остальные встают в очередь
+        execute(transport, "https://" + HOST + "/first", RequestPriority.USER);
+
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(submit(transport, "https://" + HOST + "/background", RequestPriority.BACKGROUND));
+        awaitQueued(transport, 1);
+        futures.add(submit(transport, "https://" + HOST + "/prefetch", RequestPriority.PREFETCH));
+        awaitQueued(transport, 2);
+        futures.add(submit(transport, "https://" + HOST + "/user", RequestPriority.USER));
+        awaitQueued(transport, 3);
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("/first", "/user", "/prefetch", "/background"), served);
+    }
+
+    @Test
+    public void closeRemovesWaitingRequestFromQueue() throws Exception {
+        RateLimitedTransport transport = new RateLimitedTransport(new RecordingTransport(), 0.1, 1);
+        execute(transport, "https://" + HOST + "/first", RequestPriority.USER);
+
+        HttpTransport.Call call = transport.newCall(new HttpRequest("https://" + HOST + "/waiting"));
+        Future<HttpResponse> waiting = executor.submit(call::execute);
+        awaitQueued(transport, 1);
+        call.close();
+
+        try {
+            waiting.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InterruptedIOException);
+        }
+        assertEquals(0, transport.queued(HOST));
+        assertEquals(List.of("/first"), served);
+    }
+
+    private void execute(RateLimitedTransport transport, String url, RequestPriority priority) throws IOException {
+        transport.newCall(new HttpRequest(url).priority(priority)).execute().close();
+    }
+
+    private Future<?> submit(RateLimitedTransport transport, String url, RequestPriority priority) {
+        return executor.submit(() -> {
+            execute(transport, url, priority);
+            return null;
+        });
+    }
+
+    private static void awaitQueued(RateLimitedTransport transport, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (transport.queued(HOST) < count) {
+            if (System.nanoTime() > deadline) {
+                fail("В очереди " + transport.queued(HOST) + " запросов вместо " + count);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Транспорт, сразу отвечающий 200 и запоминающий порядок запросов.
+     */
+    private final class RecordingTransport implements HttpTransport {
+        @NonNull
+        @Override
+        public Call newCall(@NonNull HttpRequest request) {
+            return new Call() {
+                @NonNull
+                @Override
+                public HttpResponse execute() {
+                    String url = request.getUrl();
+                    served.add(url.substring(url.indexOf('/', "https://".length())));
+                    return new HttpResponse() {
+                        @Override
+                        public int code() {
+                            return 200;
+                        }
+
+                        @NonNull
+                        @Override
+                        public String url() {
+                            return url;
+                        }
+
+                        @Nullable
+                        @Override
+                        public String header(@NonNull String name) {
+                            return null;
+                        }
+
+                        @Nullable
+                        @Override
+                        public String charset() {
+                            return null;
+                        }
+
+                        @NonNull
+                        @Override
+                        public InputStream body() {
+                            return new ByteArrayInputStream(new byte[0]);
+                        }
+
+                        @Override
+                        public void close() {
+                        }
+                    };
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
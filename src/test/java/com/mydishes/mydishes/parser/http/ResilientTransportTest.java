@@ -0,0 +1,262 @@
+package com.mydishes.mydishes.parser.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ResilientTransportTest {
+
+    private static final String URL = "https://shop.example/search?query=milk";
+
+    private final ScriptedTransport site = new ScriptedTransport();
+    private long now;
+
+    @Test
+    public void networkErrorsAreRetried() throws Exception {
+        site.fail(new SocketTimeoutException("timeout")).fail(new IOException("reset")).respond(200);
+        ResilientTransport transport = transport(3, 10);
+
+        try (HttpResponse response = transport.newCall(new HttpRequest(URL)).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(3, site.calls);
+        assertEquals(2, transport.stats().retries);
+    }
+
+    @Test
+    public void serverErrorIsRetriedAndLastResponseReturned() throws Exception {
+        site.respond(503).respond(502).respond(503);
+        ResilientTransport transport = transport(3, 10);
+
+        try (HttpResponse response = transport.newCall(new HttpRequest(URL)).execute()) {
+            assertEquals(503, response.code());
+            // Ответы предыдущих попыток закрыты
+            assertEquals(2, site.closedResponses);
+        }
+        assertEquals(3, site.calls);
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() throws Exception {
+        site.respond(404);
+        ResilientTransport transport = transport(3, 10);
+
+        try (HttpResponse response = transport.newCall(new HttpRequest(URL)).execute()) {
+            assertEquals(404, response.code());
+        }
+        assertEquals(1, site.calls);
+    }
+
+    @Test
+    public void breakerFailsFastWhileSiteIsDownAndClosesAfterTrial() throws Exception {
+        ResilientTransport transport = transport(1, 2);
+        IOException down = new IOException("connection refused");
+        site.fail(down).fail(down);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                transport.newCall(new HttpRequest(URL)).execute();
+                fail();
+            } catch (IOException e) {
+                assertSame(down, e);
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, transport.getBreakerState("shop.example"));
+
+        // Пока выключатель разомкнут, сайт не получает запросов
+        try {
+            transport.newCall(new HttpRequest(URL)).execute();
+            fail();
+        } catch (CircuitOpenException expected) {
+            // ожидаемо
+        }
+        assertEquals(2, site.calls);
+
+        now += ResilientTransport.DEFAULT_OPEN_MS;
+        site.respond(200);
+        transport.newCall(new HttpRequest(URL)).execute().close();
+
+        assertEquals(CircuitBreaker.State.CLOSED, transport.getBreakerState("shop.example"));
+        CircuitBreaker.Stats stats = transport.stats().breakers;
+        assertEquals(1, stats.opened);
+        assertEquals(1, stats.halfOpened);
+        assertEquals(1, stats.closed);
+        assertEquals(1, stats.rejected);
+    }
+
+    @Test
+    public void failedTrialOpensBreakerAgain() throws Exception {
+        ResilientTransport transport = transport(1, 1);
+        site.respond(500).respond(500);
+
+        transport.newCall(new HttpRequest(URL)).execute().close();
+        now += ResilientTransport.DEFAULT_OPEN_MS;
+        transport.newCall(new HttpRequest(URL)).execute().close();
+
+        assertEquals(CircuitBreaker.State.OPEN, transport.getBreakerState("shop.example"));
+        assertEquals(2, transport.stats().breakers.opened);
+    }
+
+    @Test
+    public void breakersAreKeptPerHost() throws Exception {
+        ResilientTransport transport = transport(1, 1);
+        site.fail(new IOException("down")).respond(200);
+
+        try {
+            transport.newCall(new HttpRequest(URL)).execute();
+            fail();
+        } catch (IOException expected) {
+            // ожидаемо
+        }
+        transport.newCall(new HttpRequest("https://other.example/")).execute().close();
+
+        assertEquals(CircuitBreaker.State.OPEN, transport.getBreakerState("shop.example"));
+        assertEquals(CircuitBreaker.State.CLOSED, transport.getBreakerState("other.example"));
+    }
+
+    @Test
+    public void closeInterruptsBackoff() throws Exception {
+        site.fail(new IOException("reset")).respond(200);
+        ResilientTransport transport = new ResilientTransport(site, 3, 60_000, 60_000, 5,
+                ResilientTransport.DEFAULT_OPEN_MS, () -> now, new FixedRandom());
+        HttpTransport.Call call = transport.newCall(new HttpRequest(URL));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<HttpResponse> result = executor.submit(call::execute);
+            while (transport.stats().retries == 0) {
+                Thread.sleep(5);
+            }
+            call.close();
+            result.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (java.util.concurrent.ExecutionException e) {
+            assertTrue(e.getCause() instanceof InterruptedIOException);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, site.calls);
+        // Отмена не считается неудачей сайта
+        assertEquals(CircuitBreaker.State.CLOSED, transport.getBreakerState("shop.example"));
+    }
+
+    private ResilientTransport transport(int maxAttempts, int failureThreshold) {
+        return new ResilientTransport(site, maxAttempts, 1, 5, failureThreshold,
+                ResilientTransport.DEFAULT_OPEN_MS, () -> now, new Random(1));
+    }
+
+    /**
+     * Всегда выбирает максимальную паузу.
+     */
+    private static final class FixedRandom extends Random {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public double nextDouble() {
+            return 1;
+        }
+    }
+
+    /**
+     * Транспорт, отвечающий по заранее заданному сценарию.
+     */
+    private static final class ScriptedTransport implements HttpTransport {
+        private final Deque<Object> script = new ArrayDeque<>();
+        volatile int calls;
+        volatile int closedResponses;
+
+        ScriptedTransport fail(IOException error) {
+            script.add(error);
+            return this;
+        }
+
+        ScriptedTransport respond(int code) {
+            script.add(code);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Call newCall(@NonNull HttpRequest request) {
+            return new Call() {
+                @NonNull
+                @Override
+                public HttpResponse execute() throws IOException {
+                    calls++;
+                    Object next = script.poll();
+                    if (next instanceof IOException) {
+                        throw (IOException) next;
+                    }
+                    return new StubResponse(next != null ? (Integer) next : 200, request.getUrl());
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        private final class StubResponse implements HttpResponse {
+            private final int code;
+            private final String url;
+
+            StubResponse(int code, String url) {
+                this.code = code;
+                this.url = url;
+            }
+
+            @Override
+            public int code() {
+                return code;
+            }
+
+            @NonNull
+            @Override
+            public String url() {
+                return url;
+            }
+
+            @Nullable
+            @Override
+            public String header(@NonNull String name) {
+                return null;
+            }
+
+            @Nullable
+            @Override
+            public String charset() {
+                return null;
+            }
+
+            @NonNull
+            @Override
+            public InputStream body() {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+
+            @Override
+            public void close() {
+                closedResponses++;
+            }
+        }
+    }
+}
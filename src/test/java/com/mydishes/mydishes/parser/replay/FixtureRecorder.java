@@ -0,0 +1,93 @@
+package com.mydishes.mydishes.parser.replay;
+
+import com.mydishes.mydishes.models.Product;
+import com.mydishes.mydishes.parser.EdostavkaParser;
+import com.mydishes.mydishes.parser.http.HttpRequest;
+import com.mydishes.mydishes.parser.http.HttpResponse;
+import com.mydishes.mydishes.parser.http.HttpTransport;
+import com.mydishes.mydishes.parser.http.OkHttpTransport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Записывает страницы сайта для {@link FixtureServer}: результаты поиска по каждому запросу и страницы
+ * первых найденных продуктов, а также индекс {@code index.txt}.
+ * <p>
+ * Запуск (из IDE или через {@code java -cp ...}):
+ * {@code FixtureRecorder src/test/resources/fixtures/replay молоко хлеб}. Ресурсы в индексе указываются
+ * относительно каталога {@code src/test/resources}, поэтому записывать нужно в каталог внутри него.
+ * </p>
+ */
+public final class FixtureRecorder {
+
+    // Количество страниц продуктов, записываемых для каждого запроса
+    private static final int PRODUCTS_PER_QUERY = 5;
+    private static final String RESOURCES_ROOT = "src/test/resources";
+
+    private FixtureRecorder() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Использование: FixtureRecorder <каталог> <запрос>...");
+            System.exit(2);
+        }
+        Path dir = Paths.get(args[0]);
+        Files.createDirectories(dir);
+        String resourcePrefix = "/" + Paths.get(RESOURCES_ROOT).toAbsolutePath()
+                .relativize(dir.toAbsolutePath()).toString().replace('\\', '/') + "/";
+
+        HttpTransport transport = OkHttpTransport.shared();
+        EdostavkaParser parser = new EdostavkaParser(transport, false);
+        StringBuilder index = new StringBuilder("# Записано FixtureRecorder\n");
+
+        int searchCount = 0;
+        int productCount = 0;
+        for (int i = 1; i < args.length; i++) {
+            String query = args[i];
+            String path = "/search?query=" + URLEncoder.encode(query, "UTF-8");
+            String file = "search_" + (++searchCount) + ".html";
+            record(transport, "https://edostavka.by" + path, dir.resolve(file));
+            index.append(path).append(' ').append(resourcePrefix).append(file).append('\n');
+
+            List<Product> products = parser.findProducts(query);
+            for (Product product : products.subList(0, Math.min(PRODUCTS_PER_QUERY, products.size()))) {
+                String productFile = "product_" + (++productCount) + ".html";
+                record(transport, product.getProductURL(), dir.resolve(productFile));
+                index.append(URI.create(product.getProductURL()).getRawPath())
+                        .append(' ').append(resourcePrefix).append(productFile).append('\n');
+            }
+        }
+
+        try (Writer writer = Files.newBufferedWriter(dir.resolve("index.txt"), StandardCharsets.UTF_8)) {
+            writer.write(index.toString());
+        }
+        System.out.println("Записано страниц поиска: " + searchCount + ", продуктов: " + productCount);
+    }
+
+    private static void record(HttpTransport transport, String url, Path target) throws IOException {
+        try (HttpTransport.Call call = transport.newCall(new HttpRequest(url));
+             HttpResponse response = call.execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.code() + " для " + url);
+            }
+            try (InputStream in = response.body(); OutputStream out = Files.newOutputStream(target)) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.mydishes.mydishes.parser.replay;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальный HTTP-сервер, отдающий записанные страницы сайта вместо настоящего сайта.
+ * <p>
+ * Страницы описываются индексом (см. {@link #fromIndex(String)}): каждая строка сопоставляет путь запроса
+ * с файлом ресурса. Задержка перед ответом и пропускная способность настраиваются, чтобы воспроизводить
+ * мобильную сеть одинаково при каждом запуске.
+ * </p>
+ */
+public final class FixtureServer implements Closeable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Route> routes;
+    private volatile long latencyMillis;
+    private volatile long bytesPerSecond;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+
+    /**
+     * @param routes Маршруты: путь запроса (с "*" в конце - префикс) и тело ответа.
+     */
+    public FixtureServer(List<Route> routes) throws IOException {
+        this.routes = new ArrayList<>(routes);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Создает сервер по индексу записанных страниц.
+     * <p>
+     * Формат индекса: строки вида {@code <путь запроса> <ресурс>}, например
+     * {@code /product/* /fixtures/edostavka_product.html}. Путь может включать строку запроса
+     * ({@code /search?query=...}); "*" в конце означает любой путь с таким префиксом.
+     * Пустые строки и строки, начинающиеся с "#", пропускаются. Маршруты проверяются по порядку.
+     * </p>
+     *
+     * @param indexResource Путь к индексу в ресурсах тестов.
+     * @return Запущенный сервер.
+     */
+    public static FixtureServer fromIndex(String indexResource) throws IOException {
+        List<Route> routes = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                openResource(indexResource), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length != 2) {
+                    throw new IOException("Неверная строка индекса " + indexResource + ": " + line);
+                }
+                routes.add(new Route(parts[0], readResource(parts[1])));
+            }
+        }
+        return new FixtureServer(routes);
+    }
+
+    /**
+     * @return Адрес сервера без завершающего "/", например {@code http://127.0.0.1:54321}.
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @param latencyMillis Задержка перед отправкой заголовков ответа, в миллисекундах.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @param bytesPerSecond Скорость отдачи тела ответа, байт в секунду (0 - без ограничения).
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @return Количество обработанных запросов.
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return Количество байт тел ответов, отправленных клиентам.
+     */
+    public long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            String target = exchange.getRequestURI().getRawPath();
+            if (exchange.getRequestURI().getRawQuery() != null) {
+                target += "?" + exchange.getRequestURI().getRawQuery();
+            }
+            Route route = find(target);
+            if (route == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            sleep(latencyMillis);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, route.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                write(out, route.body);
+            } catch (IOException e) {
+                // Клиент прекратил чтение (потоковый разбор остановился досрочно)
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void write(OutputStream out, byte[] body) throws IOException {
+        long limit = bytesPerSecond;
+        if (limit <= 0) {
+            out.write(body);
+            bytesServed.addAndGet(body.length);
+            return;
+        }
+        // Тело отправляется частями по ~20 мс, чтобы скорость была равномерной
+        int chunk = (int) Math.max(1024, limit / 50);
+        long start = System.nanoTime();
+        for (int offset = 0; offset < body.length; offset += chunk) {
+            int length = Math.min(chunk, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            bytesServed.addAndGet(length);
+            long dueNanos = (offset + length) * 1_000_000_000L / limit;
+            long aheadMillis = (dueNanos - (System.nanoTime() - start)) / 1_000_000;
+            sleep(aheadMillis);
+        }
+    }
+
+    private Route find(String target) {
+        for (Route route : routes) {
+            if (route.matches(target)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static InputStream openResource(String name) throws FileNotFoundException {
+        InputStream in = FixtureServer.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new FileNotFoundException("Нет ресурса " + name);
+        }
+        return in;
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream in = openResource(name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Маршрут сервера: путь запроса и тело ответа.
+     */
+    public static final class Route {
+        final String pattern;
+        final byte[] body;
+
+        public Route(String pattern, byte[] body) {
+            this.pattern = pattern;
+            this.body = body;
+        }
+
+        boolean matches(String target) {
+            if (pattern.endsWith("*")) {
+                return target.startsWith(pattern.substring(0, pattern.length() - 1));
+            }
+            return target.equals(pattern);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.mydishes.mydishes.parser.replay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Накопитель длительностей операций для отчёта о пропускной способности и перцентилях задержки.
+ */
+public final class LatencyStats {
+
+    private final String name;
+    private final List<Long> samplesNanos = new ArrayList<>();
+    private long wallNanos;
+
+    /**
+     * @param name Название измеряемой операции (для отчёта).
+     */
+    public LatencyStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Добавляет длительность одной операции.
+     */
+    public synchronized void record(long nanos) {
+        samplesNanos.add(nanos);
+    }
+
+    /**
+     * Задает общее время серии операций (для расчёта пропускной способности параллельных операций).
+     * Если не задано, используется сумма длительностей.
+     */
+    public synchronized void setWallNanos(long wallNanos) {
+        this.wallNanos = wallNanos;
+    }
+
+    public synchronized int count() {
+        return samplesNanos.size();
+    }
+
+    /**
+     * @param percentile Перцентиль от 0 до 100.
+     * @return Длительность по методу ближайшего ранга, в миллисекундах.
+     */
+    public synchronized double percentileMillis(double percentile) {
+        if (samplesNanos.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(samplesNanos);
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1)) / 1_000_000.0;
+    }
+
+    /**
+     * @return Количество операций в секунду.
+     */
+    public synchronized double throughputPerSecond() {
+        long total = wallNanos;
+        if (total == 0) {
+            for (long sample : samplesNanos) {
+                total += sample;
+            }
+        }
+        return total == 0 ? 0 : samplesNanos.size() * 1_000_000_000.0 / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "%s: n=%d throughput=%.1f ops/s p50=%.1f ms p99=%.1f ms",
+                name, count(), throughputPerSecond(), percentileMillis(50), percentileMillis(99));
+    }
+}